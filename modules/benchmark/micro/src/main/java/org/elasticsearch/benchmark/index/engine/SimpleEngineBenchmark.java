@@ -299,7 +299,7 @@ public class SimpleEngineBenchmark {
         Settings settings = EMPTY_SETTINGS;
 
 //        Store store = new RamStore(shardId, settings);
-        Store store = new ByteBufferStore(shardId, settings, null, new ByteBufferCache(settings));
+        Store store = new ByteBufferStore(shardId, settings, null, null, new ByteBufferCache(settings));
 //        Store store = new NioFsStore(shardId, settings);
 
         store.deleteContent();
@@ -307,7 +307,7 @@ public class SimpleEngineBenchmark {
         ThreadPool threadPool = new ScalingThreadPool();
         SnapshotDeletionPolicy deletionPolicy = new SnapshotDeletionPolicy(new KeepOnlyLastDeletionPolicy(shardId, settings));
         Engine engine = new RobinEngine(shardId, settings, store, deletionPolicy, new FsTranslog(shardId, EMPTY_SETTINGS, new File("work/fs-translog"), false), new LogByteSizeMergePolicyProvider(store),
-                new ConcurrentMergeSchedulerProvider(shardId, settings), new AnalysisService(shardId.index()), new SimilarityService(shardId.index()));
+                new ConcurrentMergeSchedulerProvider(shardId, settings), new AnalysisService(shardId.index()), new SimilarityService(shardId.index()), null);
         engine.start();
 
         SimpleEngineBenchmark benchmark = new SimpleEngineBenchmark(store, engine)
@@ -21,6 +21,7 @@ package org.elasticsearch.benchmark.index.store;
 
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.cache.memory.BlockCache;
 import org.elasticsearch.cache.memory.ByteBufferCache;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.settings.Settings;
@@ -264,20 +265,21 @@ public class SimpleStoreBenchmark {
         Settings settings = EMPTY_SETTINGS;
         NodeEnvironment nodeEnvironment = new NodeEnvironment(settings, environment);
         ByteBufferCache byteBufferCache = new ByteBufferCache(settings);
+        BlockCache blockCache = new BlockCache(settings);
 
         ShardId shardId = new ShardId(new Index("index"), 1);
         String type = args.length > 0 ? args[0] : "ram";
         Store store;
         if (type.equalsIgnoreCase("ram")) {
-            store = new RamStore(shardId, settings, null);
+            store = new RamStore(shardId, settings, null, null);
         } else if (type.equalsIgnoreCase("simple-fs")) {
-            store = new SimpleFsStore(shardId, settings, new SimpleFsIndexStore(shardId.index(), settings, null, nodeEnvironment), byteBufferCache);
+            store = new SimpleFsStore(shardId, settings, new SimpleFsIndexStore(shardId.index(), settings, null, nodeEnvironment), null, byteBufferCache, blockCache);
         } else if (type.equalsIgnoreCase("mmap-fs")) {
-            store = new NioFsStore(shardId, settings, new NioFsIndexStore(shardId.index(), settings, null, nodeEnvironment), byteBufferCache);
+            store = new NioFsStore(shardId, settings, new NioFsIndexStore(shardId.index(), settings, null, nodeEnvironment), null, byteBufferCache, blockCache);
         } else if (type.equalsIgnoreCase("nio-fs")) {
-            store = new MmapFsStore(shardId, settings, new MmapFsIndexStore(shardId.index(), settings, null, nodeEnvironment), byteBufferCache);
+            store = new MmapFsStore(shardId, settings, new MmapFsIndexStore(shardId.index(), settings, null, nodeEnvironment), null, byteBufferCache);
         } else if (type.equalsIgnoreCase("memory")) {
-            store = new ByteBufferStore(shardId, settings, null, byteBufferCache);
+            store = new ByteBufferStore(shardId, settings, null, null, byteBufferCache);
         } else {
             throw new IllegalArgumentException("No type store [" + type + "]");
         }
@@ -67,6 +67,11 @@ public class TransportActions {
                 public static final String DELETE = "indices/mapping/delete";
             }
 
+            public static class Warmer {
+                public static final String PUT = "indices/warmer/put";
+                public static final String DELETE = "indices/warmer/delete";
+            }
+
             public static class Cache {
                 public static final String CLEAR = "indices/cache/clear";
             }
@@ -75,8 +75,13 @@ public class GatewayRecoveryStatus {
 
     final long recoveredTranslogOperations;
 
+    final long translogOperationsPerSecond;
+
+    final long throttledTime;
+
     public GatewayRecoveryStatus(Stage stage, long startTime, long time, long indexSize, long reusedIndexSize,
-                                 long recoveredIndexSize, long recoveredTranslogOperations) {
+                                 long recoveredIndexSize, long recoveredTranslogOperations, long translogOperationsPerSecond,
+                                 long throttledTime) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
@@ -84,6 +89,8 @@ public class GatewayRecoveryStatus {
         this.reusedIndexSize = reusedIndexSize;
         this.recoveredIndexSize = recoveredIndexSize;
         this.recoveredTranslogOperations = recoveredTranslogOperations;
+        this.translogOperationsPerSecond = translogOperationsPerSecond;
+        this.throttledTime = throttledTime;
     }
 
     public Stage stage() {
@@ -165,4 +172,32 @@ public class GatewayRecoveryStatus {
     public long getRecoveredTranslogOperations() {
         return recoveredTranslogOperations();
     }
+
+    /**
+     * The rate, in operations per second, translog operations are replayed at.
+     */
+    public long translogOperationsPerSecond() {
+        return translogOperationsPerSecond;
+    }
+
+    /**
+     * The rate, in operations per second, translog operations are replayed at.
+     */
+    public long getTranslogOperationsPerSecond() {
+        return translogOperationsPerSecond();
+    }
+
+    /**
+     * The time the recovery was paused by the node gateway throttle.
+     */
+    public TimeValue throttledTime() {
+        return TimeValue.timeValueMillis(throttledTime);
+    }
+
+    /**
+     * The time the recovery was paused by the node gateway throttle.
+     */
+    public TimeValue getThrottledTime() {
+        return throttledTime();
+    }
 }
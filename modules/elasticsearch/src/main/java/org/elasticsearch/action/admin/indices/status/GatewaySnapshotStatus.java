@@ -72,14 +72,21 @@ public class GatewaySnapshotStatus {
 
     final long indexSize;
 
+    final long snapshottedIndexSize;
+
     final int expectedNumberOfOperations;
 
-    public GatewaySnapshotStatus(Stage stage, long startTime, long time, long indexSize, int expectedNumberOfOperations) {
+    final long throttledTime;
+
+    public GatewaySnapshotStatus(Stage stage, long startTime, long time, long indexSize, long snapshottedIndexSize,
+                                 int expectedNumberOfOperations, long throttledTime) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
         this.indexSize = indexSize;
+        this.snapshottedIndexSize = snapshottedIndexSize;
         this.expectedNumberOfOperations = expectedNumberOfOperations;
+        this.throttledTime = throttledTime;
     }
 
     public Stage stage() {
@@ -114,6 +121,34 @@ public class GatewaySnapshotStatus {
         return indexSize();
     }
 
+    /**
+     * The size of the index files written to the gateway so far.
+     */
+    public ByteSizeValue snapshottedIndexSize() {
+        return new ByteSizeValue(snapshottedIndexSize);
+    }
+
+    /**
+     * The size of the index files written to the gateway so far.
+     */
+    public ByteSizeValue getSnapshottedIndexSize() {
+        return snapshottedIndexSize();
+    }
+
+    /**
+     * The time the snapshot was paused by the node gateway throttle.
+     */
+    public TimeValue throttledTime() {
+        return TimeValue.timeValueMillis(throttledTime);
+    }
+
+    /**
+     * The time the snapshot was paused by the node gateway throttle.
+     */
+    public TimeValue getThrottledTime() {
+        return throttledTime();
+    }
+
     public int expectedNumberOfOperations() {
         return expectedNumberOfOperations;
     }
@@ -75,8 +75,17 @@ public class PeerRecoveryStatus {
 
     final long recoveredTranslogOperations;
 
+    final long translogOperationsPerSecond;
+
+    final long throttledTime;
+
+    final long maxBytesPerSec;
+
+    final int concurrentStreams;
+
     public PeerRecoveryStatus(Stage stage, long startTime, long time, long indexSize, long reusedIndexSize,
-                              long recoveredIndexSize, long recoveredTranslogOperations) {
+                              long recoveredIndexSize, long recoveredTranslogOperations, long translogOperationsPerSecond,
+                              long throttledTime, long maxBytesPerSec, int concurrentStreams) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
@@ -84,6 +93,10 @@ public class PeerRecoveryStatus {
         this.reusedIndexSize = reusedIndexSize;
         this.recoveredIndexSize = recoveredIndexSize;
         this.recoveredTranslogOperations = recoveredTranslogOperations;
+        this.translogOperationsPerSecond = translogOperationsPerSecond;
+        this.throttledTime = throttledTime;
+        this.maxBytesPerSec = maxBytesPerSec;
+        this.concurrentStreams = concurrentStreams;
     }
 
     public Stage stage() {
@@ -165,4 +178,60 @@ public class PeerRecoveryStatus {
     public long getRecoveredTranslogOperations() {
         return recoveredTranslogOperations();
     }
+
+    /**
+     * The time receiving files was paused by the node recovery throttle.
+     */
+    public TimeValue throttledTime() {
+        return TimeValue.timeValueMillis(throttledTime);
+    }
+
+    /**
+     * The time receiving files was paused by the node recovery throttle.
+     */
+    public TimeValue getThrottledTime() {
+        return throttledTime();
+    }
+
+    /**
+     * The rate, in operations per second, translog operations are replayed at.
+     */
+    public long translogOperationsPerSecond() {
+        return translogOperationsPerSecond;
+    }
+
+    /**
+     * The rate, in operations per second, translog operations are replayed at.
+     */
+    public long getTranslogOperationsPerSecond() {
+        return translogOperationsPerSecond();
+    }
+
+    /**
+     * The max bytes per second recoveries on the recovering node can receive (<tt>0</tt> for no limit).
+     */
+    public ByteSizeValue maxBytesPerSec() {
+        return new ByteSizeValue(maxBytesPerSec);
+    }
+
+    /**
+     * The max bytes per second recoveries on the recovering node can receive (<tt>0</tt> for no limit).
+     */
+    public ByteSizeValue getMaxBytesPerSec() {
+        return maxBytesPerSec();
+    }
+
+    /**
+     * The max number of files the recovering node receives concurrently.
+     */
+    public int concurrentStreams() {
+        return concurrentStreams;
+    }
+
+    /**
+     * The max number of files the recovering node receives concurrently.
+     */
+    public int getConcurrentStreams() {
+        return concurrentStreams();
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.action.admin.indices.status;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class RefreshStatus {
+
+    long performed = 0;
+    long skipped = 0;
+    long onDemand = 0;
+    long generation = -1;
+    int openGenerations = 0;
+
+    /**
+     * The number of refreshes that made changes visible to search.
+     */
+    public long performed() {
+        return performed;
+    }
+
+    /**
+     * The number of refreshes that made changes visible to search.
+     */
+    public long getPerformed() {
+        return performed();
+    }
+
+    /**
+     * The number of scheduled refreshes skipped since the shard was not searched recently.
+     */
+    public long skipped() {
+        return skipped;
+    }
+
+    /**
+     * The number of scheduled refreshes skipped since the shard was not searched recently.
+     */
+    public long getSkipped() {
+        return skipped();
+    }
+
+    /**
+     * The number of refreshes performed when a search arrived on a shard with pending changes.
+     */
+    public long onDemand() {
+        return onDemand;
+    }
+
+    /**
+     * The number of refreshes performed when a search arrived on a shard with pending changes.
+     */
+    public long getOnDemand() {
+        return onDemand();
+    }
+
+    /**
+     * The generation of the searcher currently exposed to searches.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * The generation of the searcher currently exposed to searches.
+     */
+    public long getGeneration() {
+        return generation();
+    }
+
+    /**
+     * The number of searcher generations still open, the current one and older ones still used by searches.
+     */
+    public int openGenerations() {
+        return openGenerations;
+    }
+
+    /**
+     * The number of searcher generations still open, the current one and older ones still used by searches.
+     */
+    public int getOpenGenerations() {
+        return openGenerations();
+    }
+}
@@ -50,6 +50,10 @@ public class ShardStatus extends BroadcastShardOperationResponse {
 
     DocsStatus docs;
 
+    RefreshStatus refresh;
+
+    WarmerStatus warmer;
+
     PeerRecoveryStatus peerRecoveryStatus;
 
     GatewayRecoveryStatus gatewayRecoveryStatus;
@@ -148,6 +152,34 @@ public class ShardStatus extends BroadcastShardOperationResponse {
         return docs();
     }
 
+    /**
+     * Refresh level information for the shard, <tt>null</tt> if not applicable.
+     */
+    public RefreshStatus refresh() {
+        return refresh;
+    }
+
+    /**
+     * Refresh level information for the shard, <tt>null</tt> if not applicable.
+     */
+    public RefreshStatus getRefresh() {
+        return refresh();
+    }
+
+    /**
+     * Warmer level information for the shard, <tt>null</tt> if not applicable.
+     */
+    public WarmerStatus warmer() {
+        return warmer;
+    }
+
+    /**
+     * Warmer level information for the shard, <tt>null</tt> if not applicable.
+     */
+    public WarmerStatus getWarmer() {
+        return warmer();
+    }
+
     /**
      * Peer recovery status (<tt>null</tt> if not applicable). Both real time if an on going recovery
      * is in progress and summary once it is done.
@@ -220,6 +252,23 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeInt(docs.maxDoc());
             out.writeInt(docs.deletedDocs());
         }
+        if (refresh == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeVLong(refresh.performed());
+            out.writeVLong(refresh.skipped());
+            out.writeVLong(refresh.onDemand());
+            out.writeLong(refresh.generation());
+            out.writeVInt(refresh.openGenerations());
+        }
+        if (warmer == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeVLong(warmer.total);
+            out.writeVLong(warmer.totalTimeInMillis);
+        }
         if (peerRecoveryStatus == null) {
             out.writeBoolean(false);
         } else {
@@ -231,6 +280,10 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(peerRecoveryStatus.reusedIndexSize);
             out.writeVLong(peerRecoveryStatus.recoveredIndexSize);
             out.writeVLong(peerRecoveryStatus.recoveredTranslogOperations);
+            out.writeVLong(peerRecoveryStatus.translogOperationsPerSecond);
+            out.writeVLong(peerRecoveryStatus.throttledTime);
+            out.writeVLong(peerRecoveryStatus.maxBytesPerSec);
+            out.writeVInt(peerRecoveryStatus.concurrentStreams);
         }
 
         if (gatewayRecoveryStatus == null) {
@@ -244,6 +297,8 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(gatewayRecoveryStatus.reusedIndexSize);
             out.writeVLong(gatewayRecoveryStatus.recoveredIndexSize);
             out.writeVLong(gatewayRecoveryStatus.recoveredTranslogOperations);
+            out.writeVLong(gatewayRecoveryStatus.translogOperationsPerSecond);
+            out.writeVLong(gatewayRecoveryStatus.throttledTime);
         }
 
         if (gatewaySnapshotStatus == null) {
@@ -254,7 +309,9 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(gatewaySnapshotStatus.startTime);
             out.writeVLong(gatewaySnapshotStatus.time);
             out.writeVLong(gatewaySnapshotStatus.indexSize);
+            out.writeVLong(gatewaySnapshotStatus.snapshottedIndexSize);
             out.writeVInt(gatewaySnapshotStatus.expectedNumberOfOperations());
+            out.writeVLong(gatewaySnapshotStatus.throttledTime);
         }
     }
 
@@ -273,19 +330,34 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             docs.maxDoc = in.readInt();
             docs.deletedDocs = in.readInt();
         }
+        if (in.readBoolean()) {
+            refresh = new RefreshStatus();
+            refresh.performed = in.readVLong();
+            refresh.skipped = in.readVLong();
+            refresh.onDemand = in.readVLong();
+            refresh.generation = in.readLong();
+            refresh.openGenerations = in.readVInt();
+        }
+        if (in.readBoolean()) {
+            warmer = new WarmerStatus();
+            warmer.total = in.readVLong();
+            warmer.totalTimeInMillis = in.readVLong();
+        }
         if (in.readBoolean()) {
             peerRecoveryStatus = new PeerRecoveryStatus(PeerRecoveryStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(),
+                    in.readVLong(), in.readVLong(), in.readVInt());
         }
 
         if (in.readBoolean()) {
             gatewayRecoveryStatus = new GatewayRecoveryStatus(GatewayRecoveryStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(),
+                    in.readVLong());
         }
 
         if (in.readBoolean()) {
             gatewaySnapshotStatus = new GatewaySnapshotStatus(GatewaySnapshotStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVInt());
+                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVInt(), in.readVLong());
         }
     }
 }
@@ -41,7 +41,9 @@ import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.recovery.RecoveryStatus;
 import org.elasticsearch.index.shard.recovery.RecoveryTarget;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.recovery.IndicesRecoveryThrottle;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
@@ -60,10 +62,13 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
 
     private final RecoveryTarget peerRecoveryTarget;
 
+    private final IndicesRecoveryThrottle recoveryThrottle;
+
     @Inject public TransportIndicesStatusAction(Settings settings, ThreadPool threadPool, ClusterService clusterService, TransportService transportService,
-                                                IndicesService indicesService, RecoveryTarget peerRecoveryTarget) {
+                                                IndicesService indicesService, RecoveryTarget peerRecoveryTarget, IndicesRecoveryThrottle recoveryThrottle) {
         super(settings, threadPool, clusterService, transportService);
         this.peerRecoveryTarget = peerRecoveryTarget;
+        this.recoveryThrottle = recoveryThrottle;
         this.indicesService = indicesService;
     }
 
@@ -162,6 +167,16 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
             } finally {
                 searcher.release();
             }
+            shardStatus.refresh = new RefreshStatus();
+            shardStatus.refresh.performed = indexShard.refreshesPerformed();
+            shardStatus.refresh.skipped = indexShard.refreshesSkipped();
+            shardStatus.refresh.onDemand = indexShard.onDemandRefreshes();
+            shardStatus.refresh.generation = indexShard.engine().searcherGeneration();
+            shardStatus.refresh.openGenerations = indexShard.engine().openSearcherGenerations();
+            ShardIndexWarmerService warmerService = indexService.shardInjector(request.shardId()).getInstance(ShardIndexWarmerService.class);
+            shardStatus.warmer = new WarmerStatus();
+            shardStatus.warmer.total = warmerService.totalWarms();
+            shardStatus.warmer.totalTimeInMillis = warmerService.totalWarmTimeInMillis();
         }
         // check on going recovery (from peer or gateway)
         RecoveryStatus peerRecoveryStatus = indexShard.peerRecoveryStatus();
@@ -191,7 +206,8 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
             }
             shardStatus.peerRecoveryStatus = new PeerRecoveryStatus(stage, peerRecoveryStatus.startTime(), peerRecoveryStatus.time(),
                     peerRecoveryStatus.phase1TotalSize(), peerRecoveryStatus.phase1ExistingTotalSize(),
-                    peerRecoveryStatus.currentFilesSize(), peerRecoveryStatus.currentTranslogOperations());
+                    peerRecoveryStatus.currentFilesSize(), peerRecoveryStatus.currentTranslogOperations(), peerRecoveryStatus.translogOperationsPerSecond(),
+                    peerRecoveryStatus.throttledTime().millis(), recoveryThrottle.maxBytesPerSec().bytes(), recoveryThrottle.concurrentIncomingStreams());
         }
 
         IndexShardGatewayService gatewayService = indexService.shardInjector(request.shardId()).getInstance(IndexShardGatewayService.class);
@@ -215,7 +231,8 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
                     stage = GatewayRecoveryStatus.Stage.INIT;
             }
             shardStatus.gatewayRecoveryStatus = new GatewayRecoveryStatus(stage, gatewayRecoveryStatus.startTime(), gatewayRecoveryStatus.time(),
-                    gatewayRecoveryStatus.index().totalSize(), gatewayRecoveryStatus.index().reusedTotalSize(), gatewayRecoveryStatus.index().currentFilesSize(), gatewayRecoveryStatus.translog().currentTranslogOperations());
+                    gatewayRecoveryStatus.index().totalSize(), gatewayRecoveryStatus.index().reusedTotalSize(), gatewayRecoveryStatus.index().currentFilesSize(), gatewayRecoveryStatus.translog().currentTranslogOperations(),
+                    gatewayRecoveryStatus.translog().operationsPerSecond(), gatewayRecoveryStatus.throttledTime().millis());
         }
 
         SnapshotStatus snapshotStatus = gatewayService.snapshotStatus();
@@ -242,7 +259,8 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
                     break;
             }
             shardStatus.gatewaySnapshotStatus = new GatewaySnapshotStatus(stage, snapshotStatus.startTime(), snapshotStatus.time(),
-                    snapshotStatus.index().totalSize(), snapshotStatus.translog().expectedNumberOfOperations());
+                    snapshotStatus.index().totalSize(), snapshotStatus.index().currentFilesSize(), snapshotStatus.translog().expectedNumberOfOperations(),
+                    snapshotStatus.throttledTime().millis());
         }
 
         return shardStatus;
@@ -0,0 +1,101 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.indices.warmer.delete;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.master.MasterNodeOperationRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+import static org.elasticsearch.action.Actions.*;
+
+/**
+ * A request to remove a registered warmer from one or more indices.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class DeleteWarmerRequest extends MasterNodeOperationRequest {
+
+    private String[] indices;
+
+    private String name;
+
+    DeleteWarmerRequest() {
+    }
+
+    /**
+     * Constructs a new delete warmer request against the provided indices.
+     */
+    public DeleteWarmerRequest(String... indices) {
+        this.indices = indices;
+    }
+
+    @Override public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (name == null) {
+            validationException = addValidationError("warmer name is missing", validationException);
+        }
+        return validationException;
+    }
+
+    String[] indices() {
+        return indices;
+    }
+
+    String name() {
+        return name;
+    }
+
+    public DeleteWarmerRequest indices(String... indices) {
+        this.indices = indices;
+        return this;
+    }
+
+    /**
+     * The name of the warmer to delete.
+     */
+    public DeleteWarmerRequest name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        indices = new String[in.readVInt()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = in.readUTF();
+        }
+        name = in.readUTF();
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        if (indices == null) {
+            out.writeVInt(0);
+        } else {
+            out.writeVInt(indices.length);
+            for (String index : indices) {
+                out.writeUTF(index);
+            }
+        }
+        out.writeUTF(name);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.indices.warmer.delete;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.action.TransportActions;
+import org.elasticsearch.action.support.master.TransportMasterNodeOperationAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.MetaDataWarmersService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delete warmer action, removing a warmer from the metadata of the requested indices.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class TransportDeleteWarmerAction extends TransportMasterNodeOperationAction<DeleteWarmerRequest, DeleteWarmerResponse> {
+
+    private final MetaDataWarmersService warmersService;
+
+    @Inject public TransportDeleteWarmerAction(Settings settings, TransportService transportService, ClusterService clusterService, ThreadPool threadPool,
+                                             MetaDataWarmersService warmersService) {
+        super(settings, transportService, clusterService, threadPool);
+        this.warmersService = warmersService;
+    }
+
+    @Override protected String transportAction() {
+        return TransportActions.Admin.Indices.Warmer.DELETE;
+    }
+
+    @Override protected DeleteWarmerRequest newRequest() {
+        return new DeleteWarmerRequest();
+    }
+
+    @Override protected DeleteWarmerResponse newResponse() {
+        return new DeleteWarmerResponse();
+    }
+
+    @Override protected void checkBlock(DeleteWarmerRequest request, ClusterState state) {
+        // update to concrete indices
+        request.indices(state.metaData().concreteIndices(request.indices()));
+
+        for (String index : request.indices()) {
+            state.blocks().indexBlockedRaiseException(ClusterBlockLevel.METADATA, index);
+        }
+    }
+
+    @Override protected DeleteWarmerResponse masterOperation(DeleteWarmerRequest request, ClusterState state) throws ElasticSearchException {
+        final AtomicReference<Throwable> failureRef = new AtomicReference<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        warmersService.deleteWarmer(request.indices(), request.name(), new MetaDataWarmersService.Listener() {
+            @Override public void onSuccess() {
+                latch.countDown();
+            }
+
+            @Override public void onFailure(Throwable t) {
+                failureRef.set(t);
+                latch.countDown();
+            }
+        });
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            failureRef.set(e);
+        }
+
+        if (failureRef.get() != null) {
+            if (failureRef.get() instanceof ElasticSearchException) {
+                throw (ElasticSearchException) failureRef.get();
+            } else {
+                throw new ElasticSearchException(failureRef.get().getMessage(), failureRef.get());
+            }
+        }
+
+        return new DeleteWarmerResponse();
+    }
+}
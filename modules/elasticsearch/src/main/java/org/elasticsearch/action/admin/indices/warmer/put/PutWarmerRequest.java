@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.indices.warmer.put;
+
+import org.elasticsearch.ElasticSearchGenerationException;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.master.MasterNodeOperationRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.Unicode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.elasticsearch.action.Actions.*;
+
+/**
+ * A request to register a warmer (a search request executed against new readers before they
+ * are exposed to searches) against one or more indices.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class PutWarmerRequest extends MasterNodeOperationRequest {
+
+    private String[] indices;
+
+    private String name;
+
+    private String[] types = Strings.EMPTY_ARRAY;
+
+    private byte[] source;
+
+    PutWarmerRequest() {
+    }
+
+    /**
+     * Constructs a new put warmer request against the provided indices.
+     */
+    public PutWarmerRequest(String... indices) {
+        this.indices = indices;
+    }
+
+    @Override public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (name == null) {
+            validationException = addValidationError("warmer name is missing", validationException);
+        }
+        if (source == null) {
+            validationException = addValidationError("warmer source is missing", validationException);
+        }
+        return validationException;
+    }
+
+    String[] indices() {
+        return indices;
+    }
+
+    String name() {
+        return name;
+    }
+
+    String[] types() {
+        return types;
+    }
+
+    byte[] source() {
+        return source;
+    }
+
+    public PutWarmerRequest indices(String... indices) {
+        this.indices = indices;
+        return this;
+    }
+
+    /**
+     * The name of the warmer, replacing an existing warmer with the same name.
+     */
+    public PutWarmerRequest name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * The types the warmer search request will execute against.
+     */
+    public PutWarmerRequest types(String... types) {
+        this.types = types == null ? Strings.EMPTY_ARRAY : types;
+        return this;
+    }
+
+    /**
+     * The search source of the warmer.
+     */
+    public PutWarmerRequest source(String source) {
+        this.source = Unicode.fromStringAsBytes(source);
+        return this;
+    }
+
+    /**
+     * The search source of the warmer.
+     */
+    public PutWarmerRequest source(byte[] source) {
+        this.source = source;
+        return this;
+    }
+
+    /**
+     * The search source of the warmer.
+     */
+    public PutWarmerRequest source(XContentBuilder source) {
+        try {
+            this.source = source.copiedBytes();
+        } catch (IOException e) {
+            throw new ElasticSearchGenerationException("Failed to generate [" + source + "]", e);
+        }
+        return this;
+    }
+
+    /**
+     * The search source of the warmer.
+     */
+    public PutWarmerRequest source(Map source) {
+        try {
+            XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON);
+            builder.map(source);
+            return source(builder);
+        } catch (IOException e) {
+            throw new ElasticSearchGenerationException("Failed to generate [" + source + "]", e);
+        }
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        indices = new String[in.readVInt()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = in.readUTF();
+        }
+        name = in.readUTF();
+        types = new String[in.readVInt()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = in.readUTF();
+        }
+        source = new byte[in.readVInt()];
+        in.readFully(source);
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        if (indices == null) {
+            out.writeVInt(0);
+        } else {
+            out.writeVInt(indices.length);
+            for (String index : indices) {
+                out.writeUTF(index);
+            }
+        }
+        out.writeUTF(name);
+        out.writeVInt(types.length);
+        for (String type : types) {
+            out.writeUTF(type);
+        }
+        out.writeVInt(source.length);
+        out.writeBytes(source);
+    }
+}
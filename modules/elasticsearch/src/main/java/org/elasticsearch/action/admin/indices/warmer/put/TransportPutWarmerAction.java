@@ -0,0 +1,111 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.admin.indices.warmer.put;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.action.TransportActions;
+import org.elasticsearch.action.support.master.TransportMasterNodeOperationAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.MetaDataWarmersService;
+import org.elasticsearch.cluster.metadata.WarmerMetaData;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Put warmer action, registering a warmer in the metadata of the requested indices.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class TransportPutWarmerAction extends TransportMasterNodeOperationAction<PutWarmerRequest, PutWarmerResponse> {
+
+    private final MetaDataWarmersService warmersService;
+
+    private final SearchService searchService;
+
+    @Inject public TransportPutWarmerAction(Settings settings, TransportService transportService, ClusterService clusterService, ThreadPool threadPool,
+                                             MetaDataWarmersService warmersService, SearchService searchService) {
+        super(settings, transportService, clusterService, threadPool);
+        this.warmersService = warmersService;
+        this.searchService = searchService;
+    }
+
+    @Override protected String transportAction() {
+        return TransportActions.Admin.Indices.Warmer.PUT;
+    }
+
+    @Override protected PutWarmerRequest newRequest() {
+        return new PutWarmerRequest();
+    }
+
+    @Override protected PutWarmerResponse newResponse() {
+        return new PutWarmerResponse();
+    }
+
+    @Override protected void checkBlock(PutWarmerRequest request, ClusterState state) {
+        // update to concrete indices
+        request.indices(state.metaData().concreteIndices(request.indices()));
+
+        for (String index : request.indices()) {
+            state.blocks().indexBlockedRaiseException(ClusterBlockLevel.METADATA, index);
+        }
+    }
+
+    @Override protected PutWarmerResponse masterOperation(PutWarmerRequest request, ClusterState state) throws ElasticSearchException {
+        // fail now on a source that would fail on every refresh of the indices
+        searchService.validateWarmerSource(request.source());
+
+        final AtomicReference<Throwable> failureRef = new AtomicReference<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        warmersService.putWarmer(request.indices(), new WarmerMetaData(request.name(), request.types(), request.source()), new MetaDataWarmersService.Listener() {
+            @Override public void onSuccess() {
+                latch.countDown();
+            }
+
+            @Override public void onFailure(Throwable t) {
+                failureRef.set(t);
+                latch.countDown();
+            }
+        });
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            failureRef.set(e);
+        }
+
+        if (failureRef.get() != null) {
+            if (failureRef.get() instanceof ElasticSearchException) {
+                throw (ElasticSearchException) failureRef.get();
+            } else {
+                throw new ElasticSearchException(failureRef.get().getMessage(), failureRef.get());
+            }
+        }
+
+        return new PutWarmerResponse();
+    }
+}
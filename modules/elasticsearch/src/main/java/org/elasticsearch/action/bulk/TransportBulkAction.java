@@ -35,7 +35,6 @@ import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardsIterator;
-import org.elasticsearch.common.UUID;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.collect.Sets;
@@ -143,9 +142,7 @@ public class TransportBulkAction extends BaseAction<BulkRequest, BulkResponse> {
                 indexRequest.index(clusterState.metaData().concreteIndex(indexRequest.index()));
                 if (allowIdGeneration) {
                     if (indexRequest.id() == null) {
-                        indexRequest.id(UUID.randomBase64UUID());
-                        // since we generate the id, change it to CREATE
-                        indexRequest.opType(IndexRequest.OpType.CREATE);
+                        indexRequest.autoGenerateId();
                     }
                 }
             } else if (request instanceof DeleteRequest) {
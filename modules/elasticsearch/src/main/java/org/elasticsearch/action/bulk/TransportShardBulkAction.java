@@ -19,6 +19,7 @@
 
 package org.elasticsearch.action.bulk;
 
+import org.elasticsearch.ElasticSearchInterruptedException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.RoutingMissingException;
@@ -34,6 +35,7 @@ import org.elasticsearch.cluster.action.shard.ShardStateAction;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.routing.ShardsIterator;
+import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Sets;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -51,7 +53,11 @@ import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * Performs the index operation.
@@ -60,13 +66,30 @@ import java.util.Set;
  */
 public class TransportShardBulkAction extends TransportShardReplicationOperationAction<BulkShardRequest, BulkShardResponse> {
 
+    // the minimum number of items parsed by a single task of the parallel parse
+    private static final int PARALLEL_PARSE_BATCH = 8;
+
     private final MappingUpdatedAction mappingUpdatedAction;
 
+    private final boolean parallelParseEnabled;
+
+    private final int parallelParseThreads;
+
+    private final int parallelParseMinItems;
+
+    // bounds the threads parsing items of all the shard bulk requests on the node
+    private final Semaphore parallelParsePermits;
+
     @Inject public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
                                             IndicesService indicesService, ThreadPool threadPool, ShardStateAction shardStateAction,
                                             MappingUpdatedAction mappingUpdatedAction) {
         super(settings, transportService, clusterService, indicesService, threadPool, shardStateAction);
         this.mappingUpdatedAction = mappingUpdatedAction;
+        this.parallelParseEnabled = componentSettings.getAsBoolean("parallel_parse.enabled", false);
+        this.parallelParseThreads = componentSettings.getAsInt("parallel_parse.threads", Runtime.getRuntime().availableProcessors());
+        this.parallelParseMinItems = componentSettings.getAsInt("parallel_parse.min_items", 2 * PARALLEL_PARSE_BATCH);
+        this.parallelParsePermits = new Semaphore(parallelParseThreads);
+        logger.debug("using parallel_parse [{}], with threads [{}], min_items [{}]", parallelParseEnabled, parallelParseThreads, parallelParseMinItems);
     }
 
     @Override protected boolean checkWriteConsistency() {
@@ -97,45 +120,21 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         return clusterState.routingTable().index(request.index()).shard(request.shardId()).shardsIt();
     }
 
+    @Override protected void requestRetried(BulkShardRequest request) {
+        for (BulkItemRequest item : request.items()) {
+            // only creates with auto generated ids are appended without checking for an existing document
+            if (item.request() instanceof IndexRequest && ((IndexRequest) item.request()).autoGeneratedId()) {
+                ((IndexRequest) item.request()).canHaveDuplicates(true);
+            }
+        }
+    }
+
     @Override protected BulkShardResponse shardOperationOnPrimary(ClusterState clusterState, ShardOperationRequest shardRequest) {
         IndexShard indexShard = indexShard(shardRequest);
         final BulkShardRequest request = shardRequest.request;
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         Engine.Operation[] ops = new Engine.Operation[request.items().length];
-        for (int i = 0; i < ops.length; i++) {
-            BulkItemRequest item = request.items()[i];
-            if (item.request() instanceof IndexRequest) {
-                IndexRequest indexRequest = (IndexRequest) item.request();
-                try {
-
-                    // validate, if routing is required, that we got routing
-                    MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mapping(indexRequest.type());
-                    if (mappingMd != null && mappingMd.routing().required()) {
-                        if (indexRequest.routing() == null) {
-                            throw new RoutingMissingException(indexRequest.index(), indexRequest.type(), indexRequest.id());
-                        }
-                    }
-
-                    SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id()).routing(indexRequest.routing());
-                    if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                        ops[i] = indexShard.prepareIndex(sourceToParse);
-                    } else {
-                        ops[i] = indexShard.prepareCreate(sourceToParse);
-                    }
-                } catch (Exception e) {
-                    responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().toString().toLowerCase(),
-                            new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(e)));
-                }
-            } else if (item.request() instanceof DeleteRequest) {
-                DeleteRequest deleteRequest = (DeleteRequest) item.request();
-                try {
-                    ops[i] = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id());
-                } catch (Exception e) {
-                    responses[i] = new BulkItemResponse(item.id(), "delete",
-                            new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(e)));
-                }
-            }
-        }
+        prepareOperations(clusterState, indexShard, request, ops, responses);
 
         EngineException[] failures = indexShard.bulk(new Engine.Bulk(ops));
         // process failures and mappings
@@ -193,31 +192,115 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         IndexShard indexShard = indexShard(shardRequest);
         final BulkShardRequest request = shardRequest.request;
         Engine.Operation[] ops = new Engine.Operation[request.items().length];
-        for (int i = 0; i < ops.length; i++) {
-            BulkItemRequest item = request.items()[i];
-            if (item.request() instanceof IndexRequest) {
-                IndexRequest indexRequest = (IndexRequest) item.request();
+        // failures are ignored on the replica
+        prepareOperations(null, indexShard, request, ops, null);
+
+        indexShard.bulk(new Engine.Bulk(ops));
+    }
+
+    /**
+     * Parses the items of the request into engine operations. Parsing is done in parallel for large enough
+     * requests when enabled, each item is placed in its own slot so the engine applies them in request order.
+     * The responses are set for items that failed to parse, the cluster state and responses are <tt>null</tt>
+     * on the replica.
+     */
+    private void prepareOperations(final ClusterState clusterState, final IndexShard indexShard, final BulkShardRequest request,
+                                   final Engine.Operation[] ops, final BulkItemResponse[] responses) {
+        if (!parallelParseEnabled || ops.length < parallelParseMinItems) {
+            prepareOperations(clusterState, indexShard, request, ops, responses, 0, ops.length);
+            return;
+        }
+        // split the items into ranges, parse all but the first on the cached thread pool, and the first one
+        // on the current thread. At most parallel_parse.threads ranges are parsed on the pool across the node,
+        // ranges that get no permit are parsed on the current thread as well
+        int ranges = Math.max(1, Math.min(parallelParseThreads, ops.length / PARALLEL_PARSE_BATCH));
+        int rangeSize = (ops.length + ranges - 1) / ranges;
+        ranges = (ops.length + rangeSize - 1) / rangeSize;
+        final CountDownLatch latch = new CountDownLatch(ranges - 1);
+        List<Integer> currentThreadRanges = Lists.newArrayList();
+        for (int from = rangeSize; from < ops.length; from += rangeSize) {
+            final int rangeFrom = from;
+            final int rangeTo = Math.min(ops.length, from + rangeSize);
+            if (parallelParsePermits.tryAcquire()) {
                 try {
-                    SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id()).routing(indexRequest.routing());
-                    if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
-                        ops[i] = indexShard.prepareIndex(sourceToParse);
-                    } else {
-                        ops[i] = indexShard.prepareCreate(sourceToParse);
+                    threadPool.cached().execute(new Runnable() {
+                        @Override public void run() {
+                            try {
+                                prepareOperations(clusterState, indexShard, request, ops, responses, rangeFrom, rangeTo);
+                            } finally {
+                                parallelParsePermits.release();
+                                latch.countDown();
+                            }
+                        }
+                    });
+                    continue;
+                } catch (RejectedExecutionException e) {
+                    parallelParsePermits.release();
+                }
+            }
+            currentThreadRanges.add(rangeFrom);
+        }
+        prepareOperations(clusterState, indexShard, request, ops, responses, 0, Math.min(ops.length, rangeSize));
+        for (int from : currentThreadRanges) {
+            prepareOperations(clusterState, indexShard, request, ops, responses, from, Math.min(ops.length, from + rangeSize));
+            latch.countDown();
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticSearchInterruptedException("interrupted while parsing bulk items", e);
+        }
+    }
+
+    private void prepareOperations(ClusterState clusterState, IndexShard indexShard, BulkShardRequest request,
+                                   Engine.Operation[] ops, BulkItemResponse[] responses, int from, int to) {
+        for (int i = from; i < to; i++) {
+            prepareOperation(clusterState, indexShard, request, ops, responses, i);
+        }
+    }
+
+    private void prepareOperation(ClusterState clusterState, IndexShard indexShard, BulkShardRequest request,
+                                  Engine.Operation[] ops, BulkItemResponse[] responses, int i) {
+        BulkItemRequest item = request.items()[i];
+        if (item.request() instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) item.request();
+            try {
+                if (clusterState != null) {
+                    // validate, if routing is required, that we got routing
+                    MappingMetaData mappingMd = clusterState.metaData().index(request.index()).mapping(indexRequest.type());
+                    if (mappingMd != null && mappingMd.routing().required()) {
+                        if (indexRequest.routing() == null) {
+                            throw new RoutingMissingException(indexRequest.index(), indexRequest.type(), indexRequest.id());
+                        }
                     }
-                } catch (Exception e) {
-                    // ignore, we are on backup
                 }
-            } else if (item.request() instanceof DeleteRequest) {
-                DeleteRequest deleteRequest = (DeleteRequest) item.request();
-                try {
-                    ops[i] = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id());
-                } catch (Exception e) {
-                    // ignore, we are on backup
+
+                SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id()).routing(indexRequest.routing());
+                if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+                    ops[i] = indexShard.prepareIndex(sourceToParse);
+                } else {
+                    Engine.Create create = indexShard.prepareCreate(sourceToParse);
+                    create.mayHaveDuplicates(indexRequest.canHaveDuplicates());
+                    ops[i] = create;
+                }
+            } catch (Exception e) {
+                if (responses != null) {
+                    responses[i] = new BulkItemResponse(item.id(), indexRequest.opType().toString().toLowerCase(),
+                            new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), ExceptionsHelper.detailedMessage(e)));
+                }
+            }
+        } else if (item.request() instanceof DeleteRequest) {
+            DeleteRequest deleteRequest = (DeleteRequest) item.request();
+            try {
+                ops[i] = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id());
+            } catch (Exception e) {
+                if (responses != null) {
+                    responses[i] = new BulkItemResponse(item.id(), "delete",
+                            new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), ExceptionsHelper.detailedMessage(e)));
                 }
             }
         }
-
-        indexShard.bulk(new Engine.Bulk(ops));
     }
 
     private void updateMappingOnMaster(final IndexRequest request) {
@@ -44,6 +44,8 @@ public class GetRequest extends SingleOperationRequest {
 
     private boolean refresh = false;
 
+    private boolean realtime = true;
+
     GetRequest() {
     }
 
@@ -131,6 +133,19 @@ public class GetRequest extends SingleOperationRequest {
         return this.refresh;
     }
 
+    /**
+     * Should the document be fetched in realtime, reading operations that are not yet visible to
+     * search from the transaction log. Defaults to <tt>true</tt>.
+     */
+    public GetRequest realtime(boolean realtime) {
+        this.realtime = realtime;
+        return this;
+    }
+
+    public boolean realtime() {
+        return this.realtime;
+    }
+
     /**
      * Should the listener be called on a separate thread if needed.
      */
@@ -150,6 +165,7 @@ public class GetRequest extends SingleOperationRequest {
     @Override public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
         refresh = in.readBoolean();
+        realtime = in.readBoolean();
         int size = in.readInt();
         if (size >= 0) {
             fields = new String[size];
@@ -162,6 +178,7 @@ public class GetRequest extends SingleOperationRequest {
     @Override public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeBoolean(refresh);
+        out.writeBoolean(realtime);
         if (fields == null) {
             out.writeInt(-1);
         } else {
@@ -22,6 +22,7 @@ package org.elasticsearch.action.get;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.FieldSelector;
 import org.apache.lucene.document.Fieldable;
+import org.apache.lucene.index.Term;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.action.TransportActions;
 import org.elasticsearch.action.support.single.TransportSingleOperationAction;
@@ -29,7 +30,6 @@ import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.mapper.*;
@@ -82,14 +82,26 @@ public class TransportGetAction extends TransportSingleOperationAction<GetReques
             indexShard.refresh(new Engine.Refresh(false));
         }
 
-        Engine.Searcher searcher = indexShard.searcher();
-        boolean exists = false;
+        Term uid = docMapper.uidMapper().term(request.type(), request.id());
+        Engine.GetResult get = indexShard.get(new Engine.Get(request.realtime(), uid));
+        if (get.exists() && get.searcher() == null && request.fields() != null) {
+            // served from the translog, but specific stored fields are only available on the reader, wait
+            // for an ongoing refresh instead of skipping, it might have started before the operation
+            get.release();
+            indexShard.refresh(new Engine.Refresh(true));
+            get = indexShard.get(new Engine.Get(false, uid));
+        }
+        boolean exists = get.exists();
         byte[] source = null;
         Map<String, GetField> fields = null;
         try {
-            int docId = Lucene.docId(searcher.reader(), docMapper.uidMapper().term(request.type(), request.id()));
-            if (docId != Lucene.NO_DOC) {
-                exists = true;
+            if (exists && get.searcher() == null) {
+                if (docMapper.sourceMapper().enabled()) {
+                    source = get.source();
+                }
+            } else if (exists) {
+                Engine.Searcher searcher = get.searcher();
+                int docId = get.docId();
                 FieldSelector fieldSelector = buildFieldSelectors(docMapper, request.fields());
                 if (fieldSelector != null) {
                     Document doc = searcher.reader().document(docId, fieldSelector);
@@ -131,7 +143,7 @@ public class TransportGetAction extends TransportSingleOperationAction<GetReques
         } catch (IOException e) {
             throw new ElasticSearchException("Failed to get type [" + request.type() + "] and id [" + request.id() + "]", e);
         } finally {
-            searcher.release();
+            get.release();
         }
         return new GetResponse(request.index(), request.type(), request.id(), exists, source, fields);
     }
@@ -32,6 +32,7 @@ import org.elasticsearch.action.support.replication.ShardReplicationOperationReq
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.common.Required;
+import org.elasticsearch.common.UUID;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -124,6 +125,10 @@ public class IndexRequest extends ShardReplicationOperationRequest {
 
     private boolean refresh = false;
 
+    private boolean autoGeneratedId = false;
+
+    private boolean canHaveDuplicates = false;
+
     private XContentType contentType = Requests.INDEX_CONTENT_TYPE;
 
     public IndexRequest() {
@@ -502,6 +507,38 @@ public class IndexRequest extends ShardReplicationOperationRequest {
         return this.refresh;
     }
 
+    /**
+     * Generates a random id for the request, and since the id is unique, changes the operation to
+     * {@link OpType#CREATE} so it can be appended to the index without looking up an existing document.
+     */
+    public IndexRequest autoGenerateId() {
+        this.id = UUID.randomBase64UUID();
+        this.opType = OpType.CREATE;
+        this.autoGeneratedId = true;
+        return this;
+    }
+
+    /**
+     * Was the id of the request generated by {@link #autoGenerateId()}.
+     */
+    public boolean autoGeneratedId() {
+        return this.autoGeneratedId;
+    }
+
+    /**
+     * Marks the request as possibly already (partially) executed, for example when it gets retried. A create
+     * will then replace an existing document instead of appending a duplicate. Only set for requests with an
+     * {@link #autoGeneratedId()}, see the retry handling of the index and bulk actions.
+     */
+    public IndexRequest canHaveDuplicates(boolean canHaveDuplicates) {
+        this.canHaveDuplicates = canHaveDuplicates;
+        return this;
+    }
+
+    public boolean canHaveDuplicates() {
+        return this.canHaveDuplicates;
+    }
+
     public void processRouting(MappingMetaData mappingMd) throws ElasticSearchException {
         if (routing == null && mappingMd.routing().hasPath()) {
             XContentParser parser = null;
@@ -541,6 +578,8 @@ public class IndexRequest extends ShardReplicationOperationRequest {
 
         opType = OpType.fromId(in.readByte());
         refresh = in.readBoolean();
+        autoGeneratedId = in.readBoolean();
+        canHaveDuplicates = in.readBoolean();
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
@@ -562,6 +601,8 @@ public class IndexRequest extends ShardReplicationOperationRequest {
         out.writeBytes(source, sourceOffset, sourceLength);
         out.writeByte(opType.id());
         out.writeBoolean(refresh);
+        out.writeBoolean(autoGeneratedId);
+        out.writeBoolean(canHaveDuplicates);
     }
 
     @Override public String toString() {
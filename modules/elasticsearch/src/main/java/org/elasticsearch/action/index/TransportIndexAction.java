@@ -35,7 +35,6 @@ import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.routing.ShardsIterator;
-import org.elasticsearch.common.UUID;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.engine.Engine;
@@ -86,9 +85,7 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
     @Override protected void doExecute(final IndexRequest request, final ActionListener<IndexResponse> listener) {
         if (allowIdGeneration) {
             if (request.id() == null) {
-                request.id(UUID.randomBase64UUID());
-                // since we generate the id, change it to CREATE
-                request.opType(IndexRequest.OpType.CREATE);
+                request.autoGenerateId();
             }
         }
         if (autoCreateIndex && !clusterService.state().metaData().hasConcreteIndex(request.index())) {
@@ -148,6 +145,13 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
                 .indexShards(clusterService.state(), request.index(), request.type(), request.id(), request.routing());
     }
 
+    @Override protected void requestRetried(IndexRequest request) {
+        // only creates with auto generated ids are appended without checking for an existing document
+        if (request.autoGeneratedId()) {
+            request.canHaveDuplicates(true);
+        }
+    }
+
     @Override protected IndexResponse shardOperationOnPrimary(ClusterState clusterState, ShardOperationRequest shardRequest) {
         final IndexRequest request = shardRequest.request;
 
@@ -169,6 +173,7 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         } else {
             Engine.Create create = indexShard.prepareCreate(sourceToParse);
             create.refresh(request.refresh());
+            create.mayHaveDuplicates(request.canHaveDuplicates());
             doc = indexShard.create(create);
         }
         if (doc.mappersAdded()) {
@@ -188,6 +193,7 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         } else {
             Engine.Create create = indexShard.prepareCreate(sourceToParse);
             create.refresh(request.refresh());
+            create.mayHaveDuplicates(request.canHaveDuplicates());
             indexShard.create(create);
         }
     }
@@ -119,6 +119,14 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
         return TransportRequestOptions.EMPTY;
     }
 
+    /**
+     * Called before the request is retried, the operation might have already been (partially) performed on
+     * the primary shard.
+     */
+    protected void requestRetried(Request request) {
+
+    }
+
     /**
      * Should the operations be performed on the replicas as well. Defaults to <tt>false</tt> meaning operations
      * will be executed on the replica.
@@ -368,6 +376,7 @@ public abstract class TransportShardReplicationOperationAction<Request extends S
         }
 
         private void retry(boolean fromClusterEvent, final ShardId shardId) {
+            requestRetried(request);
             if (!fromClusterEvent) {
                 // make it threaded operation so we fork on the discovery listener thread
                 request.operationThreaded(true);
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.cache;
 
+import org.elasticsearch.cache.memory.BlockCache;
 import org.elasticsearch.cache.memory.ByteBufferCache;
 import org.elasticsearch.cache.query.parser.QueryParserCache;
 import org.elasticsearch.cache.query.parser.none.NoneQueryParserCache;
@@ -34,15 +35,18 @@ public class NodeCache extends AbstractComponent {
 
     private final ByteBufferCache byteBufferCache;
 
+    private final BlockCache blockCache;
+
     private final QueryParserCache queryParserCache;
 
     public NodeCache() {
-        this(ImmutableSettings.Builder.EMPTY_SETTINGS, new ByteBufferCache(ImmutableSettings.Builder.EMPTY_SETTINGS), new NoneQueryParserCache());
+        this(ImmutableSettings.Builder.EMPTY_SETTINGS, new ByteBufferCache(ImmutableSettings.Builder.EMPTY_SETTINGS), new BlockCache(ImmutableSettings.Builder.EMPTY_SETTINGS), new NoneQueryParserCache());
     }
 
-    @Inject public NodeCache(Settings settings, ByteBufferCache byteBufferCache, QueryParserCache queryParserCache) {
+    @Inject public NodeCache(Settings settings, ByteBufferCache byteBufferCache, BlockCache blockCache, QueryParserCache queryParserCache) {
         super(settings);
         this.byteBufferCache = byteBufferCache;
+        this.blockCache = blockCache;
         this.queryParserCache = queryParserCache;
     }
 
@@ -54,6 +58,10 @@ public class NodeCache extends AbstractComponent {
         return byteBufferCache;
     }
 
+    public BlockCache block() {
+        return blockCache;
+    }
+
     public QueryParserCache queryParser() {
         return queryParserCache;
     }
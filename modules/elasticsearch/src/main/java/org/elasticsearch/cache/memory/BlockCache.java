@@ -0,0 +1,281 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cache.memory;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.jmx.MBean;
+import org.elasticsearch.jmx.ManagedAttribute;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.*;
+
+/**
+ * A node level cache of fixed size file blocks, held in direct buffers allocated once (off heap) and
+ * reused. Bounded by <tt>cache.memory.block.cache_size</tt>, disabled by default (size of <tt>0</tt>).
+ * <p/>
+ * <p>Eviction uses the CLOCK algorithm, with new blocks entering as not referenced: a block read once
+ * (for example, by a merge scanning a segment) is evicted on the next pass of the clock hand, while
+ * blocks read again in the meantime survive it, so a scan does not flush the hot blocks out of the cache.
+ * <p/>
+ * <p>Blocks are read without locking. A reader checks the owner of the block before and after reading its
+ * length, and again after copying it, and treats the block as missing if it was evicted in the meantime.
+ *
+ * @author kimchy (shay.banon)
+ */
+@MBean(objectName = "service=cache,cacheType=block", description = "Off heap file block cache")
+public class BlockCache extends AbstractComponent {
+
+    private static final int MAX_SLAB_SIZE = 128 * 1024 * 1024;
+
+    private final int blockSize;
+
+    private final int numberOfBlocks;
+
+    private final ByteBuffer[] blocks;
+
+    // the key each block currently holds, null if free (or being written)
+    private final AtomicReferenceArray<Key> owners;
+
+    private final AtomicIntegerArray lengths;
+
+    private final AtomicIntegerArray referenced;
+
+    private final ConcurrentMap<Key, Integer> index = newConcurrentMap();
+
+    private final ConcurrentMap<String, Stats> stats = newConcurrentMap();
+
+    // guarded by this
+    private int clockHand = 0;
+
+    // guarded by this
+    private int usedBlocks = 0;
+
+    public BlockCache() {
+        this(ImmutableSettings.Builder.EMPTY_SETTINGS);
+    }
+
+    @Inject public BlockCache(Settings settings) {
+        super(settings);
+        this.blockSize = (int) componentSettings.getAsBytesSize("block.size", new ByteSizeValue(16, ByteSizeUnit.KB)).bytes();
+        long cacheSizeInBytes = componentSettings.getAsBytesSize("block.cache_size", new ByteSizeValue(0)).bytes();
+        if (cacheSizeInBytes > 0 && cacheSizeInBytes < blockSize) {
+            throw new IllegalArgumentException("Cache size [" + cacheSizeInBytes + "] is smaller than block size [" + blockSize + "]");
+        }
+        this.numberOfBlocks = (int) Math.min(Integer.MAX_VALUE, cacheSizeInBytes / blockSize);
+        this.blocks = new ByteBuffer[numberOfBlocks];
+        this.owners = new AtomicReferenceArray<Key>(numberOfBlocks);
+        this.lengths = new AtomicIntegerArray(numberOfBlocks);
+        this.referenced = new AtomicIntegerArray(numberOfBlocks);
+
+        // allocate the memory up front in a few large slabs, sliced into blocks
+        int blocksPerSlab = Math.max(1, MAX_SLAB_SIZE / blockSize);
+        for (int i = 0; i < numberOfBlocks; i += blocksPerSlab) {
+            int slabBlocks = Math.min(blocksPerSlab, numberOfBlocks - i);
+            ByteBuffer slab = ByteBuffer.allocateDirect(slabBlocks * blockSize);
+            for (int j = 0; j < slabBlocks; j++) {
+                slab.limit((j + 1) * blockSize);
+                slab.position(j * blockSize);
+                blocks[i + j] = slab.slice();
+            }
+        }
+
+        if (enabled()) {
+            logger.debug("using block cache with block_size [{}], cache_size [{}]", new ByteSizeValue(blockSize), new ByteSizeValue((long) numberOfBlocks * blockSize));
+        }
+    }
+
+    public boolean enabled() {
+        return numberOfBlocks > 0;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    public ByteSizeValue cacheSize() {
+        return new ByteSizeValue((long) numberOfBlocks * blockSize);
+    }
+
+    /**
+     * The stats of the provided index, created if needed.
+     */
+    public Stats stats(String index) {
+        Stats indexStats = stats.get(index);
+        if (indexStats == null) {
+            indexStats = new Stats();
+            Stats existing = stats.putIfAbsent(index, indexStats);
+            if (existing != null) {
+                indexStats = existing;
+            }
+        }
+        return indexStats;
+    }
+
+    public void removeStats(String index) {
+        stats.remove(index);
+    }
+
+    /**
+     * Copies up to <tt>len</tt> bytes of the cached block, starting at <tt>blockOffset</tt>. Returns the
+     * number of bytes copied, or <tt>-1</tt> if the block is not cached.
+     */
+    public int get(Key key, int blockOffset, byte[] b, int offset, int len) {
+        Integer slot = index.get(key);
+        if (slot != null && key.equals(owners.get(slot))) {
+            int length = Math.min(len, lengths.get(slot) - blockOffset);
+            // the length might be of another block if it was evicted since we checked the owner
+            if (length <= 0 || !key.equals(owners.get(slot))) {
+                key.stats.misses.incrementAndGet();
+                return -1;
+            }
+            ByteBuffer block = blocks[slot].duplicate();
+            block.position(blockOffset);
+            block.get(b, offset, length);
+            // make sure the block was not evicted while we were copying it
+            if (key.equals(owners.get(slot))) {
+                referenced.set(slot, 1);
+                key.stats.hits.incrementAndGet();
+                return length;
+            }
+        }
+        key.stats.misses.incrementAndGet();
+        return -1;
+    }
+
+    /**
+     * Caches the provided block data, evicting another block if needed.
+     */
+    public synchronized void put(Key key, byte[] data, int length) {
+        if (index.containsKey(key)) {
+            return;
+        }
+        int slot;
+        if (usedBlocks < numberOfBlocks) {
+            slot = usedBlocks++;
+        } else {
+            slot = evict();
+        }
+        ByteBuffer block = blocks[slot].duplicate();
+        block.position(0);
+        block.put(data, 0, length);
+        lengths.set(slot, length);
+        referenced.set(slot, 0);
+        owners.set(slot, key);
+        index.put(key, slot);
+    }
+
+    // must be called under the lock
+    private int evict() {
+        while (true) {
+            int slot = clockHand;
+            clockHand = (clockHand + 1) % numberOfBlocks;
+            if (referenced.get(slot) == 1) {
+                // give it a second chance
+                referenced.set(slot, 0);
+                continue;
+            }
+            Key victim = owners.get(slot);
+            // mark it as free first, so concurrent readers will see it was evicted
+            owners.set(slot, null);
+            if (victim != null) {
+                index.remove(victim);
+                victim.stats.evictions.incrementAndGet();
+            }
+            return slot;
+        }
+    }
+
+    @ManagedAttribute(description = "Size of the cache in bytes")
+    public long getCacheSizeInBytes() {
+        return cacheSize().bytes();
+    }
+
+    @ManagedAttribute(description = "Number of blocks cached")
+    public int getCachedBlocks() {
+        return index.size();
+    }
+
+    /**
+     * The key of a cached block, identifying the file by its path and a generation (bumped when a file
+     * with the same name is written again), and the block by its number within the file.
+     */
+    public static class Key {
+
+        private final String file;
+
+        private final long generation;
+
+        private final long block;
+
+        private final Stats stats;
+
+        public Key(String file, long generation, long block, Stats stats) {
+            this.file = file;
+            this.generation = generation;
+            this.block = block;
+            this.stats = stats;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return generation == key.generation && block == key.block && file.equals(key.file);
+        }
+
+        @Override public int hashCode() {
+            int result = file.hashCode();
+            result = 31 * result + (int) (generation ^ (generation >>> 32));
+            result = 31 * result + (int) (block ^ (block >>> 32));
+            return result;
+        }
+    }
+
+    public static class Stats {
+
+        final AtomicLong hits = new AtomicLong();
+
+        final AtomicLong misses = new AtomicLong();
+
+        final AtomicLong evictions = new AtomicLong();
+
+        public long hits() {
+            return hits.get();
+        }
+
+        public long misses() {
+            return misses.get();
+        }
+
+        public long evictions() {
+            return evictions.get();
+        }
+    }
+}
@@ -47,6 +47,10 @@ import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsRequest;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsResponse;
+import org.elasticsearch.action.admin.indices.warmer.delete.DeleteWarmerRequest;
+import org.elasticsearch.action.admin.indices.warmer.delete.DeleteWarmerResponse;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerRequest;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerResponse;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusRequest;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusResponse;
 import org.elasticsearch.client.action.admin.indices.alias.IndicesAliasesRequestBuilder;
@@ -62,6 +66,8 @@ import org.elasticsearch.client.action.admin.indices.open.OpenIndexRequestBuilde
 import org.elasticsearch.client.action.admin.indices.optimize.OptimizeRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.settings.UpdateSettingsRequestBuilder;
+import org.elasticsearch.client.action.admin.indices.warmer.delete.DeleteWarmerRequestBuilder;
+import org.elasticsearch.client.action.admin.indices.warmer.put.PutWarmerRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.status.IndicesStatusRequestBuilder;
 
 /**
@@ -399,4 +405,46 @@ public interface IndicesAdminClient {
      * Update indices settings.
      */
     UpdateSettingsRequestBuilder prepareUpdateSettings(String... indices);
+
+    /**
+     * Puts a warmer, executed against new readers of the indices before they are exposed to searches.
+     *
+     * @param request the put warmer request
+     * @return The result future
+     */
+    ActionFuture<PutWarmerResponse> putWarmer(PutWarmerRequest request);
+
+    /**
+     * Puts a warmer, executed against new readers of the indices before they are exposed to searches.
+     *
+     * @param request  the put warmer request
+     * @param listener A listener to be notified with the response
+     */
+    void putWarmer(PutWarmerRequest request, ActionListener<PutWarmerResponse> listener);
+
+    /**
+     * Puts a warmer against one or more indices.
+     */
+    PutWarmerRequestBuilder preparePutWarmer(String... indices);
+
+    /**
+     * Deletes a warmer from one or more indices.
+     *
+     * @param request the delete warmer request
+     * @return The result future
+     */
+    ActionFuture<DeleteWarmerResponse> deleteWarmer(DeleteWarmerRequest request);
+
+    /**
+     * Deletes a warmer from one or more indices.
+     *
+     * @param request  the delete warmer request
+     * @param listener A listener to be notified with the response
+     */
+    void deleteWarmer(DeleteWarmerRequest request, ActionListener<DeleteWarmerResponse> listener);
+
+    /**
+     * Deletes a warmer from one or more indices.
+     */
+    DeleteWarmerRequestBuilder prepareDeleteWarmer(String... indices);
 }
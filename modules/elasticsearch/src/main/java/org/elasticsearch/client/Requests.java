@@ -41,6 +41,8 @@ import org.elasticsearch.action.admin.indices.open.OpenIndexRequest;
 import org.elasticsearch.action.admin.indices.optimize.OptimizeRequest;
 import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsRequest;
+import org.elasticsearch.action.admin.indices.warmer.delete.DeleteWarmerRequest;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerRequest;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusRequest;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.count.CountRequest;
@@ -326,6 +328,26 @@ public class Requests {
         return new UpdateSettingsRequest(indices);
     }
 
+    /**
+     * A request to put a warmer against one or more indices.
+     *
+     * @param indices The indices to put the warmer against. Use <tt>null</tt> or <tt>_all</tt> to executed against all indices.
+     * @return The request
+     */
+    public static PutWarmerRequest putWarmerRequest(String... indices) {
+        return new PutWarmerRequest(indices);
+    }
+
+    /**
+     * A request to delete a warmer from one or more indices.
+     *
+     * @param indices The indices to delete the warmer from. Use <tt>null</tt> or <tt>_all</tt> to executed against all indices.
+     * @return The request
+     */
+    public static DeleteWarmerRequest deleteWarmerRequest(String... indices) {
+        return new DeleteWarmerRequest(indices);
+    }
+
     /**
      * Creates a cluster state request.
      *
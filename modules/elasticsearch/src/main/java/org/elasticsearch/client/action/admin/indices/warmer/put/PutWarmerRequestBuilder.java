@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.client.action.admin.indices.warmer.put;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerRequest;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerResponse;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.client.action.admin.indices.support.BaseIndicesRequestBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.util.Map;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class PutWarmerRequestBuilder extends BaseIndicesRequestBuilder<PutWarmerRequest, PutWarmerResponse> {
+
+    public PutWarmerRequestBuilder(IndicesAdminClient indicesClient, String... indices) {
+        super(indicesClient, new PutWarmerRequest(indices));
+    }
+
+    public PutWarmerRequestBuilder setIndices(String... indices) {
+        request.indices(indices);
+        return this;
+    }
+
+    /**
+     * The name of the warmer.
+     */
+    public PutWarmerRequestBuilder setName(String name) {
+        request.name(name);
+        return this;
+    }
+
+    /**
+     * The types the warmer search request will execute against.
+     */
+    public PutWarmerRequestBuilder setTypes(String... types) {
+        request.types(types);
+        return this;
+    }
+
+    /**
+     * The search source of the warmer.
+     */
+    public PutWarmerRequestBuilder setSource(String source) {
+        request.source(source);
+        return this;
+    }
+
+    /**
+     * The search source of the warmer.
+     */
+    public PutWarmerRequestBuilder setSource(XContentBuilder source) {
+        request.source(source);
+        return this;
+    }
+
+    /**
+     * The search source of the warmer.
+     */
+    public PutWarmerRequestBuilder setSource(Map<String, Object> source) {
+        request.source(source);
+        return this;
+    }
+
+    @Override protected void doExecute(ActionListener<PutWarmerResponse> listener) {
+        client.putWarmer(request, listener);
+    }
+}
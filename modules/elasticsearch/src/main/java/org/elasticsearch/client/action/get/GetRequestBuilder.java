@@ -90,6 +90,15 @@ public class GetRequestBuilder extends BaseRequestBuilder<GetRequest, GetRespons
         return this;
     }
 
+    /**
+     * Should the document be fetched in realtime, reading operations that are not yet visible to
+     * search from the transaction log. Defaults to <tt>true</tt>.
+     */
+    public GetRequestBuilder setRealtime(boolean realtime) {
+        request.realtime(realtime);
+        return this;
+    }
+
     /**
      * Should the listener be called on a separate thread if needed.
      */
@@ -60,6 +60,12 @@ import org.elasticsearch.action.admin.indices.refresh.TransportRefreshAction;
 import org.elasticsearch.action.admin.indices.settings.TransportUpdateSettingsAction;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsRequest;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsResponse;
+import org.elasticsearch.action.admin.indices.warmer.delete.DeleteWarmerRequest;
+import org.elasticsearch.action.admin.indices.warmer.delete.DeleteWarmerResponse;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerRequest;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerResponse;
+import org.elasticsearch.action.admin.indices.warmer.delete.TransportDeleteWarmerAction;
+import org.elasticsearch.action.admin.indices.warmer.put.TransportPutWarmerAction;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusRequest;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusResponse;
 import org.elasticsearch.action.admin.indices.status.TransportIndicesStatusAction;
@@ -104,13 +110,18 @@ public class NodeIndicesAdminClient extends AbstractIndicesAdminClient implement
 
     private final TransportUpdateSettingsAction updateSettingsAction;
 
+    private final TransportPutWarmerAction putWarmerAction;
+
+    private final TransportDeleteWarmerAction deleteWarmerAction;
+
     @Inject public NodeIndicesAdminClient(Settings settings, ThreadPool threadPool, TransportIndicesStatusAction indicesStatusAction,
                                           TransportCreateIndexAction createIndexAction, TransportDeleteIndexAction deleteIndexAction,
                                           TransportCloseIndexAction closeIndexAction, TransportOpenIndexAction openIndexAction,
                                           TransportRefreshAction refreshAction, TransportFlushAction flushAction, TransportOptimizeAction optimizeAction,
                                           TransportPutMappingAction putMappingAction, TransportDeleteMappingAction deleteMappingAction, TransportGatewaySnapshotAction gatewaySnapshotAction,
                                           TransportIndicesAliasesAction indicesAliasesAction, TransportClearIndicesCacheAction clearIndicesCacheAction,
-                                          TransportUpdateSettingsAction updateSettingsAction) {
+                                          TransportUpdateSettingsAction updateSettingsAction, TransportPutWarmerAction putWarmerAction,
+                                          TransportDeleteWarmerAction deleteWarmerAction) {
         this.threadPool = threadPool;
         this.indicesStatusAction = indicesStatusAction;
         this.createIndexAction = createIndexAction;
@@ -126,6 +137,8 @@ public class NodeIndicesAdminClient extends AbstractIndicesAdminClient implement
         this.indicesAliasesAction = indicesAliasesAction;
         this.clearIndicesCacheAction = clearIndicesCacheAction;
         this.updateSettingsAction = updateSettingsAction;
+        this.putWarmerAction = putWarmerAction;
+        this.deleteWarmerAction = deleteWarmerAction;
     }
 
     @Override public ThreadPool threadPool() {
@@ -243,4 +256,20 @@ public class NodeIndicesAdminClient extends AbstractIndicesAdminClient implement
     @Override public void updateSettings(UpdateSettingsRequest request, ActionListener<UpdateSettingsResponse> listener) {
         updateSettingsAction.execute(request, listener);
     }
+
+    @Override public ActionFuture<PutWarmerResponse> putWarmer(PutWarmerRequest request) {
+        return putWarmerAction.execute(request);
+    }
+
+    @Override public void putWarmer(PutWarmerRequest request, ActionListener<PutWarmerResponse> listener) {
+        putWarmerAction.execute(request, listener);
+    }
+
+    @Override public ActionFuture<DeleteWarmerResponse> deleteWarmer(DeleteWarmerRequest request) {
+        return deleteWarmerAction.execute(request);
+    }
+
+    @Override public void deleteWarmer(DeleteWarmerRequest request, ActionListener<DeleteWarmerResponse> listener) {
+        deleteWarmerAction.execute(request, listener);
+    }
 }
@@ -32,6 +32,8 @@ import org.elasticsearch.client.action.admin.indices.open.OpenIndexRequestBuilde
 import org.elasticsearch.client.action.admin.indices.optimize.OptimizeRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.refresh.RefreshRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.settings.UpdateSettingsRequestBuilder;
+import org.elasticsearch.client.action.admin.indices.warmer.delete.DeleteWarmerRequestBuilder;
+import org.elasticsearch.client.action.admin.indices.warmer.put.PutWarmerRequestBuilder;
 import org.elasticsearch.client.action.admin.indices.status.IndicesStatusRequestBuilder;
 import org.elasticsearch.client.internal.InternalIndicesAdminClient;
 
@@ -95,4 +97,12 @@ public abstract class AbstractIndicesAdminClient implements InternalIndicesAdmin
     @Override public UpdateSettingsRequestBuilder prepareUpdateSettings(String... indices) {
         return new UpdateSettingsRequestBuilder(this).setIndices(indices);
     }
+
+    @Override public PutWarmerRequestBuilder preparePutWarmer(String... indices) {
+        return new PutWarmerRequestBuilder(this).setIndices(indices);
+    }
+
+    @Override public DeleteWarmerRequestBuilder prepareDeleteWarmer(String... indices) {
+        return new DeleteWarmerRequestBuilder(this).setIndices(indices);
+    }
 }
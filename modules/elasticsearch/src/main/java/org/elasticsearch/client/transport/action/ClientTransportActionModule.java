@@ -41,6 +41,8 @@ import org.elasticsearch.client.transport.action.admin.indices.open.ClientTransp
 import org.elasticsearch.client.transport.action.admin.indices.optimize.ClientTransportOptimizeAction;
 import org.elasticsearch.client.transport.action.admin.indices.refresh.ClientTransportRefreshAction;
 import org.elasticsearch.client.transport.action.admin.indices.settings.ClientTransportUpdateSettingsAction;
+import org.elasticsearch.client.transport.action.admin.indices.warmer.delete.ClientTransportDeleteWarmerAction;
+import org.elasticsearch.client.transport.action.admin.indices.warmer.put.ClientTransportPutWarmerAction;
 import org.elasticsearch.client.transport.action.admin.indices.status.ClientTransportIndicesStatusAction;
 import org.elasticsearch.client.transport.action.bulk.ClientTransportBulkAction;
 import org.elasticsearch.client.transport.action.count.ClientTransportCountAction;
@@ -81,6 +83,8 @@ public class ClientTransportActionModule extends AbstractModule {
         bind(ClientTransportIndicesAliasesAction.class).asEagerSingleton();
         bind(ClientTransportClearIndicesCacheAction.class).asEagerSingleton();
         bind(ClientTransportUpdateSettingsAction.class).asEagerSingleton();
+        bind(ClientTransportPutWarmerAction.class).asEagerSingleton();
+        bind(ClientTransportDeleteWarmerAction.class).asEagerSingleton();
 
         bind(ClientTransportNodesInfoAction.class).asEagerSingleton();
         bind(ClientTransportNodesStatsAction.class).asEagerSingleton();
@@ -48,6 +48,10 @@ import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsRequest;
 import org.elasticsearch.action.admin.indices.settings.UpdateSettingsResponse;
+import org.elasticsearch.action.admin.indices.warmer.delete.DeleteWarmerRequest;
+import org.elasticsearch.action.admin.indices.warmer.delete.DeleteWarmerResponse;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerRequest;
+import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerResponse;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusRequest;
 import org.elasticsearch.action.admin.indices.status.IndicesStatusResponse;
 import org.elasticsearch.client.IndicesAdminClient;
@@ -66,6 +70,8 @@ import org.elasticsearch.client.transport.action.admin.indices.open.ClientTransp
 import org.elasticsearch.client.transport.action.admin.indices.optimize.ClientTransportOptimizeAction;
 import org.elasticsearch.client.transport.action.admin.indices.refresh.ClientTransportRefreshAction;
 import org.elasticsearch.client.transport.action.admin.indices.settings.ClientTransportUpdateSettingsAction;
+import org.elasticsearch.client.transport.action.admin.indices.warmer.delete.ClientTransportDeleteWarmerAction;
+import org.elasticsearch.client.transport.action.admin.indices.warmer.put.ClientTransportPutWarmerAction;
 import org.elasticsearch.client.transport.action.admin.indices.status.ClientTransportIndicesStatusAction;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.inject.Inject;
@@ -109,6 +115,10 @@ public class InternalTransportIndicesAdminClient extends AbstractIndicesAdminCli
 
     private final ClientTransportUpdateSettingsAction updateSettingsAction;
 
+    private final ClientTransportPutWarmerAction putWarmerAction;
+
+    private final ClientTransportDeleteWarmerAction deleteWarmerAction;
+
     @Inject public InternalTransportIndicesAdminClient(Settings settings, TransportClientNodesService nodesService, ThreadPool threadPool,
                                                        ClientTransportIndicesStatusAction indicesStatusAction,
                                                        ClientTransportCreateIndexAction createIndexAction, ClientTransportDeleteIndexAction deleteIndexAction,
@@ -116,7 +126,8 @@ public class InternalTransportIndicesAdminClient extends AbstractIndicesAdminCli
                                                        ClientTransportRefreshAction refreshAction, ClientTransportFlushAction flushAction, ClientTransportOptimizeAction optimizeAction,
                                                        ClientTransportPutMappingAction putMappingAction, ClientTransportDeleteMappingAction deleteMappingAction, ClientTransportGatewaySnapshotAction gatewaySnapshotAction,
                                                        ClientTransportIndicesAliasesAction indicesAliasesAction, ClientTransportClearIndicesCacheAction clearIndicesCacheAction,
-                                                       ClientTransportUpdateSettingsAction updateSettingsAction) {
+                                                       ClientTransportUpdateSettingsAction updateSettingsAction, ClientTransportPutWarmerAction putWarmerAction,
+                                                       ClientTransportDeleteWarmerAction deleteWarmerAction) {
         this.nodesService = nodesService;
         this.threadPool = threadPool;
         this.indicesStatusAction = indicesStatusAction;
@@ -133,6 +144,8 @@ public class InternalTransportIndicesAdminClient extends AbstractIndicesAdminCli
         this.indicesAliasesAction = indicesAliasesAction;
         this.clearIndicesCacheAction = clearIndicesCacheAction;
         this.updateSettingsAction = updateSettingsAction;
+        this.putWarmerAction = putWarmerAction;
+        this.deleteWarmerAction = deleteWarmerAction;
     }
 
     @Override public ThreadPool threadPool() {
@@ -376,4 +389,38 @@ public class InternalTransportIndicesAdminClient extends AbstractIndicesAdminCli
             }
         });
     }
+
+    @Override public ActionFuture<PutWarmerResponse> putWarmer(final PutWarmerRequest request) {
+        return nodesService.execute(new TransportClientNodesService.NodeCallback<org.elasticsearch.action.ActionFuture<PutWarmerResponse>>() {
+            @Override public ActionFuture<PutWarmerResponse> doWithNode(DiscoveryNode node) throws ElasticSearchException {
+                return putWarmerAction.execute(node, request);
+            }
+        });
+    }
+
+    @Override public void putWarmer(final PutWarmerRequest request, final ActionListener<PutWarmerResponse> listener) {
+        nodesService.execute(new TransportClientNodesService.NodeCallback<Void>() {
+            @Override public Void doWithNode(DiscoveryNode node) throws ElasticSearchException {
+                putWarmerAction.execute(node, request, listener);
+                return null;
+            }
+        });
+    }
+
+    @Override public ActionFuture<DeleteWarmerResponse> deleteWarmer(final DeleteWarmerRequest request) {
+        return nodesService.execute(new TransportClientNodesService.NodeCallback<org.elasticsearch.action.ActionFuture<DeleteWarmerResponse>>() {
+            @Override public ActionFuture<DeleteWarmerResponse> doWithNode(DiscoveryNode node) throws ElasticSearchException {
+                return deleteWarmerAction.execute(node, request);
+            }
+        });
+    }
+
+    @Override public void deleteWarmer(final DeleteWarmerRequest request, final ActionListener<DeleteWarmerResponse> listener) {
+        nodesService.execute(new TransportClientNodesService.NodeCallback<Void>() {
+            @Override public Void doWithNode(DiscoveryNode node) throws ElasticSearchException {
+                deleteWarmerAction.execute(node, request, listener);
+                return null;
+            }
+        });
+    }
 }
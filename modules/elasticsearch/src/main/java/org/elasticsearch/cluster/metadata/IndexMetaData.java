@@ -37,6 +37,8 @@ import org.elasticsearch.common.xcontent.XContentParser;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.elasticsearch.common.settings.ImmutableSettings.*;
@@ -94,15 +96,19 @@ public class IndexMetaData {
 
     private final ImmutableMap<String, MappingMetaData> mappings;
 
+    private final ImmutableMap<String, WarmerMetaData> warmers;
+
     private transient final int totalNumberOfShards;
 
-    private IndexMetaData(String index, State state, Settings settings, ImmutableMap<String, MappingMetaData> mappings) {
+    private IndexMetaData(String index, State state, Settings settings, ImmutableMap<String, MappingMetaData> mappings,
+                          ImmutableMap<String, WarmerMetaData> warmers) {
         Preconditions.checkArgument(settings.getAsInt(SETTING_NUMBER_OF_SHARDS, -1) != -1, "must specify numberOfShards for index [" + index + "]");
         Preconditions.checkArgument(settings.getAsInt(SETTING_NUMBER_OF_REPLICAS, -1) != -1, "must specify numberOfReplicas for index [" + index + "]");
         this.index = index;
         this.state = state;
         this.settings = settings;
         this.mappings = mappings;
+        this.warmers = warmers;
         this.totalNumberOfShards = numberOfShards() * (numberOfReplicas() + 1);
 
         this.aliases = ImmutableSet.copyOf(settings.getAsArray("index.aliases"));
@@ -176,6 +182,14 @@ public class IndexMetaData {
         return mappings.get(mappingType);
     }
 
+    public ImmutableMap<String, WarmerMetaData> warmers() {
+        return warmers;
+    }
+
+    public ImmutableMap<String, WarmerMetaData> getWarmers() {
+        return warmers();
+    }
+
     public static Builder newIndexMetaDataBuilder(String index) {
         return new Builder(index);
     }
@@ -194,6 +208,8 @@ public class IndexMetaData {
 
         private MapBuilder<String, MappingMetaData> mappings = MapBuilder.newMapBuilder();
 
+        private MapBuilder<String, WarmerMetaData> warmers = MapBuilder.newMapBuilder();
+
         public Builder(String index) {
             this.index = index;
         }
@@ -202,6 +218,7 @@ public class IndexMetaData {
             this(indexMetaData.index());
             settings(indexMetaData.settings());
             mappings.putAll(indexMetaData.mappings);
+            warmers.putAll(indexMetaData.warmers);
             this.state = indexMetaData.state;
         }
 
@@ -251,13 +268,23 @@ public class IndexMetaData {
             return putMapping(new MappingMetaData(mappingType, new CompressedString(mappingSource)));
         }
 
+        public Builder putWarmer(WarmerMetaData warmerMd) {
+            warmers.put(warmerMd.name(), warmerMd);
+            return this;
+        }
+
+        public Builder removeWarmer(String name) {
+            warmers.remove(name);
+            return this;
+        }
+
         public Builder state(State state) {
             this.state = state;
             return this;
         }
 
         public IndexMetaData build() {
-            return new IndexMetaData(index, state, settings, mappings.immutableMap());
+            return new IndexMetaData(index, state, settings, mappings.immutableMap(), warmers.immutableMap());
         }
 
         public static void toXContent(IndexMetaData indexMetaData, XContentBuilder builder, ToXContent.Params params) throws IOException {
@@ -281,6 +308,18 @@ public class IndexMetaData {
             }
             builder.endArray();
 
+            builder.startObject("warmers");
+            for (WarmerMetaData warmerMd : indexMetaData.warmers().values()) {
+                builder.startObject(warmerMd.name());
+                builder.array("types", warmerMd.types());
+                XContentParser parser = XContentFactory.xContent(warmerMd.source()).createParser(warmerMd.source());
+                Map<String, Object> source = parser.map();
+                parser.close();
+                builder.field("source").map(source);
+                builder.endObject();
+            }
+            builder.endObject();
+
             builder.endObject();
         }
 
@@ -316,6 +355,14 @@ public class IndexMetaData {
                                 }
                             }
                         }
+                    } else if ("warmers".equals(currentFieldName)) {
+                        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                            if (token == XContentParser.Token.FIELD_NAME) {
+                                String name = parser.currentName();
+                                parser.nextToken();
+                                builder.putWarmer(warmerFromXContent(name, parser));
+                            }
+                        }
                     }
                 } else if (token.isValue()) {
                     if ("state".equals(currentFieldName)) {
@@ -326,6 +373,29 @@ public class IndexMetaData {
             return builder.build();
         }
 
+        private static WarmerMetaData warmerFromXContent(String name, XContentParser parser) throws IOException {
+            List<String> types = new ArrayList<String>();
+            byte[] source = null;
+            String currentFieldName = null;
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    currentFieldName = parser.currentName();
+                } else if (token == XContentParser.Token.START_ARRAY) {
+                    if ("types".equals(currentFieldName)) {
+                        while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                            types.add(parser.text());
+                        }
+                    }
+                } else if (token == XContentParser.Token.START_OBJECT) {
+                    if ("source".equals(currentFieldName)) {
+                        source = XContentFactory.jsonBuilder().map(parser.map()).copiedBytes();
+                    }
+                }
+            }
+            return new WarmerMetaData(name, types.toArray(new String[types.size()]), source);
+        }
+
         public static IndexMetaData readFrom(StreamInput in, Settings globalSettings) throws IOException {
             Builder builder = new Builder(in.readUTF());
             builder.state(State.fromId(in.readByte()));
@@ -335,6 +405,10 @@ public class IndexMetaData {
                 MappingMetaData mappingMd = MappingMetaData.readFrom(in);
                 builder.putMapping(mappingMd);
             }
+            int warmersSize = in.readVInt();
+            for (int i = 0; i < warmersSize; i++) {
+                builder.putWarmer(WarmerMetaData.readFrom(in));
+            }
             return builder.build();
         }
 
@@ -346,6 +420,10 @@ public class IndexMetaData {
             for (MappingMetaData mappingMd : indexMetaData.mappings().values()) {
                 MappingMetaData.writeTo(mappingMd, out);
             }
+            out.writeVInt(indexMetaData.warmers().size());
+            for (WarmerMetaData warmerMd : indexMetaData.warmers().values()) {
+                WarmerMetaData.writeTo(warmerMd, out);
+            }
         }
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ProcessedClusterStateUpdateTask;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.indices.IndexMissingException;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.elasticsearch.cluster.metadata.MetaData.*;
+
+/**
+ * Registers and removes index warmers in the index metadata.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class MetaDataWarmersService extends AbstractComponent {
+
+    private final ClusterService clusterService;
+
+    @Inject public MetaDataWarmersService(Settings settings, ClusterService clusterService) {
+        super(settings);
+        this.clusterService = clusterService;
+    }
+
+    public void putWarmer(final String[] indices, final WarmerMetaData warmerMd, final Listener listener) {
+        clusterService.submitStateUpdateTask("put-warmer [" + warmerMd.name() + "]", new ProcessedClusterStateUpdateTask() {
+            @Override public ClusterState execute(ClusterState currentState) {
+                try {
+                    if (indices.length == 0) {
+                        throw new IndexMissingException(new Index("_all"));
+                    }
+                    for (String index : indices) {
+                        if (!currentState.metaData().hasIndex(index)) {
+                            throw new IndexMissingException(new Index(index));
+                        }
+                    }
+
+                    logger.info("[{}] put_warmer [{}]", indices, warmerMd.name());
+                    MetaData.Builder builder = newMetaDataBuilder().metaData(currentState.metaData());
+                    for (String index : indices) {
+                        builder.put(newIndexMetaDataBuilder(currentState.metaData().index(index)).putWarmer(warmerMd));
+                    }
+                    return ClusterState.builder().state(currentState).metaData(builder).build();
+                } catch (Exception e) {
+                    listener.onFailure(e);
+                    return currentState;
+                }
+            }
+
+            @Override public void clusterStateProcessed(ClusterState clusterState) {
+                listener.onSuccess();
+            }
+        });
+    }
+
+    public void deleteWarmer(final String[] indices, final String name, final Listener listener) {
+        clusterService.submitStateUpdateTask("delete-warmer [" + name + "]", new ProcessedClusterStateUpdateTask() {
+            @Override public ClusterState execute(ClusterState currentState) {
+                try {
+                    if (indices.length == 0) {
+                        throw new IndexMissingException(new Index("_all"));
+                    }
+
+                    logger.info("[{}] delete_warmer [{}]", indices, name);
+                    MetaData.Builder builder = newMetaDataBuilder().metaData(currentState.metaData());
+                    for (String index : indices) {
+                        if (currentState.metaData().hasIndex(index)) {
+                            builder.put(newIndexMetaDataBuilder(currentState.metaData().index(index)).removeWarmer(name));
+                        }
+                    }
+                    return ClusterState.builder().state(currentState).metaData(builder).build();
+                } catch (Exception e) {
+                    listener.onFailure(e);
+                    return currentState;
+                }
+            }
+
+            @Override public void clusterStateProcessed(ClusterState clusterState) {
+                listener.onSuccess();
+            }
+        });
+    }
+
+    public static interface Listener {
+        void onSuccess();
+
+        void onFailure(Throwable t);
+    }
+}
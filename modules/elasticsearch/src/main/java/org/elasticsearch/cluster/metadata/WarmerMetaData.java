@@ -0,0 +1,84 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * A search request registered against an index, executed against new readers before they are
+ * exposed to searches in order to warm them up.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class WarmerMetaData {
+
+    private final String name;
+
+    private final String[] types;
+
+    private final byte[] source;
+
+    public WarmerMetaData(String name, String[] types, byte[] source) {
+        this.name = name;
+        this.types = types == null ? Strings.EMPTY_ARRAY : types;
+        this.source = source;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public String[] types() {
+        return this.types;
+    }
+
+    /**
+     * The search source of the warmer.
+     */
+    public byte[] source() {
+        return this.source;
+    }
+
+    public static void writeTo(WarmerMetaData warmerMd, StreamOutput out) throws IOException {
+        out.writeUTF(warmerMd.name());
+        out.writeVInt(warmerMd.types().length);
+        for (String type : warmerMd.types()) {
+            out.writeUTF(type);
+        }
+        out.writeVInt(warmerMd.source().length);
+        out.writeBytes(warmerMd.source());
+    }
+
+    public static WarmerMetaData readFrom(StreamInput in) throws IOException {
+        String name = in.readUTF();
+        String[] types = new String[in.readVInt()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = in.readUTF();
+        }
+        byte[] source = new byte[in.readVInt()];
+        in.readFully(source);
+        return new WarmerMetaData(name, types, source);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lzf;
+
+import java.io.IOException;
+
+/**
+ * Decodes LZF chunks as their bytes are handed to it, for callers that are pushed the data instead of
+ * reading it from a stream. The bytes of a chunk may be split over any number of {@link #decode(byte[], int, int)}
+ * calls, each decoded chunk is handed to the {@link Listener}.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class LZFIncrementalDecoder {
+
+    public static interface Listener {
+        void onDecoded(byte[] data, int offset, int length) throws IOException;
+    }
+
+    private static final int HEADER_BYTES = 5;
+
+    private static final int COMPRESSED_HEADER_BYTES = 7;
+
+    private final Listener listener;
+
+    // the bytes of the chunk being received
+    private final byte[] chunk = new byte[LZFChunk.MAX_CHUNK_LEN + COMPRESSED_HEADER_BYTES];
+
+    private final byte[] decoded = new byte[LZFChunk.MAX_CHUNK_LEN];
+
+    private int chunkLength;
+
+    public LZFIncrementalDecoder(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void decode(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            int toCopy = Math.min(length, requiredChunkLength() - chunkLength);
+            System.arraycopy(data, offset, chunk, chunkLength, toCopy);
+            chunkLength += toCopy;
+            offset += toCopy;
+            length -= toCopy;
+            // once the header is complete the required length covers the whole chunk
+            if (chunkLength == requiredChunkLength()) {
+                decodeChunk();
+                chunkLength = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if some bytes of a chunk were received, but not all of them.
+     */
+    public boolean hasPartialChunk() {
+        return chunkLength > 0;
+    }
+
+    private int requiredChunkLength() throws IOException {
+        if (chunkLength < HEADER_BYTES) {
+            return HEADER_BYTES;
+        }
+        if (chunk[0] != LZFChunk.BYTE_Z || chunk[1] != LZFChunk.BYTE_V) {
+            throw new IOException("Corrupt input data, block did not start with 'ZV' signature bytes");
+        }
+        int type = chunk[2];
+        if (type == LZFChunk.BLOCK_TYPE_NON_COMPRESSED) {
+            return HEADER_BYTES + uint16(chunk, 3);
+        } else if (type == LZFChunk.BLOCK_TYPE_COMPRESSED) {
+            return COMPRESSED_HEADER_BYTES + uint16(chunk, 3);
+        }
+        throw new IOException("Corrupt input data, unknown block type [" + type + "]");
+    }
+
+    private void decodeChunk() throws IOException {
+        if (chunk[2] == LZFChunk.BLOCK_TYPE_NON_COMPRESSED) {
+            listener.onDecoded(chunk, HEADER_BYTES, uint16(chunk, 3));
+        } else {
+            int uncompressedLength = uint16(chunk, 5);
+            LZFDecoder.decompressChunk(chunk, COMPRESSED_HEADER_BYTES, decoded, 0, uncompressedLength);
+            listener.onDecoded(decoded, 0, uncompressedLength);
+        }
+    }
+
+    private static int uint16(byte[] data, int ptr) {
+        return ((data[ptr] & 0xFF) << 8) + (data[ptr + 1] & 0xFF);
+    }
+}
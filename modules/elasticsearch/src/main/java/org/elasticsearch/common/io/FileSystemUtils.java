@@ -119,6 +119,28 @@ public class FileSystemUtils {
         }
     }
 
+    /**
+     * Syncs the directory, so files created or renamed in it survive a crash. Best effort, not all platforms
+     * allow to open a directory, in which case nothing is done.
+     */
+    public static void syncDirectory(File directory) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(directory, "r");
+            file.getFD().sync();
+        } catch (IOException e) {
+            // can't sync a directory on this platform
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
     public static void copyFile(File sourceFile, File destinationFile) throws IOException {
         FileInputStream sourceIs = null;
         FileChannel source = null;
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream delegating to another one, pausing reads based on a {@link RateLimiter}.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class RateLimitedInputStream extends FilterInputStream {
+
+    /**
+     * Notified with the time reads were paused.
+     */
+    public static interface Listener {
+        void onPause(long nanos);
+    }
+
+    private final RateLimiter rateLimiter;
+
+    private final Listener listener;
+
+    private long bytesSinceLastPause;
+
+    public RateLimitedInputStream(InputStream delegate, RateLimiter rateLimiter, Listener listener) {
+        super(delegate);
+        this.rateLimiter = rateLimiter;
+        this.listener = listener;
+    }
+
+    @Override public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            maybePause(1);
+        }
+        return b;
+    }
+
+    @Override public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            maybePause(n);
+        }
+        return n;
+    }
+
+    private void maybePause(int bytes) {
+        if (!rateLimiter.enabled()) {
+            // don't accumulate bytes while disabled, they would all be paused for once enabled
+            bytesSinceLastPause = 0;
+            return;
+        }
+        bytesSinceLastPause += bytes;
+        if (bytesSinceLastPause >= rateLimiter.minPauseCheckBytes()) {
+            long pausedNanos = rateLimiter.pause(bytesSinceLastPause);
+            bytesSinceLastPause = 0;
+            if (pausedNanos > 0 && listener != null) {
+                listener.onPause(pausedNanos);
+            }
+        }
+    }
+}
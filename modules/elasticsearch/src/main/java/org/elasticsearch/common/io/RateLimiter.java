@@ -0,0 +1,122 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.io;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+/**
+ * Limits the rate of bytes processed by the threads sharing it, by pausing them when they go over
+ * the configured rate. The rate can be changed at any time, a rate of <tt>0</tt> disables limiting.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class RateLimiter {
+
+    // the minimum time worth of bytes to accumulate before checking if a pause is needed
+    private static final long MIN_PAUSE_CHECK_NANOS = 25 * 1000 * 1000;
+
+    private volatile ByteSizeValue maxRate;
+
+    private volatile double nanosPerByte;
+
+    private volatile long minPauseCheckBytes;
+
+    // the time (in nanos) the bytes acquired so far are allowed to complete at
+    private long lastNanos;
+
+    public RateLimiter(ByteSizeValue maxRate) {
+        setMaxRate(maxRate);
+    }
+
+    /**
+     * Sets the max bytes per second, <tt>0</tt> for no limit.
+     */
+    public void setMaxRate(ByteSizeValue maxRate) {
+        this.maxRate = maxRate;
+        if (maxRate.bytes() <= 0) {
+            this.nanosPerByte = 0;
+            this.minPauseCheckBytes = Long.MAX_VALUE;
+        } else {
+            this.nanosPerByte = 1000000000.0 / maxRate.bytes();
+            this.minPauseCheckBytes = Math.max(1, (long) (MIN_PAUSE_CHECK_NANOS / nanosPerByte));
+        }
+    }
+
+    /**
+     * The max bytes per second, <tt>0</tt> for no limit.
+     */
+    public ByteSizeValue maxRate() {
+        return this.maxRate;
+    }
+
+    /**
+     * Is the rate limited at all.
+     */
+    public boolean enabled() {
+        return nanosPerByte > 0;
+    }
+
+    /**
+     * The number of bytes callers should accumulate before calling {@link #pause(long)}, so they
+     * don't pay for it on each write.
+     */
+    public long minPauseCheckBytes() {
+        return minPauseCheckBytes;
+    }
+
+    /**
+     * Pauses the calling thread as long as needed for the provided bytes to fit in the rate, returning
+     * the time paused in nanos. The pause ends early (with the interrupt flag set) if the thread is interrupted.
+     */
+    public long pause(long bytes) {
+        long startNanos = System.nanoTime();
+        long targetNanos = startNanos + pauseNanos(bytes, startNanos);
+        long currentNanos = startNanos;
+        while (targetNanos > currentNanos) {
+            long pauseNanos = targetNanos - currentNanos;
+            try {
+                Thread.sleep(pauseNanos / 1000000, (int) (pauseNanos % 1000000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            currentNanos = System.nanoTime();
+        }
+        return currentNanos - startNanos;
+    }
+
+    /**
+     * Accounts for the provided bytes, returning how long (in nanos) the caller should pause for, as of
+     * the provided time, for them to fit in the rate.
+     */
+    long pauseNanos(long bytes, long nowNanos) {
+        double nanosPerByte = this.nanosPerByte;
+        if (nanosPerByte <= 0 || bytes <= 0) {
+            return 0;
+        }
+        synchronized (this) {
+            // don't accumulate credit while idle
+            if (lastNanos < nowNanos) {
+                lastNanos = nowNanos;
+            }
+            lastNanos += (long) (bytes * nanosPerByte);
+            return lastNanos - nowNanos;
+        }
+    }
+}
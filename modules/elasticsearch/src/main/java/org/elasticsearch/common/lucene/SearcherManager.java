@@ -0,0 +1,237 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.lucene;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manages ref counted generations of a reader and its searcher. Acquiring the current generation
+ * is lock free (a CAS on its ref count), and a generation is closed once it was replaced and the
+ * last searcher using it was released.
+ *
+ * <p>Generations are numbered. A refresher calls {@link #startGeneration()} before opening the new
+ * reader and publishes it under that number (or marks the number visible if nothing changed). Changes
+ * applied before {@link #pendingGeneration()} was called are visible to searches once
+ * {@link #visibleGeneration()} reached it, which allows to wait for visibility instead of forcing
+ * another reopen. Refreshers are expected to be serialized by the caller.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class SearcherManager {
+
+    private final AtomicLong generationCounter = new AtomicLong();
+
+    private final AtomicInteger openGenerations = new AtomicInteger();
+
+    private final Object visibleMutex = new Object();
+
+    private volatile Generation current;
+
+    private volatile long visibleGeneration = -1;
+
+    private volatile boolean closed;
+
+    /**
+     * Acquires the current generation, must be released once done.
+     *
+     * @throws AlreadyClosedException if the manager was closed
+     */
+    public Generation acquire() throws AlreadyClosedException {
+        for (; ;) {
+            Generation generation = current;
+            if (generation == null) {
+                throw new AlreadyClosedException("searcher manager is closed");
+            }
+            if (generation.tryIncRef()) {
+                return generation;
+            }
+            // the generation was replaced and closed since we read it, the new one is already current
+        }
+    }
+
+    /**
+     * The generation number changes applied up to now will be visible on. See {@link #waitForGeneration(long, TimeValue)}.
+     */
+    public long pendingGeneration() {
+        return generationCounter.get();
+    }
+
+    /**
+     * Starts a new generation, to be called by the refresher before opening the reader.
+     */
+    public long startGeneration() {
+        return generationCounter.getAndIncrement();
+    }
+
+    /**
+     * Creates a new, not yet published, generation for the provided searcher. It can be acquired
+     * (for example, to warm it) before it is published.
+     */
+    public Generation newGeneration(long generation, IndexSearcher searcher) {
+        openGenerations.incrementAndGet();
+        return new Generation(generation, new ReaderSearcherHolder(searcher));
+    }
+
+    /**
+     * Makes the provided generation the current one, releasing the previous one.
+     */
+    public void publish(Generation generation) {
+        Generation previous;
+        synchronized (visibleMutex) {
+            if (closed) {
+                generation.release();
+                throw new AlreadyClosedException("searcher manager is closed");
+            }
+            previous = current;
+            current = generation;
+        }
+        markVisible(generation.generation());
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    /**
+     * Marks the generation as visible without publishing a new one, used when the reader did not change.
+     */
+    public void markVisible(long generation) {
+        synchronized (visibleMutex) {
+            if (generation > visibleGeneration) {
+                visibleGeneration = generation;
+            }
+            visibleMutex.notifyAll();
+        }
+    }
+
+    /**
+     * The latest generation visible to searches.
+     */
+    public long visibleGeneration() {
+        return visibleGeneration;
+    }
+
+    /**
+     * Waits till the provided generation is visible, returning <tt>true</tt> if it is, or <tt>false</tt>
+     * if the timeout elapsed or the manager was closed.
+     */
+    public boolean waitForGeneration(long generation, TimeValue timeout) throws InterruptedException {
+        long timeoutMillis = timeout.millis();
+        long start = System.currentTimeMillis();
+        synchronized (visibleMutex) {
+            while (visibleGeneration < generation && !closed) {
+                long left = timeoutMillis - (System.currentTimeMillis() - start);
+                if (left <= 0) {
+                    break;
+                }
+                visibleMutex.wait(left);
+            }
+            return visibleGeneration >= generation;
+        }
+    }
+
+    /**
+     * The number of generations still open, the current one and the replaced ones still used by searchers.
+     */
+    public int openGenerations() {
+        return openGenerations.get();
+    }
+
+    /**
+     * Closes the manager, the current generation will be closed once its last searcher is released.
+     */
+    public void close() {
+        Generation previous;
+        synchronized (visibleMutex) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            previous = current;
+            current = null;
+            visibleMutex.notifyAll();
+        }
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
+    /**
+     * A ref counted generation of a reader and its searcher. The manager holds a reference to the
+     * current generation, released once it is replaced.
+     */
+    public class Generation implements Releasable {
+
+        private final long generation;
+
+        private final ReaderSearcherHolder holder;
+
+        private final AtomicInteger refCount = new AtomicInteger(1);
+
+        Generation(long generation, ReaderSearcherHolder holder) {
+            this.generation = generation;
+            this.holder = holder;
+        }
+
+        public long generation() {
+            return this.generation;
+        }
+
+        public IndexReader reader() {
+            return holder.reader();
+        }
+
+        public IndexSearcher searcher() {
+            return holder.searcher();
+        }
+
+        /**
+         * Increments the ref count, unless it already dropped to 0 and the generation was closed.
+         */
+        public boolean tryIncRef() {
+            for (; ;) {
+                int count = refCount.get();
+                if (count <= 0) {
+                    return false;
+                }
+                if (refCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Decrements the ref count, closing the reader and searcher when it drops to 0.
+         */
+        @Override public boolean release() throws ElasticSearchException {
+            if (refCount.decrementAndGet() == 0) {
+                openGenerations.decrementAndGet();
+                holder.release();
+            }
+            return true;
+        }
+    }
+}
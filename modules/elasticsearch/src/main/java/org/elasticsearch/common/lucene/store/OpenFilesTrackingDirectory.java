@@ -0,0 +1,231 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.store;
+
+import org.apache.lucene.store.*;
+import org.elasticsearch.index.store.support.ForceSyncDirectory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A directory delegating to another one, keeping track of the number of files currently open
+ * for reading through it, and their total size (for a memory mapped directory, the size mapped).
+ * Clones of open inputs are not tracked, as they are not closed by Lucene.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class OpenFilesTrackingDirectory extends Directory implements ForceSyncDirectory {
+
+    private final Directory delegate;
+
+    private final AtomicLong openFiles = new AtomicLong();
+
+    private final AtomicLong openBytes = new AtomicLong();
+
+    private final AtomicLong totalOpened = new AtomicLong();
+
+    public OpenFilesTrackingDirectory(Directory delegate) {
+        this.delegate = delegate;
+        this.lockFactory = delegate.getLockFactory();
+    }
+
+    public Directory delegate() {
+        return delegate;
+    }
+
+    /**
+     * The number of files currently open for reading.
+     */
+    public long openFiles() {
+        return openFiles.get();
+    }
+
+    /**
+     * The total size of the files currently open for reading.
+     */
+    public long openBytes() {
+        return openBytes.get();
+    }
+
+    /**
+     * The number of files opened for reading since this directory was created.
+     */
+    public long totalOpened() {
+        return totalOpened.get();
+    }
+
+    @Override public IndexInput openInput(String name) throws IOException {
+        return track(delegate.openInput(name));
+    }
+
+    @Override public IndexInput openInput(String name, int bufferSize) throws IOException {
+        return track(delegate.openInput(name, bufferSize));
+    }
+
+    private IndexInput track(IndexInput in) {
+        long length = in.length();
+        openFiles.incrementAndGet();
+        openBytes.addAndGet(length);
+        totalOpened.incrementAndGet();
+        return new TrackingIndexInput(in, length);
+    }
+
+    @Override public String[] listAll() throws IOException {
+        return delegate.listAll();
+    }
+
+    @Override public boolean fileExists(String name) throws IOException {
+        return delegate.fileExists(name);
+    }
+
+    @Override public long fileModified(String name) throws IOException {
+        return delegate.fileModified(name);
+    }
+
+    @Override public void touchFile(String name) throws IOException {
+        delegate.touchFile(name);
+    }
+
+    @Override public void deleteFile(String name) throws IOException {
+        delegate.deleteFile(name);
+    }
+
+    @Override public long fileLength(String name) throws IOException {
+        return delegate.fileLength(name);
+    }
+
+    @Override public IndexOutput createOutput(String name) throws IOException {
+        return delegate.createOutput(name);
+    }
+
+    @Override public void sync(String name) throws IOException {
+        delegate.sync(name);
+    }
+
+    @Override public void forceSync(String name) throws IOException {
+        if (delegate instanceof ForceSyncDirectory) {
+            ((ForceSyncDirectory) delegate).forceSync(name);
+        } else {
+            delegate.sync(name);
+        }
+    }
+
+    @Override public Lock makeLock(String name) {
+        return delegate.makeLock(name);
+    }
+
+    @Override public void clearLock(String name) throws IOException {
+        delegate.clearLock(name);
+    }
+
+    @Override public void setLockFactory(LockFactory lockFactory) {
+        delegate.setLockFactory(lockFactory);
+        this.lockFactory = lockFactory;
+    }
+
+    @Override public LockFactory getLockFactory() {
+        return delegate.getLockFactory();
+    }
+
+    @Override public String getLockID() {
+        return delegate.getLockID();
+    }
+
+    @Override public void close() throws IOException {
+        delegate.close();
+    }
+
+    private class TrackingIndexInput extends IndexInput {
+
+        private IndexInput delegate;
+
+        private final long length;
+
+        private boolean clone = false;
+
+        private boolean closed = false;
+
+        TrackingIndexInput(IndexInput delegate, long length) {
+            this.delegate = delegate;
+            this.length = length;
+        }
+
+        @Override public byte readByte() throws IOException {
+            return delegate.readByte();
+        }
+
+        @Override public void readBytes(byte[] b, int offset, int len) throws IOException {
+            delegate.readBytes(b, offset, len);
+        }
+
+        @Override public void readBytes(byte[] b, int offset, int len, boolean useBuffer) throws IOException {
+            delegate.readBytes(b, offset, len, useBuffer);
+        }
+
+        @Override public int readInt() throws IOException {
+            return delegate.readInt();
+        }
+
+        @Override public int readVInt() throws IOException {
+            return delegate.readVInt();
+        }
+
+        @Override public long readLong() throws IOException {
+            return delegate.readLong();
+        }
+
+        @Override public long readVLong() throws IOException {
+            return delegate.readVLong();
+        }
+
+        @Override public String readString() throws IOException {
+            return delegate.readString();
+        }
+
+        @Override public long getFilePointer() {
+            return delegate.getFilePointer();
+        }
+
+        @Override public void seek(long pos) throws IOException {
+            delegate.seek(pos);
+        }
+
+        @Override public long length() {
+            return length;
+        }
+
+        @Override public void close() throws IOException {
+            delegate.close();
+            if (!clone && !closed) {
+                closed = true;
+                openFiles.decrementAndGet();
+                openBytes.addAndGet(-length);
+            }
+        }
+
+        @Override public Object clone() {
+            TrackingIndexInput clone = (TrackingIndexInput) super.clone();
+            clone.delegate = (IndexInput) delegate.clone();
+            clone.clone = true;
+            return clone;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.lucene.store;
+
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.io.RateLimiter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * An index output delegating to another one, pausing writes based on a {@link RateLimiter}.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class RateLimitedIndexOutput extends IndexOutput {
+
+    /**
+     * Notified with the time writes were paused.
+     */
+    public static interface Listener {
+        void onPause(long nanos);
+    }
+
+    private final IndexOutput delegate;
+
+    private final RateLimiter rateLimiter;
+
+    private final Listener listener;
+
+    private long bytesSinceLastPause;
+
+    public RateLimitedIndexOutput(IndexOutput delegate, RateLimiter rateLimiter, Listener listener) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+        this.listener = listener;
+    }
+
+    @Override public void writeByte(byte b) throws IOException {
+        delegate.writeByte(b);
+        maybePause(1);
+    }
+
+    @Override public void writeBytes(byte[] b, int offset, int length) throws IOException {
+        delegate.writeBytes(b, offset, length);
+        maybePause(length);
+    }
+
+    private void maybePause(int bytes) {
+        if (!rateLimiter.enabled()) {
+            // don't accumulate bytes while disabled, they would all be paused for once enabled
+            bytesSinceLastPause = 0;
+            return;
+        }
+        bytesSinceLastPause += bytes;
+        if (bytesSinceLastPause >= rateLimiter.minPauseCheckBytes()) {
+            long pausedNanos = rateLimiter.pause(bytesSinceLastPause);
+            bytesSinceLastPause = 0;
+            if (pausedNanos > 0 && listener != null) {
+                listener.onPause(pausedNanos);
+            }
+        }
+    }
+
+    @Override public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override public long getFilePointer() {
+        return delegate.getFilePointer();
+    }
+
+    @Override public void seek(long pos) throws IOException {
+        delegate.seek(pos);
+    }
+
+    @Override public long length() throws IOException {
+        return delegate.length();
+    }
+
+    @Override public void setLength(long length) throws IOException {
+        delegate.setLength(length);
+    }
+
+    @Override public void writeStringStringMap(Map<String, String> map) throws IOException {
+        delegate.writeStringStringMap(map);
+    }
+}
@@ -25,6 +25,7 @@ import org.elasticsearch.common.inject.Module;
 import org.elasticsearch.common.inject.Modules;
 import org.elasticsearch.common.inject.SpawnModules;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.gateway.blobstore.BlobStoreGatewayThrottle;
 import org.elasticsearch.gateway.local.LocalGatewayModule;
 
 /**
@@ -44,5 +45,6 @@ public class GatewayModule extends AbstractModule implements SpawnModules {
 
     @Override protected void configure() {
         bind(GatewayService.class).asEagerSingleton();
+        bind(BlobStoreGatewayThrottle.class).asEagerSingleton();
     }
 }
@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.gateway.blobstore;
+
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.RateLimitedInputStream;
+import org.elasticsearch.common.io.RateLimiter;
+import org.elasticsearch.common.lucene.store.RateLimitedIndexOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.jmx.MBean;
+import org.elasticsearch.jmx.ManagedAttribute;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node level throttling of blob store gateway snapshots and restores, shared by all the shards on the
+ * node. Limits the number of blobs concurrently written or read (<tt>concurrent_streams</tt>), and caps
+ * the bytes per second written and read by all of them (<tt>max_bytes_per_sec</tt>, <tt>0</tt> for no
+ * limit). All limits can be changed at runtime.
+ *
+ * @author kimchy (shay.banon)
+ */
+@MBean(objectName = "service=gateway,gatewayType=blobStoreThrottle", description = "Blob store gateway IO throttling")
+public class BlobStoreGatewayThrottle extends AbstractComponent {
+
+    private final RateLimiter rateLimiter;
+
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    private final Object mutex = new Object();
+
+    private volatile int concurrentStreams;
+
+    private int streams;
+
+    @Inject public BlobStoreGatewayThrottle(Settings settings) {
+        super(settings);
+        this.concurrentStreams = componentSettings.getAsInt("concurrent_streams", 5);
+        this.rateLimiter = new RateLimiter(componentSettings.getAsBytesSize("max_bytes_per_sec", new ByteSizeValue(0)));
+        logger.debug("using concurrent_streams [{}], max_bytes_per_sec [{}]", concurrentStreams, rateLimiter.maxRate());
+    }
+
+    /**
+     * Waits until a blob can be written or read, must be followed by {@link #releaseStream()}.
+     */
+    public void acquireStream() throws InterruptedException {
+        synchronized (mutex) {
+            while (streams >= concurrentStreams) {
+                mutex.wait();
+            }
+            streams++;
+        }
+    }
+
+    public void releaseStream() {
+        synchronized (mutex) {
+            streams--;
+            mutex.notifyAll();
+        }
+    }
+
+    /**
+     * Wraps the stream a blob is written from so its reads fit in the max bytes per second. Always wrapped,
+     * so a limit set while the blob is written applies to it.
+     */
+    public InputStream throttle(InputStream in, final RateLimitedInputStream.Listener listener) {
+        return new RateLimitedInputStream(in, rateLimiter, new RateLimitedInputStream.Listener() {
+            @Override public void onPause(long nanos) {
+                throttledNanos.addAndGet(nanos);
+                if (listener != null) {
+                    listener.onPause(nanos);
+                }
+            }
+        });
+    }
+
+    /**
+     * Wraps the output a blob is restored into so its writes fit in the max bytes per second. Always wrapped,
+     * so a limit set while the blob is restored applies to it.
+     */
+    public IndexOutput throttle(IndexOutput out, final RateLimitedIndexOutput.Listener listener) {
+        return new RateLimitedIndexOutput(out, rateLimiter, new RateLimitedIndexOutput.Listener() {
+            @Override public void onPause(long nanos) {
+                throttledNanos.addAndGet(nanos);
+                if (listener != null) {
+                    listener.onPause(nanos);
+                }
+            }
+        });
+    }
+
+    /**
+     * Pauses the calling thread as needed for the bytes written or read to fit in the max bytes per
+     * second, returning the time paused in nanos.
+     */
+    public long pause(long bytes) {
+        long nanos = rateLimiter.pause(bytes);
+        if (nanos > 0) {
+            throttledNanos.addAndGet(nanos);
+        }
+        return nanos;
+    }
+
+    public void maxBytesPerSec(ByteSizeValue maxBytesPerSec) {
+        logger.info("updating max_bytes_per_sec from [{}] to [{}]", rateLimiter.maxRate(), maxBytesPerSec);
+        rateLimiter.setMaxRate(maxBytesPerSec);
+    }
+
+    public ByteSizeValue maxBytesPerSec() {
+        return rateLimiter.maxRate();
+    }
+
+    public void concurrentStreams(int concurrentStreams) {
+        logger.info("updating concurrent_streams from [{}] to [{}]", this.concurrentStreams, concurrentStreams);
+        synchronized (mutex) {
+            this.concurrentStreams = concurrentStreams;
+            mutex.notifyAll();
+        }
+    }
+
+    public int concurrentStreams() {
+        return concurrentStreams;
+    }
+
+    /**
+     * The total time snapshots and restores on the node were paused by the max bytes per second.
+     */
+    public TimeValue throttledTime() {
+        return new TimeValue(throttledNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @ManagedAttribute(description = "Max bytes per second snapshots and restores can write and read (0 for no limit)")
+    public String getMaxBytesPerSec() {
+        return maxBytesPerSec().toString();
+    }
+
+    @ManagedAttribute(description = "Max bytes per second snapshots and restores can write and read (0 for no limit)")
+    public void setMaxBytesPerSec(String maxBytesPerSec) {
+        maxBytesPerSec(ByteSizeValue.parseBytesSizeValue(maxBytesPerSec));
+    }
+
+    @ManagedAttribute(description = "Max number of blobs written or read concurrently")
+    public int getConcurrentStreams() {
+        return concurrentStreams();
+    }
+
+    @ManagedAttribute(description = "Max number of blobs written or read concurrently")
+    public void setConcurrentStreams(int concurrentStreams) {
+        concurrentStreams(concurrentStreams);
+    }
+
+    @ManagedAttribute(description = "Number of blobs currently written or read")
+    public int getStreams() {
+        synchronized (mutex) {
+            return streams;
+        }
+    }
+
+    @ManagedAttribute(description = "Total time snapshots and restores were throttled (in millis)")
+    public long getThrottledTimeInMillis() {
+        return throttledTime().millis();
+    }
+}
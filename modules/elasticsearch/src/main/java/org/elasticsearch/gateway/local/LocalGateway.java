@@ -22,14 +22,15 @@ package org.elasticsearch.gateway.local;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.action.FailedNodeException;
 import org.elasticsearch.cluster.*;
-import org.elasticsearch.cluster.metadata.IndexMetaData;
-import org.elasticsearch.cluster.metadata.MetaData;
-import org.elasticsearch.cluster.metadata.MetaDataCreateIndexService;
+import org.elasticsearch.cluster.metadata.*;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.MutableShardRouting;
 import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.ImmutableSet;
+import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.collect.Sets;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -46,10 +47,17 @@ import org.elasticsearch.gateway.GatewayService;
 import org.elasticsearch.index.gateway.local.LocalIndexGatewayModule;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 import static java.util.concurrent.Executors.*;
 import static org.elasticsearch.cluster.ClusterState.*;
@@ -74,8 +82,16 @@ public class LocalGateway extends AbstractLifecycleComponent<Gateway> implements
 
     private final TransportNodesListGatewayStartedShards listGatewayStartedShards;
 
+    private final int loadConcurrency;
+
     private volatile LocalGatewayMetaState currentMetaState;
 
+    // the state files the indices of the current meta state are persisted in
+    private volatile ImmutableMap<String, IndexStateFile> currentIndexStateFiles = ImmutableMap.of();
+
+    // the names of the files the current meta state was read from or written to
+    private volatile Set<String> currentStateFiles = ImmutableSet.of();
+
     private volatile LocalGatewayStartedShards currentStartedShards;
 
     private volatile ExecutorService executor;
@@ -90,6 +106,7 @@ public class LocalGateway extends AbstractLifecycleComponent<Gateway> implements
         this.nodeEnv = nodeEnv;
         this.listGatewayMetaState = listGatewayMetaState.initGateway(this);
         this.listGatewayStartedShards = listGatewayStartedShards.initGateway(this);
+        this.loadConcurrency = componentSettings.getAsInt("load_concurrency", Math.min(4, Runtime.getRuntime().availableProcessors()));
     }
 
     @Override public String type() {
@@ -229,40 +246,8 @@ public class LocalGateway extends AbstractLifecycleComponent<Gateway> implements
         if (event.state().nodes().localNode().masterNode() && event.metaDataChanged() && !event.state().blocks().hasGlobalBlock(Discovery.NO_MASTER_BLOCK)) {
             executor.execute(new Runnable() {
                 @Override public void run() {
-                    LocalGatewayMetaState.Builder builder = LocalGatewayMetaState.builder();
-                    if (currentMetaState != null) {
-                        builder.state(currentMetaState);
-                    }
-                    builder.version(event.state().version());
-                    builder.metaData(event.state().metaData());
-
                     try {
-                        LocalGatewayMetaState stateToWrite = builder.build();
-                        XContentBuilder xContentBuilder = XContentFactory.contentBuilder(XContentType.JSON);
-                        xContentBuilder.prettyPrint();
-                        xContentBuilder.startObject();
-                        LocalGatewayMetaState.Builder.toXContent(stateToWrite, xContentBuilder, ToXContent.EMPTY_PARAMS);
-                        xContentBuilder.endObject();
-
-                        File stateFile = new File(location, "metadata-" + event.state().version());
-                        FileOutputStream fos = new FileOutputStream(stateFile);
-                        fos.write(xContentBuilder.unsafeBytes(), 0, xContentBuilder.unsafeBytesLength());
-                        fos.close();
-
-                        FileSystemUtils.syncFile(stateFile);
-
-                        currentMetaState = stateToWrite;
-
-                        // delete all the other files
-                        File[] files = location.listFiles(new FilenameFilter() {
-                            @Override public boolean accept(File dir, String name) {
-                                return name.startsWith("metadata-") && !name.equals("metadata-" + event.state().version());
-                            }
-                        });
-                        for (File file : files) {
-                            file.delete();
-                        }
-
+                        writeMetaState(event.state().version(), event.state().metaData());
                     } catch (IOException e) {
                         logger.warn("failed to write updated state", e);
                     }
@@ -355,9 +340,22 @@ public class LocalGateway extends AbstractLifecycleComponent<Gateway> implements
 
             if (clusterService.localNode().masterNode()) {
                 try {
-                    long version = findLatestMetaStateVersion();
-                    if (version != -1) {
-                        this.currentMetaState = readMetaState(Streams.copyToByteArray(new FileInputStream(new File(location, "metadata-" + version))));
+                    // the previous generation is kept until a newer one is written, fall back to it if the latest fails to load
+                    for (long version : findGlobalStateVersions()) {
+                        try {
+                            this.currentMetaState = readGlobalState(version);
+                            break;
+                        } catch (Exception e) {
+                            logger.warn("failed to read global state [{}], trying the previous one", e, version);
+                        }
+                    }
+                    if (this.currentMetaState == null) {
+                        // state written before the meta data was persisted per index
+                        long version = findLatestMetaStateVersion();
+                        if (version != -1) {
+                            this.currentMetaState = readMetaState(Streams.copyToByteArray(new FileInputStream(new File(location, "metadata-" + version))));
+                            this.currentStateFiles = ImmutableSet.of("metadata-" + version);
+                        }
                     }
                 } catch (Exception e) {
                     logger.warn("failed to read local state", e);
@@ -377,6 +375,256 @@ public class LocalGateway extends AbstractLifecycleComponent<Gateway> implements
         }
     }
 
+    /**
+     * Persists the meta data as a global state file listing the state file of each index. Only the indices that
+     * changed since the last persisted meta data get a new state file. Each file is written under a temporary name
+     * and renamed once synced. Once the global state file is written, the files referenced by neither it nor the
+     * previous one are deleted, the previous one is kept to fall back to if the new one fails to load.
+     */
+    private void writeMetaState(long version, MetaData metaData) throws IOException {
+        LocalGatewayMetaState previousState = currentMetaState;
+        Map<String, IndexStateFile> indexStateFiles = Maps.newHashMap();
+        int writtenIndices = 0;
+        for (IndexMetaData indexMetaData : metaData) {
+            IndexStateFile indexStateFile = currentIndexStateFiles.get(indexMetaData.index());
+            IndexMetaData previousIndexMetaData = previousState == null ? null : previousState.metaData().index(indexMetaData.index());
+            if (indexStateFile == null || previousIndexMetaData == null || !sameIndexMetaData(previousIndexMetaData, indexMetaData)) {
+                indexStateFile = writeIndexState(indexMetaData, version);
+                writtenIndices++;
+            }
+            indexStateFiles.put(indexMetaData.index(), indexStateFile);
+        }
+        if (writtenIndices > 0) {
+            // make sure the renamed index state files are there before the global state file referencing them
+            FileSystemUtils.syncDirectory(location);
+        }
+
+        XContentBuilder xContentBuilder = XContentFactory.contentBuilder(XContentType.JSON);
+        xContentBuilder.prettyPrint();
+        xContentBuilder.startObject();
+        xContentBuilder.startObject("state");
+        xContentBuilder.field("version", version);
+        xContentBuilder.startObject("indices");
+        for (Map.Entry<String, IndexStateFile> entry : indexStateFiles.entrySet()) {
+            xContentBuilder.startObject(entry.getKey());
+            xContentBuilder.field("version", entry.getValue().version);
+            xContentBuilder.field("checksum", entry.getValue().checksum);
+            xContentBuilder.endObject();
+        }
+        xContentBuilder.endObject();
+        xContentBuilder.endObject();
+        xContentBuilder.endObject();
+        writeStateFile("global-" + version, xContentBuilder);
+        FileSystemUtils.syncDirectory(location);
+
+        Set<String> previousStateFiles = currentStateFiles;
+        currentMetaState = LocalGatewayMetaState.builder().version(version).metaData(metaData).build();
+        currentIndexStateFiles = ImmutableMap.copyOf(indexStateFiles);
+        currentStateFiles = stateFileNames(version, indexStateFiles);
+        if (logger.isTraceEnabled()) {
+            logger.trace("persisted meta data version [{}], wrote [{}] out of [{}] indices", version, writtenIndices, indexStateFiles.size());
+        }
+
+        // delete all the other files, including the ones written before the meta data was persisted per index
+        Set<String> referencedFiles = Sets.newHashSet(currentStateFiles);
+        referencedFiles.addAll(previousStateFiles);
+        File[] files = location.listFiles(new FilenameFilter() {
+            @Override public boolean accept(File dir, String name) {
+                return name.startsWith("metadata-") || name.startsWith("global-") || name.startsWith("index-");
+            }
+        });
+        for (File file : files) {
+            if (!referencedFiles.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    private IndexStateFile writeIndexState(IndexMetaData indexMetaData, long version) throws IOException {
+        XContentBuilder xContentBuilder = XContentFactory.contentBuilder(XContentType.JSON);
+        xContentBuilder.prettyPrint();
+        xContentBuilder.startObject();
+        IndexMetaData.Builder.toXContent(indexMetaData, xContentBuilder, ToXContent.EMPTY_PARAMS);
+        xContentBuilder.endObject();
+
+        CRC32 checksum = new CRC32();
+        checksum.update(xContentBuilder.unsafeBytes(), 0, xContentBuilder.unsafeBytesLength());
+        writeStateFile(indexStateFileName(indexMetaData.index(), version), xContentBuilder);
+        return new IndexStateFile(version, checksum.getValue());
+    }
+
+    /**
+     * Writes the state file under a temporary name, renaming it once synced so a partially written file is never read.
+     */
+    private void writeStateFile(String name, XContentBuilder xContentBuilder) throws IOException {
+        File tmpStateFile = new File(location, name + ".tmp");
+        FileOutputStream fos = new FileOutputStream(tmpStateFile);
+        try {
+            fos.write(xContentBuilder.unsafeBytes(), 0, xContentBuilder.unsafeBytesLength());
+        } finally {
+            fos.close();
+        }
+        FileSystemUtils.syncFile(tmpStateFile);
+
+        File stateFile = new File(location, name);
+        if (!tmpStateFile.renameTo(stateFile)) {
+            // some file systems won't rename over an existing file
+            stateFile.delete();
+            if (!tmpStateFile.renameTo(stateFile)) {
+                throw new IOException("failed to rename [" + tmpStateFile + "] to [" + stateFile + "]");
+            }
+        }
+    }
+
+    /**
+     * The versions of the global state files, latest first.
+     */
+    private List<Long> findGlobalStateVersions() {
+        List<Long> versions = Lists.newArrayList();
+        for (File stateFile : location.listFiles()) {
+            String name = stateFile.getName();
+            if (!name.startsWith("global-") || name.endsWith(".tmp")) {
+                continue;
+            }
+            versions.add(Long.parseLong(name.substring(name.indexOf('-') + 1)));
+        }
+        Collections.sort(versions, Collections.reverseOrder());
+        return versions;
+    }
+
+    /**
+     * Reads the global state file, and loads the state files of its indices concurrently, verifying their checksum.
+     */
+    private LocalGatewayMetaState readGlobalState(long version) throws Exception {
+        final Map<String, IndexStateFile> indexStateFiles = Maps.newHashMap();
+        long stateVersion = -1;
+        XContentParser parser = XContentFactory.xContent(XContentType.JSON).createParser(Streams.copyToByteArray(new FileInputStream(new File(location, "global-" + version))));
+        try {
+            String currentFieldName = null;
+            XContentParser.Token token = parser.nextToken(); // the wrapping object
+            token = parser.nextToken(); // state
+            token = parser.nextToken(); // the state object
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    currentFieldName = parser.currentName();
+                } else if (token == XContentParser.Token.START_OBJECT) {
+                    if ("indices".equals(currentFieldName)) {
+                        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                            String index = parser.currentName();
+                            long indexVersion = -1;
+                            long checksum = -1;
+                            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                                if (token == XContentParser.Token.FIELD_NAME) {
+                                    currentFieldName = parser.currentName();
+                                } else if (token.isValue()) {
+                                    if ("version".equals(currentFieldName)) {
+                                        indexVersion = parser.longValue();
+                                    } else if ("checksum".equals(currentFieldName)) {
+                                        checksum = parser.longValue();
+                                    }
+                                }
+                            }
+                            indexStateFiles.put(index, new IndexStateFile(indexVersion, checksum));
+                        }
+                    }
+                } else if (token.isValue()) {
+                    if ("version".equals(currentFieldName)) {
+                        stateVersion = parser.longValue();
+                    }
+                }
+            }
+        } finally {
+            parser.close();
+        }
+
+        MetaData.Builder metaDataBuilder = newMetaDataBuilder();
+        if (!indexStateFiles.isEmpty()) {
+            ExecutorService loader = newFixedThreadPool(Math.max(1, Math.min(loadConcurrency, indexStateFiles.size())), daemonThreadFactory(settings, "gateway_loader"));
+            try {
+                List<Future<IndexMetaData>> futures = Lists.newArrayList();
+                for (final Map.Entry<String, IndexStateFile> entry : indexStateFiles.entrySet()) {
+                    futures.add(loader.submit(new Callable<IndexMetaData>() {
+                        @Override public IndexMetaData call() throws Exception {
+                            return readIndexState(entry.getKey(), entry.getValue());
+                        }
+                    }));
+                }
+                for (Future<IndexMetaData> future : futures) {
+                    metaDataBuilder.put(future.get());
+                }
+            } finally {
+                loader.shutdownNow();
+            }
+        }
+        currentIndexStateFiles = ImmutableMap.copyOf(indexStateFiles);
+        currentStateFiles = stateFileNames(version, indexStateFiles);
+        return LocalGatewayMetaState.builder().version(stateVersion).metaData(metaDataBuilder.build()).build();
+    }
+
+    private IndexMetaData readIndexState(String index, IndexStateFile indexStateFile) throws IOException {
+        File stateFile = new File(location, indexStateFileName(index, indexStateFile.version));
+        byte[] data = Streams.copyToByteArray(new FileInputStream(stateFile));
+        CRC32 checksum = new CRC32();
+        checksum.update(data, 0, data.length);
+        if (checksum.getValue() != indexStateFile.checksum) {
+            throw new IOException("checksum mismatch for index state file [" + stateFile + "], expected [" + indexStateFile.checksum + "], got [" + checksum.getValue() + "]");
+        }
+        XContentParser parser = null;
+        try {
+            parser = XContentFactory.xContent(XContentType.JSON).createParser(data);
+            parser.nextToken(); // the wrapping object
+            parser.nextToken(); // the index name
+            return IndexMetaData.Builder.fromXContent(parser, settings);
+        } finally {
+            if (parser != null) {
+                parser.close();
+            }
+        }
+    }
+
+    private String indexStateFileName(String index, long version) {
+        return "index-" + index + "-" + version;
+    }
+
+    private Set<String> stateFileNames(long version, Map<String, IndexStateFile> indexStateFiles) {
+        Set<String> names = Sets.newHashSet("global-" + version);
+        for (Map.Entry<String, IndexStateFile> entry : indexStateFiles.entrySet()) {
+            names.add(indexStateFileName(entry.getKey(), entry.getValue().version));
+        }
+        return names;
+    }
+
+    /**
+     * Index meta data has no version of its own, so it is compared with the persisted one. Instances are shared
+     * across cluster states on the master, the content is compared for the ones received from it.
+     */
+    private boolean sameIndexMetaData(IndexMetaData previous, IndexMetaData current) {
+        if (previous == current) {
+            return true;
+        }
+        if (previous.state() != current.state() || !previous.settings().getAsMap().equals(current.settings().getAsMap())) {
+            return false;
+        }
+        if (!previous.mappings().keySet().equals(current.mappings().keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, MappingMetaData> entry : current.mappings().entrySet()) {
+            if (!previous.mappings().get(entry.getKey()).source().equals(entry.getValue().source())) {
+                return false;
+            }
+        }
+        if (!previous.warmers().keySet().equals(current.warmers().keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, WarmerMetaData> entry : current.warmers().entrySet()) {
+            WarmerMetaData previousWarmer = previous.warmers().get(entry.getKey());
+            if (!Arrays.equals(previousWarmer.types(), entry.getValue().types()) || !Arrays.equals(previousWarmer.source(), entry.getValue().source())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private long findLatestStartedShardsVersion() throws IOException {
         long index = -1;
         for (File stateFile : location.listFiles()) {
@@ -450,4 +698,16 @@ public class LocalGateway extends AbstractLifecycleComponent<Gateway> implements
             }
         }
     }
+
+    static class IndexStateFile {
+
+        final long version;
+
+        final long checksum;
+
+        IndexStateFile(long version, long checksum) {
+            this.version = version;
+            this.checksum = checksum;
+        }
+    }
 }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index;
 
+import org.elasticsearch.cache.memory.BlockCache;
 import org.elasticsearch.common.component.CloseableComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -42,18 +43,37 @@ public class IndexServiceManagement extends AbstractIndexComponent implements Cl
 
     private final IndexService indexService;
 
-    @Inject public IndexServiceManagement(Index index, @IndexSettings Settings indexSettings, JmxService jmxService, IndexService indexService) {
+    private final BlockCache blockCache;
+
+    @Inject public IndexServiceManagement(Index index, @IndexSettings Settings indexSettings, JmxService jmxService, IndexService indexService, BlockCache blockCache) {
         super(index, indexSettings);
         this.jmxService = jmxService;
         this.indexService = indexService;
+        this.blockCache = blockCache;
     }
 
     public void close() {
         jmxService.unregisterGroup(buildIndexGroupName(indexService.index()));
+        blockCache.removeStats(indexService.index().name());
     }
 
     @ManagedAttribute(description = "Index Name")
     public String getIndex() {
         return indexService.index().name();
     }
+
+    @ManagedAttribute(description = "Number of reads served from the block cache")
+    public long getBlockCacheHits() {
+        return blockCache.stats(indexService.index().name()).hits();
+    }
+
+    @ManagedAttribute(description = "Number of reads that had to load the block into the block cache")
+    public long getBlockCacheMisses() {
+        return blockCache.stats(indexService.index().name()).misses();
+    }
+
+    @ManagedAttribute(description = "Number of blocks of the index evicted from the block cache")
+    public long getBlockCacheEvictions() {
+        return blockCache.stats(indexService.index().name()).evictions();
+    }
 }
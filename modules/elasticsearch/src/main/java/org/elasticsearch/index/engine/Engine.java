@@ -28,6 +28,7 @@ import org.apache.lucene.search.Query;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.component.CloseableComponent;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.ThreadSafe;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
@@ -63,6 +64,13 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void delete(DeleteByQuery delete) throws EngineException;
 
+    /**
+     * Gets a document by its uid. When {@link Get#realtime()} is set, operations that are
+     * not yet visible to searchers are served from the transaction log. The result must be
+     * released once done.
+     */
+    GetResult get(Get get) throws EngineException;
+
     Searcher searcher() throws EngineException;
 
     /**
@@ -83,11 +91,33 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void recover(RecoveryHandler recoveryHandler) throws EngineException;
 
+    /**
+     * Records that the index includes all the operations of a primary shard translog history up to the
+     * provided position, stored with the next commits of the index so it can later recover by replaying
+     * the operations following it.
+     */
+    void historyPosition(Translog.HistoryPosition historyPosition);
+
     /**
      * Returns the estimated flushable memory size. Returns <tt>null</tt> if not available.
      */
     ByteSizeValue estimateFlushableMemorySize();
 
+    /**
+     * Returns <tt>true</tt> if changes were made to the index since the last refresh.
+     */
+    boolean refreshNeeded();
+
+    /**
+     * The generation of the searcher currently exposed to searches.
+     */
+    long searcherGeneration();
+
+    /**
+     * The number of searcher generations still open, the current one and older ones still used by searches.
+     */
+    int openSearcherGenerations();
+
     /**
      * Recovery allow to start the recovery process. It is built of three phases.
      *
@@ -123,6 +153,82 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         IndexSearcher searcher();
     }
 
+    static class Get {
+        private final boolean realtime;
+        private final Term uid;
+
+        public Get(boolean realtime, Term uid) {
+            this.realtime = realtime;
+            this.uid = uid;
+        }
+
+        public boolean realtime() {
+            return this.realtime;
+        }
+
+        public Term uid() {
+            return this.uid;
+        }
+    }
+
+    /**
+     * The result of a {@link Get}. If the document was found on the reader, the {@link #searcher()}
+     * and {@link #docId()} are set, if it was read from the transaction log, only the {@link #source()}
+     * is available.
+     */
+    static class GetResult {
+
+        public static final GetResult NOT_EXISTS = new GetResult(false, null, null, Lucene.NO_DOC);
+
+        private final boolean exists;
+        private final byte[] source;
+        private final Searcher searcher;
+        private final int docId;
+
+        public GetResult(byte[] source) {
+            this(true, source, null, Lucene.NO_DOC);
+        }
+
+        public GetResult(Searcher searcher, int docId) {
+            this(true, null, searcher, docId);
+        }
+
+        private GetResult(boolean exists, byte[] source, Searcher searcher, int docId) {
+            this.exists = exists;
+            this.source = source;
+            this.searcher = searcher;
+            this.docId = docId;
+        }
+
+        public boolean exists() {
+            return this.exists;
+        }
+
+        /**
+         * The source of the document, only set when it was served from the transaction log.
+         */
+        @Nullable public byte[] source() {
+            return this.source;
+        }
+
+        /**
+         * The searcher the document was found with, <tt>null</tt> if it was served from the transaction log.
+         */
+        @Nullable public Searcher searcher() {
+            return this.searcher;
+        }
+
+        public int docId() {
+            return this.docId;
+        }
+
+        public void release() {
+            if (searcher != null) {
+                searcher.release();
+            }
+        }
+    }
+
     static class Refresh {
 
         private final boolean waitForOperations;
@@ -265,6 +371,7 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
     static class Create implements Operation {
         private final ParsedDocument doc;
         private boolean refresh;
+        private boolean mayHaveDuplicates;
 
         public Create(ParsedDocument doc) {
             this.doc = doc;
@@ -309,6 +416,18 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
         public void refresh(boolean refresh) {
             this.refresh = refresh;
         }
+
+        /**
+         * Can the document already exist in the index, for example when a create with an auto generated id
+         * is retried or replayed. If so, the engine replaces it instead of blindly appending it.
+         */
+        public boolean mayHaveDuplicates() {
+            return mayHaveDuplicates;
+        }
+
+        public void mayHaveDuplicates(boolean mayHaveDuplicates) {
+            this.mayHaveDuplicates = mayHaveDuplicates;
+        }
     }
 
     static class Index implements Operation {
@@ -22,22 +22,25 @@ package org.elasticsearch.index.engine.robin;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LogMergePolicy;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.Preconditions;
+import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.IndexWriters;
-import org.elasticsearch.common.lucene.ReaderSearcherHolder;
+import org.elasticsearch.common.lucene.SearcherManager;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.util.concurrent.resource.AcquirableResource;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.deletionpolicy.SnapshotDeletionPolicy;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.*;
+import org.elasticsearch.index.mapper.UidFieldMapper;
 import org.elasticsearch.index.merge.policy.MergePolicyProvider;
 import org.elasticsearch.index.merge.scheduler.MergeSchedulerProvider;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -46,21 +49,30 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.elasticsearch.common.lucene.Lucene.*;
 import static org.elasticsearch.common.unit.TimeValue.*;
-import static org.elasticsearch.common.util.concurrent.resource.AcquirableResourceFactory.*;
+import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.*;
 
 /**
  * @author kimchy (shay.banon)
  */
 public class RobinEngine extends AbstractIndexShardComponent implements Engine, ScheduledRefreshableEngine {
 
+    // how long a write waiting on another refresh to make it visible waits before checking again
+    private static final TimeValue WAIT_FOR_REFRESH_INTERVAL = timeValueMillis(100);
+
     private volatile ByteSizeValue indexingBufferSize;
 
     private final boolean compoundFormat;
@@ -71,7 +83,14 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
 
     private final ReadWriteLock rwl = new ReentrantReadWriteLock();
 
-    private final AtomicBoolean refreshMutex = new AtomicBoolean();
+    // serializes refreshes, searches never wait on it
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    // the latest searcher generation writes with refresh set wait for, refreshed to once the ongoing refresh is done
+    private final AtomicLong requestedGeneration = new AtomicLong(-1);
+
+    // serializes flushes, and makes sure snapshots and recoveries see a completed commit
+    private final ReentrantLock flushLock = new ReentrantLock();
 
     private final AtomicBoolean optimizeMutex = new AtomicBoolean();
 
@@ -89,21 +108,36 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
 
     private final SimilarityService similarityService;
 
+    // warms new readers before they are exposed to searches, null for no warming
+    private final ShardIndexWarmerService warmer;
+
     // no need for volatile, its always used under a lock
     private IndexWriter indexWriter;
 
-    private volatile AcquirableResource<ReaderSearcherHolder> nrtResource;
+    private final SearcherManager searcherManager = new SearcherManager();
 
     private volatile boolean closed = false;
 
     // flag indicating if a dirty operation has occurred since the last refresh
     private volatile boolean dirty = false;
 
+    // uid -> translog location of operations not yet visible on the reader, used by realtime get.
+    // on refresh, the current map moves to refreshingLocations until the new reader is visible
+    private volatile ConcurrentMap<String, UidLocation> uidLocations = newConcurrentMap();
+
+    private volatile ConcurrentMap<String, UidLocation> refreshingUidLocations = newConcurrentMap();
+
     private volatile int disableFlushCounter = 0;
 
+    // set when the translog was rolled, but the commit covering the previous translogs did not complete
+    private volatile boolean commitPending = false;
+
+    // the position in the history of the primary shard the index is known to include, carried over commits
+    private volatile Translog.HistoryPosition historyPosition;
+
     @Inject public RobinEngine(ShardId shardId, @IndexSettings Settings indexSettings, Store store, SnapshotDeletionPolicy deletionPolicy, Translog translog,
                                MergePolicyProvider mergePolicyProvider, MergeSchedulerProvider mergeScheduler,
-                               AnalysisService analysisService, SimilarityService similarityService) throws EngineException {
+                               AnalysisService analysisService, SimilarityService similarityService, @Nullable ShardIndexWarmerService warmer) throws EngineException {
         super(shardId, indexSettings);
         Preconditions.checkNotNull(store, "Store must be provided to the engine");
         Preconditions.checkNotNull(deletionPolicy, "Snapshot deletion policy must be provided to the engine");
@@ -121,6 +155,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
         this.mergeScheduler = mergeScheduler;
         this.analysisService = analysisService;
         this.similarityService = similarityService;
+        this.warmer = warmer;
     }
 
     @Override public void updateIndexingBufferSize(ByteSizeValue indexingBufferSize) {
@@ -157,8 +192,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
             }
 
             try {
-                translog.newTranslog(newTransactionLogId());
-                this.nrtResource = buildNrtResource(indexWriter);
+                historyPosition = Translog.HistoryPosition.fromCommitUserData(committedUserData());
+                translog.newTranslog(committedTranslogId());
+                publishReader(indexWriter.getReader(), searcherManager.startGeneration());
             } catch (IOException e) {
                 try {
                     indexWriter.rollback();
@@ -182,6 +218,18 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
         return refreshInterval;
     }
 
+    @Override public boolean refreshNeeded() {
+        return dirty;
+    }
+
+    @Override public long searcherGeneration() {
+        return searcherManager.visibleGeneration();
+    }
+
+    @Override public int openSearcherGenerations() {
+        return searcherManager.openGenerations();
+    }
+
     @Override public EngineException[] bulk(Bulk bulk) throws EngineException {
         EngineException[] failures = null;
         rwl.readLock().lock();
@@ -190,6 +238,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
             if (writer == null) {
                 throw new EngineClosedException(shardId);
             }
+            // the translog operations of the successful ops, added to the translog in a single batch
+            Translog.Operation[] translogOps = new Translog.Operation[bulk.ops().length];
             for (int i = 0; i < bulk.ops().length; i++) {
                 Operation op = bulk.ops()[i];
                 if (op == null) {
@@ -199,44 +249,78 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
                     switch (op.opType()) {
                         case CREATE:
                             Create create = (Create) op;
-                            writer.addDocument(create.doc(), create.analyzer());
-                            translog.add(new Translog.Create(create));
+                            innerCreate(writer, create);
+                            translogOps[i] = new Translog.Create(create);
                             break;
                         case INDEX:
                             Index index = (Index) op;
                             writer.updateDocument(index.uid(), index.doc(), index.analyzer());
-                            translog.add(new Translog.Index(index));
+                            translogOps[i] = new Translog.Index(index);
                             break;
                         case DELETE:
                             Delete delete = (Delete) op;
                             writer.deleteDocuments(delete.uid());
-                            translog.add(new Translog.Delete(delete));
+                            translogOps[i] = new Translog.Delete(delete);
                             break;
                     }
                 } catch (Exception e) {
                     if (failures == null) {
                         failures = new EngineException[bulk.ops().length];
                     }
-                    switch (op.opType()) {
-                        case CREATE:
-                            failures[i] = new CreateFailedEngineException(shardId, (Create) op, e);
-                            break;
-                        case INDEX:
-                            failures[i] = new IndexFailedEngineException(shardId, (Index) op, e);
-                            break;
-                        case DELETE:
-                            failures[i] = new DeleteFailedEngineException(shardId, (Delete) op, e);
-                            break;
-                    }
+                    failures[i] = bulkFailure(op, e);
                 }
             }
             dirty = true;
+            Translog.Location[] locations;
+            try {
+                locations = translog.add(translogOps);
+            } catch (Exception e) {
+                // the batch is written as a whole, fail all the ops that were part of it
+                if (failures == null) {
+                    failures = new EngineException[bulk.ops().length];
+                }
+                for (int i = 0; i < translogOps.length; i++) {
+                    if (translogOps[i] != null) {
+                        failures[i] = bulkFailure(bulk.ops()[i], e);
+                    }
+                }
+                return failures;
+            }
+            for (int i = 0; i < translogOps.length; i++) {
+                if (translogOps[i] == null) {
+                    continue;
+                }
+                Operation op = bulk.ops()[i];
+                switch (op.opType()) {
+                    case CREATE:
+                        putUidLocation(((Create) op).parsedDoc().uid(), locations[i], false);
+                        break;
+                    case INDEX:
+                        putUidLocation(((Index) op).uid().text(), locations[i], false);
+                        break;
+                    case DELETE:
+                        putUidLocation(((Delete) op).uid().text(), locations[i], true);
+                        break;
+                }
+            }
         } finally {
             rwl.readLock().unlock();
         }
         return failures;
     }
 
+    private EngineException bulkFailure(Operation op, Throwable t) {
+        switch (op.opType()) {
+            case CREATE:
+                return new CreateFailedEngineException(shardId, (Create) op, t);
+            case INDEX:
+                return new IndexFailedEngineException(shardId, (Index) op, t);
+            case DELETE:
+                return new DeleteFailedEngineException(shardId, (Delete) op, t);
+        }
+        throw new ElasticSearchIllegalStateException("no failure for op type [" + op.opType() + "]");
+    }
+
     @Override public void create(Create create) throws EngineException {
         rwl.readLock().lock();
         try {
@@ -244,11 +328,11 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
             if (writer == null) {
                 throw new EngineClosedException(shardId);
             }
-            writer.addDocument(create.doc(), create.analyzer());
-            translog.add(new Translog.Create(create));
+            innerCreate(writer, create);
+            putUidLocation(create.parsedDoc().uid(), translog.add(new Translog.Create(create)), false);
             dirty = true;
             if (create.refresh()) {
-                refresh(new Refresh(false));
+                refreshTo(searcherManager.pendingGeneration());
             }
         } catch (IOException e) {
             throw new CreateFailedEngineException(shardId, create, e);
@@ -257,6 +341,16 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
         }
     }
 
+    private void innerCreate(IndexWriter writer, Create create) throws IOException {
+        if (create.mayHaveDuplicates()) {
+            // a previous attempt of this create might have made it into the index, replace it
+            writer.updateDocument(new Term(UidFieldMapper.NAME, create.parsedDoc().uid()), create.doc(), create.analyzer());
+        } else {
+            // append only, no need to buffer a delete term for the uid
+            writer.addDocument(create.doc(), create.analyzer());
+        }
+    }
+
     @Override public void index(Index index) throws EngineException {
         rwl.readLock().lock();
         try {
@@ -265,10 +359,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
                 throw new EngineClosedException(shardId);
             }
             writer.updateDocument(index.uid(), index.doc(), index.analyzer());
-            translog.add(new Translog.Index(index));
+            putUidLocation(index.uid().text(), translog.add(new Translog.Index(index)), false);
             dirty = true;
             if (index.refresh()) {
-                refresh(new Refresh(false));
+                refreshTo(searcherManager.pendingGeneration());
             }
         } catch (IOException e) {
             throw new IndexFailedEngineException(shardId, index, e);
@@ -285,10 +379,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
                 throw new EngineClosedException(shardId);
             }
             writer.deleteDocuments(delete.uid());
-            translog.add(new Translog.Delete(delete));
+            putUidLocation(delete.uid().text(), translog.add(new Translog.Delete(delete)), true);
             dirty = true;
             if (delete.refresh()) {
-                refresh(new Refresh(false));
+                refreshTo(searcherManager.pendingGeneration());
             }
         } catch (IOException e) {
             throw new DeleteFailedEngineException(shardId, delete, e);
@@ -312,18 +406,50 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
         } finally {
             rwl.readLock().unlock();
         }
+        // we don't know which uids got deleted, refresh so realtime get won't serve them from the translog
+        refreshTo(searcherManager.pendingGeneration());
     }
 
-    @Override public Searcher searcher() throws EngineException {
-        AcquirableResource<ReaderSearcherHolder> holder;
-        for (; ;) {
-            holder = this.nrtResource;
-            if (holder.acquire()) {
-                break;
+    @Override public GetResult get(Get get) throws EngineException {
+        if (get.realtime()) {
+            UidLocation uidLocation = uidLocations.get(get.uid().text());
+            if (uidLocation == null) {
+                uidLocation = refreshingUidLocations.get(get.uid().text());
+            }
+            if (uidLocation != null) {
+                if (uidLocation.delete()) {
+                    return GetResult.NOT_EXISTS;
+                }
+                Translog.Operation op = translog.read(uidLocation.location());
+                if (op instanceof Translog.Create) {
+                    return new GetResult(((Translog.Create) op).source());
+                } else if (op instanceof Translog.Index) {
+                    return new GetResult(((Translog.Index) op).source());
+                }
+                // the translog got flushed in the meantime, the reader has it
             }
-            Thread.yield();
         }
-        return new RobinSearchResult(holder);
+
+        Searcher searcher = searcher();
+        try {
+            int docId = docId(searcher.reader(), get.uid());
+            if (docId == NO_DOC) {
+                searcher.release();
+                return GetResult.NOT_EXISTS;
+            }
+            return new GetResult(searcher, docId);
+        } catch (Exception e) {
+            searcher.release();
+            throw new GetFailedEngineException(shardId, get.uid(), e);
+        }
+    }
+
+    @Override public Searcher searcher() throws EngineException {
+        try {
+            return new RobinSearchResult(searcherManager.acquire());
+        } catch (AlreadyClosedException e) {
+            throw new EngineClosedException(shardId);
+        }
     }
 
     @Override public ByteSizeValue estimateFlushableMemorySize() {
@@ -347,43 +473,109 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
             throw new EngineClosedException(shardId);
         }
         try {
-            // this engine always acts as if waitForOperations=true
-            if (refreshMutex.compareAndSet(false, true)) {
-                IndexWriter currentWriter = indexWriter;
+            // when not waiting for operations, an ongoing refresh is good enough
+            if (refresh.waitForOperations()) {
+                refreshLock.lock();
+            } else if (!refreshLock.tryLock()) {
+                return;
+            }
+            IndexWriter currentWriter = indexWriter;
+            try {
                 if (currentWriter == null) {
                     throw new EngineClosedException(shardId);
                 }
-                try {
-                    if (dirty) {
-                        dirty = false;
-                        AcquirableResource<ReaderSearcherHolder> current = nrtResource;
-                        IndexReader newReader = current.resource().reader().reopen(true);
-                        if (newReader != current.resource().reader()) {
-                            IndexSearcher indexSearcher = new IndexSearcher(newReader);
-                            indexSearcher.setSimilarity(similarityService.defaultSearchSimilarity());
-                            nrtResource = newAcquirableResource(new ReaderSearcherHolder(indexSearcher));
-                            current.markForClose();
-                        }
-                    }
-                } catch (AlreadyClosedException e) {
+                innerRefresh();
+            } catch (AlreadyClosedException e) {
+                // an index writer got replaced on us, ignore
+            } catch (Exception e) {
+                if (indexWriter == null) {
+                    throw new EngineClosedException(shardId);
+                } else if (currentWriter != indexWriter) {
                     // an index writer got replaced on us, ignore
-                } catch (Exception e) {
-                    if (indexWriter == null) {
-                        throw new EngineClosedException(shardId);
-                    } else if (currentWriter != indexWriter) {
-                        // an index writer got replaced on us, ignore
-                    } else {
-                        throw new RefreshFailedEngineException(shardId, e);
-                    }
-                } finally {
-                    refreshMutex.set(false);
+                } else {
+                    throw new RefreshFailedEngineException(shardId, e);
                 }
+            } finally {
+                refreshLock.unlock();
             }
+            refreshRequested();
         } finally {
             rwl.readLock().unlock();
         }
     }
 
+    /**
+     * Makes the changes applied before the provided searcher generation was taken visible. Refreshes if no
+     * other refresh is ongoing, otherwise waits for the generation to become visible instead of queuing
+     * another reopen. The ongoing refresh refreshes again once done if it did not make it visible.
+     */
+    private void refreshTo(long generation) throws EngineException {
+        if (searcherManager.visibleGeneration() >= generation) {
+            return;
+        }
+        long requested;
+        while ((requested = requestedGeneration.get()) < generation) {
+            if (requestedGeneration.compareAndSet(requested, generation)) {
+                break;
+            }
+        }
+        rwl.readLock().lock();
+        try {
+            while (searcherManager.visibleGeneration() < generation) {
+                if (indexWriter == null) {
+                    throw new EngineClosedException(shardId);
+                }
+                if (tryRefreshTo(generation)) {
+                    refreshRequested();
+                } else {
+                    // checked again once waited, in case the refresh ended without making it visible
+                    searcherManager.waitForGeneration(generation, WAIT_FOR_REFRESH_INTERVAL);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RefreshFailedEngineException(shardId, e);
+        } catch (IOException e) {
+            throw new RefreshFailedEngineException(shardId, e);
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
+    /**
+     * Refreshes to the provided generation, returning <tt>false</tt> if another refresh is ongoing.
+     */
+    private boolean tryRefreshTo(long generation) throws IOException {
+        if (!refreshLock.tryLock()) {
+            return false;
+        }
+        try {
+            if (searcherManager.visibleGeneration() < generation) {
+                innerRefresh();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Called after refreshing, refreshes again if writes that waited on it are still not visible.
+     */
+    private void refreshRequested() throws EngineException {
+        long generation = requestedGeneration.get();
+        if (searcherManager.visibleGeneration() >= generation) {
+            return;
+        }
+        try {
+            tryRefreshTo(generation);
+        } catch (AlreadyClosedException e) {
+            // closed or replaced on us, the waiting writes will see it
+        } catch (IOException e) {
+            throw new RefreshFailedEngineException(shardId, e);
+        }
+    }
+
     @Override public void flush(Flush flush) throws EngineException {
         if (indexWriter == null) {
             throw new EngineClosedException(shardId);
@@ -392,49 +584,93 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
         if (disableFlushCounter > 0) {
             throw new FlushNotAllowedEngineException(shardId, "Recovery is in progress, flush is not allowed");
         }
-        rwl.writeLock().lock();
+        flushLock.lock();
         try {
-            if (indexWriter == null) {
-                throw new EngineClosedException(shardId);
-            }
-            if (disableFlushCounter > 0) {
-                throw new FlushNotAllowedEngineException(shardId, "Recovery is in progress, flush is not allowed");
-            }
             if (flush.full()) {
-                // disable refreshing, not dirty
-                dirty = false;
-                refreshMutex.set(true);
+                fullFlush();
+            } else {
+                // only block operations while rolling the translog, the commit (and its fsync) happens
+                // concurrently with new operations, which go to the new translog
+                IndexWriter indexWriter;
+                long translogId;
+                long refreshGeneration;
+                rwl.writeLock().lock();
                 try {
-                    // that's ok if the index writer failed and is in inconsistent state
-                    // we will get an exception on a dirty operation, and will cause the shard
-                    // to be allocated to a different node
-                    indexWriter.close();
-                    indexWriter = createWriter();
-                    AcquirableResource<ReaderSearcherHolder> current = nrtResource;
-                    nrtResource = buildNrtResource(indexWriter);
-                    current.markForClose();
-                    translog.newTranslog(newTransactionLogId());
-                } catch (IOException e) {
-                    throw new FlushFailedEngineException(shardId, e);
+                    indexWriter = this.indexWriter;
+                    if (indexWriter == null) {
+                        throw new EngineClosedException(shardId);
+                    }
+                    if (disableFlushCounter > 0) {
+                        throw new FlushNotAllowedEngineException(shardId, "Recovery is in progress, flush is not allowed");
+                    }
+                    // realtime get keeps reading the operations of the rolled translog until they are
+                    // made visible by the refresh below
+                    refreshGeneration = searcherManager.pendingGeneration();
+                    translogId = translog.currentId() + 1;
+                    translog.rollTranslog(translogId);
+                    commitPending = true;
                 } finally {
-                    refreshMutex.set(false);
+                    rwl.writeLock().unlock();
                 }
-            } else {
+                // the previous translogs are released once committed, make their operations visible on the
+                // reader before, without blocking operations while reopening and warming it
+                refreshTo(refreshGeneration);
+                // the commit includes all operations in the previous translogs, and possibly some of the ones
+                // already in the new translog, which are safe to replay again on recovery
                 try {
-                    indexWriter.commit();
-                    translog.newTranslog(newTransactionLogId());
+                    indexWriter.commit(commitUserData(translogId));
+                } catch (AlreadyClosedException e) {
+                    throw new EngineClosedException(shardId);
                 } catch (IOException e) {
+                    // the previous translogs are kept, recovery replays them up to the current one
                     throw new FlushFailedEngineException(shardId, e);
                 }
+                commitPending = false;
+                translog.releasePreviousTranslogs();
             }
         } finally {
-            rwl.writeLock().unlock();
+            flushLock.unlock();
         }
         if (flush.refresh()) {
             refresh(new Refresh(false));
         }
     }
 
+    // must be called under the flush lock
+    private void fullFlush() throws EngineException {
+        rwl.writeLock().lock();
+        try {
+            if (indexWriter == null) {
+                throw new EngineClosedException(shardId);
+            }
+            if (disableFlushCounter > 0) {
+                throw new FlushNotAllowedEngineException(shardId, "Recovery is in progress, flush is not allowed");
+            }
+            // not dirty, the new reader is opened on the new writer
+            dirty = false;
+            refreshLock.lock();
+            try {
+                long translogId = translog.currentId() + 1;
+                indexWriter.commit(commitUserData(translogId));
+                // that's ok if the index writer failed and is in inconsistent state
+                // we will get an exception on a dirty operation, and will cause the shard
+                // to be allocated to a different node
+                indexWriter.close();
+                indexWriter = createWriter();
+                publishReader(indexWriter.getReader(), searcherManager.startGeneration());
+                clearUidLocations();
+                translog.newTranslog(translogId);
+                commitPending = false;
+            } catch (IOException e) {
+                throw new FlushFailedEngineException(shardId, e);
+            } finally {
+                refreshLock.unlock();
+            }
+        } finally {
+            rwl.writeLock().unlock();
+        }
+    }
+
     @Override public void optimize(Optimize optimize) throws EngineException {
         if (optimizeMutex.compareAndSet(false, true)) {
             rwl.readLock().lock();
@@ -478,8 +714,13 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
     @Override public <T> T snapshot(SnapshotHandler<T> snapshotHandler) throws EngineException {
         SnapshotIndexCommit snapshotIndexCommit = null;
         Translog.Snapshot traslogSnapshot = null;
+        // the flush lock makes sure we don't snapshot the translog of a commit still in progress
+        flushLock.lock();
         rwl.readLock().lock();
         try {
+            if (commitPending) {
+                throw new ElasticSearchIllegalStateException("Last flush failed to commit");
+            }
             snapshotIndexCommit = deletionPolicy.snapshot();
             traslogSnapshot = translog.snapshot();
         } catch (Exception e) {
@@ -487,6 +728,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
             throw new SnapshotFailedEngineException(shardId, e);
         } finally {
             rwl.readLock().unlock();
+            flushLock.unlock();
         }
 
         try {
@@ -498,13 +740,21 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
     }
 
     @Override public void recover(RecoveryHandler recoveryHandler) throws EngineException {
-        // take a write lock here so it won't happen while a flush is in progress
+        // take the flush lock and the write lock here so it won't happen while a flush is in progress
         // this means that next commits will not be allowed once the lock is released
-        rwl.writeLock().lock();
+        flushLock.lock();
         try {
-            disableFlushCounter++;
+            if (commitPending) {
+                throw new RecoveryEngineException(shardId, 1, "Last flush failed to commit", null);
+            }
+            rwl.writeLock().lock();
+            try {
+                disableFlushCounter++;
+            } finally {
+                rwl.writeLock().unlock();
+            }
         } finally {
-            rwl.writeLock().unlock();
+            flushLock.unlock();
         }
 
         SnapshotIndexCommit phase1Snapshot;
@@ -573,9 +823,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
         closed = true;
         rwl.writeLock().lock();
         try {
-            if (nrtResource != null) {
-                this.nrtResource.forceClose();
-            }
+            searcherManager.close();
             // no need to commit in this case!, we snapshot before we close the shard, so translog and all sync'ed
             if (indexWriter != null) {
                 try {
@@ -588,10 +836,71 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
             logger.debug("failed to rollback writer on close", e);
         } finally {
             indexWriter = null;
+            clearUidLocations();
             rwl.writeLock().unlock();
         }
     }
 
+    /**
+     * Starts a new searcher generation, reopening the reader if there were changes. Must be called
+     * under the refresh lock, or the write lock.
+     */
+    private void innerRefresh() throws IOException {
+        long generation = searcherManager.startGeneration();
+        if (dirty) {
+            dirty = false;
+            reopen(generation);
+        } else {
+            // all changes were made visible by previous refreshes
+            searcherManager.markVisible(generation);
+        }
+    }
+
+    /**
+     * Reopens the reader, moving the tracked uid locations aside while doing so, since once the new
+     * reader is visible they are no longer needed for realtime get.
+     */
+    private void reopen(long generation) throws IOException {
+        refreshingUidLocations = uidLocations;
+        uidLocations = newConcurrentMap();
+        boolean success = false;
+        try {
+            SearcherManager.Generation current = searcherManager.acquire();
+            try {
+                IndexReader newReader = current.reader().reopen(true);
+                if (newReader != current.reader()) {
+                    publishReader(newReader, generation);
+                } else {
+                    searcherManager.markVisible(generation);
+                }
+            } finally {
+                current.release();
+            }
+            success = true;
+        } finally {
+            ConcurrentMap<String, UidLocation> refreshed = refreshingUidLocations;
+            refreshingUidLocations = newConcurrentMap();
+            if (!success) {
+                // the reader was not reopened, keep the older locations unless they were overridden
+                for (Map.Entry<String, UidLocation> entry : refreshed.entrySet()) {
+                    uidLocations.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+                dirty = true;
+            }
+        }
+    }
+
+    private void putUidLocation(String uid, Translog.Location location, boolean delete) {
+        // must be called after the operation was applied to the writer, so a reopen happening
+        // after the put (which clears the location) will see the operation
+        uidLocations.put(uid, new UidLocation(location, delete));
+    }
+
+    private void clearUidLocations() {
+        uidLocations = newConcurrentMap();
+        refreshingUidLocations = newConcurrentMap();
+    }
+
     private IndexWriter createWriter() throws IOException {
         IndexWriter indexWriter = null;
         try {
@@ -616,14 +925,65 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
         return indexWriter;
     }
 
-    private AcquirableResource<ReaderSearcherHolder> buildNrtResource(IndexWriter indexWriter) throws IOException {
-        IndexReader indexReader = indexWriter.getReader();
-        IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+    /**
+     * Warms and publishes a new searcher generation on the provided reader.
+     */
+    private void publishReader(IndexReader reader, long generation) {
+        IndexSearcher indexSearcher = new IndexSearcher(reader);
         indexSearcher.setSimilarity(similarityService.defaultSearchSimilarity());
-        return newAcquirableResource(new ReaderSearcherHolder(indexSearcher));
+        SearcherManager.Generation newGeneration = searcherManager.newGeneration(generation, indexSearcher);
+        warm(newGeneration);
+        searcherManager.publish(newGeneration);
     }
 
-    private long newTransactionLogId() throws IOException {
+    /**
+     * Warms a new reader before it is exposed to searches. Failures are logged by the warmer and
+     * never fail the refresh.
+     */
+    private void warm(SearcherManager.Generation generation) {
+        if (warmer == null || !generation.tryIncRef()) {
+            return;
+        }
+        RobinSearchResult searcher = new RobinSearchResult(generation);
+        try {
+            warmer.warm(searcher);
+        } catch (Exception e) {
+            logger.warn("failed to warm new reader", e);
+        } finally {
+            searcher.release();
+        }
+    }
+
+    @Override public void historyPosition(Translog.HistoryPosition historyPosition) {
+        this.historyPosition = historyPosition;
+    }
+
+    private Map<String, String> commitUserData(long translogId) {
+        Map<String, String> userData = MapBuilder.<String, String>newMapBuilder().put(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)).map();
+        Translog.HistoryPosition historyPosition = this.historyPosition;
+        if (historyPosition != null) {
+            historyPosition.toCommitUserData(userData);
+        }
+        return userData;
+    }
+
+    private Map<String, String> committedUserData() throws IOException {
+        try {
+            return IndexWriters.rollbackSegmentInfos(indexWriter).getUserData();
+        } catch (Exception e) {
+            return IndexReader.getCommitUserData(store.directory());
+        }
+    }
+
+    /**
+     * The id of the translog the last commit should be recovered with. Indices committed without it
+     * recorded use the index version.
+     */
+    private long committedTranslogId() throws IOException {
+        Map<String, String> commitUserData = committedUserData();
+        if (commitUserData != null && commitUserData.containsKey(Translog.TRANSLOG_ID_KEY)) {
+            return Long.parseLong(commitUserData.get(Translog.TRANSLOG_ID_KEY));
+        }
         try {
             return IndexWriters.rollbackSegmentInfos(indexWriter).getVersion();
         } catch (Exception e) {
@@ -631,24 +991,44 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine,
         }
     }
 
+    static class UidLocation {
+
+        private final Translog.Location location;
+
+        private final boolean delete;
+
+        UidLocation(Translog.Location location, boolean delete) {
+            this.location = location;
+            this.delete = delete;
+        }
+
+        public Translog.Location location() {
+            return location;
+        }
+
+        public boolean delete() {
+            return delete;
+        }
+    }
+
     private static class RobinSearchResult implements Searcher {
 
-        private final AcquirableResource<ReaderSearcherHolder> nrtHolder;
+        private final SearcherManager.Generation generation;
 
-        private RobinSearchResult(AcquirableResource<ReaderSearcherHolder> nrtHolder) {
-            this.nrtHolder = nrtHolder;
+        private RobinSearchResult(SearcherManager.Generation generation) {
+            this.generation = generation;
         }
 
         @Override public IndexReader reader() {
-            return nrtHolder.resource().reader();
+            return generation.reader();
         }
 
         @Override public IndexSearcher searcher() {
-            return nrtHolder.resource().searcher();
+            return generation.searcher();
         }
 
         @Override public boolean release() throws ElasticSearchException {
-            nrtHolder.release();
+            generation.release();
             return true;
         }
     }
@@ -38,11 +38,18 @@ public class CommitPoint {
         private final long length;
         private final String checksum;
 
+        private final long compressedLength;
+
         public FileInfo(String name, String physicalName, long length, String checksum) {
+            this(name, physicalName, length, checksum, -1);
+        }
+
+        public FileInfo(String name, String physicalName, long length, String checksum, long compressedLength) {
             this.name = name;
             this.physicalName = physicalName;
             this.length = length;
             this.checksum = checksum;
+            this.compressedLength = compressedLength;
         }
 
         public String name() {
@@ -61,11 +68,36 @@ public class CommitPoint {
             return checksum;
         }
 
+        /**
+         * Are the blobs of the file LZF compressed.
+         */
+        public boolean compressed() {
+            return compressedLength >= 0;
+        }
+
+        /**
+         * The length of the file blobs, the compressed length when compressed, <tt>-1</tt> otherwise.
+         */
+        public long compressedLength() {
+            return compressedLength;
+        }
+
+        /**
+         * The total length of the blobs (or parts) the file is stored in.
+         */
+        public long blobLength() {
+            return compressed() ? compressedLength : length;
+        }
+
+        /**
+         * Returns <tt>true</tt> if the file has the same length and checksum as the store file. Files
+         * without a checksum (the segments files) are never considered the same.
+         */
         public boolean isSame(StoreFileMetaData md) {
-            if (checksum != null && md.checksum() != null) {
-                return checksum.equals(md.checksum());
+            if (checksum == null || md.checksum() == null) {
+                return false;
             }
-            return length == md.length();
+            return length == md.length() && checksum.equals(md.checksum());
         }
     }
 
@@ -97,6 +97,9 @@ public class CommitPoints implements Iterable<CommitPoint> {
             builder.startObject(fileInfo.name());
             builder.field("physical_name", fileInfo.physicalName());
             builder.field("length", fileInfo.length());
+            if (fileInfo.compressed()) {
+                builder.field("compressed_length", fileInfo.compressedLength());
+            }
             if (fileInfo.checksum() != null) {
                 builder.field("checksum", fileInfo.checksum());
             }
@@ -109,6 +112,9 @@ public class CommitPoints implements Iterable<CommitPoint> {
             builder.startObject(fileInfo.name());
             builder.field("physical_name", fileInfo.physicalName());
             builder.field("length", fileInfo.length());
+            if (fileInfo.compressed()) {
+                builder.field("compressed_length", fileInfo.compressedLength());
+            }
             builder.endObject();
         }
         builder.endObject();
@@ -151,6 +157,7 @@ public class CommitPoints implements Iterable<CommitPoint> {
                             String physicalName = null;
                             long size = -1;
                             String checksum = null;
+                            long compressedLength = -1;
                             while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
                                 if (token == XContentParser.Token.FIELD_NAME) {
                                     currentFieldName = parser.currentName();
@@ -161,6 +168,8 @@ public class CommitPoints implements Iterable<CommitPoint> {
                                         size = parser.longValue();
                                     } else if ("checksum".equals(currentFieldName)) {
                                         checksum = parser.text();
+                                    } else if ("compressed_length".equals(currentFieldName)) {
+                                        compressedLength = parser.longValue();
                                     }
                                 }
                             }
@@ -170,7 +179,7 @@ public class CommitPoints implements Iterable<CommitPoint> {
                             if (size == -1) {
                                 throw new IOException("Malformed commit, missing length for [" + fileName + "]");
                             }
-                            files.add(new CommitPoint.FileInfo(fileName, physicalName, size, checksum));
+                            files.add(new CommitPoint.FileInfo(fileName, physicalName, size, checksum, compressedLength));
                         }
                     }
                 } else if (token.isValue()) {
@@ -19,6 +19,9 @@
 
 package org.elasticsearch.index.gateway;
 
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -43,6 +46,8 @@ public class RecoveryStatus {
 
     private Translog translog = new Translog();
 
+    private final AtomicLong throttledNanos = new AtomicLong();
+
     public Stage stage() {
         return this.stage;
     }
@@ -68,6 +73,17 @@ public class RecoveryStatus {
         this.time = time;
     }
 
+    public void addThrottledTime(long nanos) {
+        throttledNanos.addAndGet(nanos);
+    }
+
+    /**
+     * The time the recovery was paused by the node gateway throttle.
+     */
+    public TimeValue throttledTime() {
+        return new TimeValue(throttledNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
     public Index index() {
         return index;
     }
@@ -104,6 +120,17 @@ public class RecoveryStatus {
         public int currentTranslogOperations() {
             return this.currentTranslogOperations;
         }
+
+        /**
+         * The rate, in operations per second, translog operations are replayed at.
+         */
+        public long operationsPerSecond() {
+            if (startTime == 0) {
+                return 0;
+            }
+            long took = time > 0 ? time : System.currentTimeMillis() - startTime;
+            return currentTranslogOperations * 1000L / Math.max(1, took);
+        }
     }
 
     public static class Index {
@@ -19,6 +19,11 @@
 
 package org.elasticsearch.index.gateway;
 
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * @author kimchy (shay.banon)
  */
@@ -45,6 +50,8 @@ public class SnapshotStatus {
 
     private Throwable failure;
 
+    private final AtomicLong throttledNanos = new AtomicLong();
+
     public Stage stage() {
         return this.stage;
     }
@@ -74,6 +81,17 @@ public class SnapshotStatus {
         this.failure = failure;
     }
 
+    public void addThrottledTime(long nanos) {
+        throttledNanos.addAndGet(nanos);
+    }
+
+    /**
+     * The time the snapshot was paused by the node gateway throttle.
+     */
+    public TimeValue throttledTime() {
+        return new TimeValue(throttledNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
     public Index index() {
         return index;
     }
@@ -88,6 +106,7 @@ public class SnapshotStatus {
 
         private int numberOfFiles;
         private long totalSize;
+        private AtomicLong currentFilesSize = new AtomicLong();
 
         public long startTime() {
             return this.startTime;
@@ -117,6 +136,14 @@ public class SnapshotStatus {
         public long totalSize() {
             return totalSize;
         }
+
+        public void addCurrentFilesSize(long updatedSize) {
+            this.currentFilesSize.addAndGet(updatedSize);
+        }
+
+        public long currentFilesSize() {
+            return currentFilesSize.get();
+        }
     }
 
     public static class Translog {
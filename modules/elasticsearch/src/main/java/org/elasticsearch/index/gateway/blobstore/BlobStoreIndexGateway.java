@@ -45,6 +45,10 @@ public abstract class BlobStoreIndexGateway extends AbstractIndexComponent imple
 
     protected ByteSizeValue chunkSize;
 
+    protected boolean contentAddressed;
+
+    protected boolean compress;
+
     protected BlobStoreIndexGateway(Index index, @IndexSettings Settings indexSettings, Gateway gateway) {
         super(index, indexSettings);
 
@@ -56,6 +60,8 @@ public abstract class BlobStoreIndexGateway extends AbstractIndexComponent imple
         this.blobStore = this.gateway.blobStore();
 
         this.chunkSize = componentSettings.getAsBytesSize("chunk_size", this.gateway.chunkSize());
+        this.contentAddressed = componentSettings.getAsBoolean("content_addressed", false);
+        this.compress = componentSettings.getAsBoolean("compress", false);
 
         this.indexPath = this.gateway.basePath().add("indices").add(index.name());
     }
@@ -72,6 +78,28 @@ public abstract class BlobStoreIndexGateway extends AbstractIndexComponent imple
         return this.chunkSize;
     }
 
+    /**
+     * Should shards snapshot index files into the blobs shared by all the shards of the index, keyed by
+     * their content, instead of into their own blobs.
+     */
+    public boolean contentAddressed() {
+        return this.contentAddressed;
+    }
+
+    /**
+     * Should shards LZF compress the index and translog files they snapshot.
+     */
+    public boolean compress() {
+        return this.compress;
+    }
+
+    /**
+     * The path of the content addressed blobs shared by all the shards of the index.
+     */
+    public BlobPath contentPath() {
+        return indexPath.add("blobs");
+    }
+
     public BlobPath shardPath(int shardId) {
         return indexPath.add(Integer.toString(shardId));
     }
@@ -24,17 +24,28 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.Digest;
 import org.elasticsearch.common.blobstore.*;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.Iterables;
 import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.collect.Sets;
+import org.elasticsearch.common.compress.lzf.LZF;
+import org.elasticsearch.common.compress.lzf.LZFChunk;
+import org.elasticsearch.common.compress.lzf.LZFIncrementalDecoder;
+import org.elasticsearch.common.compress.lzf.LZFOutputStream;
 import org.elasticsearch.common.io.FastByteArrayInputStream;
 import org.elasticsearch.common.io.FastByteArrayOutputStream;
-import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.RateLimitedInputStream;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
+import org.elasticsearch.common.lucene.store.RateLimitedIndexOutput;
 import org.elasticsearch.common.lucene.store.ThreadSafeInputStreamIndexInput;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.gateway.blobstore.BlobStoreGatewayThrottle;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.gateway.*;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -44,15 +55,25 @@ import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.index.store.StoreIOStats;
 import org.elasticsearch.index.translog.Translog;
-import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.index.translog.TranslogReader;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import javax.annotation.Nullable;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -62,6 +83,12 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardComponent implements IndexShardGateway {
 
+    // index files snapshotted into the blobs shared by all the shards of the index are named by their length and sha256
+    private static final String CONTENT_BLOB_PREFIX = "c-";
+
+    // compressed parts are built in memory, so their length is known before writing them
+    private static final long MAX_COMPRESSED_CHUNK_BYTES = new ByteSizeValue(8, ByteSizeUnit.MB).bytes();
+
     protected final ThreadPool threadPool;
 
     protected final InternalIndexShard indexShard;
@@ -76,6 +103,21 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 
     protected final ImmutableBlobContainer blobContainer;
 
+    protected final BlobStoreGatewayThrottle throttle;
+
+    protected final boolean contentAddressed;
+
+    protected final boolean compress;
+
+    protected final BlobPath contentPath;
+
+    private ImmutableBlobContainer contentBlobContainer;
+
+    private ContentBlobReferences contentBlobReferences;
+
+    // the content blob names of index files, keyed by their physical name, length and checksum
+    private final ConcurrentMap<String, String> contentBlobNames = ConcurrentCollections.newConcurrentMap();
+
     private volatile RecoveryStatus recoveryStatus;
 
     private volatile SnapshotStatus lastSnapshotStatus;
@@ -83,12 +125,13 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
     private volatile SnapshotStatus currentSnapshotStatus;
 
     protected BlobStoreIndexShardGateway(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool, IndexGateway indexGateway,
-                                         IndexShard indexShard, Store store) {
+                                         IndexShard indexShard, Store store, BlobStoreGatewayThrottle throttle) {
         super(shardId, indexSettings);
 
         this.threadPool = threadPool;
         this.indexShard = (InternalIndexShard) indexShard;
         this.store = store;
+        this.throttle = throttle;
 
         BlobStoreIndexGateway blobStoreIndexGateway = (BlobStoreIndexGateway) indexGateway;
 
@@ -98,6 +141,10 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 
         this.blobContainer = blobStore.immutableBlobContainer(shardPath);
 
+        this.contentAddressed = blobStoreIndexGateway.contentAddressed();
+        this.compress = blobStoreIndexGateway.compress();
+        this.contentPath = blobStoreIndexGateway.contentPath();
+
         this.recoveryStatus = new RecoveryStatus();
     }
 
@@ -142,6 +189,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         currentSnapshotStatus = new SnapshotStatus();
         currentSnapshotStatus.startTime(System.currentTimeMillis());
 
+        StoreIOStats.Purpose.start(StoreIOStats.Purpose.SNAPSHOT);
         try {
             doSnapshot(snapshot);
             currentSnapshotStatus.time(System.currentTimeMillis() - currentSnapshotStatus.startTime());
@@ -156,6 +204,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                 throw new IndexShardGatewaySnapshotFailedException(shardId, e.getMessage(), e);
             }
         } finally {
+            StoreIOStats.Purpose.end();
             this.lastSnapshotStatus = currentSnapshotStatus;
             this.currentSnapshotStatus = null;
         }
@@ -173,6 +222,16 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         long generation = findLatestFileNameGeneration(blobs);
         CommitPoints commitPoints = buildCommitPoints(blobs);
 
+        final ImmutableMap<String, BlobMetaData> contentBlobs;
+        try {
+            contentBlobs = listContentBlobs(commitPoints);
+        } catch (IOException e) {
+            throw new IndexShardGatewaySnapshotFailedException(shardId, "failed to list content blobs", e);
+        }
+        ImmutableMap<String, BlobMetaData> indexBlobs = withContentBlobs(blobs, contentBlobs);
+        // the blob length of the content blobs written by this snapshot
+        Map<String, Long> snapshottedContentBlobs = Maps.newHashMap();
+
         currentSnapshotStatus.index().startTime(System.currentTimeMillis());
         currentSnapshotStatus.updateStage(SnapshotStatus.Stage.INDEX);
 
@@ -199,30 +258,87 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
             }
 
             CommitPoint.FileInfo fileInfo = commitPoints.findPhysicalIndexFile(fileName);
-            if (fileInfo == null || !fileInfo.isSame(md) || !commitPointFileExistsInBlobs(fileInfo, blobs)) {
+            if (fileInfo == null || !fileInfo.isSame(md) || !commitPointFileExistsInBlobs(fileInfo, indexBlobs)) {
                 // commit point file does not exists in any commit point, or has different length, or does not fully exists in the listed blobs
                 snapshotRequired = true;
             }
 
-            if (snapshotRequired) {
+            boolean snapshotShardBlob = snapshotRequired && !contentAddressed;
+            if (snapshotRequired && contentAddressed) {
+                try {
+                    String contentBlobName = contentBlobName(snapshotIndexCommit.getDirectory(), fileName, md);
+                    if (compress) {
+                        contentBlobName += LZF.SUFFIX;
+                    }
+                    // reference the content before checking it exists, so a shard releasing it concurrently won't delete it
+                    ImmutableMap<String, BlobMetaData> referencedContentBlobs = contentBlobs;
+                    boolean deleting = false;
+                    if (contentBlobReferences().add(contentBlobName, contentBlobs)) {
+                        // it might have been released since we listed the blobs, check again now that we reference it
+                        referencedContentBlobs = contentBlobContainer().listBlobsByPrefix(contentBlobName);
+                        deleting = ContentBlobReferences.isDeleting(contentBlobName, referencedContentBlobs);
+                    }
+                    long contentBlobLength = contentBlobLength(contentBlobName, md.length(), compress, referencedContentBlobs);
+                    if (deleting) {
+                        // a shard deleting the content did not see our reference, snapshot the file into the shard blobs instead
+                        contentBlobReferences().remove(contentBlobName);
+                        snapshotShardBlob = true;
+                    } else if (contentBlobLength != -1) {
+                        // the same content was already snapshotted, by this shard or another shard of the index
+                        indexCommitPointFiles.add(new CommitPoint.FileInfo(contentBlobName, fileName, md.length(), md.checksum(), compress ? contentBlobLength : -1));
+                        indexLatch.countDown();
+                    } else if (snapshottedContentBlobs.containsKey(contentBlobName)) {
+                        // another file of this commit has the same content and is being written
+                        indexCommitPointFiles.add(new CommitPoint.FileInfo(contentBlobName, fileName, md.length(), md.checksum(), compress ? snapshottedContentBlobs.get(contentBlobName) : -1));
+                        indexLatch.countDown();
+                    } else {
+                        indexNumberOfFiles++;
+                        indexTotalFilesSize += md.length();
+                        CommitPoint.FileInfo snapshotFileInfo = new CommitPoint.FileInfo(contentBlobName, fileName, md.length(), md.checksum());
+                        long blobLength = snapshotFile(contentBlobContainer(), snapshotIndexCommit.getDirectory(), snapshotFileInfo,
+                                compress ? contentBlobName + ContentBlobReferences.LENGTH_SEPARATOR : null, indexLatch, failures);
+                        snapshottedContentBlobs.put(contentBlobName, blobLength);
+                        indexCommitPointFiles.add(new CommitPoint.FileInfo(contentBlobName, fileName, md.length(), md.checksum(), compress ? blobLength : -1));
+                    }
+                } catch (IOException e) {
+                    failures.add(e);
+                    indexLatch.countDown();
+                }
+            }
+            if (snapshotShardBlob) {
                 indexNumberOfFiles++;
                 indexTotalFilesSize += md.length();
                 // create a new FileInfo
                 try {
                     CommitPoint.FileInfo snapshotFileInfo = new CommitPoint.FileInfo(fileNameFromGeneration(++generation), fileName, md.length(), md.checksum());
-                    indexCommitPointFiles.add(snapshotFileInfo);
-                    snapshotFile(snapshotIndexCommit.getDirectory(), snapshotFileInfo, indexLatch, failures);
+                    long blobLength = snapshotFile(blobContainer, snapshotIndexCommit.getDirectory(), snapshotFileInfo, null, indexLatch, failures);
+                    indexCommitPointFiles.add(new CommitPoint.FileInfo(snapshotFileInfo.name(), fileName, md.length(), md.checksum(), compress ? blobLength : -1));
                 } catch (IOException e) {
                     failures.add(e);
                     indexLatch.countDown();
                 }
-            } else {
+            } else if (!snapshotRequired) {
                 indexCommitPointFiles.add(fileInfo);
+                if (isContentBlob(fileInfo.name())) {
+                    try {
+                        contentBlobReferences().add(fileInfo.name(), contentBlobs);
+                    } catch (IOException e) {
+                        failures.add(e);
+                    }
+                }
                 indexLatch.countDown();
             }
         }
         currentSnapshotStatus.index().files(indexNumberOfFiles, indexTotalFilesSize);
 
+        // forget the content blob names of files that are no longer part of the index
+        Set<String> commitFileNames = Sets.newHashSet(snapshotIndexCommit.getFiles());
+        for (String key : contentBlobNames.keySet()) {
+            if (!commitFileNames.contains(key.substring(0, key.indexOf('/')))) {
+                contentBlobNames.remove(key);
+            }
+        }
+
         try {
             indexLatch.await();
         } catch (InterruptedException e) {
@@ -286,9 +402,9 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 
         if (snapshotRequired) {
             CommitPoint.FileInfo addedTranslogFileInfo = new CommitPoint.FileInfo(fileNameFromGeneration(++generation), "translog-" + translogSnapshot.translogId(), translogSnapshot.lengthInBytes(), null /* no need for checksum in translog */);
-            translogCommitPointFiles.add(addedTranslogFileInfo);
             try {
-                snapshotTranslog(translogSnapshot, addedTranslogFileInfo);
+                long blobLength = snapshotTranslog(translogSnapshot, addedTranslogFileInfo);
+                translogCommitPointFiles.add(new CommitPoint.FileInfo(addedTranslogFileInfo.name(), addedTranslogFileInfo.physicalName(), addedTranslogFileInfo.length(), null, compress ? blobLength : -1));
             } catch (Exception e) {
                 throw new IndexShardGatewaySnapshotFailedException(shardId, "Failed to snapshot translog", e);
             }
@@ -351,6 +467,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                 }
             }
         }
+        releaseContentReferences(newCommitPoints, contentBlobs);
     }
 
     @Override public void recover(RecoveryStatus recoveryStatus) throws IndexShardGatewayRecoveryException {
@@ -381,6 +498,13 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         }
         CommitPoints commitPoints = new CommitPoints(commitPointsList);
 
+        final ImmutableMap<String, BlobMetaData> indexBlobs;
+        try {
+            indexBlobs = withContentBlobs(blobs, listContentBlobs(commitPoints));
+        } catch (IOException e) {
+            throw new IndexShardGatewayRecoveryException(shardId, "Failed to list content blobs of gateway", e);
+        }
+
         if (commitPoints.commits().isEmpty()) {
             // no commit points, clean the store just so we won't recover wrong files
             try {
@@ -396,14 +520,14 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         }
 
         for (CommitPoint commitPoint : commitPoints) {
-            if (!commitPointExistsInBlobs(commitPoint, blobs)) {
+            if (!commitPointExistsInBlobs(commitPoint, indexBlobs)) {
                 logger.warn("listed commit_point [{}]/[{}], but not all files exists, ignoring", commitPoint.name(), commitPoint.version());
                 continue;
             }
             try {
                 recoveryStatus.index().startTime(System.currentTimeMillis());
                 recoveryStatus.updateStage(RecoveryStatus.Stage.INDEX);
-                recoverIndex(commitPoint, blobs);
+                recoverIndex(commitPoint, indexBlobs);
                 recoveryStatus.index().time(System.currentTimeMillis() - recoveryStatus.index().startTime());
 
                 recoveryStatus.translog().startTime(System.currentTimeMillis());
@@ -432,70 +556,111 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
             final CountDownLatch latch = new CountDownLatch(1);
 
             final Iterator<CommitPoint.FileInfo> transIt = commitPoint.translogFiles().iterator();
+            final CommitPoint.FileInfo firstTranslogFile = transIt.next();
 
-            blobContainer.readBlob(transIt.next().name(), new BlobContainer.ReadBlobListener() {
+            blobContainer.readBlob(translogBlobName(firstTranslogFile, blobs), new BlobContainer.ReadBlobListener() {
                 FastByteArrayOutputStream bos = new FastByteArrayOutputStream();
+                // the position in the translog of the first byte in bos
+                long bosPosition = 0;
+                final TranslogReader reader = new TranslogReader();
                 boolean ignore = false;
+                CommitPoint.FileInfo translogFile = firstTranslogFile;
+                int part = 0;
+                LZFIncrementalDecoder decoder = decoder(firstTranslogFile);
+
+                LZFIncrementalDecoder decoder(CommitPoint.FileInfo translogFile) {
+                    if (!translogFile.compressed()) {
+                        return null;
+                    }
+                    return new LZFIncrementalDecoder(new LZFIncrementalDecoder.Listener() {
+                        @Override public void onDecoded(byte[] data, int offset, int length) throws IOException {
+                            process(data, offset, length);
+                        }
+                    });
+                }
 
                 @Override public synchronized void onPartial(byte[] data, int offset, int size) throws IOException {
                     if (ignore) {
                         return;
                     }
-                    bos.write(data, offset, size);
-                    // if we don't have enough to read the header size of the first translog, bail and wait for the next one
-                    if (bos.size() < 4) {
+                    recoveryStatus.addThrottledTime(throttle.pause(size));
+                    if (decoder != null) {
+                        decoder.decode(data, offset, size);
+                    } else {
+                        process(data, offset, size);
+                    }
+                }
+
+                void process(byte[] data, int offset, int size) throws IOException {
+                    if (ignore) {
                         return;
                     }
-                    BytesStreamInput si = new BytesStreamInput(bos.unsafeByteArray(), 0, bos.size());
-                    int position;
+                    bos.write(data, offset, size);
+                    ByteBuffer buffer = ByteBuffer.wrap(bos.unsafeByteArray(), 0, bos.size());
+                    if (reader.version() == -1) {
+                        // if we don't have enough to read the header of the first translog, bail and wait for the next one
+                        if (reader.readHeader(buffer) == -1) {
+                            return;
+                        }
+                    }
+                    List<Translog.Operation> operations = new ArrayList<Translog.Operation>();
                     while (true) {
+                        Translog.Operation operation;
                         try {
-                            position = si.position();
-                            if (position + 4 > bos.size()) {
-                                break;
-                            }
-                            int opSize = si.readInt();
-                            int curPos = si.position();
-                            if ((si.position() + opSize) > bos.size()) {
-                                break;
-                            }
-                            Translog.Operation operation = TranslogStreams.readTranslogOperation(si);
-                            if ((si.position() - curPos) != opSize) {
-                                logger.warn("mismatch in size, expected [{}], got [{}]", opSize, si.position() - curPos);
-                            }
-                            recoveryStatus.translog().addTranslogOperations(1);
-                            indexShard.performRecoveryOperation(operation);
-                            if (si.position() >= bos.size()) {
-                                position = si.position();
-                                break;
-                            }
+                            operation = reader.next(buffer, bosPosition);
                         } catch (Exception e) {
-                            logger.warn("failed to retrieve translog after [{}] operations, ignoring the rest, considered corrupted", e, recoveryStatus.translog().currentTranslogOperations());
-                            ignore = true;
-                            latch.countDown();
-                            return;
+                            operation = null;
                         }
+                        if (operation == null) {
+                            break;
+                        }
+                        operations.add(operation);
+                    }
+                    if (!operations.isEmpty()) {
+                        // replay what this chunk of the blob holds as one batch
+                        indexShard.performRecoveryOperations(operations);
+                        recoveryStatus.translog().addTranslogOperations(operations.size());
+                    }
+                    if (reader.corrupted()) {
+                        logger.warn("translog corrupted after [{}] operations, ignoring the rest", recoveryStatus.translog().currentTranslogOperations());
+                        ignore = true;
+                        latch.countDown();
+                        return;
                     }
 
                     FastByteArrayOutputStream newBos = new FastByteArrayOutputStream();
 
+                    int position = buffer.position();
                     int leftOver = bos.size() - position;
                     if (leftOver > 0) {
                         newBos.write(bos.unsafeByteArray(), position, leftOver);
                     }
 
                     bos = newBos;
+                    bosPosition += position;
                 }
 
                 @Override public synchronized void onCompleted() {
                     if (ignore) {
                         return;
                     }
+                    String partName = translogFile.name() + ".part" + (++part);
+                    if (blobs.containsKey(partName)) {
+                        blobContainer.readBlob(partName, this);
+                        return;
+                    }
+                    if (decoder != null && decoder.hasPartialChunk()) {
+                        onFailure(new IOException("compressed translog [" + translogFile.name() + "] is corrupted, ends with a partial chunk"));
+                        return;
+                    }
                     if (!transIt.hasNext()) {
                         latch.countDown();
                         return;
                     }
-                    blobContainer.readBlob(transIt.next().name(), this);
+                    translogFile = transIt.next();
+                    part = 0;
+                    decoder = decoder(translogFile);
+                    blobContainer.readBlob(translogBlobName(translogFile, blobs), this);
                 }
 
                 @Override public void onFailure(Throwable t) {
@@ -516,6 +681,16 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         }
     }
 
+    /**
+     * The name of the first blob of the translog file, compressed translog files are written in parts once they are large enough.
+     */
+    private String translogBlobName(CommitPoint.FileInfo translogFile, ImmutableMap<String, BlobMetaData> blobs) {
+        if (blobs.containsKey(translogFile.name() + ".part0")) {
+            return translogFile.name() + ".part0";
+        }
+        return translogFile.name();
+    }
+
     private void recoverIndex(CommitPoint commitPoint, ImmutableMap<String, BlobMetaData> blobs) throws Exception {
         int numberOfFiles = 0;
         long totalSize = 0;
@@ -608,12 +783,25 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
     }
 
     private void recoverFile(final CommitPoint.FileInfo fileInfo, final ImmutableMap<String, BlobMetaData> blobs, final CountDownLatch latch, final List<Throwable> failures) {
+        // bounds the blobs read concurrently by all the shards on the node, released once the file is recovered
+        try {
+            throttle.acquireStream();
+        } catch (InterruptedException e) {
+            failures.add(e);
+            latch.countDown();
+            return;
+        }
         final IndexOutput indexOutput;
         try {
             // we create an output with no checksum, this is because the pure binary data of the file is not
             // the checksum (because of seek). We will create the checksum file once copying is done
-            indexOutput = store.createOutputWithNoChecksum(fileInfo.physicalName());
+            indexOutput = throttle.throttle(store.createOutputWithNoChecksum(fileInfo.physicalName()), new RateLimitedIndexOutput.Listener() {
+                @Override public void onPause(long nanos) {
+                    recoveryStatus.addThrottledTime(nanos);
+                }
+            });
         } catch (IOException e) {
+            throttle.releaseStream();
             failures.add(e);
             latch.countDown();
             return;
@@ -627,13 +815,25 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         if (!blobs.containsKey(firstFileToRecover)) {
             // no file, what to do, what to do?
             logger.warn("no file [{}]/[{}] to recover, ignoring it", fileInfo.name(), fileInfo.physicalName());
+            throttle.releaseStream();
             latch.countDown();
             return;
         }
         final AtomicInteger partIndex = new AtomicInteger();
+        final BlobContainer fileContainer = isContentBlob(fileInfo.name()) ? contentBlobContainer() : blobContainer;
+        final LZFIncrementalDecoder decoder = !fileInfo.compressed() ? null : new LZFIncrementalDecoder(new LZFIncrementalDecoder.Listener() {
+            @Override public void onDecoded(byte[] data, int offset, int length) throws IOException {
+                recoveryStatus.index().addCurrentFilesSize(length);
+                indexOutput.writeBytes(data, offset, length);
+            }
+        });
 
-        blobContainer.readBlob(firstFileToRecover, new BlobContainer.ReadBlobListener() {
+        fileContainer.readBlob(firstFileToRecover, new BlobContainer.ReadBlobListener() {
             @Override public synchronized void onPartial(byte[] data, int offset, int size) throws IOException {
+                if (decoder != null) {
+                    decoder.decode(data, offset, size);
+                    return;
+                }
                 recoveryStatus.index().addCurrentFilesSize(size);
                 indexOutput.writeBytes(data, offset, size);
             }
@@ -643,12 +843,15 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                 String partName = fileInfo.name() + ".part" + part;
                 if (blobs.containsKey(partName)) {
                     // continue with the new part
-                    blobContainer.readBlob(partName, this);
+                    fileContainer.readBlob(partName, this);
                     return;
                 } else {
                     // we are done...
                     try {
                         indexOutput.close();
+                        if (decoder != null && decoder.hasPartialChunk()) {
+                            throw new IOException("compressed file [" + fileInfo.name() + "] is corrupted, ends with a partial chunk");
+                        }
                         // write the checksum
                         if (fileInfo.checksum() != null) {
                             store.writeChecksum(fileInfo.physicalName(), fileInfo.checksum());
@@ -659,18 +862,58 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                         return;
                     }
                 }
+                throttle.releaseStream();
                 latch.countDown();
             }
 
             @Override public void onFailure(Throwable t) {
+                throttle.releaseStream();
                 failures.add(t);
                 latch.countDown();
             }
         });
     }
 
-    private void snapshotTranslog(Translog.Snapshot snapshot, CommitPoint.FileInfo fileInfo) throws IOException {
-        blobContainer.writeBlob(fileInfo.name(), snapshot.stream(), snapshot.lengthInBytes());
+    /**
+     * Writes the translog snapshot, returning the length of the written blobs. When compressing, the translog is
+     * written in LZF compressed parts.
+     */
+    private long snapshotTranslog(Translog.Snapshot snapshot, CommitPoint.FileInfo fileInfo) throws IOException, InterruptedException {
+        final SnapshotStatus snapshotStatus = currentSnapshotStatus;
+        RateLimitedInputStream.Listener throttleListener = new RateLimitedInputStream.Listener() {
+            @Override public void onPause(long nanos) {
+                snapshotStatus.addThrottledTime(nanos);
+            }
+        };
+        if (!compress) {
+            throttle.acquireStream();
+            try {
+                blobContainer.writeBlob(fileInfo.name(), throttle.throttle(snapshot.stream(), throttleListener), snapshot.lengthInBytes());
+            } finally {
+                throttle.releaseStream();
+            }
+            return snapshot.lengthInBytes();
+        }
+        InputStream translogStream = snapshot.stream();
+        long totalLength = snapshot.lengthInBytes();
+        long numberOfChunks = Math.max(1, (totalLength + MAX_COMPRESSED_CHUNK_BYTES - 1) / MAX_COMPRESSED_CHUNK_BYTES);
+        long blobLength = 0;
+        for (long i = 0; i < numberOfChunks; i++) {
+            long partLength = Math.min(MAX_COMPRESSED_CHUNK_BYTES, totalLength - i * MAX_COMPRESSED_CHUNK_BYTES);
+            String blobName = fileInfo.name();
+            if (numberOfChunks > 1) {
+                blobName += ".part" + i;
+            }
+            throttle.acquireStream();
+            try {
+                FastByteArrayOutputStream compressed = compress(translogStream, partLength);
+                blobContainer.writeBlob(blobName, throttle.throttle(new FastByteArrayInputStream(compressed.unsafeByteArray(), 0, compressed.size()), throttleListener), compressed.size());
+                blobLength += compressed.size();
+            } finally {
+                throttle.releaseStream();
+            }
+        }
+        return blobLength;
 //
 //        long chunkBytes = Long.MAX_VALUE;
 //        if (chunkSize != null) {
@@ -702,11 +945,20 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 //        }
     }
 
-    private void snapshotFile(Directory dir, final CommitPoint.FileInfo fileInfo, final CountDownLatch latch, final List<Throwable> failures) throws IOException {
+    /**
+     * Writes the file, returning the length of the blobs it is written to. Once all of them are written, an empty blob
+     * named by the <tt>lengthBlobPrefix</tt> followed by that length is written, if provided.
+     */
+    private long snapshotFile(final ImmutableBlobContainer container, Directory dir, final CommitPoint.FileInfo fileInfo, @Nullable final String lengthBlobPrefix,
+                              final CountDownLatch latch, final List<Throwable> failures) throws IOException {
         long chunkBytes = Long.MAX_VALUE;
         if (chunkSize != null) {
             chunkBytes = chunkSize.bytes();
         }
+        if (compress) {
+            // compressed parts are built in memory
+            chunkBytes = Math.min(chunkBytes, MAX_COMPRESSED_CHUNK_BYTES);
+        }
 
         long totalLength = fileInfo.length();
         long numberOfChunks = totalLength / chunkBytes;
@@ -717,13 +969,26 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
             numberOfChunks++;
         }
 
+        final SnapshotStatus snapshotStatus = currentSnapshotStatus;
+        final RateLimitedInputStream.Listener throttleListener = new RateLimitedInputStream.Listener() {
+            @Override public void onPause(long nanos) {
+                snapshotStatus.addThrottledTime(nanos);
+            }
+        };
+
         final long fNumberOfChunks = numberOfChunks;
         final AtomicLong counter = new AtomicLong(numberOfChunks);
+        final AtomicLong blobLength = new AtomicLong();
+        final AtomicBoolean fileFailed = new AtomicBoolean();
         for (long i = 0; i < fNumberOfChunks; i++) {
             final long partNumber = i;
 
             IndexInput indexInput = null;
+            boolean acquiredStream = false;
             try {
+                // bounds the blobs written concurrently by all the shards on the node, released once the part is written
+                throttle.acquireStream();
+                acquiredStream = true;
                 indexInput = dir.openInput(fileInfo.physicalName());
                 indexInput.seek(partNumber * chunkBytes);
                 InputStreamIndexInput is = new ThreadSafeInputStreamIndexInput(indexInput, chunkBytes);
@@ -735,14 +1000,26 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                 }
 
                 final IndexInput fIndexInput = indexInput;
-                blobContainer.writeBlob(blobName, is, is.actualSizeToRead(), new ImmutableBlobContainer.WriterListener() {
+                final long partLength = is.actualSizeToRead();
+                InputStream blobStream = is;
+                long blobPartLength = partLength;
+                if (compress) {
+                    FastByteArrayOutputStream compressed = compress(is, partLength);
+                    blobStream = new FastByteArrayInputStream(compressed.unsafeByteArray(), 0, compressed.size());
+                    blobPartLength = compressed.size();
+                }
+                blobLength.addAndGet(blobPartLength);
+                container.writeBlob(blobName, throttle.throttle(blobStream, throttleListener), blobPartLength, new ImmutableBlobContainer.WriterListener() {
                     @Override public void onCompleted() {
                         try {
                             fIndexInput.close();
                         } catch (IOException e) {
                             // ignore
                         }
+                        throttle.releaseStream();
+                        snapshotStatus.index().addCurrentFilesSize(partLength);
                         if (counter.decrementAndGet() == 0) {
+                            writeLengthBlob();
                             latch.countDown();
                         }
                     }
@@ -753,11 +1030,24 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                         } catch (IOException e) {
                             // ignore
                         }
+                        throttle.releaseStream();
+                        fileFailed.set(true);
                         failures.add(t);
                         if (counter.decrementAndGet() == 0) {
                             latch.countDown();
                         }
                     }
+
+                    private void writeLengthBlob() {
+                        if (lengthBlobPrefix == null || fileFailed.get()) {
+                            return;
+                        }
+                        try {
+                            container.writeBlob(lengthBlobPrefix + blobLength.get(), new FastByteArrayInputStream(new byte[0]), 0);
+                        } catch (IOException e) {
+                            failures.add(e);
+                        }
+                    }
                 });
             } catch (Exception e) {
                 if (indexInput != null) {
@@ -767,10 +1057,36 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                         // ignore
                     }
                 }
+                if (acquiredStream) {
+                    throttle.releaseStream();
+                }
+                fileFailed.set(true);
                 failures.add(e);
                 latch.countDown();
             }
         }
+        return blobLength.get();
+    }
+
+    /**
+     * Reads <tt>length</tt> bytes of the stream and LZF compresses them in memory.
+     */
+    private FastByteArrayOutputStream compress(InputStream is, long length) throws IOException {
+        FastByteArrayOutputStream bos = new FastByteArrayOutputStream();
+        LZFOutputStream os = new LZFOutputStream(bos);
+        byte[] buffer = new byte[LZFChunk.MAX_CHUNK_LEN];
+        long left = length;
+        while (left > 0) {
+            int read = is.read(buffer, 0, (int) Math.min(buffer.length, left));
+            if (read == -1) {
+                throw new EOFException("expected [" + length + "] bytes to compress, read only [" + (length - left) + "]");
+            }
+            os.write(buffer, 0, read);
+            left -= read;
+        }
+        // flushes the last chunk to bos, which needs no closing
+        os.close();
+        return bos;
     }
 
     private boolean commitPointExistsInBlobs(CommitPoint commitPoint, ImmutableMap<String, BlobMetaData> blobs) {
@@ -783,30 +1099,139 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
     }
 
     private boolean commitPointFileExistsInBlobs(CommitPoint.FileInfo fileInfo, ImmutableMap<String, BlobMetaData> blobs) {
-        BlobMetaData blobMetaData = blobs.get(fileInfo.name());
+        return blobsLength(fileInfo.name(), blobs) == fileInfo.blobLength();
+    }
+
+    /**
+     * The length of the blob, summing up its parts if it is chunked, or <tt>-1</tt> if it does not exist.
+     */
+    private long blobsLength(String name, ImmutableMap<String, BlobMetaData> blobs) {
+        BlobMetaData blobMetaData = blobs.get(name);
         if (blobMetaData != null) {
-            if (blobMetaData.length() != fileInfo.length()) {
-                return false;
+            return blobMetaData.length();
+        }
+        if (!blobs.containsKey(name + ".part0")) {
+            // no file, not exact and not multipart
+            return -1;
+        }
+        // multi part file sum up the size
+        int part = 0;
+        long totalSize = 0;
+        while (true) {
+            blobMetaData = blobs.get(name + ".part" + part++);
+            if (blobMetaData == null) {
+                break;
             }
-        } else if (blobs.containsKey(fileInfo.name() + ".part0")) {
-            // multi part file sum up the size and check
-            int part = 0;
-            long totalSize = 0;
-            while (true) {
-                blobMetaData = blobs.get(fileInfo.name() + ".part" + part++);
-                if (blobMetaData == null) {
+            totalSize += blobMetaData.length();
+        }
+        return totalSize;
+    }
+
+    /**
+     * The length of the content blob if it was fully written, or <tt>-1</tt>. Compressed content blobs are complete
+     * once their length blob is written.
+     */
+    private long contentBlobLength(String contentBlobName, long length, boolean compressed, ImmutableMap<String, BlobMetaData> contentBlobs) {
+        long blobLength = blobsLength(contentBlobName, contentBlobs);
+        if (blobLength == -1) {
+            return -1;
+        }
+        if (!compressed) {
+            return blobLength == length ? blobLength : -1;
+        }
+        return contentBlobs.containsKey(contentBlobName + ContentBlobReferences.LENGTH_SEPARATOR + blobLength) ? blobLength : -1;
+    }
+
+    private static boolean isContentBlob(String name) {
+        return name.startsWith(CONTENT_BLOB_PREFIX);
+    }
+
+    private synchronized ImmutableBlobContainer contentBlobContainer() {
+        // created lazily, so indices not using content addressed blobs don't get their container
+        if (contentBlobContainer == null) {
+            contentBlobContainer = blobStore.immutableBlobContainer(contentPath);
+            contentBlobReferences = new ContentBlobReferences(contentBlobContainer, shardId.id());
+        }
+        return contentBlobContainer;
+    }
+
+    private synchronized ContentBlobReferences contentBlobReferences() {
+        contentBlobContainer();
+        return contentBlobReferences;
+    }
+
+    /**
+     * Lists the content addressed blobs of the index, when this shard uses them or its commit points reference them.
+     */
+    private ImmutableMap<String, BlobMetaData> listContentBlobs(CommitPoints commitPoints) throws IOException {
+        boolean referenced = false;
+        for (CommitPoint commitPoint : commitPoints) {
+            for (CommitPoint.FileInfo fileInfo : commitPoint.indexFiles()) {
+                if (isContentBlob(fileInfo.name())) {
+                    referenced = true;
                     break;
                 }
-                totalSize += blobMetaData.length();
             }
-            if (totalSize != fileInfo.length()) {
-                return false;
+        }
+        if (!contentAddressed && !referenced) {
+            return ImmutableMap.of();
+        }
+        return contentBlobContainer().listBlobs();
+    }
+
+    private ImmutableMap<String, BlobMetaData> withContentBlobs(ImmutableMap<String, BlobMetaData> blobs, ImmutableMap<String, BlobMetaData> contentBlobs) {
+        if (contentBlobs.isEmpty()) {
+            return blobs;
+        }
+        return ImmutableMap.<String, BlobMetaData>builder().putAll(blobs).putAll(contentBlobs).build();
+    }
+
+    /**
+     * The content blob name of an index file, its length and the sha256 of its bytes. Computed once per file,
+     * which is never changed once written.
+     */
+    private String contentBlobName(Directory dir, String fileName, StoreFileMetaData md) throws IOException {
+        String key = fileName + '/' + md.length() + '/' + md.checksum();
+        String contentBlobName = contentBlobNames.get(key);
+        if (contentBlobName != null) {
+            return contentBlobName;
+        }
+        final SnapshotStatus snapshotStatus = currentSnapshotStatus;
+        IndexInput indexInput = dir.openInput(fileName);
+        try {
+            InputStream is = throttle.throttle(new InputStreamIndexInput(indexInput, md.length()), new RateLimitedInputStream.Listener() {
+                @Override public void onPause(long nanos) {
+                    snapshotStatus.addThrottledTime(nanos);
+                }
+            });
+            contentBlobName = CONTENT_BLOB_PREFIX + md.length() + "-" + Digest.sha256Hex(is);
+        } finally {
+            indexInput.close();
+        }
+        contentBlobNames.put(key, contentBlobName);
+        return contentBlobName;
+    }
+
+    /**
+     * Removes the references of this shard to content blobs none of its commit points use anymore, deleting the
+     * content blobs no shard references.
+     */
+    private void releaseContentReferences(CommitPoints commitPoints, ImmutableMap<String, BlobMetaData> contentBlobs) {
+        if (contentBlobs.isEmpty()) {
+            return;
+        }
+        ContentBlobReferences references = contentBlobReferences();
+        for (String contentBlobName : references.referenced(contentBlobs)) {
+            if (commitPoints.findNameFile(contentBlobName) == null) {
+                try {
+                    references.remove(contentBlobName);
+                    references.deleteIfUnreferenced(contentBlobName);
+                } catch (IOException e) {
+                    // ignore, will release it on the next snapshot, or another shard will delete it
+                }
             }
-        } else {
-            // no file, not exact and not multipart
-            return false;
         }
-        return true;
+        references.deleteStale(contentBlobs);
     }
 
     private CommitPoints buildCommitPoints(ImmutableMap<String, BlobMetaData> blobs) {
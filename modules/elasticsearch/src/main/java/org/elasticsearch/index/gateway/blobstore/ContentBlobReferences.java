@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.gateway.blobstore;
+
+import org.elasticsearch.common.blobstore.BlobMetaData;
+import org.elasticsearch.common.blobstore.ImmutableBlobContainer;
+import org.elasticsearch.common.collect.ImmutableMap;
+import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.io.FastByteArrayInputStream;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The references of a shard to the content blobs shared by the shards of an index.
+ *
+ * <p>A shard references a content blob with an empty <tt>&lt;blob&gt;.ref.&lt;shard&gt;</tt> blob. A shard deleting an
+ * unreferenced content blob first writes an empty <tt>&lt;blob&gt;.deleting-&lt;millis&gt;</tt> blob, and only then checks
+ * that no shard references it. A shard adding a reference does the opposite, writing its reference before checking
+ * the content is not being deleted. Either the deleting shard sees the reference and keeps the content, or the
+ * referencing shard sees the deleting mark and does not use the content.
+ *
+ * @author kimchy (shay.banon)
+ */
+class ContentBlobReferences {
+
+    static final String REFERENCE_SEPARATOR = ".ref.";
+
+    static final String DELETING_SEPARATOR = ".deleting-";
+
+    // once a compressed content blob is fully written, an empty blob named by it, followed by this and its length, is written
+    static final String LENGTH_SEPARATOR = ".length-";
+
+    // a deleting mark this old was left by a shard that failed to delete the content, another shard can retry it
+    static final TimeValue STALE_DELETING_MARK = TimeValue.timeValueHours(1);
+
+    private final ImmutableBlobContainer container;
+
+    private final String referenceSuffix;
+
+    ContentBlobReferences(ImmutableBlobContainer container, int shardId) {
+        this.container = container;
+        this.referenceSuffix = REFERENCE_SEPARATOR + shardId;
+    }
+
+    /**
+     * Marks this shard as referencing the content blob, returning <tt>true</tt> if it did not reference it before.
+     */
+    boolean add(String contentBlobName, ImmutableMap<String, BlobMetaData> contentBlobs) throws IOException {
+        String referenceName = contentBlobName + referenceSuffix;
+        if (contentBlobs.containsKey(referenceName)) {
+            return false;
+        }
+        container.writeBlob(referenceName, new FastByteArrayInputStream(new byte[0]), 0);
+        return true;
+    }
+
+    /**
+     * Removes the reference of this shard to the content blob, without deleting the content.
+     */
+    void remove(String contentBlobName) throws IOException {
+        container.deleteBlob(contentBlobName + referenceSuffix);
+    }
+
+    /**
+     * The content blob names this shard references in the listed blobs.
+     */
+    Iterable<String> referenced(ImmutableMap<String, BlobMetaData> contentBlobs) {
+        List<String> referenced = Lists.newArrayList();
+        for (String blobName : contentBlobs.keySet()) {
+            if (blobName.endsWith(referenceSuffix)) {
+                referenced.add(blobName.substring(0, blobName.length() - referenceSuffix.length()));
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * Deletes the content blob if no shard references it, returning <tt>true</tt> if it was deleted.
+     */
+    boolean deleteIfUnreferenced(String contentBlobName) throws IOException {
+        String deletingName = contentBlobName + DELETING_SEPARATOR + System.currentTimeMillis();
+        container.writeBlob(deletingName, new FastByteArrayInputStream(new byte[0]), 0);
+        // a shard referencing the content from now on sees the deleting mark, check the ones that referenced it before
+        ImmutableMap<String, BlobMetaData> blobs = container.listBlobsByPrefix(contentBlobName);
+        boolean referenced = isReferenced(contentBlobName, blobs);
+        if (!referenced) {
+            for (String blobName : blobs.keySet()) {
+                if (blobName.equals(contentBlobName) || blobName.startsWith(contentBlobName + ".part") || blobName.startsWith(contentBlobName + LENGTH_SEPARATOR)) {
+                    container.deleteBlob(blobName);
+                }
+            }
+        }
+        // left over if deleting failed, referencing shards then don't use the content until it is retried
+        container.deleteBlob(deletingName);
+        return !referenced;
+    }
+
+    /**
+     * Retries deleting the content blobs of stale deleting marks, left over by shards that failed to delete them.
+     */
+    void deleteStale(ImmutableMap<String, BlobMetaData> contentBlobs) {
+        long staleTime = System.currentTimeMillis() - STALE_DELETING_MARK.millis();
+        for (String blobName : contentBlobs.keySet()) {
+            int index = blobName.lastIndexOf(DELETING_SEPARATOR);
+            if (index == -1) {
+                continue;
+            }
+            long time;
+            try {
+                time = Long.parseLong(blobName.substring(index + DELETING_SEPARATOR.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (time < staleTime) {
+                try {
+                    deleteIfUnreferenced(blobName.substring(0, index));
+                    container.deleteBlob(blobName);
+                } catch (IOException e) {
+                    // ignore, will retry on the next snapshot
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the listed blobs include a shard reference to the content blob.
+     */
+    static boolean isReferenced(String contentBlobName, ImmutableMap<String, BlobMetaData> blobs) {
+        for (String blobName : blobs.keySet()) {
+            if (blobName.startsWith(contentBlobName + REFERENCE_SEPARATOR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the listed blobs include a mark of a shard deleting the content blob.
+     */
+    static boolean isDeleting(String contentBlobName, ImmutableMap<String, BlobMetaData> blobs) {
+        for (String blobName : blobs.keySet()) {
+            if (blobName.startsWith(contentBlobName + DELETING_SEPARATOR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -25,6 +25,7 @@ import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.blobstore.fs.AbstractFsBlobContainer;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.gateway.blobstore.BlobStoreGatewayThrottle;
 import org.elasticsearch.index.gateway.IndexGateway;
 import org.elasticsearch.index.gateway.blobstore.BlobStoreIndexShardGateway;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -43,8 +44,8 @@ public class FsIndexShardGateway extends BlobStoreIndexShardGateway {
     private final boolean snapshotLock;
 
     @Inject public FsIndexShardGateway(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool, IndexGateway fsIndexGateway,
-                                       IndexShard indexShard, Store store) {
-        super(shardId, indexSettings, threadPool, fsIndexGateway, indexShard, store);
+                                       IndexShard indexShard, Store store, BlobStoreGatewayThrottle throttle) {
+        super(shardId, indexSettings, threadPool, fsIndexGateway, indexShard, store, throttle);
         this.snapshotLock = indexSettings.getAsBoolean("gateway.fs.snapshot_lock", true);
     }
 
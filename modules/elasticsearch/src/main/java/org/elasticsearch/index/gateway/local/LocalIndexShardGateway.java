@@ -20,8 +20,8 @@
 package org.elasticsearch.index.gateway.local;
 
 import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.io.stream.InputStreamStreamInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.gateway.IndexShardGateway;
@@ -30,45 +30,48 @@ import org.elasticsearch.index.gateway.RecoveryStatus;
 import org.elasticsearch.index.gateway.SnapshotStatus;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
-import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.index.translog.Translog;
-import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.index.translog.fs.FsChannelSnapshot;
 import org.elasticsearch.index.translog.fs.FsTranslog;
-import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.index.translog.fs.RafReference;
 
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.concurrent.ScheduledFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author kimchy (shay.banon)
  */
 public class LocalIndexShardGateway extends AbstractIndexShardComponent implements IndexShardGateway {
 
+    // the number of translog operations handed to the shard in one go, so they can be replayed concurrently
+    private static final int RECOVERY_BATCH_SIZE = 1000;
+
     private final InternalIndexShard indexShard;
 
     private final RecoveryStatus recoveryStatus = new RecoveryStatus();
 
-    private final ScheduledFuture flushScheduler;
-
-    @Inject public LocalIndexShardGateway(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool, IndexShard indexShard) {
+    @Inject public LocalIndexShardGateway(ShardId shardId, @IndexSettings Settings indexSettings, IndexShard indexShard) {
         super(shardId, indexSettings);
         this.indexShard = (InternalIndexShard) indexShard;
 
+        // the sync itself is scheduled by the translog service, see index.translog.sync_interval. An
+        // explicitly configured translog durability takes precedence over the gateway sync setting
         TimeValue sync = componentSettings.getAsTime("sync", TimeValue.timeValueSeconds(1));
-        if (sync.millis() > 0) {
-            this.indexShard.translog().syncOnEachOperation(false);
-            flushScheduler = threadPool.scheduleWithFixedDelay(new Sync(), sync);
-        } else if (sync.millis() == 0) {
-            flushScheduler = null;
-            this.indexShard.translog().syncOnEachOperation(true);
-        } else {
-            flushScheduler = null;
+        if (componentSettings.get("sync") != null) {
+            logger.warn("[index.gateway.local.sync] is deprecated, use [index.translog.fs.durability] and [index.translog.sync_interval] instead");
+        }
+        if (indexSettings.get("index.translog.fs.durability") == null) {
+            if (sync.millis() > 0) {
+                this.indexShard.translog().durability(Translog.Durability.INTERVAL);
+            } else if (sync.millis() == 0) {
+                this.indexShard.translog().durability(Translog.Durability.REQUEST);
+            }
         }
     }
 
@@ -83,9 +86,16 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
     @Override public void recover(RecoveryStatus recoveryStatus) throws IndexShardGatewayRecoveryException {
         recoveryStatus.index().startTime(System.currentTimeMillis());
         long version = -1;
+        long translogId = -1;
         try {
             if (IndexReader.indexExists(indexShard.store().directory())) {
                 version = IndexReader.getCurrentVersion(indexShard.store().directory());
+                // indices committed without the translog id recorded use the version
+                translogId = version;
+                Map<String, String> commitUserData = IndexReader.getCommitUserData(indexShard.store().directory());
+                if (commitUserData != null && commitUserData.containsKey(Translog.TRANSLOG_ID_KEY)) {
+                    translogId = Long.parseLong(commitUserData.get(Translog.TRANSLOG_ID_KEY));
+                }
             }
         } catch (IOException e) {
             throw new IndexShardGatewayRecoveryException(shardId(), "Failed to fetch index version after copying it over", e);
@@ -102,21 +112,29 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
             return;
         }
 
-        // move an existing translog, if exists, to "recovering" state, and start reading from it
+        // move the existing translogs, if exist, to "recovering" state, and start reading from them. The translog
+        // the commit points to might be followed by ones rolled by flushes whose commit did not complete
         FsTranslog translog = (FsTranslog) indexShard.translog();
-        File recoveringTranslogFile = new File(translog.location(), "translog-" + version + ".recovering");
-        if (!recoveringTranslogFile.exists()) {
-            File translogFile = new File(translog.location(), "translog-" + version);
-            if (translogFile.exists()) {
-                for (int i = 0; i < 3; i++) {
-                    if (translogFile.renameTo(recoveringTranslogFile)) {
-                        break;
+        List<File> recoveringTranslogFiles = Lists.newArrayList();
+        for (long id = translogId; ; id++) {
+            File recoveringTranslogFile = new File(translog.location(), "translog-" + id + ".recovering");
+            if (!recoveringTranslogFile.exists()) {
+                File translogFile = new File(translog.location(), "translog-" + id);
+                if (translogFile.exists()) {
+                    for (int i = 0; i < 3; i++) {
+                        if (translogFile.renameTo(recoveringTranslogFile)) {
+                            break;
+                        }
                     }
                 }
             }
+            if (!recoveringTranslogFile.exists()) {
+                break;
+            }
+            recoveringTranslogFiles.add(recoveringTranslogFile);
         }
 
-        if (!recoveringTranslogFile.exists()) {
+        if (recoveringTranslogFiles.isEmpty()) {
             // no translog to recovery from, start and bail
             // no translog files, bail
             indexShard.start();
@@ -125,24 +143,49 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
             return;
         }
 
-        // recover from the translog file
+        // recover from the translog files
         indexShard.performRecoveryPrepareForTranslog();
-        try {
-            InputStreamStreamInput si = new InputStreamStreamInput(new FileInputStream(recoveringTranslogFile));
-            while (true) {
-                int opSize = si.readInt();
-                Translog.Operation operation = TranslogStreams.readTranslogOperation(si);
-                recoveryStatus.translog().addTranslogOperations(1);
-                indexShard.performRecoveryOperation(operation);
+        long id = translogId;
+        for (File recoveringTranslogFile : recoveringTranslogFiles) {
+            RafReference raf = null;
+            try {
+                raf = new RafReference(recoveringTranslogFile);
+                // keep our own reference so releasing the snapshot does not delete the file before we are done
+                raf.increaseRefCount();
+                FsChannelSnapshot snapshot = new FsChannelSnapshot(shardId, id++, raf, recoveringTranslogFile.length(), -1, -1);
+                try {
+                    List<Translog.Operation> operations = new ArrayList<Translog.Operation>(RECOVERY_BATCH_SIZE);
+                    while (snapshot.hasNext()) {
+                        operations.add(snapshot.next());
+                        if (operations.size() == RECOVERY_BATCH_SIZE) {
+                            indexShard.performRecoveryOperations(operations);
+                            recoveryStatus.translog().addTranslogOperations(operations.size());
+                            operations.clear();
+                        }
+                    }
+                    if (!operations.isEmpty()) {
+                        indexShard.performRecoveryOperations(operations);
+                        recoveryStatus.translog().addTranslogOperations(operations.size());
+                    }
+                    if (snapshot.corrupted()) {
+                        logger.warn("translog [{}] corrupted at position [{}], recovered [{}] operations, ignoring the rest", recoveringTranslogFile.getName(), snapshot.position(), recoveryStatus.translog().currentTranslogOperations());
+                    }
+                } finally {
+                    snapshot.release();
+                }
+            } catch (IOException e) {
+                throw new IndexShardGatewayRecoveryException(shardId(), "Failed to open translog [" + recoveringTranslogFile + "]", e);
+            } finally {
+                if (raf != null) {
+                    raf.decreaseRefCount(false);
+                }
             }
-        } catch (EOFException e) {
-            // ignore this exception, its fine
-        } catch (IOException e) {
-            // ignore this as well
         }
         indexShard.performRecoveryFinalization(true);
 
-        recoveringTranslogFile.delete();
+        for (File recoveringTranslogFile : recoveringTranslogFiles) {
+            recoveringTranslogFile.delete();
+        }
 
         recoveryStatus.translog().time(System.currentTimeMillis() - recoveryStatus.index().startTime());
     }
@@ -168,20 +211,9 @@ public class LocalIndexShardGateway extends AbstractIndexShardComponent implemen
     }
 
     @Override public void close(boolean delete) {
-        if (flushScheduler != null) {
-            flushScheduler.cancel(false);
-        }
     }
 
     @Override public SnapshotLock obtainSnapshotLock() throws Exception {
         return NO_SNAPSHOT_LOCK;
     }
-
-    private class Sync implements Runnable {
-        @Override public void run() {
-            if (indexShard.state() == IndexShardState.STARTED) {
-                indexShard.translog().sync();
-            }
-        }
-    }
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.merge;
+
+/**
+ * Marks the threads executing merges, so the store can tell the files written by merges apart
+ * (for example, to throttle them).
+ *
+ * @author kimchy (shay.banon)
+ */
+public final class Merges {
+
+    private static final ThreadLocal<Boolean> merging = new ThreadLocal<Boolean>();
+
+    /**
+     * Marks the current thread as executing a merge, must be followed by {@link #endMerge()}.
+     */
+    public static void startMerge() {
+        merging.set(Boolean.TRUE);
+    }
+
+    public static void endMerge() {
+        merging.remove();
+    }
+
+    /**
+     * Is the current thread executing a merge.
+     */
+    public static boolean isMerging() {
+        return merging.get() != null;
+    }
+
+    private Merges() {
+
+    }
+}
@@ -43,7 +43,7 @@ public class MergePolicyModule extends AbstractModule {
         // Note, when using the index jmeter benchmark, it seams like the balanced merger keeps on merging ...
         // don't have time to look at it now...
         bind(MergePolicyProvider.class)
-                .to(settings.getAsClass("index.merge.policy.type", LogByteSizeMergePolicyProvider.class))
+                .to(settings.getAsClass("index.merge.policy.type", LogByteSizeMergePolicyProvider.class, "org.elasticsearch.index.merge.policy.", "MergePolicyProvider"))
                 .asEagerSingleton();
     }
 }
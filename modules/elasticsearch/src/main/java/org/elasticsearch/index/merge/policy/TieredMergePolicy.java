@@ -0,0 +1,258 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentInfos;
+
+import java.io.IOException;
+
+/**
+ * A merge policy that allows a budget of segments per tier of (floored) segment size, and when over
+ * budget, picks the best merges out of all the candidates instead of merging segments of the same level
+ * as they come. Candidates are scored by how balanced the merge is (the size of the largest segment
+ * compared to the merged size), the size of the merge, and the deletes it reclaims, so segments with
+ * many deletes are preferred. Segment sizes are pro-rated by their deletes, so a segment too large to be
+ * merged becomes a candidate again once enough of its documents are deleted.
+ * <p/>
+ * <p>Lucene 3.0 only allows to merge adjacent segments, so candidates are contiguous runs of segments, of
+ * up to <tt>maxMergeAtOnce</tt> segments, with a merged size of up to <tt>maxMergedSegmentMB</tt>.
+ * Optimize and expunge deletes are handled as by {@link LogByteSizeMergePolicy}.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class TieredMergePolicy extends LogByteSizeMergePolicy {
+
+    public static final int DEFAULT_MAX_MERGE_AT_ONCE = 10;
+
+    public static final double DEFAULT_SEGMENTS_PER_TIER = 10.0;
+
+    public static final double DEFAULT_MAX_MERGED_SEGMENT_MB = 5 * 1024;
+
+    public static final double DEFAULT_FLOOR_SEGMENT_MB = 2.0;
+
+    public static final double DEFAULT_RECLAIM_DELETES_WEIGHT = 2.0;
+
+    private int maxMergeAtOnce = DEFAULT_MAX_MERGE_AT_ONCE;
+
+    private double segsPerTier = DEFAULT_SEGMENTS_PER_TIER;
+
+    private long maxMergedSegmentBytes = (long) (DEFAULT_MAX_MERGED_SEGMENT_MB * 1024 * 1024);
+
+    private long floorSegmentBytes = (long) (DEFAULT_FLOOR_SEGMENT_MB * 1024 * 1024);
+
+    private double reclaimDeletesWeight = DEFAULT_RECLAIM_DELETES_WEIGHT;
+
+    public TieredMergePolicy(IndexWriter writer) {
+        super(writer);
+        // sizes are always pro-rated by deletes, that's what makes large segments with deletes eligible again
+        setCalibrateSizeByDeletes(true);
+    }
+
+    /**
+     * The maximum number of segments merged at once. Also used as the merge factor for optimize
+     * and expunge deletes.
+     */
+    public void setMaxMergeAtOnce(int maxMergeAtOnce) {
+        if (maxMergeAtOnce < 2) {
+            throw new IllegalArgumentException("maxMergeAtOnce must be > 1 (got " + maxMergeAtOnce + ")");
+        }
+        this.maxMergeAtOnce = maxMergeAtOnce;
+        setMergeFactor(maxMergeAtOnce);
+    }
+
+    public int getMaxMergeAtOnce() {
+        return maxMergeAtOnce;
+    }
+
+    /**
+     * The allowed number of segments per tier. Smaller values mean more merging, and less segments.
+     */
+    public void setSegmentsPerTier(double segsPerTier) {
+        if (segsPerTier < 2.0) {
+            throw new IllegalArgumentException("segmentsPerTier must be >= 2.0 (got " + segsPerTier + ")");
+        }
+        this.segsPerTier = segsPerTier;
+    }
+
+    public double getSegmentsPerTier() {
+        return segsPerTier;
+    }
+
+    /**
+     * The maximum size of a segment produced by a (non optimize) merge.
+     */
+    public void setMaxMergedSegmentMB(double maxMergedSegmentMB) {
+        this.maxMergedSegmentBytes = (long) (maxMergedSegmentMB * 1024 * 1024);
+    }
+
+    public double getMaxMergedSegmentMB() {
+        return maxMergedSegmentBytes / 1024d / 1024d;
+    }
+
+    /**
+     * Segments smaller than this are considered to be of this size when computing tiers and scoring
+     * merges, so tiny segments are merged aggressively.
+     */
+    public void setFloorSegmentMB(double floorSegmentMB) {
+        if (floorSegmentMB <= 0.0) {
+            throw new IllegalArgumentException("floorSegmentMB must be > 0.0 (got " + floorSegmentMB + ")");
+        }
+        this.floorSegmentBytes = (long) (floorSegmentMB * 1024 * 1024);
+    }
+
+    public double getFloorSegmentMB() {
+        return floorSegmentBytes / 1024d / 1024d;
+    }
+
+    /**
+     * How strongly merges reclaiming deletes are favored. 0 disables it, higher values favor them more.
+     */
+    public void setReclaimDeletesWeight(double reclaimDeletesWeight) {
+        if (reclaimDeletesWeight < 0.0) {
+            throw new IllegalArgumentException("reclaimDeletesWeight must be >= 0.0 (got " + reclaimDeletesWeight + ")");
+        }
+        this.reclaimDeletesWeight = reclaimDeletesWeight;
+    }
+
+    public double getReclaimDeletesWeight() {
+        return reclaimDeletesWeight;
+    }
+
+    @Override public MergeSpecification findMerges(SegmentInfos infos) throws IOException {
+        final int numSegments = infos.size();
+        if (numSegments == 0) {
+            return null;
+        }
+
+        // segments of more than half the max merged size are not merged, unless deletes bring them under it
+        long[] sizes = new long[numSegments];
+        boolean[] eligible = new boolean[numSegments];
+        long minSegmentBytes = Long.MAX_VALUE;
+        long totIndexBytes = 0;
+        int eligibleCount = 0;
+        for (int i = 0; i < numSegments; i++) {
+            sizes[i] = size(infos.info(i));
+            if (sizes[i] > maxMergedSegmentBytes / 2) {
+                continue;
+            }
+            eligible[i] = true;
+            eligibleCount++;
+            totIndexBytes += sizes[i];
+            minSegmentBytes = Math.min(minSegmentBytes, sizes[i]);
+        }
+        if (eligibleCount == 0) {
+            return null;
+        }
+
+        // compute the number of segments allowed, each tier being maxMergeAtOnce times larger than the previous one
+        long levelSize = floorSize(minSegmentBytes);
+        long bytesLeft = totIndexBytes;
+        double allowedSegCount = 0;
+        while (true) {
+            double segCountLevel = bytesLeft / (double) levelSize;
+            if (segCountLevel < segsPerTier) {
+                allowedSegCount += Math.ceil(segCountLevel);
+                break;
+            }
+            allowedSegCount += segsPerTier;
+            bytesLeft -= segsPerTier * levelSize;
+            levelSize *= maxMergeAtOnce;
+        }
+        int allowedSegCountInt = (int) allowedSegCount;
+
+        MergeSpecification spec = null;
+        while (eligibleCount > allowedSegCountInt) {
+            // find the best scoring run of eligible segments, segments picked by previous merges are not eligible
+            int bestStart = -1;
+            int bestEnd = -1;
+            double bestScore = Double.MAX_VALUE;
+            for (int start = 0; start < numSegments; start++) {
+                if (!eligible[start]) {
+                    continue;
+                }
+                long totAfterMergeBytes = 0;
+                long totBeforeMergeBytes = 0;
+                long maxSegmentBytes = 0;
+                long totFlooredBytes = 0;
+                for (int end = start; end < numSegments && end - start < maxMergeAtOnce && eligible[end]; end++) {
+                    if (totAfterMergeBytes + sizes[end] > maxMergedSegmentBytes) {
+                        break;
+                    }
+                    totAfterMergeBytes += sizes[end];
+                    totBeforeMergeBytes += infos.info(end).sizeInBytes();
+                    maxSegmentBytes = Math.max(maxSegmentBytes, floorSize(sizes[end]));
+                    totFlooredBytes += floorSize(sizes[end]);
+                    if (end == start) {
+                        continue;
+                    }
+                    double score = score(maxSegmentBytes, totFlooredBytes, totAfterMergeBytes, totBeforeMergeBytes);
+                    if (score < bestScore) {
+                        bestScore = score;
+                        bestStart = start;
+                        bestEnd = end + 1;
+                    }
+                }
+            }
+            if (bestStart == -1) {
+                // no mergeable run left (all separated by large segments)
+                break;
+            }
+            if (spec == null) {
+                spec = new MergeSpecification();
+            }
+            spec.add(new OneMerge(infos.range(bestStart, bestEnd), getUseCompoundFile()));
+            for (int i = bestStart; i < bestEnd; i++) {
+                eligible[i] = false;
+            }
+            // the merged segment counts as one, and is not eligible until the next round
+            eligibleCount -= bestEnd - bestStart;
+            allowedSegCountInt--;
+        }
+        return spec;
+    }
+
+    /**
+     * Scores a candidate merge, lower is better. Balanced merges (where the largest segment is a small
+     * part of the merge) are preferred, smaller merges are slightly preferred, and merges reclaiming more
+     * deletes are preferred based on the reclaim deletes weight.
+     */
+    private double score(long maxSegmentBytes, long totFlooredBytes, long totAfterMergeBytes, long totBeforeMergeBytes) {
+        double skew = (double) maxSegmentBytes / totFlooredBytes;
+        double score = skew * Math.pow(totAfterMergeBytes, 0.05);
+        if (totBeforeMergeBytes > 0) {
+            double nonDelRatio = (double) totAfterMergeBytes / totBeforeMergeBytes;
+            score *= Math.pow(nonDelRatio, reclaimDeletesWeight);
+        }
+        return score;
+    }
+
+    private long floorSize(long bytes) {
+        return Math.max(floorSegmentBytes, bytes);
+    }
+
+    @Override public String toString() {
+        return "[" + getClass().getSimpleName() + ": maxMergeAtOnce=" + maxMergeAtOnce + ", segmentsPerTier=" + segsPerTier
+                + ", maxMergedSegmentMB=" + getMaxMergedSegmentMB() + ", floorSegmentMB=" + getFloorSegmentMB()
+                + ", reclaimDeletesWeight=" + reclaimDeletesWeight + "]";
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.index.IndexWriter;
+import org.elasticsearch.common.Preconditions;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.shard.AbstractIndexShardComponent;
+import org.elasticsearch.index.store.Store;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class TieredMergePolicyProvider extends AbstractIndexShardComponent implements MergePolicyProvider<TieredMergePolicy> {
+
+    private final int maxMergeAtOnce;
+    private final double segmentsPerTier;
+    private final ByteSizeValue maxMergedSegment;
+    private final ByteSizeValue floorSegment;
+    private final double reclaimDeletesWeight;
+
+    @Inject public TieredMergePolicyProvider(Store store) {
+        super(store.shardId(), store.indexSettings());
+        Preconditions.checkNotNull(store, "Store must be provided to merge policy");
+
+        this.maxMergeAtOnce = componentSettings.getAsInt("max_merge_at_once", TieredMergePolicy.DEFAULT_MAX_MERGE_AT_ONCE);
+        this.segmentsPerTier = componentSettings.getAsDouble("segments_per_tier", TieredMergePolicy.DEFAULT_SEGMENTS_PER_TIER);
+        this.maxMergedSegment = componentSettings.getAsBytesSize("max_merged_segment", new ByteSizeValue((long) TieredMergePolicy.DEFAULT_MAX_MERGED_SEGMENT_MB, ByteSizeUnit.MB));
+        this.floorSegment = componentSettings.getAsBytesSize("floor_segment", new ByteSizeValue((long) TieredMergePolicy.DEFAULT_FLOOR_SEGMENT_MB, ByteSizeUnit.MB));
+        this.reclaimDeletesWeight = componentSettings.getAsDouble("reclaim_deletes_weight", TieredMergePolicy.DEFAULT_RECLAIM_DELETES_WEIGHT);
+        logger.debug("using [tiered] merge policy with max_merge_at_once[{}], segments_per_tier[{}], max_merged_segment[{}], floor_segment[{}], reclaim_deletes_weight[{}]",
+                maxMergeAtOnce, segmentsPerTier, maxMergedSegment, floorSegment, reclaimDeletesWeight);
+    }
+
+    @Override public TieredMergePolicy newMergePolicy(IndexWriter indexWriter) {
+        TieredMergePolicy mergePolicy = new TieredMergePolicy(indexWriter);
+        mergePolicy.setMaxMergeAtOnce(maxMergeAtOnce);
+        mergePolicy.setSegmentsPerTier(segmentsPerTier);
+        mergePolicy.setMaxMergedSegmentMB(maxMergedSegment.mbFrac());
+        mergePolicy.setFloorSegmentMB(floorSegment.mbFrac());
+        mergePolicy.setReclaimDeletesWeight(reclaimDeletesWeight);
+        return mergePolicy;
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.MergeScheduler;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.merge.Merges;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
@@ -59,5 +60,14 @@ public class ConcurrentMergeSchedulerProvider extends AbstractIndexShardComponen
             thread.setName("[" + shardId.index().name() + "][" + shardId.id() + "]: " + thread.getName());
             return thread;
         }
+
+        @Override protected void doMerge(MergePolicy.OneMerge merge) throws IOException {
+            Merges.startMerge();
+            try {
+                super.doMerge(merge);
+            } finally {
+                Merges.endMerge();
+            }
+        }
     }
 }
@@ -19,14 +19,18 @@
 
 package org.elasticsearch.index.merge.scheduler;
 
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.MergeScheduler;
 import org.apache.lucene.index.SerialMergeScheduler;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.merge.Merges;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
 
+import java.io.IOException;
+
 /**
  * @author kimchy (shay.banon)
  */
@@ -38,6 +42,18 @@ public class SerialMergeSchedulerProvider extends AbstractIndexShardComponent im
     }
 
     @Override public MergeScheduler newMergeScheduler() {
-        return new SerialMergeScheduler();
+        return new CustomSerialMergeScheduler();
+    }
+
+    private static class CustomSerialMergeScheduler extends SerialMergeScheduler {
+
+        @Override public synchronized void merge(IndexWriter writer) throws IOException {
+            Merges.startMerge();
+            try {
+                super.merge(writer);
+            } finally {
+                Merges.endMerge();
+            }
+        }
     }
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.index.shard;
 import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 
 /**
  * @author kimchy (shay.banon)
@@ -38,5 +39,6 @@ public class IndexShardModule extends AbstractModule {
         bind(ShardId.class).toInstance(shardId);
         bind(IndexShard.class).to(InternalIndexShard.class).asEagerSingleton();
         bind(IndexShardManagement.class).asEagerSingleton();
+        bind(ShardIndexWarmerService.class).asEagerSingleton();
     }
 }
\ No newline at end of file
@@ -21,16 +21,18 @@ package org.elasticsearch.index.shard.recovery;
 
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
-import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.transport.FilePayloadStreamable;
 
 import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 
 /**
  * @author kimchy (shay.banon)
  */
-class RecoveryFileChunkRequest implements Streamable {
+class RecoveryFileChunkRequest implements FilePayloadStreamable {
 
     private ShardId shardId;
     private String name;
@@ -39,10 +41,26 @@ class RecoveryFileChunkRequest implements Streamable {
     private String checksum;
     private byte[] content;
     private int contentLength;
+    // when set, the content is read from the file when the request is written
+    private File contentFile;
 
     RecoveryFileChunkRequest() {
     }
 
+    /**
+     * A chunk whose content is read from the provided file (starting at the chunk position) when written,
+     * allowing the transport to send it without copying it through the heap.
+     */
+    RecoveryFileChunkRequest(ShardId shardId, String name, long position, long length, String checksum, File contentFile, int contentLength) {
+        this.shardId = shardId;
+        this.name = name;
+        this.position = position;
+        this.length = length;
+        this.checksum = checksum;
+        this.contentFile = contentFile;
+        this.contentLength = contentLength;
+    }
+
     RecoveryFileChunkRequest(ShardId shardId, String name, long position, long length, String checksum, byte[] content, int contentLength) {
         this.shardId = shardId;
         this.name = name;
@@ -81,6 +99,18 @@ class RecoveryFileChunkRequest implements Streamable {
         return contentLength;
     }
 
+    @Override public File payloadFile() {
+        return contentFile;
+    }
+
+    @Override public long payloadPosition() {
+        return position;
+    }
+
+    @Override public int payloadLength() {
+        return contentLength;
+    }
+
     public RecoveryFileChunkRequest readFileChunk(StreamInput in) throws IOException {
         RecoveryFileChunkRequest request = new RecoveryFileChunkRequest();
         request.readFrom(in);
@@ -101,6 +131,28 @@ class RecoveryFileChunkRequest implements Streamable {
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
+        writeHeaderTo(out);
+        if (contentFile == null) {
+            out.writeBytes(content, 0, contentLength);
+            return;
+        }
+        RandomAccessFile raf = new RandomAccessFile(contentFile, "r");
+        try {
+            raf.seek(position);
+            byte[] buffer = new byte[Math.min(contentLength, 8192)];
+            int left = contentLength;
+            while (left > 0) {
+                int toRead = Math.min(left, buffer.length);
+                raf.readFully(buffer, 0, toRead);
+                out.writeBytes(buffer, 0, toRead);
+                left -= toRead;
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Override public void writeHeaderTo(StreamOutput out) throws IOException {
         shardId.writeTo(out);
         out.writeUTF(name);
         out.writeVLong(position);
@@ -112,7 +164,6 @@ class RecoveryFileChunkRequest implements Streamable {
             out.writeUTF(checksum);
         }
         out.writeVInt(contentLength);
-        out.writeBytes(content, 0, contentLength);
     }
 
     @Override public String toString() {
@@ -23,7 +23,9 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 
 /**
@@ -33,22 +35,41 @@ class RecoveryFinalizeRecoveryRequest implements Streamable {
 
     private ShardId shardId;
 
+    private Translog.HistoryPosition historyPosition;
+
     RecoveryFinalizeRecoveryRequest() {
     }
 
-    RecoveryFinalizeRecoveryRequest(ShardId shardId) {
+    RecoveryFinalizeRecoveryRequest(ShardId shardId, @Nullable Translog.HistoryPosition historyPosition) {
         this.shardId = shardId;
+        this.historyPosition = historyPosition;
     }
 
     public ShardId shardId() {
         return shardId;
     }
 
+    /**
+     * The position in the source shard history up to which all the operations were recovered.
+     */
+    @Nullable public Translog.HistoryPosition historyPosition() {
+        return historyPosition;
+    }
+
     @Override public void readFrom(StreamInput in) throws IOException {
         shardId = ShardId.readShardId(in);
+        if (in.readBoolean()) {
+            historyPosition = Translog.HistoryPosition.readHistoryPosition(in);
+        }
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
         shardId.writeTo(out);
+        if (historyPosition == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            historyPosition.writeTo(out);
+        }
     }
 }
@@ -40,6 +40,8 @@ class RecoveryResponse implements Streamable {
     long phase1ExistingTotalSize;
     long phase1Time;
     long phase1ThrottlingWaitTime;
+    // no files were copied, the operations following the history position of the target were replayed
+    boolean phase1OperationsBased;
 
     int phase2Operations;
     long phase2Time;
@@ -77,6 +79,7 @@ class RecoveryResponse implements Streamable {
         phase1ExistingTotalSize = in.readVLong();
         phase1Time = in.readVLong();
         phase1ThrottlingWaitTime = in.readVLong();
+        phase1OperationsBased = in.readBoolean();
         phase2Operations = in.readVInt();
         phase2Time = in.readVLong();
         phase3Operations = in.readVInt();
@@ -106,6 +109,7 @@ class RecoveryResponse implements Streamable {
         out.writeVLong(phase1ExistingTotalSize);
         out.writeVLong(phase1Time);
         out.writeVLong(phase1ThrottlingWaitTime);
+        out.writeBoolean(phase1OperationsBased);
         out.writeVInt(phase2Operations);
         out.writeVLong(phase2Time);
         out.writeVInt(phase3Operations);
@@ -21,11 +21,14 @@ package org.elasticsearch.index.shard.recovery;
 
 import org.apache.lucene.store.IndexInput;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Sets;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.VoidStreamable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
@@ -36,15 +39,23 @@ import org.elasticsearch.index.shard.IndexShardClosedException;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.index.store.StoreIOStats;
+import org.elasticsearch.index.store.fs.FsStore;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.recovery.IndicesRecoveryThrottle;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -65,32 +76,115 @@ public class RecoverySource extends AbstractComponent {
 
     private final IndicesService indicesService;
 
+    private final IndicesRecoveryThrottle recoveryThrottle;
+
+    // the time it should take for a chunk to be acknowledged, the chunk size is adapted to it
+    private static final long TARGET_CHUNK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
 
     private final ByteSizeValue fileChunkSize;
 
+    private final ByteSizeValue maxFileChunkSize;
+
+    private final int fileChunkWindow;
+
     private final boolean compress;
 
+    private final boolean operationsBased;
+
     private final int translogBatchSize;
 
-    @Inject public RecoverySource(Settings settings, ThreadPool threadPool, TransportService transportService, IndicesService indicesService) {
+    @Inject public RecoverySource(Settings settings, ThreadPool threadPool, TransportService transportService, IndicesService indicesService,
+                                  IndicesRecoveryThrottle recoveryThrottle) {
         super(settings);
         this.threadPool = threadPool;
         this.transportService = transportService;
         this.indicesService = indicesService;
+        this.recoveryThrottle = recoveryThrottle;
 
         this.fileChunkSize = componentSettings.getAsBytesSize("file_chunk_size", new ByteSizeValue(100, ByteSizeUnit.KB));
+        this.maxFileChunkSize = componentSettings.getAsBytesSize("max_file_chunk_size", new ByteSizeValue(1, ByteSizeUnit.MB));
+        this.fileChunkWindow = componentSettings.getAsInt("file_chunk_window", 4);
         this.translogBatchSize = componentSettings.getAsInt("translog_batch_size", 100);
+        // compressed chunks are read and compressed on the heap, when disabled, and transport.netty.file_region is
+        // enabled, chunks of files stored on the file system are sent by the transport directly from the file
         this.compress = componentSettings.getAsBoolean("compress", true);
+        this.operationsBased = componentSettings.getAsBoolean("operations_based", true);
 
         transportService.registerHandler(Actions.START_RECOVERY, new StartRecoveryTransportRequestHandler());
     }
 
+    /**
+     * Sends the first chunk of a file and waits for it to be acknowledged, retrying if the target can't
+     * start receiving the file yet, up to the throttle retry timeout.
+     */
+    private void sendFirstFileChunk(StartRecoveryRequest request, RecoveryFileChunkRequest chunkRequest, AtomicInteger chunkSize) throws InterruptedException {
+        long retryDeadline = System.nanoTime() + recoveryThrottle.retryTimeout().nanos();
+        while (true) {
+            long startNanos = System.nanoTime();
+            try {
+                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, chunkRequest,
+                        TransportRequestOptions.options().withCompress(compress), VoidTransportResponseHandler.INSTANCE).txGet();
+                adaptChunkSize(chunkSize, System.nanoTime() - startNanos);
+                return;
+            } catch (ElasticSearchException e) {
+                // the target receives too many files, retry the first chunk later
+                if (!(ExceptionsHelper.unwrapCause(e) instanceof RecoveryThrottledException)) {
+                    throw e;
+                }
+                if (System.nanoTime() - retryDeadline > 0) {
+                    throw new ElasticSearchException("target " + request.targetNode() + " did not start receiving [" + chunkRequest.name() + "] within [" + recoveryThrottle.retryTimeout() + "]", e);
+                }
+                Thread.sleep(recoveryThrottle.retryDelay().millis());
+            }
+        }
+    }
+
+    /**
+     * Sends a chunk without waiting for it to be acknowledged, releasing its slot in the window once it
+     * is (or failed).
+     */
+    private void sendFileChunk(StartRecoveryRequest request, RecoveryFileChunkRequest chunkRequest, final AtomicInteger chunkSize,
+                               final FileChunkWindow window) {
+        final long startNanos = System.nanoTime();
+        transportService.sendRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, chunkRequest,
+                TransportRequestOptions.options().withCompress(compress), new VoidTransportResponseHandler(false) {
+                    @Override public void handleResponse(VoidStreamable response) {
+                        adaptChunkSize(chunkSize, System.nanoTime() - startNanos);
+                        window.acknowledged();
+                    }
+
+                    @Override public void handleException(TransportException exp) {
+                        window.failed(exp);
+                    }
+                });
+    }
+
+    /**
+     * Doubles the chunk size when chunks are acknowledged quickly, so more bytes are in flight on high
+     * latency links, and halves it when they are slow to be acknowledged, within the min (the configured
+     * <tt>file_chunk_size</tt>) and max chunk sizes.
+     */
+    private void adaptChunkSize(AtomicInteger chunkSize, long tookNanos) {
+        int current = chunkSize.get();
+        if (tookNanos < TARGET_CHUNK_NANOS / 2 && current < maxFileChunkSize.bytes()) {
+            chunkSize.compareAndSet(current, (int) Math.min(maxFileChunkSize.bytes(), current * 2l));
+        } else if (tookNanos > TARGET_CHUNK_NANOS * 2 && current > fileChunkSize.bytes()) {
+            chunkSize.compareAndSet(current, (int) Math.max(fileChunkSize.bytes(), current / 2));
+        }
+    }
+
     private RecoveryResponse recover(final StartRecoveryRequest request) {
         final InternalIndexShard shard = (InternalIndexShard) indicesService.indexServiceSafe(request.shardId().index().name()).shardSafe(request.shardId().id());
         logger.trace("[{}][{}] starting recovery to {}, mark_as_relocated {}", request.shardId().index().name(), request.shardId().id(), request.targetNode(), request.markAsRelocated());
         final RecoveryResponse response = new RecoveryResponse();
         shard.recover(new Engine.RecoveryHandler() {
             @Override public void phase1(final SnapshotIndexCommit snapshot) throws ElasticSearchException {
+                if (canRecoverFromHistory(shard, request)) {
+                    // the target index is reused as is, and phase2 replays the operations it misses
+                    logger.trace("[{}][{}] recovery [phase1] to {}: skipping files, recovering operations following {}", request.shardId().index().name(), request.shardId().id(), request.targetNode(), request.historyPosition());
+                    response.phase1OperationsBased = true;
+                    return;
+                }
                 long totalSize = 0;
                 long existingTotalSize = 0;
                 try {
@@ -133,43 +227,86 @@ public class RecoverySource extends AbstractComponent {
 
                     final CountDownLatch latch = new CountDownLatch(response.phase1FileNames.size());
                     final AtomicReference<Exception> lastException = new AtomicReference<Exception>();
+                    // the chunk size is adapted as chunks are acknowledged, shared by all the files of the recovery
+                    final AtomicInteger chunkSize = new AtomicInteger((int) fileChunkSize.bytes());
                     for (final String name : response.phase1FileNames) {
-                        threadPool.cached().execute(new Runnable() {
-                            @Override public void run() {
-                                IndexInput indexInput = null;
-                                try {
-                                    final int BUFFER_SIZE = (int) fileChunkSize.bytes();
-                                    byte[] buf = new byte[BUFFER_SIZE];
-                                    StoreFileMetaData md = shard.store().metaData(name);
-                                    indexInput = snapshot.getDirectory().openInput(name);
-                                    long len = indexInput.length();
-                                    long readCount = 0;
-                                    while (readCount < len) {
-                                        if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
-                                            throw new IndexShardClosedException(shard.shardId());
+                        // bounds the number of files sent concurrently by the node
+                        recoveryThrottle.acquireOutgoingStream();
+                        try {
+                            threadPool.cached().execute(new Runnable() {
+                                @Override public void run() {
+                                    IndexInput indexInput = null;
+                                    final FileChunkWindow window = new FileChunkWindow(fileChunkWindow);
+                                    try {
+                                        StoreFileMetaData md = shard.store().metaData(name);
+                                        // uncompressed chunks of files stored on the file system are read by the transport
+                                        // when sent, so it can transfer them without copying them through the heap
+                                        File file = null;
+                                        if (!compress && shard.store() instanceof FsStore) {
+                                            file = ((FsStore) shard.store()).physicalFile(name);
                                         }
-                                        int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
-                                        long position = indexInput.getFilePointer();
-                                        indexInput.readBytes(buf, 0, toRead, false);
-                                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.shardId(), name, position, len, md.checksum(), buf, toRead),
-                                                TransportRequestOptions.options().withCompress(compress), VoidTransportResponseHandler.INSTANCE).txGet();
-                                        readCount += toRead;
-                                    }
-                                    indexInput.close();
-                                } catch (Exception e) {
-                                    lastException.set(e);
-                                } finally {
-                                    if (indexInput != null) {
-                                        try {
-                                            indexInput.close();
-                                        } catch (IOException e) {
-                                            // ignore
+                                        long len;
+                                        if (file != null) {
+                                            len = file.length();
+                                        } else {
+                                            StoreIOStats.Purpose.start(StoreIOStats.Purpose.RECOVERY);
+                                            try {
+                                                indexInput = snapshot.getDirectory().openInput(name);
+                                            } finally {
+                                                StoreIOStats.Purpose.end();
+                                            }
+                                            len = indexInput.length();
+                                        }
+                                        long readCount = 0;
+                                        while (readCount < len && !window.hasFailed()) {
+                                            if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
+                                                throw new IndexShardClosedException(shard.shardId());
+                                            }
+                                            int toRead = (int) Math.min(chunkSize.get(), len - readCount);
+                                            long position = readCount;
+                                            RecoveryFileChunkRequest chunkRequest;
+                                            if (file != null) {
+                                                shard.store().ioStats().read(StoreIOStats.extension(name), StoreIOStats.Purpose.RECOVERY, toRead);
+                                                chunkRequest = new RecoveryFileChunkRequest(request.shardId(), name, position, len, md.checksum(), file, toRead);
+                                            } else {
+                                                // a buffer per chunk, since it is still referenced until the chunk is sent
+                                                byte[] buf = new byte[toRead];
+                                                indexInput.readBytes(buf, 0, toRead, false);
+                                                chunkRequest = new RecoveryFileChunkRequest(request.shardId(), name, position, len, md.checksum(), buf, toRead);
+                                            }
+                                            recoveryThrottle.pause(toRead);
+                                            if (position == 0) {
+                                                // the first chunk creates the file on the target, wait for it before sending the rest
+                                                sendFirstFileChunk(request, chunkRequest, chunkSize);
+                                            } else {
+                                                window.acquire();
+                                                sendFileChunk(request, chunkRequest, chunkSize, window);
+                                            }
+                                            readCount += toRead;
                                         }
+                                        // wait for the chunks still in flight
+                                        window.awaitAcknowledged();
+                                    } catch (Exception e) {
+                                        lastException.set(e);
+                                    } finally {
+                                        if (indexInput != null) {
+                                            try {
+                                                indexInput.close();
+                                            } catch (IOException e) {
+                                                // ignore
+                                            }
+                                        }
+                                        recoveryThrottle.releaseOutgoingStream();
+                                        latch.countDown();
                                     }
-                                    latch.countDown();
                                 }
-                            }
-                        });
+                            });
+                        } catch (RejectedExecutionException e) {
+                            // the file won't be sent, release its stream
+                            recoveryThrottle.releaseOutgoingStream();
+                            lastException.set(e);
+                            latch.countDown();
+                        }
                     }
 
                     latch.await();
@@ -199,7 +336,11 @@ public class RecoverySource extends AbstractComponent {
 
                 transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.PREPARE_TRANSLOG, new RecoveryPrepareForTranslogOperationsRequest(request.shardId()), VoidTransportResponseHandler.INSTANCE).txGet();
 
-                int totalOperations = sendSnapshot(snapshot);
+                int totalOperations = 0;
+                if (response.phase1OperationsBased) {
+                    totalOperations += sendHistory(snapshot);
+                }
+                totalOperations += sendSnapshot(snapshot);
 
                 stopWatch.stop();
                 logger.trace("[{}][{}] recovery [phase2] to {}: took [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), stopWatch.totalTime());
@@ -214,7 +355,9 @@ public class RecoverySource extends AbstractComponent {
                 logger.trace("[{}][{}] recovery [phase3] to {}: sending transaction log operations", request.shardId().index().name(), request.shardId().id(), request.targetNode());
                 StopWatch stopWatch = new StopWatch().start();
                 int totalOperations = sendSnapshot(snapshot);
-                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FINALIZE, new RecoveryFinalizeRecoveryRequest(request.shardId()), VoidTransportResponseHandler.INSTANCE).txGet();
+                // writes are blocked, the target now has all the operations up to the end of the snapshot
+                Translog.HistoryPosition historyPosition = new Translog.HistoryPosition(shard.translog().historyId(), snapshot.translogId(), snapshot.position());
+                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FINALIZE, new RecoveryFinalizeRecoveryRequest(request.shardId(), historyPosition), VoidTransportResponseHandler.INSTANCE).txGet();
                 if (request.markAsRelocated()) {
                     // TODO what happens if the recovery process fails afterwards, we need to mark this back to started
                     try {
@@ -231,6 +374,36 @@ public class RecoverySource extends AbstractComponent {
                 response.phase3Operations = totalOperations;
             }
 
+            /**
+             * Sends the operations following the target history position found in the retained translogs, and moves
+             * the current translog snapshot to it if it is the translog of the position.
+             */
+            private int sendHistory(Translog.Snapshot snapshot) throws ElasticSearchException {
+                Translog.HistoryPosition historyPosition = request.historyPosition();
+                if (historyPosition.translogId() == snapshot.translogId()) {
+                    snapshot.seekForward(historyPosition.position());
+                    return 0;
+                }
+                Translog.Snapshot[] retainedSnapshots = shard.translog().retainedSnapshots(historyPosition.translogId());
+                if (retainedSnapshots == null) {
+                    throw new ElasticSearchIllegalStateException("translog [" + historyPosition.translogId() + "] is no longer retained");
+                }
+                int totalOperations = 0;
+                try {
+                    for (Translog.Snapshot retainedSnapshot : retainedSnapshots) {
+                        if (retainedSnapshot.translogId() == historyPosition.translogId()) {
+                            retainedSnapshot.seekForward(historyPosition.position());
+                        }
+                        totalOperations += sendSnapshot(retainedSnapshot);
+                    }
+                } finally {
+                    for (Translog.Snapshot retainedSnapshot : retainedSnapshots) {
+                        retainedSnapshot.release();
+                    }
+                }
+                return totalOperations;
+            }
+
             private int sendSnapshot(Translog.Snapshot snapshot) throws ElasticSearchException {
                 int counter = 0;
                 int totalOperations = 0;
@@ -259,6 +432,18 @@ public class RecoverySource extends AbstractComponent {
         return response;
     }
 
+    /**
+     * Can the target recover by replaying the operations following its history position, which requires the
+     * history to be the one of this shard, and the translogs from that position on to still be around.
+     */
+    private boolean canRecoverFromHistory(InternalIndexShard shard, StartRecoveryRequest request) {
+        Translog.HistoryPosition historyPosition = request.historyPosition();
+        if (!operationsBased || historyPosition == null || request.existingFiles().isEmpty()) {
+            return false;
+        }
+        return historyPosition.historyId().equals(shard.translog().historyId()) && shard.translog().hasHistory(historyPosition.translogId());
+    }
+
     class StartRecoveryTransportRequestHandler extends BaseTransportRequestHandler<StartRecoveryRequest> {
 
         @Override public StartRecoveryRequest newInstance() {
@@ -287,5 +472,53 @@ public class RecoverySource extends AbstractComponent {
             return false;
         }
     }
-}
 
+    /**
+     * Bounds the chunks of a file sent and not acknowledged yet, and keeps the first chunk failure so the
+     * rest of the file is not sent and the failure aborts the recovery.
+     */
+    static class FileChunkWindow {
+
+        private final int size;
+
+        private final Semaphore inFlight;
+
+        private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+        FileChunkWindow(int size) {
+            this.size = size;
+            this.inFlight = new Semaphore(size);
+        }
+
+        /**
+         * Waits for a slot to send a chunk in.
+         */
+        void acquire() throws InterruptedException {
+            inFlight.acquire();
+        }
+
+        void acknowledged() {
+            inFlight.release();
+        }
+
+        void failed(Exception e) {
+            failure.compareAndSet(null, e);
+            inFlight.release();
+        }
+
+        boolean hasFailed() {
+            return failure.get() != null;
+        }
+
+        /**
+         * Waits for all the chunks sent to be acknowledged, throwing the first chunk failure if any.
+         */
+        void awaitAcknowledged() throws Exception {
+            inFlight.acquire(size);
+            inFlight.release(size);
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+    }
+}
@@ -20,10 +20,12 @@
 package org.elasticsearch.index.shard.recovery;
 
 import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -41,6 +43,9 @@ public class RecoveryStatus {
 
     ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
 
+    // the bytes received so far for each open output, updated while holding the output lock
+    ConcurrentMap<String, Long> openIndexOutputsReceivedBytes = ConcurrentCollections.newConcurrentMap();
+
     final long startTime = System.currentTimeMillis();
     long time;
     List<String> phase1FileNames;
@@ -52,7 +57,10 @@ public class RecoveryStatus {
 
     volatile Stage stage = Stage.INIT;
     volatile long currentTranslogOperations = 0;
+    volatile long translogStartTime = 0;
+    volatile long translogTime = 0;
     AtomicLong currentFilesSize = new AtomicLong();
+    AtomicLong throttledNanos = new AtomicLong();
 
     public long startTime() {
         return startTime;
@@ -78,7 +86,25 @@ public class RecoveryStatus {
         return currentTranslogOperations;
     }
 
+    /**
+     * The rate, in operations per second, translog operations are replayed at.
+     */
+    public long translogOperationsPerSecond() {
+        if (translogStartTime == 0) {
+            return 0;
+        }
+        long took = translogTime > 0 ? translogTime : System.currentTimeMillis() - translogStartTime;
+        return currentTranslogOperations * 1000 / Math.max(1, took);
+    }
+
     public long currentFilesSize() {
         return currentFilesSize.get();
     }
+
+    /**
+     * The time receiving files was paused by the node recovery throttle.
+     */
+    public TimeValue throttledTime() {
+        return new TimeValue(throttledNanos.get(), TimeUnit.NANOSECONDS);
+    }
 }
@@ -30,21 +30,21 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.IndexShardMissingException;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.RecoveryEngineException;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.*;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
-import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndexMissingException;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.recovery.IndicesRecoveryThrottle;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 
 import static org.elasticsearch.common.unit.TimeValue.*;
@@ -74,14 +74,17 @@ public class RecoveryTarget extends AbstractComponent {
 
     private final IndicesService indicesService;
 
+    private final IndicesRecoveryThrottle recoveryThrottle;
+
     private final ConcurrentMap<ShardId, RecoveryStatus> onGoingRecoveries = ConcurrentCollections.newConcurrentMap();
 
     @Inject public RecoveryTarget(Settings settings, ThreadPool threadPool, TransportService transportService, IndicesService indicesService,
-                                  IndicesLifecycle indicesLifecycle) {
+                                  IndicesLifecycle indicesLifecycle, IndicesRecoveryThrottle recoveryThrottle) {
         super(settings);
         this.threadPool = threadPool;
         this.transportService = transportService;
         this.indicesService = indicesService;
+        this.recoveryThrottle = recoveryThrottle;
 
         transportService.registerHandler(Actions.FILES_INFO, new FilesInfoRequestHandler());
         transportService.registerHandler(Actions.FILE_CHUNK, new FileChunkTransportRequestHandler());
@@ -180,6 +183,9 @@ public class RecoveryTarget extends AbstractComponent {
                 StringBuilder sb = new StringBuilder();
                 sb.append('[').append(request.shardId().index().name()).append(']').append('[').append(request.shardId().id()).append("] ");
                 sb.append("recovery completed from ").append(request.sourceNode()).append(", took[").append(stopWatch.totalTime()).append("]\n");
+                if (recoveryStatus.phase1OperationsBased) {
+                    sb.append("   phase1: skipped, reusing the existing index and recovering the operations it misses\n");
+                }
                 sb.append("   phase1: recovered_files [").append(recoveryStatus.phase1FileNames.size()).append("]").append(" with total_size of [").append(new ByteSizeValue(recoveryStatus.phase1TotalSize)).append("]")
                         .append(", took [").append(timeValueMillis(recoveryStatus.phase1Time)).append("], throttling_wait [").append(timeValueMillis(recoveryStatus.phase1ThrottlingWaitTime)).append(']')
                         .append("\n");
@@ -258,10 +264,14 @@ public class RecoveryTarget extends AbstractComponent {
         RecoveryStatus peerRecoveryStatus = onGoingRecoveries.remove(shardId);
         if (peerRecoveryStatus != null) {
             // clean open index outputs
-            for (Map.Entry<String, IndexOutput> entry : peerRecoveryStatus.openIndexOutputs.entrySet()) {
-                synchronized (entry.getValue()) {
+            for (String name : peerRecoveryStatus.openIndexOutputs.keySet()) {
+                IndexOutput indexOutput = removeOpenIndexOutput(peerRecoveryStatus, name);
+                if (indexOutput == null) {
+                    continue;
+                }
+                synchronized (indexOutput) {
                     try {
-                        entry.getValue().close();
+                        indexOutput.close();
                     } catch (IOException e) {
                         // ignore
                     }
@@ -271,6 +281,35 @@ public class RecoveryTarget extends AbstractComponent {
         }
     }
 
+    /**
+     * Writes the chunk at its position in the file, returning <tt>true</tt> once all the bytes of the file
+     * were received. Chunks are sent pipelined and handled concurrently, so they might arrive out of order.
+     * Must be called while holding the output lock.
+     */
+    static boolean writeFileChunk(RecoveryStatus recoveryStatus, IndexOutput indexOutput, RecoveryFileChunkRequest request) throws IOException {
+        if (indexOutput.getFilePointer() != request.position()) {
+            indexOutput.seek(request.position());
+        }
+        indexOutput.writeBytes(request.content(), request.contentLength());
+        recoveryStatus.currentFilesSize.addAndGet(request.contentLength());
+        Long received = recoveryStatus.openIndexOutputsReceivedBytes.get(request.name());
+        received = (received == null ? 0 : received) + request.contentLength();
+        recoveryStatus.openIndexOutputsReceivedBytes.put(request.name(), received);
+        return received == request.length();
+    }
+
+    /**
+     * Removes the open output of a file being received, releasing its incoming stream.
+     */
+    private IndexOutput removeOpenIndexOutput(RecoveryStatus recoveryStatus, String name) {
+        IndexOutput indexOutput = recoveryStatus.openIndexOutputs.remove(name);
+        recoveryStatus.openIndexOutputsReceivedBytes.remove(name);
+        if (indexOutput != null) {
+            recoveryThrottle.releaseIncomingStream();
+        }
+        return indexOutput;
+    }
+
     class PrepareForTranslogOperationsRequestHandler extends BaseTransportRequestHandler<RecoveryPrepareForTranslogOperationsRequest> {
 
         @Override public RecoveryPrepareForTranslogOperationsRequest newInstance() {
@@ -286,6 +325,7 @@ public class RecoveryTarget extends AbstractComponent {
                 throw new IndexShardClosedException(shard.shardId());
             }
             onGoingRecovery.stage = RecoveryStatus.Stage.TRANSLOG;
+            onGoingRecovery.translogStartTime = System.currentTimeMillis();
 
             shard.performRecoveryPrepareForTranslog();
             channel.sendResponse(VoidStreamable.INSTANCE);
@@ -306,10 +346,30 @@ public class RecoveryTarget extends AbstractComponent {
                 throw new IndexShardClosedException(shard.shardId());
             }
             peerRecoveryStatus.stage = RecoveryStatus.Stage.FINALIZE;
+            if (peerRecoveryStatus.translogStartTime > 0) {
+                peerRecoveryStatus.translogTime = System.currentTimeMillis() - peerRecoveryStatus.translogStartTime;
+            }
+            if (request.historyPosition() != null) {
+                shard.recoveredUpTo(request.historyPosition());
+            }
             shard.performRecoveryFinalization(false, peerRecoveryStatus);
             peerRecoveryStatus.time = System.currentTimeMillis() - peerRecoveryStatus.startTime;
             peerRecoveryStatus.stage = RecoveryStatus.Stage.DONE;
             channel.sendResponse(VoidStreamable.INSTANCE);
+            if (request.historyPosition() != null) {
+                // commit the history position in the background (the source blocks writes until we respond), so
+                // a later recovery of the shard can replay the operations following it instead of copying files
+                final InternalIndexShard recoveredShard = shard;
+                threadPool.cached().execute(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            recoveredShard.flush(new Engine.Flush());
+                        } catch (Exception e) {
+                            logger.debug("[{}][{}] failed to flush after recovery", e, recoveredShard.shardId().index().name(), recoveredShard.shardId().id());
+                        }
+                    }
+                });
+            }
         }
     }
 
@@ -322,9 +382,7 @@ public class RecoveryTarget extends AbstractComponent {
 
         @Override public void messageReceived(RecoveryTranslogOperationsRequest request, TransportChannel channel) throws Exception {
             InternalIndexShard shard = (InternalIndexShard) indicesService.indexServiceSafe(request.shardId().index().name()).shardSafe(request.shardId().id());
-            for (Translog.Operation operation : request.operations()) {
-                shard.performRecoveryOperation(operation);
-            }
+            shard.performRecoveryOperations(request.operations());
 
             RecoveryStatus onGoingRecovery = onGoingRecoveries.get(shard.shardId());
             if (onGoingRecovery == null) {
@@ -357,6 +415,17 @@ public class RecoveryTarget extends AbstractComponent {
             onGoingRecovery.phase1TotalSize = request.phase1TotalSize;
             onGoingRecovery.phase1ExistingTotalSize = request.phase1ExistingTotalSize;
             onGoingRecovery.stage = RecoveryStatus.Stage.INDEX;
+            // the copied files might overwrite files of the existing index, so make sure its commit (and the history
+            // position it holds) won't be used if the recovery fails midway
+            for (String existingFile : shard.store().directory().listAll()) {
+                if (existingFile.startsWith("segments") && !existingFile.equals("segments.gen")) {
+                    try {
+                        shard.store().directory().deleteFile(existingFile);
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
             channel.sendResponse(VoidStreamable.INSTANCE);
         }
     }
@@ -399,7 +468,7 @@ public class RecoveryTarget extends AbstractComponent {
             IndexOutput indexOutput;
             if (request.position() == 0) {
                 // first request
-                indexOutput = onGoingRecovery.openIndexOutputs.remove(request.name());
+                indexOutput = removeOpenIndexOutput(onGoingRecovery, request.name());
                 if (indexOutput != null) {
                     try {
                         indexOutput.close();
@@ -407,9 +476,17 @@ public class RecoveryTarget extends AbstractComponent {
                         // ignore
                     }
                 }
+                if (!recoveryThrottle.tryAcquireIncomingStream()) {
+                    throw new RecoveryThrottledException("too many files received concurrently [" + recoveryThrottle.concurrentIncomingStreams() + "]");
+                }
                 // we create an output with no checksum, this is because the pure binary data of the file is not
                 // the checksum (because of seek). We will create the checksum file once copying is done
-                indexOutput = shard.store().createOutputWithNoChecksum(request.name());
+                try {
+                    indexOutput = shard.store().createOutputWithNoChecksum(request.name());
+                } catch (IOException e) {
+                    recoveryThrottle.releaseIncomingStream();
+                    throw e;
+                }
                 onGoingRecovery.openIndexOutputs.put(request.name(), indexOutput);
             } else {
                 indexOutput = onGoingRecovery.openIndexOutputs.get(request.name());
@@ -420,9 +497,7 @@ public class RecoveryTarget extends AbstractComponent {
             }
             synchronized (indexOutput) {
                 try {
-                    indexOutput.writeBytes(request.content(), request.contentLength());
-                    onGoingRecovery.currentFilesSize.addAndGet(request.contentLength());
-                    if (indexOutput.getFilePointer() == request.length()) {
+                    if (writeFileChunk(onGoingRecovery, indexOutput, request)) {
                         // we are done
                         indexOutput.close();
                         // write the checksum
@@ -430,10 +505,10 @@ public class RecoveryTarget extends AbstractComponent {
                             shard.store().writeChecksum(request.name(), request.checksum());
                         }
                         shard.store().directory().sync(request.name());
-                        onGoingRecovery.openIndexOutputs.remove(request.name());
+                        removeOpenIndexOutput(onGoingRecovery, request.name());
                     }
                 } catch (IOException e) {
-                    onGoingRecovery.openIndexOutputs.remove(request.name());
+                    removeOpenIndexOutput(onGoingRecovery, request.name());
                     try {
                         indexOutput.close();
                     } catch (IOException e1) {
@@ -442,6 +517,7 @@ public class RecoveryTarget extends AbstractComponent {
                     throw e;
                 }
             }
+            onGoingRecovery.throttledNanos.addAndGet(recoveryThrottle.pause(request.contentLength()));
             channel.sendResponse(VoidStreamable.INSTANCE);
         }
     }
@@ -26,7 +26,9 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.index.translog.Translog;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.Map;
 
@@ -45,6 +47,8 @@ public class StartRecoveryRequest implements Streamable {
 
     private Map<String, StoreFileMetaData> existingFiles;
 
+    private Translog.HistoryPosition historyPosition;
+
     StartRecoveryRequest() {
     }
 
@@ -56,13 +60,16 @@ public class StartRecoveryRequest implements Streamable {
      * @param targetNode      Teh node to recover to
      * @param markAsRelocated
      * @param existingFiles
+     * @param historyPosition The position in the primary shard history the existing files include, if known
      */
-    public StartRecoveryRequest(ShardId shardId, DiscoveryNode sourceNode, DiscoveryNode targetNode, boolean markAsRelocated, Map<String, StoreFileMetaData> existingFiles) {
+    public StartRecoveryRequest(ShardId shardId, DiscoveryNode sourceNode, DiscoveryNode targetNode, boolean markAsRelocated, Map<String, StoreFileMetaData> existingFiles,
+                                @Nullable Translog.HistoryPosition historyPosition) {
         this.shardId = shardId;
         this.sourceNode = sourceNode;
         this.targetNode = targetNode;
         this.markAsRelocated = markAsRelocated;
         this.existingFiles = existingFiles;
+        this.historyPosition = historyPosition;
     }
 
     public ShardId shardId() {
@@ -85,6 +92,10 @@ public class StartRecoveryRequest implements Streamable {
         return existingFiles;
     }
 
+    @Nullable public Translog.HistoryPosition historyPosition() {
+        return historyPosition;
+    }
+
     @Override public void readFrom(StreamInput in) throws IOException {
         shardId = ShardId.readShardId(in);
         sourceNode = DiscoveryNode.readNode(in);
@@ -96,6 +107,9 @@ public class StartRecoveryRequest implements Streamable {
             StoreFileMetaData md = StoreFileMetaData.readStoreFileMetaData(in);
             existingFiles.put(md.name(), md);
         }
+        if (in.readBoolean()) {
+            historyPosition = Translog.HistoryPosition.readHistoryPosition(in);
+        }
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
@@ -107,5 +121,11 @@ public class StartRecoveryRequest implements Streamable {
         for (StoreFileMetaData md : existingFiles.values()) {
             md.writeTo(out);
         }
+        if (historyPosition == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            historyPosition.writeTo(out);
+        }
     }
 }
@@ -69,6 +69,8 @@ public interface IndexShard extends IndexShardComponent, CloseableComponent {
 
     byte[] get(String type, String id) throws ElasticSearchException;
 
+    Engine.GetResult get(Engine.Get get) throws ElasticSearchException;
+
     long count(float minScore, byte[] querySource, @Nullable String queryParserName, String... types) throws ElasticSearchException;
 
     long count(float minScore, byte[] querySource, int querySourceOffset, int querySourceLength, @Nullable String queryParserName, String... types) throws ElasticSearchException;
@@ -85,6 +87,13 @@ public interface IndexShard extends IndexShardComponent, CloseableComponent {
 
     Engine.Searcher searcher();
 
+    /**
+     * Acquires a searcher to execute a search request with. Unlike {@link #searcher()}, marks the shard as
+     * being searched, refreshing it first if it has pending changes that were not refreshed while it was
+     * search idle.
+     */
+    Engine.Searcher searcherForSearch();
+
     /**
      * Returns <tt>true</tt> if this shard can ignore a recovery attempt made to it (since the already doing/done it)
      */
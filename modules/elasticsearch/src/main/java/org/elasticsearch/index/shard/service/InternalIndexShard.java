@@ -29,6 +29,7 @@ import org.apache.lucene.util.ThreadInterruptedException;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
+import org.elasticsearch.ElasticSearchInterruptedException;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.inject.Inject;
@@ -49,13 +50,20 @@ import org.elasticsearch.index.shard.*;
 import org.elasticsearch.index.shard.recovery.RecoveryStatus;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.recovery.IndicesRecoveryThrottle;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.index.mapper.SourceToParse.*;
 
@@ -67,6 +75,8 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
 
     private final ThreadPool threadPool;
 
+    private final IndicesRecoveryThrottle recoveryThrottle;
+
     private final MapperService mapperService;
 
     private final IndexQueryParserService queryParserService;
@@ -84,6 +94,21 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
 
     private final boolean checkIndex;
 
+    private final boolean lazyRefresh;
+
+    private final TimeValue searchIdleAfter;
+
+    // the number of threads recovered operations are applied with
+    private final int replayConcurrency;
+
+    private volatile long lastSearchTime = System.currentTimeMillis();
+
+    private final AtomicLong refreshesPerformed = new AtomicLong();
+
+    private final AtomicLong refreshesSkipped = new AtomicLong();
+
+    private final AtomicLong onDemandRefreshes = new AtomicLong();
+
     private volatile IndexShardState state;
 
     private ScheduledFuture refreshScheduledFuture;
@@ -93,12 +118,14 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     private RecoveryStatus peerRecoveryStatus;
 
     @Inject public InternalIndexShard(ShardId shardId, @IndexSettings Settings indexSettings, Store store, Engine engine, Translog translog,
-                                      ThreadPool threadPool, MapperService mapperService, IndexQueryParserService queryParserService, IndexCache indexCache) {
+                                      ThreadPool threadPool, IndicesRecoveryThrottle recoveryThrottle, MapperService mapperService, IndexQueryParserService queryParserService,
+                                      IndexCache indexCache) {
         super(shardId, indexSettings);
         this.store = store;
         this.engine = engine;
         this.translog = translog;
         this.threadPool = threadPool;
+        this.recoveryThrottle = recoveryThrottle;
         this.mapperService = mapperService;
         this.queryParserService = queryParserService;
         this.indexCache = indexCache;
@@ -106,6 +133,10 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         logger.debug("state: [CREATED]");
 
         this.checkIndex = indexSettings.getAsBoolean("index.shard.check_index", false);
+        // when lazy, scheduled refreshes are skipped for shards that were not searched recently
+        this.lazyRefresh = indexSettings.getAsBoolean("index.shard.refresh.lazy", false);
+        this.searchIdleAfter = indexSettings.getAsTime("index.shard.refresh.search_idle_after", TimeValue.timeValueSeconds(30));
+        this.replayConcurrency = Math.max(1, indexSettings.getAsInt("index.shard.recovery.replay_concurrency", Math.min(4, Runtime.getRuntime().availableProcessors())));
     }
 
     public Store store() {
@@ -324,6 +355,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         }
     }
 
+    @Override public Engine.GetResult get(Engine.Get get) throws ElasticSearchException {
+        readAllowed();
+        return engine.get(get);
+    }
+
     @Override public long count(float minScore, byte[] querySource, @Nullable String queryParserName, String... types) throws ElasticSearchException {
         return count(minScore, querySource, 0, querySource.length, queryParserName, types);
     }
@@ -343,6 +379,7 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         // Don't cache it, since it might be very different queries each time...
 //        query = new ConstantScoreQuery(filterCache.cache(new QueryWrapperFilter(query)));
         query = filterByTypesIfNeeded(query, types);
+        markSearched();
         Engine.Searcher searcher = engine.searcher();
         try {
             long count = Lucene.count(searcher.searcher(), query, minScore);
@@ -400,6 +437,66 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         return engine.searcher();
     }
 
+    @Override public Engine.Searcher searcherForSearch() {
+        readAllowed();
+        markSearched();
+        return engine.searcher();
+    }
+
+    /**
+     * The number of refreshes that made changes visible, scheduled or on demand.
+     */
+    public long refreshesPerformed() {
+        return refreshesPerformed.get();
+    }
+
+    /**
+     * The number of scheduled refreshes skipped since the shard was search idle.
+     */
+    public long refreshesSkipped() {
+        return refreshesSkipped.get();
+    }
+
+    /**
+     * The number of refreshes performed when a search arrived on a search idle shard with pending changes.
+     */
+    public long onDemandRefreshes() {
+        return onDemandRefreshes.get();
+    }
+
+    private boolean searchIdle() {
+        return lazyRefresh && (System.currentTimeMillis() - lastSearchTime) > searchIdleAfter.millis();
+    }
+
+    private void markSearched() {
+        if (searchIdle() && engine.refreshNeeded()) {
+            // scheduled refreshes were (possibly) skipped, make the pending changes visible to this search, waiting
+            // for an ongoing refresh instead of skipping it, since it might not include all of them
+            try {
+                if (refreshEngine(new Engine.Refresh(true))) {
+                    onDemandRefreshes.incrementAndGet();
+                }
+            } catch (EngineClosedException e) {
+                // the search will fail on its own
+            }
+        }
+        lastSearchTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Refreshes the engine, returning <tt>true</tt> if the refresh ran, <tt>false</tt> if it was skipped (for
+     * example, when not waiting for an ongoing refresh).
+     */
+    private boolean refreshEngine(Engine.Refresh refresh) throws EngineException {
+        long generation = engine.searcherGeneration();
+        engine.refresh(refresh);
+        if (engine.searcherGeneration() == generation) {
+            return false;
+        }
+        refreshesPerformed.incrementAndGet();
+        return true;
+    }
+
     @Override public void close() {
         synchronized (mutex) {
             if (state != IndexShardState.CLOSED) {
@@ -454,6 +551,151 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         translog.clearUnreferenced();
     }
 
+    /**
+     * Records that the shard includes all the operations of the primary shard history up to the provided
+     * position, once recovered from it, see {@link Engine#historyPosition(Translog.HistoryPosition)}.
+     */
+    public void recoveredUpTo(Translog.HistoryPosition historyPosition) {
+        engine.historyPosition(historyPosition);
+    }
+
+    /**
+     * Applies a batch of recovered operations. Operations are partitioned by uid, with each partition applied in
+     * order through the engine bulk path by its own thread, so operations on the same document keep their order.
+     * A delete by query is applied on its own, once all the operations before it were applied.
+     */
+    public void performRecoveryOperations(List<Translog.Operation> operations) throws ElasticSearchException {
+        if (state != IndexShardState.RECOVERING) {
+            throw new IndexShardNotRecoveringException(shardId, state);
+        }
+        int from = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            if (operations.get(i).opType() == Translog.Operation.Type.DELETE_BY_QUERY) {
+                applyRecoveryOperations(operations.subList(from, i));
+                performRecoveryOperation(operations.get(i));
+                from = i + 1;
+            }
+        }
+        applyRecoveryOperations(operations.subList(from, operations.size()));
+    }
+
+    private void applyRecoveryOperations(List<Translog.Operation> operations) throws ElasticSearchException {
+        if (operations.isEmpty()) {
+            return;
+        }
+        int partitionsCount = Math.min(replayConcurrency, operations.size());
+        if (partitionsCount == 1) {
+            applyRecoveryPartition(operations);
+            return;
+        }
+        final List<Translog.Operation>[] partitions = new List[partitionsCount];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new ArrayList<Translog.Operation>(operations.size() / partitionsCount + 1);
+        }
+        for (Translog.Operation operation : operations) {
+            partitions[(recoveryOperationUid(operation).hashCode() & 0x7fffffff) % partitionsCount].add(operation);
+        }
+        final CountDownLatch latch = new CountDownLatch(partitionsCount - 1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<List<Translog.Operation>> callingThreadPartitions = new ArrayList<List<Translog.Operation>>();
+        callingThreadPartitions.add(partitions[0]);
+        for (int i = 1; i < partitions.length; i++) {
+            final List<Translog.Operation> partition = partitions[i];
+            // the replay threads are bounded across the node, the calling thread applies the partitions getting none
+            if (!recoveryThrottle.tryAcquireReplayThread()) {
+                callingThreadPartitions.add(partition);
+                continue;
+            }
+            try {
+                threadPool.cached().execute(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            applyRecoveryPartition(partition);
+                        } catch (Throwable t) {
+                            failure.set(t);
+                        } finally {
+                            recoveryThrottle.releaseReplayThread();
+                            latch.countDown();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                recoveryThrottle.releaseReplayThread();
+                callingThreadPartitions.add(partition);
+            }
+        }
+        // the calling thread applies the first partition, and the ones not forked
+        for (int i = 0; i < callingThreadPartitions.size(); i++) {
+            if (failure.get() == null) {
+                try {
+                    applyRecoveryPartition(callingThreadPartitions.get(i));
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+            if (i > 0) {
+                latch.countDown();
+            }
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new ElasticSearchInterruptedException("interrupted while applying recovered operations", e);
+        }
+        if (failure.get() != null) {
+            if (failure.get() instanceof ElasticSearchException) {
+                throw (ElasticSearchException) failure.get();
+            }
+            throw new EngineException(shardId, "failed to apply recovered operations", failure.get());
+        }
+    }
+
+    private void applyRecoveryPartition(List<Translog.Operation> operations) throws ElasticSearchException {
+        Engine.Operation[] ops = new Engine.Operation[operations.size()];
+        for (int i = 0; i < ops.length; i++) {
+            Translog.Operation operation = operations.get(i);
+            switch (operation.opType()) {
+                case CREATE:
+                    Translog.Create create = (Translog.Create) operation;
+                    Engine.Create engineCreate = prepareCreate(source(create.source()).type(create.type()).id(create.id()).routing(create.routing()));
+                    // the replayed operation might already be part of the index
+                    engineCreate.mayHaveDuplicates(true);
+                    ops[i] = engineCreate;
+                    break;
+                case SAVE:
+                    Translog.Index index = (Translog.Index) operation;
+                    ops[i] = prepareIndex(source(index.source()).type(index.type()).id(index.id()).routing(index.routing()));
+                    break;
+                case DELETE:
+                    ops[i] = new Engine.Delete(((Translog.Delete) operation).uid());
+                    break;
+                default:
+                    throw new ElasticSearchIllegalStateException("No bulk operation defined for [" + operation + "]");
+            }
+        }
+        EngineException[] failures = engine.bulk(new Engine.Bulk(ops));
+        if (failures != null) {
+            for (EngineException failure : failures) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        }
+    }
+
+    private static String recoveryOperationUid(Translog.Operation operation) {
+        switch (operation.opType()) {
+            case CREATE:
+                return Uid.createUid(((Translog.Create) operation).type(), ((Translog.Create) operation).id());
+            case SAVE:
+                return Uid.createUid(((Translog.Index) operation).type(), ((Translog.Index) operation).id());
+            case DELETE:
+                return ((Translog.Delete) operation).uid().text();
+            default:
+                throw new ElasticSearchIllegalStateException("No uid for [" + operation + "]");
+        }
+    }
+
     public void performRecoveryOperation(Translog.Operation operation) throws ElasticSearchException {
         if (state != IndexShardState.RECOVERING) {
             throw new IndexShardNotRecoveringException(shardId, state);
@@ -461,7 +703,10 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         switch (operation.opType()) {
             case CREATE:
                 Translog.Create create = (Translog.Create) operation;
-                engine.create(prepareCreate(source(create.source()).type(create.type()).id(create.id()).routing(create.routing())));
+                Engine.Create engineCreate = prepareCreate(source(create.source()).type(create.type()).id(create.id()).routing(create.routing()));
+                // the replayed operation might already be part of the index
+                engineCreate.mayHaveDuplicates(true);
+                engine.create(engineCreate);
                 break;
             case SAVE:
                 Translog.Index index = (Translog.Index) operation;
@@ -523,7 +768,15 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
     private class EngineRefresher implements Runnable {
         @Override public void run() {
             try {
-                engine.refresh(new Engine.Refresh(false));
+                if (!engine.refreshNeeded()) {
+                    return;
+                }
+                if (searchIdle()) {
+                    // nobody searched the shard lately, leave it to the next search to refresh it
+                    refreshesSkipped.incrementAndGet();
+                    return;
+                }
+                refreshEngine(new Engine.Refresh(false));
             } catch (EngineClosedException e) {
                 // we are being closed, ignore
             } catch (RefreshFailedEngineException e) {
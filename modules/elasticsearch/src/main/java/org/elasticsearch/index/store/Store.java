@@ -37,6 +37,10 @@ public interface Store extends IndexShardComponent {
      */
     Directory directory();
 
+    /**
+     * Creates an output with no checksum computed, used when recovering files (the IO is accounted
+     * as {@link StoreIOStats.Purpose#RECOVERY}).
+     */
     IndexOutput createOutputWithNoChecksum(String name) throws IOException;
 
     void writeChecksum(String name, String checksum) throws IOException;
@@ -45,6 +49,11 @@ public interface Store extends IndexShardComponent {
 
     ImmutableMap<String, StoreFileMetaData> list() throws IOException;
 
+    /**
+     * The IO done through the store {@link #directory()}.
+     */
+    StoreIOStats ioStats();
+
     /**
      * Just deletes the content of the store.
      */
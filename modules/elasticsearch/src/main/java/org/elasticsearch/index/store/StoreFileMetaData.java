@@ -65,11 +65,16 @@ public class StoreFileMetaData implements Streamable {
         return this.checksum;
     }
 
+    /**
+     * Returns <tt>true</tt> if the other file has the same content. Files with the same name might come from
+     * different indices (a replica indexes on its own), so only files with the same length and checksum are
+     * considered the same.
+     */
     public boolean isSame(StoreFileMetaData other) {
-        if (checksum != null && other.checksum != null) {
-            return checksum.equals(other.checksum);
+        if (checksum == null || other.checksum == null) {
+            return false;
         }
-        return length == other.length;
+        return length == other.length && checksum.equals(other.checksum);
     }
 
     public static StoreFileMetaData readStoreFileMetaData(StreamInput in) throws IOException {
@@ -0,0 +1,264 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.lucene.store.SwitchDirectory;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.merge.Merges;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.*;
+
+/**
+ * The bytes and operations read and written through a {@link Store}, per file extension and per
+ * {@link Purpose}. Can also hold the sum of several stores stats (see {@link #add(StoreIOStats)}).
+ *
+ * @author kimchy (shay.banon)
+ */
+public class StoreIOStats implements Streamable, Serializable, ToXContent {
+
+    /**
+     * The purpose IO is done for, associated with the thread opening the file.
+     */
+    public static enum Purpose {
+        SEARCH,
+        MERGE,
+        FLUSH,
+        RECOVERY,
+        SNAPSHOT;
+
+        private static final ThreadLocal<Purpose> current = new ThreadLocal<Purpose>();
+
+        /**
+         * Marks the files opened by the current thread as used for the provided purpose, must be
+         * followed by {@link #end()}.
+         */
+        public static void start(Purpose purpose) {
+            current.set(purpose);
+        }
+
+        public static void end() {
+            current.remove();
+        }
+
+        /**
+         * The purpose the current thread was explicitly marked with, or <tt>null</tt> if not marked.
+         */
+        public static Purpose marked() {
+            return current.get();
+        }
+
+        /**
+         * The purpose of files opened by the current thread. Unless explicitly marked, files opened by
+         * merges are used for {@link #MERGE}, other files written are {@link #FLUSH}es and other files
+         * read are used for {@link #SEARCH}.
+         */
+        public static Purpose current(boolean write) {
+            Purpose purpose = current.get();
+            if (purpose != null) {
+                return purpose;
+            }
+            if (Merges.isMerging()) {
+                return MERGE;
+            }
+            return write ? FLUSH : SEARCH;
+        }
+    }
+
+    private static final int READ_BYTES = 0;
+    private static final int READ_OPS = 1;
+    private static final int WRITE_BYTES = 2;
+    private static final int WRITE_OPS = 3;
+    private static final int COUNTERS_PER_PURPOSE = 4;
+
+    private static final int NUMBER_OF_COUNTERS = Purpose.values().length * COUNTERS_PER_PURPOSE;
+
+    private final ConcurrentMap<String, AtomicLongArray> counters = newConcurrentMap();
+
+    /**
+     * The extension the stats of a file are kept under, <tt>segments</tt> for the segments files.
+     */
+    public static String extension(String fileName) {
+        if (fileName.startsWith("segments")) {
+            return "segments";
+        }
+        return SwitchDirectory.getExtension(fileName);
+    }
+
+    public void read(String extension, Purpose purpose, long bytes) {
+        AtomicLongArray extensionCounters = counters(extension);
+        extensionCounters.addAndGet(purpose.ordinal() * COUNTERS_PER_PURPOSE + READ_BYTES, bytes);
+        extensionCounters.incrementAndGet(purpose.ordinal() * COUNTERS_PER_PURPOSE + READ_OPS);
+    }
+
+    public void write(String extension, Purpose purpose, long bytes) {
+        AtomicLongArray extensionCounters = counters(extension);
+        extensionCounters.addAndGet(purpose.ordinal() * COUNTERS_PER_PURPOSE + WRITE_BYTES, bytes);
+        extensionCounters.incrementAndGet(purpose.ordinal() * COUNTERS_PER_PURPOSE + WRITE_OPS);
+    }
+
+    /**
+     * Adds the provided stats to this one.
+     */
+    public void add(StoreIOStats other) {
+        for (Map.Entry<String, AtomicLongArray> entry : other.counters.entrySet()) {
+            AtomicLongArray extensionCounters = counters(entry.getKey());
+            for (int i = 0; i < NUMBER_OF_COUNTERS; i++) {
+                extensionCounters.addAndGet(i, entry.getValue().get(i));
+            }
+        }
+    }
+
+    /**
+     * The extensions of the files IO was done on.
+     */
+    public Set<String> extensions() {
+        return counters.keySet();
+    }
+
+    public long readBytes(Purpose purpose) {
+        return total(purpose, READ_BYTES);
+    }
+
+    public long readBytes(String extension, Purpose purpose) {
+        return get(extension, purpose, READ_BYTES);
+    }
+
+    public long readOps(Purpose purpose) {
+        return total(purpose, READ_OPS);
+    }
+
+    public long readOps(String extension, Purpose purpose) {
+        return get(extension, purpose, READ_OPS);
+    }
+
+    public long writtenBytes(Purpose purpose) {
+        return total(purpose, WRITE_BYTES);
+    }
+
+    public long writtenBytes(String extension, Purpose purpose) {
+        return get(extension, purpose, WRITE_BYTES);
+    }
+
+    public long writeOps(Purpose purpose) {
+        return total(purpose, WRITE_OPS);
+    }
+
+    public long writeOps(String extension, Purpose purpose) {
+        return get(extension, purpose, WRITE_OPS);
+    }
+
+    private long total(Purpose purpose, int counter) {
+        long total = 0;
+        for (AtomicLongArray extensionCounters : counters.values()) {
+            total += extensionCounters.get(purpose.ordinal() * COUNTERS_PER_PURPOSE + counter);
+        }
+        return total;
+    }
+
+    private long get(String extension, Purpose purpose, int counter) {
+        AtomicLongArray extensionCounters = counters.get(extension);
+        if (extensionCounters == null) {
+            return 0;
+        }
+        return extensionCounters.get(purpose.ordinal() * COUNTERS_PER_PURPOSE + counter);
+    }
+
+    private AtomicLongArray counters(String extension) {
+        AtomicLongArray extensionCounters = counters.get(extension);
+        if (extensionCounters == null) {
+            extensionCounters = new AtomicLongArray(NUMBER_OF_COUNTERS);
+            AtomicLongArray existing = counters.putIfAbsent(extension, extensionCounters);
+            if (existing != null) {
+                extensionCounters = existing;
+            }
+        }
+        return extensionCounters;
+    }
+
+    public static StoreIOStats readStoreIOStats(StreamInput in) throws IOException {
+        StoreIOStats stats = new StoreIOStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            AtomicLongArray extensionCounters = counters(in.readUTF());
+            for (int j = 0; j < NUMBER_OF_COUNTERS; j++) {
+                extensionCounters.set(j, in.readVLong());
+            }
+        }
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        // copy, so the number of extensions written is consistent with the extensions themselves
+        Map<String, AtomicLongArray> counters = new HashMap<String, AtomicLongArray>(this.counters);
+        out.writeVInt(counters.size());
+        for (Map.Entry<String, AtomicLongArray> entry : counters.entrySet()) {
+            out.writeUTF(entry.getKey());
+            for (int i = 0; i < NUMBER_OF_COUNTERS; i++) {
+                out.writeVLong(entry.getValue().get(i));
+            }
+        }
+    }
+
+    @Override public void toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("io");
+        for (Purpose purpose : Purpose.values()) {
+            builder.startObject(purpose.name().toLowerCase());
+            builder.field("read_bytes", readBytes(purpose));
+            builder.field("read_ops", readOps(purpose));
+            builder.field("written_bytes", writtenBytes(purpose));
+            builder.field("write_ops", writeOps(purpose));
+            builder.endObject();
+        }
+        builder.startObject("extensions");
+        for (String extension : extensions()) {
+            builder.startObject(extension.length() == 0 ? "none" : extension);
+            for (Purpose purpose : Purpose.values()) {
+                if (readOps(extension, purpose) == 0 && writeOps(extension, purpose) == 0) {
+                    continue;
+                }
+                builder.startObject(purpose.name().toLowerCase());
+                builder.field("read_bytes", readBytes(extension, purpose));
+                builder.field("read_ops", readOps(extension, purpose));
+                builder.field("written_bytes", writtenBytes(extension, purpose));
+                builder.field("write_ops", writeOps(extension, purpose));
+                builder.endObject();
+            }
+            builder.endObject();
+        }
+        builder.endObject();
+        builder.endObject();
+    }
+}
@@ -20,7 +20,9 @@
 package org.elasticsearch.index.store;
 
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
+import org.elasticsearch.index.store.fs.HybridFsStore;
 import org.elasticsearch.jmx.MBean;
 import org.elasticsearch.jmx.ManagedAttribute;
 
@@ -56,4 +58,124 @@ public class StoreManagement extends AbstractIndexShardComponent {
             return "NA";
         }
     }
+
+    @ManagedAttribute(description = "Number of files open through memory mapping (hybrid_fs store only)")
+    public long getMmapOpenFiles() {
+        if (store instanceof HybridFsStore) {
+            return ((HybridFsStore) store).mmapDirectory().openFiles();
+        }
+        return -1;
+    }
+
+    @ManagedAttribute(description = "Size in bytes of the files open through memory mapping (hybrid_fs store only)")
+    public long getMmapOpenBytes() {
+        if (store instanceof HybridFsStore) {
+            return ((HybridFsStore) store).mmapDirectory().openBytes();
+        }
+        return -1;
+    }
+
+    @ManagedAttribute(description = "Number of files open through NIO (hybrid_fs store only)")
+    public long getNioOpenFiles() {
+        if (store instanceof HybridFsStore) {
+            return ((HybridFsStore) store).nioDirectory().openFiles();
+        }
+        return -1;
+    }
+
+    @ManagedAttribute(description = "Size in bytes of the files open through NIO (hybrid_fs store only)")
+    public long getNioOpenBytes() {
+        if (store instanceof HybridFsStore) {
+            return ((HybridFsStore) store).nioDirectory().openBytes();
+        }
+        return -1;
+    }
+
+    @ManagedAttribute(description = "Bytes read for search")
+    public long getSearchReadBytes() {
+        return store.ioStats().readBytes(StoreIOStats.Purpose.SEARCH);
+    }
+
+    @ManagedAttribute(description = "Bytes written for search")
+    public long getSearchWrittenBytes() {
+        return store.ioStats().writtenBytes(StoreIOStats.Purpose.SEARCH);
+    }
+
+    @ManagedAttribute(description = "Bytes read for merge")
+    public long getMergeReadBytes() {
+        return store.ioStats().readBytes(StoreIOStats.Purpose.MERGE);
+    }
+
+    @ManagedAttribute(description = "Bytes written for merge")
+    public long getMergeWrittenBytes() {
+        return store.ioStats().writtenBytes(StoreIOStats.Purpose.MERGE);
+    }
+
+    @ManagedAttribute(description = "Bytes read for flush")
+    public long getFlushReadBytes() {
+        return store.ioStats().readBytes(StoreIOStats.Purpose.FLUSH);
+    }
+
+    @ManagedAttribute(description = "Bytes written for flush")
+    public long getFlushWrittenBytes() {
+        return store.ioStats().writtenBytes(StoreIOStats.Purpose.FLUSH);
+    }
+
+    @ManagedAttribute(description = "Bytes read for recovery")
+    public long getRecoveryReadBytes() {
+        return store.ioStats().readBytes(StoreIOStats.Purpose.RECOVERY);
+    }
+
+    @ManagedAttribute(description = "Bytes written for recovery")
+    public long getRecoveryWrittenBytes() {
+        return store.ioStats().writtenBytes(StoreIOStats.Purpose.RECOVERY);
+    }
+
+    @ManagedAttribute(description = "Bytes read for snapshot")
+    public long getSnapshotReadBytes() {
+        return store.ioStats().readBytes(StoreIOStats.Purpose.SNAPSHOT);
+    }
+
+    @ManagedAttribute(description = "Bytes written for snapshot")
+    public long getSnapshotWrittenBytes() {
+        return store.ioStats().writtenBytes(StoreIOStats.Purpose.SNAPSHOT);
+    }
+
+    @ManagedAttribute(description = "Read operations (buffers filled)")
+    public long getReadOps() {
+        long ops = 0;
+        for (StoreIOStats.Purpose purpose : StoreIOStats.Purpose.values()) {
+            ops += store.ioStats().readOps(purpose);
+        }
+        return ops;
+    }
+
+    @ManagedAttribute(description = "Write operations (buffers flushed)")
+    public long getWriteOps() {
+        long ops = 0;
+        for (StoreIOStats.Purpose purpose : StoreIOStats.Purpose.values()) {
+            ops += store.ioStats().writeOps(purpose);
+        }
+        return ops;
+    }
+
+    @ManagedAttribute(description = "Bytes read and written per file extension and purpose")
+    public String getIoStatsByExtension() {
+        StoreIOStats ioStats = store.ioStats();
+        StringBuilder sb = new StringBuilder();
+        for (String extension : ioStats.extensions()) {
+            for (StoreIOStats.Purpose purpose : StoreIOStats.Purpose.values()) {
+                if (ioStats.readOps(extension, purpose) == 0 && ioStats.writeOps(extension, purpose) == 0) {
+                    continue;
+                }
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append('[').append(extension).append("][").append(purpose.name().toLowerCase()).append("] read [")
+                        .append(new ByteSizeValue(ioStats.readBytes(extension, purpose))).append("], written [")
+                        .append(new ByteSizeValue(ioStats.writtenBytes(extension, purpose))).append(']');
+            }
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,248 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.fs;
+
+import org.apache.lucene.store.*;
+import org.elasticsearch.cache.memory.BlockCache;
+import org.elasticsearch.common.collect.ImmutableSet;
+import org.elasticsearch.common.lucene.store.SwitchDirectory;
+import org.elasticsearch.index.store.support.ForceSyncDirectory;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.elasticsearch.common.util.concurrent.ConcurrentCollections.*;
+
+/**
+ * A directory reading files through the node level {@link BlockCache}, loading missing blocks from
+ * the delegate directory. Writes go directly to the delegate directory.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class BlockCacheDirectory extends Directory implements ForceSyncDirectory {
+
+    // makes sure blocks cached by a previous directory instance over the same location are never used
+    private static final AtomicLong directoryIdGenerator = new AtomicLong();
+
+    private final Directory delegate;
+
+    private final String cacheKeyPrefix;
+
+    private final BlockCache blockCache;
+
+    private final BlockCache.Stats stats;
+
+    private final ImmutableSet<String> extensions;
+
+    // the generation of each cached file, assigned when it is written through this directory or first opened, so blocks
+    // of a previous file with the same name are not used. Removed when the file is deleted, so the next file with the
+    // same name gets a new generation
+    private final ConcurrentMap<String, Long> generations = newConcurrentMap();
+
+    private final AtomicLong generationCounter = new AtomicLong();
+
+    /**
+     * @param cacheKeyPrefix the prefix of the cache keys of the directory files (for example, its path)
+     * @param extensions     the extensions of the files to cache, all files if empty
+     */
+    public BlockCacheDirectory(Directory delegate, String cacheKeyPrefix, BlockCache blockCache, BlockCache.Stats stats, Set<String> extensions) {
+        this.delegate = delegate;
+        this.cacheKeyPrefix = cacheKeyPrefix + "/" + directoryIdGenerator.incrementAndGet();
+        this.blockCache = blockCache;
+        this.stats = stats;
+        this.extensions = ImmutableSet.copyOf(extensions);
+        this.lockFactory = delegate.getLockFactory();
+    }
+
+    public Directory delegate() {
+        return delegate;
+    }
+
+    @Override public IndexInput openInput(String name) throws IOException {
+        return wrap(name, delegate.openInput(name));
+    }
+
+    @Override public IndexInput openInput(String name, int bufferSize) throws IOException {
+        return wrap(name, delegate.openInput(name, bufferSize));
+    }
+
+    private IndexInput wrap(String name, IndexInput in) {
+        if (!cached(name)) {
+            return in;
+        }
+        Long generation = generations.get(name);
+        if (generation == null) {
+            // a file not written through this directory
+            Long newGeneration = generationCounter.incrementAndGet();
+            generation = generations.putIfAbsent(name, newGeneration);
+            if (generation == null) {
+                generation = newGeneration;
+            }
+        }
+        return new BlockCacheIndexInput(in, cacheKeyPrefix + "/" + name, generation);
+    }
+
+    private boolean cached(String name) {
+        return extensions.isEmpty() || extensions.contains(SwitchDirectory.getExtension(name));
+    }
+
+    /**
+     * The number of files a generation is tracked for.
+     */
+    int trackedFiles() {
+        return generations.size();
+    }
+
+    @Override public IndexOutput createOutput(String name) throws IOException {
+        if (cached(name)) {
+            generations.put(name, generationCounter.incrementAndGet());
+        }
+        return delegate.createOutput(name);
+    }
+
+    @Override public void deleteFile(String name) throws IOException {
+        generations.remove(name);
+        delegate.deleteFile(name);
+    }
+
+    @Override public String[] listAll() throws IOException {
+        return delegate.listAll();
+    }
+
+    @Override public boolean fileExists(String name) throws IOException {
+        return delegate.fileExists(name);
+    }
+
+    @Override public long fileModified(String name) throws IOException {
+        return delegate.fileModified(name);
+    }
+
+    @Override public void touchFile(String name) throws IOException {
+        delegate.touchFile(name);
+    }
+
+    @Override public long fileLength(String name) throws IOException {
+        return delegate.fileLength(name);
+    }
+
+    @Override public void sync(String name) throws IOException {
+        delegate.sync(name);
+    }
+
+    @Override public void forceSync(String name) throws IOException {
+        if (delegate instanceof ForceSyncDirectory) {
+            ((ForceSyncDirectory) delegate).forceSync(name);
+        } else {
+            delegate.sync(name);
+        }
+    }
+
+    @Override public Lock makeLock(String name) {
+        return delegate.makeLock(name);
+    }
+
+    @Override public void clearLock(String name) throws IOException {
+        delegate.clearLock(name);
+    }
+
+    @Override public void setLockFactory(LockFactory lockFactory) {
+        delegate.setLockFactory(lockFactory);
+        this.lockFactory = lockFactory;
+    }
+
+    @Override public LockFactory getLockFactory() {
+        return delegate.getLockFactory();
+    }
+
+    @Override public String getLockID() {
+        return delegate.getLockID();
+    }
+
+    @Override public void close() throws IOException {
+        delegate.close();
+    }
+
+    private class BlockCacheIndexInput extends BufferedIndexInput {
+
+        private IndexInput delegate;
+
+        private final String file;
+
+        private final long generation;
+
+        private final long length;
+
+        // used to load missing blocks, not shared with clones
+        private byte[] blockBuffer;
+
+        BlockCacheIndexInput(IndexInput delegate, String file, long generation) {
+            this.delegate = delegate;
+            this.file = file;
+            this.generation = generation;
+            this.length = delegate.length();
+        }
+
+        @Override protected void readInternal(byte[] b, int offset, int len) throws IOException {
+            int blockSize = blockCache.blockSize();
+            long position = getFilePointer();
+            while (len > 0) {
+                long blockNumber = position / blockSize;
+                int blockOffset = (int) (position % blockSize);
+                BlockCache.Key key = new BlockCache.Key(file, generation, blockNumber, stats);
+                int read = blockCache.get(key, blockOffset, b, offset, len);
+                if (read == -1) {
+                    int blockLength = (int) Math.min(blockSize, length - blockNumber * blockSize);
+                    if (blockBuffer == null) {
+                        blockBuffer = new byte[blockSize];
+                    }
+                    delegate.seek(blockNumber * blockSize);
+                    delegate.readBytes(blockBuffer, 0, blockLength);
+                    blockCache.put(key, blockBuffer, blockLength);
+                    read = Math.min(len, blockLength - blockOffset);
+                    System.arraycopy(blockBuffer, blockOffset, b, offset, read);
+                }
+                position += read;
+                offset += read;
+                len -= read;
+            }
+        }
+
+        @Override protected void seekInternal(long pos) throws IOException {
+            // nothing to do here, blocks are read based on the file pointer
+        }
+
+        @Override public long length() {
+            return length;
+        }
+
+        @Override public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override public Object clone() {
+            BlockCacheIndexInput clone = (BlockCacheIndexInput) super.clone();
+            clone.delegate = (IndexInput) delegate.clone();
+            clone.blockBuffer = null;
+            return clone;
+        }
+    }
+}
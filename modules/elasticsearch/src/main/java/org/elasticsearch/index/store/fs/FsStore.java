@@ -20,7 +20,9 @@
 package org.elasticsearch.index.store.fs;
 
 import org.apache.lucene.store.*;
+import org.elasticsearch.cache.memory.BlockCache;
 import org.elasticsearch.cache.memory.ByteBufferCache;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.ImmutableSet;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.FileSystemUtils;
@@ -31,6 +33,7 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.memory.ByteBufferDirectory;
 import org.elasticsearch.index.store.support.AbstractStore;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
 
 import java.io.File;
 import java.io.IOException;
@@ -42,8 +45,10 @@ public abstract class FsStore extends AbstractStore {
 
     public static final boolean DEFAULT_SUGGEST_USE_COMPOUND_FILE = false;
 
-    public FsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore) {
-        super(shardId, indexSettings, indexStore);
+    private volatile ImmutableSet<String> memoryExtensions = ImmutableSet.of();
+
+    public FsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, IndicesMergeThrottle mergeThrottle) {
+        super(shardId, indexSettings, indexStore, mergeThrottle);
     }
 
     @Override public void fullDelete() throws IOException {
@@ -57,6 +62,21 @@ public abstract class FsStore extends AbstractStore {
 
     public abstract FSDirectory fsDirectory();
 
+    /**
+     * Returns the file on the file system holding the provided store file, or <tt>null</tt> if the
+     * store file is not stored on the file system (for example, when it is cached in memory).
+     */
+    public File physicalFile(String name) {
+        if (memoryExtensions.contains(SwitchDirectory.getExtension(name))) {
+            return null;
+        }
+        File file = new File(fsDirectory().getFile(), name);
+        if (!file.exists()) {
+            return null;
+        }
+        return file;
+    }
+
     protected LockFactory buildLockFactory() throws IOException {
         String fsLock = componentSettings.get("fs_lock", "native");
         LockFactory lockFactory = new NoLockFactory();
@@ -92,6 +112,19 @@ public abstract class FsStore extends AbstractStore {
         return lockFactory;
     }
 
+    /**
+     * Wraps the directory with a {@link BlockCacheDirectory} if the node level block cache is enabled and
+     * the index did not disable its usage.
+     */
+    protected Directory wrapBlockCacheIfNeeded(Directory fsDirectory, File location, BlockCache blockCache) {
+        if (!blockCache.enabled() || !componentSettings.getAsBoolean("block_cache.enabled", true)) {
+            return fsDirectory;
+        }
+        String[] extensions = componentSettings.getAsArray("block_cache.extensions", Strings.EMPTY_ARRAY);
+        logger.debug("using block cache with extensions [{}] (empty for all)", extensions);
+        return new BlockCacheDirectory(fsDirectory, location.getAbsolutePath(), blockCache, blockCache.stats(shardId.index().name()), ImmutableSet.copyOf(extensions));
+    }
+
     protected Tuple<SwitchDirectory, Boolean> buildSwitchDirectoryIfNeeded(Directory fsDirectory, ByteBufferCache byteBufferCache) {
         boolean cache = componentSettings.getAsBoolean("memory.enabled", false);
         if (!cache) {
@@ -111,6 +144,7 @@ public abstract class FsStore extends AbstractStore {
             }
         }
 
-        return new Tuple<SwitchDirectory, Boolean>(new SwitchDirectory(ImmutableSet.copyOf(primaryExtensions), memDir, fsDirectory, true), forceUseCompound);
+        memoryExtensions = ImmutableSet.copyOf(primaryExtensions);
+        return new Tuple<SwitchDirectory, Boolean>(new SwitchDirectory(memoryExtensions, memDir, fsDirectory, true), forceUseCompound);
     }
 }
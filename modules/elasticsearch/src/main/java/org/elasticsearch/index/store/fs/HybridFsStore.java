@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.fs;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockFactory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.elasticsearch.cache.memory.BlockCache;
+import org.elasticsearch.cache.memory.ByteBufferCache;
+import org.elasticsearch.common.collect.ImmutableSet;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.store.OpenFilesTrackingDirectory;
+import org.elasticsearch.common.lucene.store.SwitchDirectory;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.IndexStore;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A file system store memory mapping the (small, randomly accessed) files with the configured
+ * extensions, and reading the rest (mainly the large stored fields and term vectors files) using NIO,
+ * keeping the virtual address space used bounded. Compound files are not used, since all the files
+ * of a segment would end up in a single file.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class HybridFsStore extends FsStore {
+
+    // see http://lucene.apache.org/java/3_0_1/fileformats.html
+    public static final String[] DEFAULT_MMAP_EXTENSIONS = new String[]{"tis", "tii", "nrm", "del"};
+
+    private final NIOFSDirectory fsDirectory;
+
+    private final OpenFilesTrackingDirectory mmapDirectory;
+
+    private final OpenFilesTrackingDirectory nioDirectory;
+
+    private final Directory directory;
+
+    @Inject public HybridFsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, IndicesMergeThrottle mergeThrottle, ByteBufferCache byteBufferCache, BlockCache blockCache) throws IOException {
+        super(shardId, indexSettings, indexStore, mergeThrottle);
+        LockFactory lockFactory = buildLockFactory();
+        File location = ((FsIndexStore) indexStore).shardIndexLocation(shardId);
+        location.mkdirs();
+        // both directories work on the same location, sharing the lock factory
+        this.fsDirectory = new NIOFSDirectory(location, lockFactory);
+        // only the NIO side goes through the block cache, memory mapped files are already served from the OS cache
+        this.nioDirectory = new OpenFilesTrackingDirectory(wrapBlockCacheIfNeeded(fsDirectory, location, blockCache));
+        this.mmapDirectory = new OpenFilesTrackingDirectory(new MMapDirectory(location, lockFactory));
+
+        String[] mmapExtensions = componentSettings.getAsArray("hybrid.mmap.extensions", DEFAULT_MMAP_EXTENSIONS);
+        SwitchDirectory hybridDirectory = new SwitchDirectory(ImmutableSet.copyOf(mmapExtensions), mmapDirectory, nioDirectory, true);
+
+        if (indexSettings.getAsBoolean("index.compound_format", false)) {
+            logger.warn("using [hybrid_fs] store with compound format enabled, all files will be read using NIO");
+        }
+
+        Tuple<SwitchDirectory, Boolean> switchDirectory = buildSwitchDirectoryIfNeeded(hybridDirectory, byteBufferCache);
+        if (switchDirectory != null) {
+            logger.debug("using [hybrid_fs] store with path [{}], mmap extensions [{}], cache [true] with extensions [{}]", fsDirectory.getFile(), hybridDirectory.primaryExtensions(), switchDirectory.v1().primaryExtensions());
+            directory = wrapDirectory(switchDirectory.v1());
+        } else {
+            logger.debug("using [hybrid_fs] store with path [{}], mmap extensions [{}]", fsDirectory.getFile(), hybridDirectory.primaryExtensions());
+            directory = wrapDirectory(hybridDirectory);
+        }
+    }
+
+    @Override public FSDirectory fsDirectory() {
+        return fsDirectory;
+    }
+
+    @Override public Directory directory() {
+        return directory;
+    }
+
+    /**
+     * The directory memory mapping the files with the configured extensions.
+     */
+    public OpenFilesTrackingDirectory mmapDirectory() {
+        return mmapDirectory;
+    }
+
+    /**
+     * The directory reading the rest of the files using NIO.
+     */
+    public OpenFilesTrackingDirectory nioDirectory() {
+        return nioDirectory;
+    }
+
+    /**
+     * Returns <tt>false</tt>, compound files can't be split between the directories.
+     */
+    @Override public boolean suggestUseCompoundFile() {
+        return false;
+    }
+}
@@ -31,6 +31,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.IndexStore;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
 
 import java.io.File;
 import java.io.IOException;
@@ -46,8 +47,8 @@ public class MmapFsStore extends FsStore {
 
     private final boolean suggestUseCompoundFile;
 
-    @Inject public MmapFsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, ByteBufferCache byteBufferCache) throws IOException {
-        super(shardId, indexSettings, indexStore);
+    @Inject public MmapFsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, IndicesMergeThrottle mergeThrottle, ByteBufferCache byteBufferCache) throws IOException {
+        super(shardId, indexSettings, indexStore, mergeThrottle);
         LockFactory lockFactory = buildLockFactory();
         File location = ((FsIndexStore) indexStore).shardIndexLocation(shardId);
         location.mkdirs();
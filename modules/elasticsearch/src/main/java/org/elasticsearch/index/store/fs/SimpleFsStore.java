@@ -23,6 +23,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.LockFactory;
 import org.apache.lucene.store.SimpleFSDirectory;
+import org.elasticsearch.cache.memory.BlockCache;
 import org.elasticsearch.cache.memory.ByteBufferCache;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
@@ -31,6 +32,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.IndexStore;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
 
 import java.io.File;
 import java.io.IOException;
@@ -46,15 +48,17 @@ public class SimpleFsStore extends FsStore {
 
     private final boolean suggestUseCompoundFile;
 
-    @Inject public SimpleFsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, ByteBufferCache byteBufferCache) throws IOException {
-        super(shardId, indexSettings, indexStore);
+    @Inject public SimpleFsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, IndicesMergeThrottle mergeThrottle, ByteBufferCache byteBufferCache, BlockCache blockCache) throws IOException {
+        super(shardId, indexSettings, indexStore, mergeThrottle);
         LockFactory lockFactory = buildLockFactory();
         File location = ((FsIndexStore) indexStore).shardIndexLocation(shardId);
         location.mkdirs();
         this.fsDirectory = new SimpleFSDirectory(location, lockFactory);
 
+        Directory cachedDirectory = wrapBlockCacheIfNeeded(fsDirectory, location, blockCache);
+
         boolean suggestUseCompoundFile;
-        Tuple<SwitchDirectory, Boolean> switchDirectory = buildSwitchDirectoryIfNeeded(fsDirectory, byteBufferCache);
+        Tuple<SwitchDirectory, Boolean> switchDirectory = buildSwitchDirectoryIfNeeded(cachedDirectory, byteBufferCache);
         if (switchDirectory != null) {
             suggestUseCompoundFile = DEFAULT_SUGGEST_USE_COMPOUND_FILE;
             if (switchDirectory.v2() != null) {
@@ -64,7 +68,7 @@ public class SimpleFsStore extends FsStore {
             directory = wrapDirectory(switchDirectory.v1());
         } else {
             suggestUseCompoundFile = DEFAULT_SUGGEST_USE_COMPOUND_FILE;
-            directory = wrapDirectory(fsDirectory);
+            directory = wrapDirectory(cachedDirectory);
             logger.debug("using [simple_fs] store with path [{}]", fsDirectory.getFile());
         }
         this.suggestUseCompoundFile = suggestUseCompoundFile;
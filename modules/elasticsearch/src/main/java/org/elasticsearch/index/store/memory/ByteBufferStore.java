@@ -27,6 +27,7 @@ import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.support.AbstractStore;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
 
 import java.io.IOException;
 
@@ -37,8 +38,8 @@ public class ByteBufferStore extends AbstractStore {
 
     private final Directory directory;
 
-    @Inject public ByteBufferStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, ByteBufferCache byteBufferCache) throws IOException {
-        super(shardId, indexSettings, indexStore);
+    @Inject public ByteBufferStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, IndicesMergeThrottle mergeThrottle, ByteBufferCache byteBufferCache) throws IOException {
+        super(shardId, indexSettings, indexStore, mergeThrottle);
 
         this.directory = wrapDirectory(new ByteBufferDirectory(byteBufferCache));
         logger.debug("Using [byte_buffer] store");
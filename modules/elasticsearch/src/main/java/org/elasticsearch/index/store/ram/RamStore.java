@@ -27,6 +27,7 @@ import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.support.AbstractStore;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
 
 import java.io.IOException;
 
@@ -37,8 +38,8 @@ public class RamStore extends AbstractStore {
 
     private Directory directory;
 
-    @Inject public RamStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore) throws IOException {
-        super(shardId, indexSettings, indexStore);
+    @Inject public RamStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, IndicesMergeThrottle mergeThrottle) throws IOException {
+        super(shardId, indexSettings, indexStore, mergeThrottle);
         this.directory = wrapDirectory(new RAMDirectory());
         logger.debug("Using [ram] Store");
     }
@@ -29,12 +29,15 @@ import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.lucene.Directories;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.merge.Merges;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.index.store.StoreIOStats;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -56,16 +59,28 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
 
     private final boolean sync;
 
-    protected AbstractStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore) {
+    private final boolean trackIO;
+
+    private final StoreIOStats ioStats = new StoreIOStats();
+
+    private final IndicesMergeThrottle mergeThrottle;
+
+    protected AbstractStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore, IndicesMergeThrottle mergeThrottle) {
         super(shardId, indexSettings);
         this.indexStore = indexStore;
+        this.mergeThrottle = mergeThrottle;
         this.sync = componentSettings.getAsBoolean("sync", true); // TODO we don't really need to fsync when using shared gateway...
+        this.trackIO = componentSettings.getAsBoolean("io_stats", true);
     }
 
     protected Directory wrapDirectory(Directory dir) throws IOException {
         return new StoreDirectory(dir);
     }
 
+    @Override public StoreIOStats ioStats() {
+        return ioStats;
+    }
+
     @Override public ImmutableMap<String, StoreFileMetaData> list() throws IOException {
         ImmutableMap.Builder<String, StoreFileMetaData> builder = ImmutableMap.builder();
         for (String name : files) {
@@ -232,6 +247,14 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
 
         public IndexOutput createOutput(String name, boolean computeChecksum) throws IOException {
             IndexOutput out = delegate.createOutput(name);
+            if (trackIO) {
+                // outputs with no checksum are only created when recovering files
+                StoreIOStats.Purpose purpose = computeChecksum ? StoreIOStats.Purpose.current(true) : StoreIOStats.Purpose.RECOVERY;
+                out = new IOStatsIndexOutput(out, StoreIOStats.extension(name), purpose);
+            }
+            if (mergeThrottle != null && Merges.isMerging()) {
+                out = mergeThrottle.wrap(out);
+            }
             // delete the relevant cks file for an existing file, if exists
             if (filesMetadata.containsKey(name)) {
                 try {
@@ -249,7 +272,11 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
         }
 
         @Override public IndexInput openInput(String name) throws IOException {
-            return delegate.openInput(name);
+            IndexInput in = delegate.openInput(name);
+            if (trackIO) {
+                in = new IOStatsIndexInput(in, StoreIOStats.extension(name));
+            }
+            return in;
         }
 
         @Override public void close() throws IOException {
@@ -265,7 +292,11 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
         }
 
         @Override public IndexInput openInput(String name, int bufferSize) throws IOException {
-            return delegate.openInput(name, bufferSize);
+            IndexInput in = delegate.openInput(name, bufferSize);
+            if (trackIO) {
+                in = new IOStatsIndexInput(in, StoreIOStats.extension(name));
+            }
+            return in;
         }
 
         @Override public void clearLock(String name) throws IOException {
@@ -295,6 +326,8 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
         }
     }
 
+    private static final byte SEEK_MARKER = (byte) 0xFF;
+
     class StoreIndexOutput extends IndexOutput {
 
         private final IndexOutput delegate;
@@ -368,9 +401,15 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
 
         @Override public void seek(long pos) throws IOException {
             // seek might be called on files, which means that the checksum is not file checksum
-            // but a checksum of the bytes written to this stream, which is the same for each
-            // type of file in lucene
+            // but a checksum of the bytes written to this stream. The seek positions are part of it
+            // as well, so two files with the same checksum (and length) have the same content
             delegate.seek(pos);
+            if (digest != null) {
+                digest.update(SEEK_MARKER);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    digest.update((byte) (pos >> shift));
+                }
+            }
         }
 
         @Override public long length() throws IOException {
@@ -385,4 +424,134 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
             delegate.writeStringStringMap(map);
         }
     }
+
+    /**
+     * Counts the bytes read from the delegate without buffering them again. Single byte reads are not
+     * counted one by one, the bytes consumed since the last count are counted on the next bulk read,
+     * seek or close. Inputs opened or cloned by a thread marked with a purpose are counted under it, even
+     * when read by other threads, others under the purpose of the thread reading them.
+     */
+    class IOStatsIndexInput extends IndexInput {
+
+        private IndexInput delegate;
+
+        private final String extension;
+
+        // the purpose marked when opened or cloned, null to use the one of the reading thread
+        private StoreIOStats.Purpose purpose;
+
+        // the position up to which the bytes read were counted
+        private long countedPosition;
+
+        IOStatsIndexInput(IndexInput delegate, String extension) {
+            this.delegate = delegate;
+            this.extension = extension;
+            this.purpose = StoreIOStats.Purpose.marked();
+            this.countedPosition = delegate.getFilePointer();
+        }
+
+        @Override public byte readByte() throws IOException {
+            return delegate.readByte();
+        }
+
+        @Override public void readBytes(byte[] b, int offset, int len) throws IOException {
+            delegate.readBytes(b, offset, len);
+            count();
+        }
+
+        @Override public void readBytes(byte[] b, int offset, int len, boolean useBuffer) throws IOException {
+            delegate.readBytes(b, offset, len, useBuffer);
+            count();
+        }
+
+        @Override public long getFilePointer() {
+            return delegate.getFilePointer();
+        }
+
+        @Override public void seek(long pos) throws IOException {
+            count();
+            delegate.seek(pos);
+            countedPosition = pos;
+        }
+
+        @Override public long length() {
+            return delegate.length();
+        }
+
+        @Override public void close() throws IOException {
+            try {
+                count();
+            } finally {
+                delegate.close();
+            }
+        }
+
+        @Override public Object clone() {
+            IOStatsIndexInput clone = (IOStatsIndexInput) super.clone();
+            clone.delegate = (IndexInput) delegate.clone();
+            clone.countedPosition = clone.delegate.getFilePointer();
+            StoreIOStats.Purpose marked = StoreIOStats.Purpose.marked();
+            if (marked != null) {
+                clone.purpose = marked;
+            }
+            return clone;
+        }
+
+        private void count() {
+            long position = delegate.getFilePointer();
+            if (position > countedPosition) {
+                ioStats.read(extension, purpose != null ? purpose : StoreIOStats.Purpose.current(false), position - countedPosition);
+            }
+            countedPosition = position;
+        }
+    }
+
+    /**
+     * Counts the bytes written, and a write operation for each buffer flushed.
+     */
+    class IOStatsIndexOutput extends BufferedIndexOutput {
+
+        private final IndexOutput delegate;
+
+        private final String extension;
+
+        private final StoreIOStats.Purpose purpose;
+
+        IOStatsIndexOutput(IndexOutput delegate, String extension, StoreIOStats.Purpose purpose) {
+            this.delegate = delegate;
+            this.extension = extension;
+            this.purpose = purpose;
+        }
+
+        @Override protected void flushBuffer(byte[] b, int offset, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            delegate.writeBytes(b, offset, len);
+            ioStats.write(extension, purpose, len);
+        }
+
+        @Override public void seek(long pos) throws IOException {
+            super.seek(pos);
+            delegate.seek(pos);
+        }
+
+        @Override public long length() throws IOException {
+            flush();
+            return delegate.length();
+        }
+
+        @Override public void setLength(long length) throws IOException {
+            flush();
+            delegate.setLength(length);
+        }
+
+        @Override public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                delegate.close();
+            }
+        }
+    }
 }
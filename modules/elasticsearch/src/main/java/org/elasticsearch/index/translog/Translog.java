@@ -20,6 +20,7 @@
 package org.elasticsearch.index.translog;
 
 import org.apache.lucene.index.Term;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -34,6 +35,7 @@ import org.elasticsearch.index.shard.IndexShardComponent;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 
 /**
  * @author kimchy (shay.banon)
@@ -41,6 +43,18 @@ import java.io.InputStream;
 @ThreadSafe
 public interface Translog extends IndexShardComponent {
 
+    /**
+     * The key in the index commit user data holding the id of the transaction log the commit
+     * should be recovered with.
+     */
+    static final String TRANSLOG_ID_KEY = "translog_id";
+
+    /**
+     * Identifies the history of operations of this transaction log. Positions within the translog are
+     * only comparable between translogs with the same history id.
+     */
+    String historyId();
+
     /**
      * Returns the id of the current transaction log.
      */
@@ -64,14 +78,55 @@ public interface Translog extends IndexShardComponent {
 
     /**
      * Creates a new transaction log internally. Note, users of this class should make
-     * sure that no operations are performed on the trans log when this is called.
+     * sure that no operations are performed on the trans log when this is called. Previous
+     * transaction logs kept by {@link #rollTranslog(long)} are deleted.
      */
     void newTranslog(long id) throws TranslogException;
 
     /**
-     * Adds a create operation to the transaction log.
+     * Creates a new transaction log with the provided id, keeping the previous ones on disk (and
+     * readable by recovery) until {@link #releasePreviousTranslogs()} is called. Allows to roll the
+     * translog before the index commit covering its operations completed. Note, users of this class
+     * should make sure that no operations are performed on the trans log when this is called.
+     */
+    void rollTranslog(long id) throws TranslogException;
+
+    /**
+     * Releases the transaction logs kept by {@link #rollTranslog(long)}, once their operations have
+     * been committed to the index. The most recent ones might be retained for operation based recovery.
+     */
+    void releasePreviousTranslogs();
+
+    /**
+     * Returns <tt>true</tt> if the operations of the translog with the provided id are still available,
+     * either since it is the current one, or it is retained after being committed.
+     */
+    boolean hasHistory(long translogId);
+
+    /**
+     * Snapshots the translogs retained after being committed, starting with the one with the provided id,
+     * oldest first (the current translog is not included). Returns <tt>null</tt> if the provided translog
+     * is not available anymore (see {@link #hasHistory(long)}).
+     */
+    @Nullable Snapshot[] retainedSnapshots(long fromTranslogId) throws TranslogException;
+
+    /**
+     * Adds a create operation to the transaction log, returning the location it was written at.
+     */
+    Location add(Operation operation) throws TranslogException;
+
+    /**
+     * Adds a batch of operations to the transaction log as a single write (and a single sync, if
+     * required), returning the location of each operation. <tt>null</tt> operations are skipped,
+     * with a <tt>null</tt> location returned for them.
      */
-    void add(Operation operation) throws TranslogException;
+    Location[] add(Operation[] operations) throws TranslogException;
+
+    /**
+     * Reads back the operation written at the provided location. Returns <tt>null</tt> if the
+     * location belongs to a transaction log that is no longer kept.
+     */
+    @Nullable Operation read(Location location) throws TranslogException;
 
     /**
      * Snapshots the current transaction log allowing to safely iterate over the snapshot.
@@ -95,13 +150,160 @@ public interface Translog extends IndexShardComponent {
      */
     void sync();
 
-    void syncOnEachOperation(boolean syncOnEachOperation);
+    /**
+     * Writes the operations buffered in memory to the file, without fsync'ing it.
+     */
+    void flush();
+
+    /**
+     * The durability guarantee operations added to the translog get.
+     */
+    Durability durability();
+
+    void durability(Durability durability);
 
     /**
      * Closes the transaction log.
      */
     void close(boolean delete);
 
+    /**
+     * Controls when operations added to the translog are fsync'ed.
+     */
+    static enum Durability {
+        /**
+         * Operations are fsync'ed before {@link Translog#add(Operation)} returns. Concurrent adds
+         * share a single fsync.
+         */
+        REQUEST,
+        /**
+         * Operations are fsync'ed periodically, see <tt>index.translog.sync_interval</tt>.
+         */
+        INTERVAL,
+        /**
+         * Operations are never explicitly fsync'ed, the buffered ones are written to the file once
+         * <tt>index.translog.fs.buffer_size</tt> is reached, or periodically, see <tt>index.translog.sync_interval</tt>.
+         * Operations are not written to the file as they are added, so a JVM crash (and not only an OS
+         * crash) loses the ones added since the last write.
+         */
+        NONE;
+
+        public static Durability fromString(String durability) {
+            if ("request".equalsIgnoreCase(durability)) {
+                return REQUEST;
+            } else if ("interval".equalsIgnoreCase(durability)) {
+                return INTERVAL;
+            } else if ("none".equalsIgnoreCase(durability)) {
+                return NONE;
+            }
+            throw new ElasticSearchIllegalArgumentException("No translog durability for [" + durability + "]");
+        }
+    }
+
+    /**
+     * The location of an operation within a specific transaction log.
+     */
+    static class Location {
+
+        public final long translogId;
+
+        public final long translogLocation;
+
+        public final int size;
+
+        public Location(long translogId, long translogLocation, int size) {
+            this.translogId = translogId;
+            this.translogLocation = translogLocation;
+            this.size = size;
+        }
+
+        @Override public String toString() {
+            return "[" + translogId + "][" + translogLocation + "][" + size + "]";
+        }
+    }
+
+    /**
+     * A position in the history of operations of a transaction log, a shard known to include all the operations
+     * up to it can recover by replaying the operations following it.
+     */
+    static class HistoryPosition implements Streamable {
+
+        static final String HISTORY_ID_KEY = "history_id";
+
+        static final String HISTORY_TRANSLOG_ID_KEY = "history_translog_id";
+
+        static final String HISTORY_POSITION_KEY = "history_position";
+
+        private String historyId;
+
+        private long translogId;
+
+        private long position;
+
+        HistoryPosition() {
+        }
+
+        public HistoryPosition(String historyId, long translogId, long position) {
+            this.historyId = historyId;
+            this.translogId = translogId;
+            this.position = position;
+        }
+
+        public String historyId() {
+            return this.historyId;
+        }
+
+        public long translogId() {
+            return this.translogId;
+        }
+
+        public long position() {
+            return this.position;
+        }
+
+        /**
+         * Adds the position to index commit user data.
+         */
+        public void toCommitUserData(Map<String, String> userData) {
+            userData.put(HISTORY_ID_KEY, historyId);
+            userData.put(HISTORY_TRANSLOG_ID_KEY, Long.toString(translogId));
+            userData.put(HISTORY_POSITION_KEY, Long.toString(position));
+        }
+
+        /**
+         * Reads the position from index commit user data, <tt>null</tt> if it's not there.
+         */
+        @Nullable public static HistoryPosition fromCommitUserData(@Nullable Map<String, String> userData) {
+            if (userData == null || !userData.containsKey(HISTORY_ID_KEY)) {
+                return null;
+            }
+            return new HistoryPosition(userData.get(HISTORY_ID_KEY), Long.parseLong(userData.get(HISTORY_TRANSLOG_ID_KEY)),
+                    Long.parseLong(userData.get(HISTORY_POSITION_KEY)));
+        }
+
+        public static HistoryPosition readHistoryPosition(StreamInput in) throws IOException {
+            HistoryPosition position = new HistoryPosition();
+            position.readFrom(in);
+            return position;
+        }
+
+        @Override public void readFrom(StreamInput in) throws IOException {
+            historyId = in.readUTF();
+            translogId = in.readVLong();
+            position = in.readVLong();
+        }
+
+        @Override public void writeTo(StreamOutput out) throws IOException {
+            out.writeUTF(historyId);
+            out.writeVLong(translogId);
+            out.writeVLong(position);
+        }
+
+        @Override public String toString() {
+            return "[" + historyId + "][" + translogId + "][" + position + "]";
+        }
+    }
+
     /**
      * A snapshot of the transaction log, allows to iterate over all the transaction log operations.
      */
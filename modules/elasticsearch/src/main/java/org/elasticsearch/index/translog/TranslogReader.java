@@ -0,0 +1,206 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.util.concurrent.NotThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads translog operations out of the raw bytes of a translog file. Handles both the checksummed
+ * format (a header, followed by <tt>[size][operation][crc32]</tt> records and sync markers) and the legacy
+ * format of size prefixed operations with no header.
+ *
+ * <p>The reader works on {@link ByteBuffer} windows of the file, positioned at a record boundary. When a
+ * window does not hold a complete record, {@link #next(java.nio.ByteBuffer, long)} returns <tt>null</tt>
+ * and {@link #requiredBytes()} tells how many bytes are needed to read it. Reading should stop once
+ * {@link #corrupted()} is set, everything read before that point is valid.
+ *
+ * @author kimchy (shay.banon)
+ */
+@NotThreadSafe
+public class TranslogReader {
+
+    public static final int HEADER_MAGIC = 0x3fd76c17;
+
+    public static final int VERSION_LEGACY = 0;
+
+    public static final int VERSION_CHECKSUMMED = 1;
+
+    public static final int CURRENT_VERSION = VERSION_CHECKSUMMED;
+
+    public static final int HEADER_SIZE = 8;
+
+    public static final int SYNC_MARKER = -1;
+
+    public static final int SYNC_MARKER_SIZE = 12;
+
+    /**
+     * Operations larger than this are considered a corrupted size header.
+     */
+    public static final int MAX_OPERATION_SIZE = 256 * 1024 * 1024;
+
+    /**
+     * Writes the header of a checksummed translog file into the buffer.
+     */
+    public static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(HEADER_MAGIC);
+        buffer.putInt(CURRENT_VERSION);
+    }
+
+    /**
+     * Writes a sync marker, recording its own position in the file so it can be validated on read.
+     */
+    public static void writeSyncMarker(ByteBuffer buffer, long position) {
+        buffer.putInt(SYNC_MARKER);
+        buffer.putLong(position);
+    }
+
+    /**
+     * Computes the checksum of a serialized operation.
+     */
+    public static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private int version = -1;
+
+    private boolean corrupted = false;
+
+    private int requiredBytes = 0;
+
+    private byte[] cachedData;
+
+    /**
+     * Reads the header of the translog from the start of the file, returning the number of bytes
+     * the header takes (<tt>0</tt> for a legacy translog). Returns <tt>-1</tt> if there are not
+     * enough bytes to decide.
+     */
+    public int readHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < 4) {
+            return -1;
+        }
+        int magic = buffer.getInt(buffer.position());
+        if (magic != HEADER_MAGIC) {
+            version = VERSION_LEGACY;
+            return 0;
+        }
+        if (buffer.remaining() < HEADER_SIZE) {
+            return -1;
+        }
+        buffer.getInt();
+        version = buffer.getInt();
+        if (version != VERSION_CHECKSUMMED) {
+            corrupted = true;
+        }
+        return HEADER_SIZE;
+    }
+
+    /**
+     * The version of the translog format, <tt>-1</tt> if the header has not been read yet.
+     */
+    public int version() {
+        return this.version;
+    }
+
+    /**
+     * Has a corrupted record been found, no more operations should be read.
+     */
+    public boolean corrupted() {
+        return this.corrupted;
+    }
+
+    /**
+     * The number of bytes, from the current buffer position, needed to read the next record, set
+     * when {@link #next(java.nio.ByteBuffer, long)} returns <tt>null</tt> and the reader is not corrupted.
+     */
+    public int requiredBytes() {
+        return this.requiredBytes;
+    }
+
+    /**
+     * Reads the next operation from the buffer, skipping sync markers. <tt>bufferFilePosition</tt> is the
+     * position in the file of the start of the buffer (index <tt>0</tt>). Returns <tt>null</tt> if no
+     * complete record is available, or if the record is corrupted, leaving the buffer positioned at the
+     * start of that record.
+     */
+    public Translog.Operation next(ByteBuffer buffer, long bufferFilePosition) {
+        if (version == -1) {
+            throw new IllegalStateException("translog header must be read first");
+        }
+        while (true) {
+            if (corrupted) {
+                return null;
+            }
+            int recordStart = buffer.position();
+            if (buffer.remaining() < 4) {
+                requiredBytes = 4;
+                return null;
+            }
+            int size = buffer.getInt(recordStart);
+            if (size == SYNC_MARKER && version != VERSION_LEGACY) {
+                if (buffer.remaining() < SYNC_MARKER_SIZE) {
+                    requiredBytes = SYNC_MARKER_SIZE;
+                    return null;
+                }
+                long markerPosition = buffer.getLong(recordStart + 4);
+                if (markerPosition != bufferFilePosition + recordStart) {
+                    corrupted = true;
+                    return null;
+                }
+                buffer.position(recordStart + SYNC_MARKER_SIZE);
+                continue;
+            }
+            if (size < 0 || size > MAX_OPERATION_SIZE) {
+                corrupted = true;
+                return null;
+            }
+            int recordSize = size + (version == VERSION_LEGACY ? 4 : 8);
+            if (buffer.remaining() < recordSize) {
+                requiredBytes = recordSize;
+                return null;
+            }
+            if (cachedData == null || cachedData.length < size) {
+                cachedData = new byte[size];
+            }
+            buffer.position(recordStart + 4);
+            buffer.get(cachedData, 0, size);
+            if (version != VERSION_LEGACY) {
+                int expectedChecksum = buffer.getInt();
+                if (checksum(cachedData, 0, size) != expectedChecksum) {
+                    buffer.position(recordStart);
+                    corrupted = true;
+                    return null;
+                }
+            }
+            try {
+                return TranslogStreams.readTranslogOperation(new BytesStreamInput(cachedData, 0, size));
+            } catch (Exception e) {
+                buffer.position(recordStart);
+                corrupted = true;
+                return null;
+            }
+        }
+    }
+}
@@ -51,8 +51,12 @@ public class TranslogService extends AbstractIndexShardComponent {
 
     private final TimeValue interval;
 
+    private final TimeValue syncInterval;
+
     private ScheduledFuture future;
 
+    private ScheduledFuture syncFuture;
+
     @Inject public TranslogService(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool, IndexShard indexShard, Translog translog) {
         super(shardId, indexSettings);
         this.threadPool = threadPool;
@@ -62,12 +66,45 @@ public class TranslogService extends AbstractIndexShardComponent {
         this.flushThreshold = componentSettings.getAsInt("flush_threshold", 5000);
         this.interval = componentSettings.getAsTime("interval", timeValueMillis(1000));
 
+        // the sync interval used to be set on the local gateway, use it if it is the one configured
+        TimeValue gatewaySync = indexSettings.getAsTime("index.gateway.local.sync", null);
+        if (gatewaySync != null && gatewaySync.millis() > 0) {
+            this.syncInterval = componentSettings.getAsTime("sync_interval", gatewaySync);
+        } else {
+            this.syncInterval = componentSettings.getAsTime("sync_interval", timeValueSeconds(1));
+        }
+
         this.future = threadPool.scheduleWithFixedDelay(new TranslogBasedFlush(), interval);
+        if (syncInterval.millis() > 0) {
+            this.syncFuture = threadPool.scheduleWithFixedDelay(new TranslogSync(), syncInterval);
+        }
     }
 
 
     public void close() {
         this.future.cancel(true);
+        if (syncFuture != null) {
+            this.syncFuture.cancel(false);
+        }
+    }
+
+    private class TranslogSync implements Runnable {
+        @Override public void run() {
+            if (indexShard.state() != IndexShardState.STARTED) {
+                return;
+            }
+            Translog.Durability durability = translog.durability();
+            try {
+                if (durability == Translog.Durability.INTERVAL) {
+                    translog.sync();
+                } else if (durability == Translog.Durability.NONE) {
+                    // don't leave operations only in memory, the OS will get them to disk
+                    translog.flush();
+                }
+            } catch (Exception e) {
+                logger.debug("failed to write translog on interval", e);
+            }
+        }
     }
 
     private class TranslogBasedFlush implements Runnable {
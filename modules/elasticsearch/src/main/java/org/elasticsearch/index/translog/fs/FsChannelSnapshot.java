@@ -21,10 +21,9 @@ package org.elasticsearch.index.translog.fs;
 
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.io.FileChannelInputStream;
-import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
-import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.index.translog.TranslogReader;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -33,10 +32,23 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 /**
+ * A translog snapshot reading operations using positional reads on the file channel. Large parts of
+ * the file are memory mapped and parsed in windows, reading stops at the last valid operation.
+ *
  * @author kimchy (shay.banon)
  */
 public class FsChannelSnapshot implements Translog.Snapshot {
 
+    /**
+     * The size of the memory mapped window operations are parsed from.
+     */
+    public static final int WINDOW_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Windows smaller than this are read into a heap buffer instead of being mapped.
+     */
+    private static final int MIN_MAP_SIZE = 64 * 1024;
+
     private final ShardId shardId;
 
     private final long id;
@@ -51,11 +63,15 @@ public class FsChannelSnapshot implements Translog.Snapshot {
 
     private final long length;
 
+    private final TranslogReader reader = new TranslogReader();
+
     private Translog.Operation lastOperationRead = null;
 
-    private int position = 0;
+    private long position = 0;
+
+    private ByteBuffer window;
 
-    private ByteBuffer cacheBuffer;
+    private long windowPosition;
 
     public FsChannelSnapshot(ShardId shardId, long id, RafReference raf, long length, int totalOperations, int snapshotOperations) throws FileNotFoundException {
         this.shardId = shardId;
@@ -95,37 +111,52 @@ public class FsChannelSnapshot implements Translog.Snapshot {
         return length - position;
     }
 
+    /**
+     * Returns <tt>true</tt> if reading stopped because of a corrupted operation, and not because
+     * the end of the snapshot was reached.
+     */
+    public boolean corrupted() {
+        return reader.corrupted();
+    }
+
     @Override public boolean hasNext() {
         try {
-            if (position > length) {
-                return false;
-            }
-            if (cacheBuffer == null) {
-                cacheBuffer = ByteBuffer.allocate(1024);
-            }
-            cacheBuffer.limit(4);
-            int bytesRead = channel.read(cacheBuffer, position);
-            if (bytesRead < 4) {
-                return false;
+            if (reader.version() == -1) {
+                // the header is always read from the start of the file, even if we seeked forward
+                int headerSize = reader.readHeader(readWindow(0, Math.min(TranslogReader.HEADER_SIZE, length)));
+                if (headerSize == -1) {
+                    return false;
+                }
+                if (position < headerSize) {
+                    position = headerSize;
+                }
+                window = null;
             }
-            cacheBuffer.flip();
-            int opSize = cacheBuffer.getInt();
-            position += 4;
-            if ((position + opSize) > length) {
-                // restore the position to before we read the opSize
-                position -= 4;
-                return false;
+            while (true) {
+                if (position >= length || reader.corrupted()) {
+                    return false;
+                }
+                if (window == null || position < windowPosition || position >= windowPosition + window.limit()) {
+                    mapWindow(position, WINDOW_SIZE);
+                }
+                window.position((int) (position - windowPosition));
+                Translog.Operation operation = reader.next(window, windowPosition);
+                // sync markers might have been skipped, so always move to where the reader stopped
+                position = windowPosition + window.position();
+                if (operation != null) {
+                    lastOperationRead = operation;
+                    return true;
+                }
+                if (reader.corrupted()) {
+                    return false;
+                }
+                if (position + reader.requiredBytes() > length) {
+                    // a partially written operation at the end, we are done
+                    return false;
+                }
+                // the operation crosses the window boundary, remap starting from it
+                mapWindow(position, Math.max(WINDOW_SIZE, reader.requiredBytes()));
             }
-            if (cacheBuffer.capacity() < opSize) {
-                cacheBuffer = ByteBuffer.allocate(opSize);
-            }
-            cacheBuffer.clear();
-            cacheBuffer.limit(opSize);
-            channel.read(cacheBuffer, position);
-            cacheBuffer.flip();
-            position += opSize;
-            lastOperationRead = TranslogStreams.readTranslogOperation(new BytesStreamInput(cacheBuffer.array(), 0, opSize));
-            return true;
         } catch (Exception e) {
             return false;
         }
@@ -140,7 +171,27 @@ public class FsChannelSnapshot implements Translog.Snapshot {
     }
 
     @Override public boolean release() throws ElasticSearchException {
+        window = null;
         raf.decreaseRefCount(true);
         return true;
     }
-}
\ No newline at end of file
+
+    private void mapWindow(long from, int size) throws IOException {
+        window = readWindow(from, Math.min(size, length - from));
+        windowPosition = from;
+    }
+
+    private ByteBuffer readWindow(long from, long size) throws IOException {
+        if (size >= MIN_MAP_SIZE) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, from, size);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
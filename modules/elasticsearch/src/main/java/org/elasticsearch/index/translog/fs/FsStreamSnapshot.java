@@ -20,15 +20,18 @@
 package org.elasticsearch.index.translog.fs;
 
 import org.elasticsearch.ElasticSearchException;
-import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogException;
-import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.index.translog.TranslogReader;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
+ * A translog snapshot reading operations from a stream over the file, in chunks of
+ * {@link FsChannelSnapshot#WINDOW_SIZE}. Reading stops at the last valid operation.
+ *
  * @author kimchy (shay.banon)
  */
 public class FsStreamSnapshot implements Translog.Snapshot {
@@ -47,11 +50,16 @@ public class FsStreamSnapshot implements Translog.Snapshot {
 
     private final DataInputStream dis;
 
+    private final TranslogReader reader = new TranslogReader();
+
     private Translog.Operation lastOperationRead = null;
 
-    private int position = 0;
+    private long position = 0;
+
+    // holds data read from the stream, starting at windowPosition in the file
+    private ByteBuffer window;
 
-    private byte[] cachedData;
+    private long windowPosition;
 
     public FsStreamSnapshot(ShardId shardId, long id, RafReference raf, long length, int totalOperations, int snapshotOperations) throws FileNotFoundException {
         this.shardId = shardId;
@@ -91,27 +99,56 @@ public class FsStreamSnapshot implements Translog.Snapshot {
         return length - position;
     }
 
+    /**
+     * Returns <tt>true</tt> if reading stopped because of a corrupted operation, and not because
+     * the end of the snapshot was reached.
+     */
+    public boolean corrupted() {
+        return reader.corrupted();
+    }
+
     @Override public boolean hasNext() {
         try {
-            if (position > length) {
-                return false;
+            if (reader.version() == -1) {
+                // the header is always read from the start of the file, using a positional read so the stream is not affected
+                ByteBuffer header = ByteBuffer.allocate((int) Math.min(TranslogReader.HEADER_SIZE, length));
+                while (header.hasRemaining()) {
+                    if (raf.raf().getChannel().read(header, header.position()) < 0) {
+                        break;
+                    }
+                }
+                header.flip();
+                int headerSize = reader.readHeader(header);
+                if (headerSize == -1) {
+                    return false;
+                }
+                if (position < headerSize) {
+                    dis.skipBytes((int) (headerSize - position));
+                    position = headerSize;
+                }
+                window = ByteBuffer.allocate(FsChannelSnapshot.WINDOW_SIZE);
+                window.limit(0);
+                windowPosition = position;
             }
-            int opSize = dis.readInt();
-            position += 4;
-            if ((position + opSize) > length) {
-                // restore the position to before we read the opSize
-                position -= 4;
-                return false;
+            while (true) {
+                if (position >= length || reader.corrupted()) {
+                    return false;
+                }
+                window.position((int) (position - windowPosition));
+                Translog.Operation operation = reader.next(window, windowPosition);
+                position = windowPosition + window.position();
+                if (operation != null) {
+                    lastOperationRead = operation;
+                    return true;
+                }
+                if (reader.corrupted()) {
+                    return false;
+                }
+                if (position + reader.requiredBytes() > length) {
+                    return false;
+                }
+                fillWindow(reader.requiredBytes());
             }
-            position += opSize;
-            if (cachedData == null) {
-                cachedData = new byte[opSize];
-            } else if (cachedData.length < opSize) {
-                cachedData = new byte[opSize];
-            }
-            dis.readFully(cachedData, 0, opSize);
-            lastOperationRead = TranslogStreams.readTranslogOperation(new BytesStreamInput(cachedData, 0, opSize));
-            return true;
         } catch (Exception e) {
             return false;
         }
@@ -128,6 +165,10 @@ public class FsStreamSnapshot implements Translog.Snapshot {
         } catch (IOException e) {
             throw new TranslogException(shardId, "failed to seek forward", e);
         }
+        if (window != null) {
+            window.limit(0);
+            windowPosition = position;
+        }
     }
 
     @Override public boolean release() throws ElasticSearchException {
@@ -139,4 +180,24 @@ public class FsStreamSnapshot implements Translog.Snapshot {
         raf.decreaseRefCount(true);
         return true;
     }
+
+    /**
+     * Moves the unread data to the start of the window, and reads more from the stream so at least
+     * <tt>requiredBytes</tt> are available from the current position.
+     */
+    private void fillWindow(int requiredBytes) throws IOException {
+        window.compact();
+        windowPosition = position;
+        if (window.capacity() < requiredBytes) {
+            ByteBuffer newWindow = ByteBuffer.allocate(requiredBytes);
+            window.flip();
+            newWindow.put(window);
+            window = newWindow;
+        }
+        long endOfWindow = windowPosition + window.position();
+        int toRead = (int) Math.min(window.remaining(), length - endOfWindow);
+        dis.readFully(window.array(), window.position(), toRead);
+        window.position(window.position() + toRead);
+        window.flip();
+    }
 }
@@ -19,50 +19,103 @@
 
 package org.elasticsearch.index.translog.fs;
 
+import org.elasticsearch.common.UUID;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ThreadSafe;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogException;
+import org.elasticsearch.index.translog.TranslogReader;
 import org.elasticsearch.index.translog.TranslogStreams;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * A file system based translog. Operations are appended to an in memory buffer and written
+ * to the file in batches, by a single thread at a time, with the fsync (if required by the
+ * {@link Durability}) happening outside of the lock adding operations. With {@link Durability#REQUEST},
+ * concurrent writers waiting for their operations to be synced share a single fsync (group commit).
+ * <p/>
+ * Note, with {@link Durability#NONE}, operations are only handed to the OS once the buffer fills up, or every
+ * <tt>index.translog.sync_interval</tt>, so a JVM crash loses the operations buffered since the last write.
+ *
  * @author kimchy (shay.banon)
  */
+@ThreadSafe
 public class FsTranslog extends AbstractIndexShardComponent implements Translog {
 
     private final File location;
 
     private final boolean useStream;
 
+    // guards the buffer, the current raf, and the translog positions
     private final Object mutex = new Object();
 
-    private boolean syncOnEachOperation = false;
+    // serializes writing the buffer to the file and syncing it, always acquired before the mutex
+    private final Object flushMutex = new Object();
+
+    private final int bufferSize;
+
+    private volatile Durability durability;
 
     private volatile long id = 0;
 
     private final AtomicInteger operationCounter = new AtomicInteger();
 
+    // the logical end of the current translog, including operations still in the buffer
     private long lastPosition = 0;
 
+    // the position up to which the current translog was written to the file
+    private volatile long writtenPosition = 0;
+
+    // the position up to which the current translog was fsync'ed
+    private volatile long syncedPosition = 0;
+
+    private BytesStreamOutput buffer;
+
+    // only accessed under the flushMutex, swapped with the buffer when writing it
+    private BytesStreamOutput spareBuffer;
+
     private RafReference raf;
 
+    // translogs rolled with rollTranslog whose operations are not committed to the index yet
+    private final List<Generation> previousTranslogs = new ArrayList<Generation>();
+
+    // committed translogs kept for operation based recovery, oldest first
+    private final LinkedList<Generation> retainedTranslogs = new LinkedList<Generation>();
+
+    private final int retainedGenerations;
+
+    private final String historyId = UUID.randomBase64UUID();
+
     @Inject public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, NodeEnvironment nodeEnv) {
         super(shardId, indexSettings);
         this.location = new File(nodeEnv.shardLocation(shardId), "translog");
         this.location.mkdirs();
         this.useStream = componentSettings.getAsBoolean("use_stream", false);
+        this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", new ByteSizeValue(64, ByteSizeUnit.KB)).bytes();
+        this.durability = Durability.fromString(componentSettings.get("durability", Durability.NONE.toString()));
+        this.retainedGenerations = componentSettings.getAsInt("retention.generations", 3);
+        this.buffer = new BytesStreamOutput(bufferSize);
+        this.spareBuffer = new BytesStreamOutput(bufferSize);
     }
 
     public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, File location) {
@@ -74,12 +127,21 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         this.location = location;
         this.location.mkdirs();
         this.useStream = useStream;
+        this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", new ByteSizeValue(64, ByteSizeUnit.KB)).bytes();
+        this.durability = Durability.fromString(componentSettings.get("durability", Durability.NONE.toString()));
+        this.retainedGenerations = componentSettings.getAsInt("retention.generations", 3);
+        this.buffer = new BytesStreamOutput(bufferSize);
+        this.spareBuffer = new BytesStreamOutput(bufferSize);
     }
 
     public File location() {
         return location;
     }
 
+    @Override public String historyId() {
+        return this.historyId;
+    }
+
     @Override public long currentId() {
         return this.id;
     }
@@ -89,7 +151,9 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     }
 
     @Override public ByteSizeValue estimateMemorySize() {
-        return new ByteSizeValue(0, ByteSizeUnit.BYTES);
+        synchronized (mutex) {
+            return new ByteSizeValue(buffer.size(), ByteSizeUnit.BYTES);
+        }
     }
 
     @Override public void clearUnreferenced() {
@@ -97,7 +161,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
             File[] files = location.listFiles();
             if (files != null) {
                 for (File file : files) {
-                    if (file.getName().equals("translog-" + id)) {
+                    if (file.getName().equals("translog-" + id) || isPrevious(file)) {
                         continue;
                     }
                     try {
@@ -111,108 +175,312 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     }
 
     @Override public void newTranslog() throws TranslogException {
-        synchronized (mutex) {
-            operationCounter.set(0);
-            lastPosition = 0;
-            this.id = id + 1;
-            if (raf != null) {
-                raf.decreaseRefCount(true);
-            }
-            try {
-                raf = new RafReference(new File(location, "translog-" + id));
-                raf.raf().setLength(0);
-            } catch (IOException e) {
-                raf = null;
-                throw new TranslogException(shardId, "translog not found", e);
+        synchronized (flushMutex) {
+            synchronized (mutex) {
+                innerNewTranslog(id + 1, false);
             }
         }
     }
 
     @Override public void newTranslog(long id) throws TranslogException {
+        synchronized (flushMutex) {
+            synchronized (mutex) {
+                innerNewTranslog(id, false);
+            }
+        }
+    }
+
+    @Override public void rollTranslog(long id) throws TranslogException {
+        synchronized (flushMutex) {
+            synchronized (mutex) {
+                innerNewTranslog(id, true);
+            }
+        }
+    }
+
+    @Override public void releasePreviousTranslogs() {
         synchronized (mutex) {
-            operationCounter.set(0);
-            lastPosition = 0;
-            this.id = id;
-            if (raf != null) {
-                raf.decreaseRefCount(true);
+            retainedTranslogs.addAll(previousTranslogs);
+            previousTranslogs.clear();
+            while (retainedTranslogs.size() > retainedGenerations) {
+                retainedTranslogs.removeFirst().raf.decreaseRefCount(true);
             }
+        }
+    }
+
+    @Override public boolean hasHistory(long translogId) {
+        synchronized (mutex) {
+            return translogId == this.id || findGeneration(translogId) != null;
+        }
+    }
+
+    @Override public Snapshot[] retainedSnapshots(long fromTranslogId) throws TranslogException {
+        synchronized (mutex) {
+            if (fromTranslogId == this.id) {
+                return new Snapshot[0];
+            }
+            if (findGeneration(fromTranslogId) == null) {
+                return null;
+            }
+            List<Snapshot> snapshots = new ArrayList<Snapshot>();
             try {
-                raf = new RafReference(new File(location, "translog-" + id));
-                // clean the file if it exists
-                raf.raf().setLength(0);
+                for (Generation generation : generations()) {
+                    if (generation.id < fromTranslogId) {
+                        continue;
+                    }
+                    generation.raf.increaseRefCount();
+                    if (useStream) {
+                        snapshots.add(new FsStreamSnapshot(shardId, generation.id, generation.raf, generation.length, generation.operations, generation.operations));
+                    } else {
+                        snapshots.add(new FsChannelSnapshot(shardId, generation.id, generation.raf, generation.length, generation.operations, generation.operations));
+                    }
+                }
+            } catch (Exception e) {
+                for (Snapshot snapshot : snapshots) {
+                    snapshot.release();
+                }
+                throw new TranslogException(shardId, "Failed to snapshot retained translogs", e);
+            }
+            return snapshots.toArray(new Snapshot[snapshots.size()]);
+        }
+    }
+
+    private void innerNewTranslog(long id, boolean keepPrevious) throws TranslogException {
+        if (raf != null) {
+            // write what we have to the old translog, snapshots might still be holding it
+            try {
+                writeBuffer();
+                if (keepPrevious) {
+                    // the rolled operations are committed to the index only later, and syncUpTo won't sync
+                    // them once the new id is published, so make them durable now
+                    raf.raf().getFD().sync();
+                    syncedPosition = writtenPosition;
+                }
             } catch (IOException e) {
-                raf = null;
-                throw new TranslogException(shardId, "translog not found", e);
+                if (keepPrevious) {
+                    throw new TranslogException(shardId, "failed to sync translog [" + this.id + "] before rolling it", e);
+                }
+                logger.debug("failed to write buffer to translog [{}] before rolling it", e, this.id);
             }
+            if (keepPrevious) {
+                previousTranslogs.add(new Generation(this.id, raf, lastPosition, operationCounter.get()));
+            } else {
+                raf.decreaseRefCount(true);
+            }
+        }
+        if (!keepPrevious) {
+            // the previous translogs are not kept, so neither is the history retained before them
+            for (Generation generation : generations()) {
+                generation.raf.decreaseRefCount(true);
+            }
+            previousTranslogs.clear();
+            retainedTranslogs.clear();
+        }
+        buffer.reset();
+        operationCounter.set(0);
+        this.id = id;
+        try {
+            raf = new RafReference(new File(location, "translog-" + id));
+            // clean the file if it exists
+            raf.raf().setLength(0);
+            ByteBuffer header = ByteBuffer.allocate(TranslogReader.HEADER_SIZE);
+            TranslogReader.writeHeader(header);
+            raf.raf().write(header.array());
+        } catch (IOException e) {
+            raf = null;
+            throw new TranslogException(shardId, "translog not found", e);
         }
+        lastPosition = TranslogReader.HEADER_SIZE;
+        writtenPosition = TranslogReader.HEADER_SIZE;
+        syncedPosition = TranslogReader.HEADER_SIZE;
     }
 
-    @Override public void add(Operation operation) throws TranslogException {
+    @Override public Location add(Operation operation) throws TranslogException {
+        Location location;
+        boolean bufferFull;
         try {
             BytesStreamOutput out = CachedStreamOutput.cachedBytes();
             out.writeInt(0); // marker for the size...
             TranslogStreams.writeTranslogOperation(out, operation);
+            int opSize = out.size() - 4;
+            out.writeInt(TranslogReader.checksum(out.unsafeByteArray(), 4, opSize));
             out.flush();
 
             int size = out.size();
             out.seek(0);
-            out.writeInt(size - 4);
+            out.writeInt(opSize);
 
             synchronized (mutex) {
-                raf.raf().write(out.unsafeByteArray(), 0, size);
-                if (syncOnEachOperation) {
-                    sync();
-                }
+                // the location points past the size header, directly at the operation bytes
+                location = new Location(id, lastPosition + 4, opSize);
+                buffer.writeBytes(out.unsafeByteArray(), 0, size);
                 lastPosition += size;
                 operationCounter.incrementAndGet();
+                bufferFull = buffer.size() >= bufferSize;
             }
         } catch (Exception e) {
             throw new TranslogException(shardId, "Failed to write operation [" + operation + "]", e);
         }
+        if (durability == Durability.REQUEST) {
+            syncUpTo(location.translogId, location.translogLocation + location.size);
+        } else if (bufferFull) {
+            flush(location.translogId);
+        }
+        return location;
     }
 
-    @Override public Snapshot snapshot() throws TranslogException {
-        synchronized (mutex) {
-            try {
-                raf.increaseRefCount();
-                if (useStream) {
-                    return new FsStreamSnapshot(shardId, this.id, raf, lastPosition, operationCounter.get(), operationCounter.get());
-                } else {
-                    return new FsChannelSnapshot(shardId, this.id, raf, lastPosition, operationCounter.get(), operationCounter.get());
+    @Override public Location[] add(Operation[] operations) throws TranslogException {
+        Location[] locations = new Location[operations.length];
+        // the start of each operation record, relative to the start of the batch
+        int[] offsets = new int[operations.length];
+        int[] sizes = new int[operations.length];
+        long translogId;
+        long endPosition;
+        boolean bufferFull;
+        try {
+            BytesStreamOutput out = CachedStreamOutput.cachedBytes();
+            int count = 0;
+            for (int i = 0; i < operations.length; i++) {
+                if (operations[i] == null) {
+                    continue;
+                }
+                int start = out.size();
+                out.writeInt(0); // marker for the size...
+                TranslogStreams.writeTranslogOperation(out, operations[i]);
+                int opSize = out.size() - start - 4;
+                out.writeInt(TranslogReader.checksum(out.unsafeByteArray(), start + 4, opSize));
+                int end = out.size();
+                out.seek(start);
+                out.writeInt(opSize);
+                out.seek(end);
+                offsets[i] = start;
+                sizes[i] = opSize;
+                count++;
+            }
+            if (count == 0) {
+                return locations;
+            }
+            out.flush();
+
+            synchronized (mutex) {
+                translogId = id;
+                long batchPosition = lastPosition;
+                buffer.writeBytes(out.unsafeByteArray(), 0, out.size());
+                lastPosition += out.size();
+                endPosition = lastPosition;
+                operationCounter.addAndGet(count);
+                bufferFull = buffer.size() >= bufferSize;
+                for (int i = 0; i < operations.length; i++) {
+                    if (operations[i] != null) {
+                        locations[i] = new Location(translogId, batchPosition + offsets[i] + 4, sizes[i]);
+                    }
                 }
-            } catch (Exception e) {
-                throw new TranslogException(shardId, "Failed to snapshot", e);
             }
+        } catch (Exception e) {
+            throw new TranslogException(shardId, "Failed to write [" + operations.length + "] operations", e);
         }
+        if (durability == Durability.REQUEST) {
+            syncUpTo(translogId, endPosition);
+        } else if (bufferFull) {
+            flush(translogId);
+        }
+        return locations;
     }
 
-    @Override public Snapshot snapshot(Snapshot snapshot) {
+    @Override public Operation read(Location location) throws TranslogException {
+        if (location.translogId == this.id && location.translogLocation + location.size > writtenPosition) {
+            flush(location.translogId);
+        }
+        RafReference raf;
         synchronized (mutex) {
-            if (currentId() != snapshot.translogId()) {
-                return snapshot();
+            if (location.translogId == this.id) {
+                raf = this.raf;
+            } else {
+                // rolled and retained translogs are fully written to their file
+                Generation generation = findGeneration(location.translogId);
+                raf = generation == null ? null : generation.raf;
             }
-            try {
-                raf.increaseRefCount();
-                if (useStream) {
-                    FsStreamSnapshot newSnapshot = new FsStreamSnapshot(shardId, id, raf, lastPosition, operationCounter.get(), operationCounter.get() - snapshot.totalOperations());
-                    newSnapshot.seekForward(snapshot.position());
-                    return newSnapshot;
-                } else {
-                    FsChannelSnapshot newSnapshot = new FsChannelSnapshot(shardId, id, raf, lastPosition, operationCounter.get(), operationCounter.get() - snapshot.totalOperations());
-                    newSnapshot.seekForward(snapshot.position());
-                    return newSnapshot;
+            if (raf == null) {
+                return null;
+            }
+        }
+        try {
+            // positional reads don't move the file pointer used by writes, so no need to hold the mutex
+            // we read the checksum following the operation as well
+            byte[] data = new byte[location.size + 4];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(data);
+            FileChannel channel = raf.raf().getChannel();
+            while (byteBuffer.hasRemaining()) {
+                int bytesRead = channel.read(byteBuffer, location.translogLocation + byteBuffer.position());
+                if (bytesRead < 0) {
+                    throw new EOFException("read past EOF, location [" + location + "]");
+                }
+            }
+            if (TranslogReader.checksum(data, 0, location.size) != byteBuffer.getInt(location.size)) {
+                throw new TranslogException(shardId, "checksum mismatch reading operation at " + location);
+            }
+            return TranslogStreams.readTranslogOperation(new BytesStreamInput(data, 0, location.size));
+        } catch (ClosedChannelException e) {
+            // the translog got rolled and closed while reading
+            return null;
+        } catch (Exception e) {
+            throw new TranslogException(shardId, "Failed to read operation at " + location, e);
+        }
+    }
+
+    @Override public Snapshot snapshot() throws TranslogException {
+        synchronized (flushMutex) {
+            synchronized (mutex) {
+                try {
+                    // the snapshot reads from the file, make sure all operations it counts are there
+                    writeBuffer();
+                    raf.increaseRefCount();
+                    if (useStream) {
+                        return new FsStreamSnapshot(shardId, this.id, raf, lastPosition, operationCounter.get(), operationCounter.get());
+                    } else {
+                        return new FsChannelSnapshot(shardId, this.id, raf, lastPosition, operationCounter.get(), operationCounter.get());
+                    }
+                } catch (Exception e) {
+                    throw new TranslogException(shardId, "Failed to snapshot", e);
+                }
+            }
+        }
+    }
+
+    @Override public Snapshot snapshot(Snapshot snapshot) {
+        synchronized (flushMutex) {
+            synchronized (mutex) {
+                if (currentId() != snapshot.translogId()) {
+                    return snapshot();
+                }
+                try {
+                    writeBuffer();
+                    raf.increaseRefCount();
+                    if (useStream) {
+                        FsStreamSnapshot newSnapshot = new FsStreamSnapshot(shardId, id, raf, lastPosition, operationCounter.get(), operationCounter.get() - snapshot.totalOperations());
+                        newSnapshot.seekForward(snapshot.position());
+                        return newSnapshot;
+                    } else {
+                        FsChannelSnapshot newSnapshot = new FsChannelSnapshot(shardId, id, raf, lastPosition, operationCounter.get(), operationCounter.get() - snapshot.totalOperations());
+                        newSnapshot.seekForward(snapshot.position());
+                        return newSnapshot;
+                    }
+                } catch (Exception e) {
+                    throw new TranslogException(shardId, "Failed to snapshot", e);
                 }
-            } catch (Exception e) {
-                throw new TranslogException(shardId, "Failed to snapshot", e);
             }
         }
     }
 
     @Override public void sync() {
-        synchronized (mutex) {
+        synchronized (flushMutex) {
+            RafReference raf;
+            synchronized (mutex) {
+                raf = this.raf;
+            }
             if (raf != null) {
                 try {
-                    raf.raf().getFD().sync();
+                    innerSync(raf);
                 } catch (Exception e) {
                     // ignore
                 }
@@ -220,18 +488,208 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         }
     }
 
-    @Override public void syncOnEachOperation(boolean syncOnEachOperation) {
-        synchronized (mutex) {
-            this.syncOnEachOperation = syncOnEachOperation;
-        }
+    @Override public void flush() {
+        flush(this.id);
+    }
+
+    @Override public Durability durability() {
+        return this.durability;
+    }
+
+    @Override public void durability(Durability durability) {
+        this.durability = durability;
     }
 
     @Override public void close(boolean delete) {
+        synchronized (flushMutex) {
+            synchronized (mutex) {
+                if (raf != null) {
+                    if (!delete) {
+                        try {
+                            writeBuffer();
+                        } catch (IOException e) {
+                            logger.warn("failed to write buffer to translog [{}] on close", e, id);
+                        }
+                    }
+                    buffer.reset();
+                    raf.decreaseRefCount(delete);
+                    raf = null;
+                }
+                for (Generation generation : generations()) {
+                    generation.raf.decreaseRefCount(delete);
+                }
+                previousTranslogs.clear();
+                retainedTranslogs.clear();
+            }
+        }
+    }
+
+    // must be called under the mutex
+    private boolean isPrevious(File file) {
+        for (Generation generation : generations()) {
+            if (generation.raf.file().getName().equals(file.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // must be called under the mutex, the retained and previous translogs, oldest first
+    private List<Generation> generations() {
+        List<Generation> generations = new ArrayList<Generation>(retainedTranslogs.size() + previousTranslogs.size());
+        generations.addAll(retainedTranslogs);
+        generations.addAll(previousTranslogs);
+        return generations;
+    }
+
+    // must be called under the mutex
+    private Generation findGeneration(long translogId) {
+        for (Generation generation : generations()) {
+            if (generation.id == translogId) {
+                return generation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes sure the provided translog is synced at least up to the provided position. If another
+     * thread is already syncing, waits for it, and then only syncs if its position was not covered.
+     */
+    private void syncUpTo(long translogId, long position) throws TranslogException {
+        if (translogId != this.id || syncedPosition >= position) {
+            return;
+        }
+        synchronized (flushMutex) {
+            RafReference raf;
+            synchronized (mutex) {
+                // a new translog means the operation was committed to the index, or synced when the translog was rolled
+                if (translogId != this.id || this.raf == null) {
+                    return;
+                }
+                raf = this.raf;
+            }
+            if (syncedPosition >= position) {
+                return;
+            }
+            try {
+                innerSync(raf);
+            } catch (IOException e) {
+                throw new TranslogException(shardId, "Failed to sync translog", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffer to the provided translog file, if it is still the current one.
+     */
+    private void flush(long translogId) throws TranslogException {
+        synchronized (flushMutex) {
+            RafReference raf;
+            synchronized (mutex) {
+                if (translogId != this.id || this.raf == null) {
+                    return;
+                }
+                raf = this.raf;
+            }
+            try {
+                swapAndWriteBuffer(raf);
+            } catch (IOException e) {
+                throw new TranslogException(shardId, "Failed to write translog", e);
+            }
+        }
+    }
+
+    // must be called under the flushMutex
+    private void innerSync(RafReference raf) throws IOException {
+        swapAndWriteBuffer(raf, true);
+        long position = writtenPosition;
+        if (position == syncedPosition) {
+            // nothing was written since the last sync
+            return;
+        }
+        raf.raf().getFD().sync();
+        syncedPosition = position;
+    }
+
+    private void swapAndWriteBuffer(RafReference raf) throws IOException {
+        swapAndWriteBuffer(raf, false);
+    }
+
+    /**
+     * Swaps the buffer with the spare one, and writes it to the file without holding the mutex, allowing
+     * other operations to be added concurrently. Must be called under the flushMutex. When syncing, a sync
+     * marker is added after the buffered operations.
+     */
+    private void swapAndWriteBuffer(RafReference raf, boolean syncMarker) throws IOException {
+        BytesStreamOutput toWrite;
+        long position;
         synchronized (mutex) {
-            if (raf != null) {
-                raf.decreaseRefCount(delete);
-                raf = null;
+            if (buffer.size() == 0) {
+                return;
+            }
+            if (syncMarker) {
+                buffer.writeInt(TranslogReader.SYNC_MARKER);
+                buffer.writeLong(lastPosition);
+                lastPosition += TranslogReader.SYNC_MARKER_SIZE;
+            }
+            toWrite = buffer;
+            buffer = spareBuffer;
+            position = lastPosition;
+        }
+        try {
+            raf.raf().write(toWrite.unsafeByteArray(), 0, toWrite.size());
+        } catch (IOException e) {
+            // the operations were acknowledged, keep them ahead of the ones added since so the next write retries them
+            synchronized (mutex) {
+                toWrite.writeBytes(buffer.unsafeByteArray(), 0, buffer.size());
+                buffer.reset();
+                spareBuffer = buffer;
+                buffer = toWrite;
             }
+            // a partial write moved the file pointer, the retry writes from where the buffer starts
+            try {
+                raf.raf().seek(writtenPosition);
+            } catch (IOException e1) {
+                logger.warn("failed to reset translog [{}] position after a failed write", e1, id);
+            }
+            throw e;
+        }
+        writtenPosition = position;
+        toWrite.reset();
+        spareBuffer = toWrite;
+    }
+
+    /**
+     * Writes the buffer to the current file. Must be called under both the flushMutex and the mutex.
+     */
+    private void writeBuffer() throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        raf.raf().write(buffer.unsafeByteArray(), 0, buffer.size());
+        buffer.reset();
+        writtenPosition = lastPosition;
+    }
+
+    /**
+     * A translog that is not the current one anymore, with its final length and number of operations.
+     */
+    static class Generation {
+
+        final long id;
+
+        final RafReference raf;
+
+        final long length;
+
+        final int operations;
+
+        Generation(long id, RafReference raf, long length, int operations) {
+            this.id = id;
+            this.raf = raf;
+            this.length = length;
+            this.operations = operations;
         }
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.warmer;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.WarmerMetaData;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.AbstractIndexShardComponent;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.SearchService;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes the warmers registered in the index metadata against a new reader of the shard, before
+ * it is exposed to searches, so the first searches hitting it don't pay for loading caches.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class ShardIndexWarmerService extends AbstractIndexShardComponent {
+
+    private final ClusterService clusterService;
+
+    private final SearchService searchService;
+
+    private final boolean enabled;
+
+    private final AtomicLong totalWarms = new AtomicLong();
+
+    private final AtomicLong totalWarmTimeInMillis = new AtomicLong();
+
+    @Inject public ShardIndexWarmerService(ShardId shardId, @IndexSettings Settings indexSettings, ClusterService clusterService, SearchService searchService) {
+        super(shardId, indexSettings);
+        this.clusterService = clusterService;
+        this.searchService = searchService;
+        this.enabled = componentSettings.getAsBoolean("enabled", true);
+    }
+
+    /**
+     * Runs all the registered warmers against the provided searcher. The searcher is not released.
+     */
+    public void warm(final Engine.Searcher searcher) {
+        if (!enabled) {
+            return;
+        }
+        IndexMetaData indexMetaData = clusterService.state().metaData().index(shardId.index().name());
+        if (indexMetaData == null || indexMetaData.warmers().isEmpty()) {
+            return;
+        }
+        // the search context releases its searcher, make sure it won't release the one we were given
+        Engine.Searcher warmSearcher = new Engine.Searcher() {
+            @Override public IndexReader reader() {
+                return searcher.reader();
+            }
+
+            @Override public IndexSearcher searcher() {
+                return searcher.searcher();
+            }
+
+            @Override public boolean release() throws ElasticSearchException {
+                return true;
+            }
+        };
+        long start = System.currentTimeMillis();
+        for (WarmerMetaData warmerMd : indexMetaData.warmers().values()) {
+            try {
+                searchService.executeWarmer(shardId, warmerMd.types(), warmerMd.source(), warmSearcher);
+                if (logger.isTraceEnabled()) {
+                    logger.trace("warmed with [{}]", warmerMd.name());
+                }
+            } catch (Exception e) {
+                logger.warn("failed to warm with [{}]", e, warmerMd.name());
+            }
+        }
+        totalWarms.incrementAndGet();
+        totalWarmTimeInMillis.addAndGet(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * The number of times new readers were warmed.
+     */
+    public long totalWarms() {
+        return totalWarms.get();
+    }
+
+    /**
+     * The total time spent warming new readers.
+     */
+    public long totalWarmTimeInMillis() {
+        return totalWarmTimeInMillis.get();
+    }
+}
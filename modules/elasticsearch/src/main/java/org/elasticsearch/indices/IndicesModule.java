@@ -26,6 +26,8 @@ import org.elasticsearch.index.shard.recovery.RecoveryTarget;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
 import org.elasticsearch.indices.memory.IndexingMemoryBufferController;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
+import org.elasticsearch.indices.recovery.IndicesRecoveryThrottle;
 import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData;
 
 /**
@@ -49,6 +51,8 @@ public class IndicesModule extends AbstractModule {
 
         bind(IndicesClusterStateService.class).asEagerSingleton();
         bind(IndexingMemoryBufferController.class).asEagerSingleton();
+        bind(IndicesMergeThrottle.class).asEagerSingleton();
+        bind(IndicesRecoveryThrottle.class).asEagerSingleton();
         bind(IndicesAnalysisService.class).asEagerSingleton();
         bind(TransportNodesListShardStoreMetaData.class).asEagerSingleton();
     }
@@ -23,8 +23,10 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.store.StoreIOStats;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -38,11 +40,17 @@ public class IndicesStats implements Streamable, Serializable, ToXContent {
 
     private ByteSizeValue storeSize;
 
+    private TimeValue mergeThrottledTime;
+
+    private StoreIOStats storeIO;
+
     IndicesStats() {
     }
 
-    public IndicesStats(ByteSizeValue storeSize) {
+    public IndicesStats(ByteSizeValue storeSize, TimeValue mergeThrottledTime, StoreIOStats storeIO) {
         this.storeSize = storeSize;
+        this.mergeThrottledTime = mergeThrottledTime;
+        this.storeIO = storeIO;
     }
 
     /**
@@ -59,6 +67,34 @@ public class IndicesStats implements Streamable, Serializable, ToXContent {
         return storeSize;
     }
 
+    /**
+     * The total time merges on the node were paused by the merge throttle.
+     */
+    public TimeValue mergeThrottledTime() {
+        return this.mergeThrottledTime;
+    }
+
+    /**
+     * The total time merges on the node were paused by the merge throttle.
+     */
+    public TimeValue getMergeThrottledTime() {
+        return mergeThrottledTime;
+    }
+
+    /**
+     * The IO done by the stores of the shards allocated on the node.
+     */
+    public StoreIOStats storeIO() {
+        return this.storeIO;
+    }
+
+    /**
+     * The IO done by the stores of the shards allocated on the node.
+     */
+    public StoreIOStats getStoreIO() {
+        return storeIO;
+    }
+
     public static IndicesStats readIndicesStats(StreamInput in) throws IOException {
         IndicesStats stats = new IndicesStats();
         stats.readFrom(in);
@@ -67,16 +103,27 @@ public class IndicesStats implements Streamable, Serializable, ToXContent {
 
     @Override public void readFrom(StreamInput in) throws IOException {
         storeSize = ByteSizeValue.readBytesSizeValue(in);
+        mergeThrottledTime = TimeValue.readTimeValue(in);
+        storeIO = StoreIOStats.readStoreIOStats(in);
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
         storeSize.writeTo(out);
+        mergeThrottledTime.writeTo(out);
+        storeIO.writeTo(out);
     }
 
     @Override public void toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("indices");
         builder.field("store_size", storeSize.toString());
         builder.field("store_size_in_bytes", storeSize.bytes());
+        builder.startObject("merge");
+        builder.field("throttled_time", mergeThrottledTime.toString());
+        builder.field("throttled_time_in_millis", mergeThrottledTime.millis());
+        builder.endObject();
+        builder.startObject("store");
+        storeIO.toXContent(builder, params);
+        builder.endObject();
         builder.endObject();
     }
 }
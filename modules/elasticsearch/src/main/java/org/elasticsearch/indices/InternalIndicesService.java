@@ -54,7 +54,9 @@ import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.index.similarity.SimilarityModule;
 import org.elasticsearch.index.store.IndexStoreModule;
+import org.elasticsearch.index.store.StoreIOStats;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
+import org.elasticsearch.indices.merge.IndicesMergeThrottle;
 import org.elasticsearch.indices.store.IndicesStore;
 import org.elasticsearch.plugins.IndexPluginsModule;
 import org.elasticsearch.plugins.PluginsService;
@@ -88,6 +90,8 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
 
     private final IndicesStore indicesStore;
 
+    private final IndicesMergeThrottle mergeThrottle;
+
     private final Injector injector;
 
     private final PluginsService pluginsService;
@@ -96,13 +100,15 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
 
     private volatile ImmutableMap<String, IndexService> indices = ImmutableMap.of();
 
-    @Inject public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore, Injector injector) {
+    @Inject public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore,
+                                            IndicesMergeThrottle mergeThrottle, Injector injector) {
         super(settings);
         this.nodeEnv = nodeEnv;
         this.threadPool = threadPool;
         this.indicesLifecycle = (InternalIndicesLifecycle) indicesLifecycle;
         this.indicesAnalysisService = indicesAnalysisService;
         this.indicesStore = indicesStore;
+        this.mergeThrottle = mergeThrottle;
         this.injector = injector;
 
         this.pluginsService = injector.getInstance(PluginsService.class);
@@ -155,6 +161,7 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
 
     @Override public IndicesStats stats() {
         long totalSize = 0;
+        StoreIOStats storeIO = new StoreIOStats();
         for (IndexService indexService : indices.values()) {
             for (IndexShard indexShard : indexService) {
                 try {
@@ -162,9 +169,10 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
                 } catch (IOException e) {
                     // ignore
                 }
+                storeIO.add(((InternalIndexShard) indexShard).store().ioStats());
             }
         }
-        return new IndicesStats(new ByteSizeValue(totalSize));
+        return new IndicesStats(new ByteSizeValue(totalSize), mergeThrottle.throttledTime(), storeIO);
     }
 
     /**
@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.merge;
+
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.RateLimiter;
+import org.elasticsearch.common.lucene.store.RateLimitedIndexOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.jmx.MBean;
+import org.elasticsearch.jmx.ManagedAttribute;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the bytes per second written by merges across all the shards allocated on the node, so a
+ * large merge does not starve searches of IO. Disabled by default (<tt>max_bytes_per_sec</tt> of
+ * <tt>0</tt>), and can be changed at runtime.
+ *
+ * @author kimchy (shay.banon)
+ */
+@MBean(objectName = "service=indices,indicesType=mergeThrottle", description = "Merge IO throttling")
+public class IndicesMergeThrottle extends AbstractComponent {
+
+    private final RateLimiter rateLimiter;
+
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    private final RateLimitedIndexOutput.Listener pauseListener = new RateLimitedIndexOutput.Listener() {
+        @Override public void onPause(long nanos) {
+            throttledNanos.addAndGet(nanos);
+        }
+    };
+
+    @Inject public IndicesMergeThrottle(Settings settings) {
+        super(settings);
+        this.rateLimiter = new RateLimiter(componentSettings.getAsBytesSize("max_bytes_per_sec", new ByteSizeValue(0)));
+        logger.debug("using max_bytes_per_sec [{}]", rateLimiter.maxRate());
+    }
+
+    /**
+     * Wraps an output written by a merge. Outputs are wrapped even when throttling is disabled, so
+     * enabling it applies to the merges already running.
+     */
+    public IndexOutput wrap(IndexOutput out) {
+        return new RateLimitedIndexOutput(out, rateLimiter, pauseListener);
+    }
+
+    /**
+     * Changes the max bytes per second merges can write, <tt>0</tt> to disable throttling.
+     */
+    public void maxBytesPerSec(ByteSizeValue maxBytesPerSec) {
+        logger.info("updating max_bytes_per_sec from [{}] to [{}]", rateLimiter.maxRate(), maxBytesPerSec);
+        rateLimiter.setMaxRate(maxBytesPerSec);
+    }
+
+    public ByteSizeValue maxBytesPerSec() {
+        return rateLimiter.maxRate();
+    }
+
+    /**
+     * The total time merges were paused by the throttle.
+     */
+    public TimeValue throttledTime() {
+        return new TimeValue(throttledNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @ManagedAttribute(description = "Max bytes per second merges can write (0 for no limit)")
+    public String getMaxBytesPerSec() {
+        return maxBytesPerSec().toString();
+    }
+
+    @ManagedAttribute(description = "Max bytes per second merges can write (0 for no limit)")
+    public void setMaxBytesPerSec(String maxBytesPerSec) {
+        maxBytesPerSec(ByteSizeValue.parseBytesSizeValue(maxBytesPerSec));
+    }
+
+    @ManagedAttribute(description = "Total time merges were throttled (in millis)")
+    public long getThrottledTimeInMillis() {
+        return throttledTime().millis();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.RateLimiter;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.jmx.MBean;
+import org.elasticsearch.jmx.ManagedAttribute;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node level throttling of peer recoveries, shared by the recovery source and target. Limits the
+ * number of files concurrently sent (<tt>concurrent_streams</tt>) and received
+ * (<tt>concurrent_incoming_streams</tt>), and caps the bytes per second sent and received by all
+ * recoveries on the node (<tt>max_bytes_per_sec</tt>, <tt>0</tt> for no limit). All limits can be
+ * changed at runtime. Also bounds the threads replaying recovered operations in addition to the
+ * recovering threads themselves (<tt>replay_threads</tt>).
+ *
+ * @author kimchy (shay.banon)
+ */
+@MBean(objectName = "service=indices,indicesType=recoveryThrottle", description = "Recovery IO throttling")
+public class IndicesRecoveryThrottle extends AbstractComponent {
+
+    private final RateLimiter rateLimiter;
+
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    private final Object mutex = new Object();
+
+    private volatile int concurrentStreams;
+
+    private volatile int concurrentIncomingStreams;
+
+    private int outgoingStreams;
+
+    private int incomingStreams;
+
+    private final int replayThreads;
+
+    private int activeReplayThreads;
+
+    private final TimeValue retryDelay;
+
+    private final TimeValue retryTimeout;
+
+    @Inject public IndicesRecoveryThrottle(Settings settings) {
+        super(settings);
+        this.concurrentStreams = componentSettings.getAsInt("concurrent_streams", 5);
+        this.concurrentIncomingStreams = componentSettings.getAsInt("concurrent_incoming_streams", 5);
+        this.rateLimiter = new RateLimiter(componentSettings.getAsBytesSize("max_bytes_per_sec", new ByteSizeValue(0)));
+        this.retryDelay = componentSettings.getAsTime("retry_delay", TimeValue.timeValueMillis(100));
+        this.retryTimeout = componentSettings.getAsTime("retry_timeout", TimeValue.timeValueMinutes(30));
+        this.replayThreads = componentSettings.getAsInt("replay_threads", Runtime.getRuntime().availableProcessors());
+        logger.debug("using concurrent_streams [{}], concurrent_incoming_streams [{}], max_bytes_per_sec [{}]", concurrentStreams, concurrentIncomingStreams, rateLimiter.maxRate());
+    }
+
+    /**
+     * Waits until a file can be sent, must be followed by {@link #releaseOutgoingStream()}.
+     */
+    public void acquireOutgoingStream() throws InterruptedException {
+        synchronized (mutex) {
+            while (outgoingStreams >= concurrentStreams) {
+                mutex.wait();
+            }
+            outgoingStreams++;
+        }
+    }
+
+    public void releaseOutgoingStream() {
+        synchronized (mutex) {
+            outgoingStreams--;
+            mutex.notifyAll();
+        }
+    }
+
+    /**
+     * Tries to start receiving a file, returning <tt>false</tt> if too many files are already being
+     * received. When <tt>true</tt> is returned, must be followed by {@link #releaseIncomingStream()}.
+     */
+    public boolean tryAcquireIncomingStream() {
+        synchronized (mutex) {
+            if (incomingStreams >= concurrentIncomingStreams) {
+                return false;
+            }
+            incomingStreams++;
+            return true;
+        }
+    }
+
+    public void releaseIncomingStream() {
+        synchronized (mutex) {
+            incomingStreams--;
+        }
+    }
+
+    /**
+     * Tries to start replaying recovered operations on another thread, returning <tt>false</tt> if too many
+     * threads already are. When <tt>true</tt> is returned, must be followed by {@link #releaseReplayThread()}.
+     */
+    public boolean tryAcquireReplayThread() {
+        synchronized (mutex) {
+            if (activeReplayThreads >= replayThreads) {
+                return false;
+            }
+            activeReplayThreads++;
+            return true;
+        }
+    }
+
+    public void releaseReplayThread() {
+        synchronized (mutex) {
+            activeReplayThreads--;
+        }
+    }
+
+    /**
+     * How long to wait before sending a file again, when the target could not start receiving it.
+     */
+    public TimeValue retryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * How long to keep sending a file again before failing the recovery, when the target could not start
+     * receiving it. The file holds an outgoing stream while it waits.
+     */
+    public TimeValue retryTimeout() {
+        return retryTimeout;
+    }
+
+    /**
+     * Pauses the calling thread as needed for the bytes sent or received to fit in the max bytes per
+     * second, returning the time paused in nanos.
+     */
+    public long pause(long bytes) {
+        long nanos = rateLimiter.pause(bytes);
+        if (nanos > 0) {
+            throttledNanos.addAndGet(nanos);
+        }
+        return nanos;
+    }
+
+    public void maxBytesPerSec(ByteSizeValue maxBytesPerSec) {
+        logger.info("updating max_bytes_per_sec from [{}] to [{}]", rateLimiter.maxRate(), maxBytesPerSec);
+        rateLimiter.setMaxRate(maxBytesPerSec);
+    }
+
+    public ByteSizeValue maxBytesPerSec() {
+        return rateLimiter.maxRate();
+    }
+
+    public void concurrentStreams(int concurrentStreams) {
+        logger.info("updating concurrent_streams from [{}] to [{}]", this.concurrentStreams, concurrentStreams);
+        synchronized (mutex) {
+            this.concurrentStreams = concurrentStreams;
+            mutex.notifyAll();
+        }
+    }
+
+    public int concurrentStreams() {
+        return concurrentStreams;
+    }
+
+    public void concurrentIncomingStreams(int concurrentIncomingStreams) {
+        logger.info("updating concurrent_incoming_streams from [{}] to [{}]", this.concurrentIncomingStreams, concurrentIncomingStreams);
+        this.concurrentIncomingStreams = concurrentIncomingStreams;
+    }
+
+    public int concurrentIncomingStreams() {
+        return concurrentIncomingStreams;
+    }
+
+    /**
+     * The total time recoveries on the node were paused by the max bytes per second.
+     */
+    public TimeValue throttledTime() {
+        return new TimeValue(throttledNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @ManagedAttribute(description = "Max bytes per second recoveries can send and receive (0 for no limit)")
+    public String getMaxBytesPerSec() {
+        return maxBytesPerSec().toString();
+    }
+
+    @ManagedAttribute(description = "Max bytes per second recoveries can send and receive (0 for no limit)")
+    public void setMaxBytesPerSec(String maxBytesPerSec) {
+        maxBytesPerSec(ByteSizeValue.parseBytesSizeValue(maxBytesPerSec));
+    }
+
+    @ManagedAttribute(description = "Max number of files sent concurrently")
+    public int getConcurrentStreams() {
+        return concurrentStreams();
+    }
+
+    @ManagedAttribute(description = "Max number of files sent concurrently")
+    public void setConcurrentStreams(int concurrentStreams) {
+        concurrentStreams(concurrentStreams);
+    }
+
+    @ManagedAttribute(description = "Max number of files received concurrently")
+    public int getConcurrentIncomingStreams() {
+        return concurrentIncomingStreams();
+    }
+
+    @ManagedAttribute(description = "Max number of files received concurrently")
+    public void setConcurrentIncomingStreams(int concurrentIncomingStreams) {
+        concurrentIncomingStreams(concurrentIncomingStreams);
+    }
+
+    @ManagedAttribute(description = "Number of files currently sent")
+    public int getOutgoingStreams() {
+        synchronized (mutex) {
+            return outgoingStreams;
+        }
+    }
+
+    @ManagedAttribute(description = "Number of files currently received")
+    public int getIncomingStreams() {
+        synchronized (mutex) {
+            return incomingStreams;
+        }
+    }
+
+    @ManagedAttribute(description = "Total time recoveries were throttled (in millis)")
+    public long getThrottledTimeInMillis() {
+        return throttledTime().millis();
+    }
+}
@@ -28,6 +28,7 @@ import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlock;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.WarmerMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.IndexRoutingTable;
 import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
@@ -169,6 +170,18 @@ public class RestClusterStateAction extends BaseRestHandler {
                             }
                             builder.endArray();
 
+                            builder.startObject("warmers");
+                            for (WarmerMetaData warmerMd : indexMetaData.warmers().values()) {
+                                builder.startObject(warmerMd.name());
+                                builder.array("types", warmerMd.types());
+                                XContentParser parser = XContentFactory.xContent(warmerMd.source()).createParser(warmerMd.source());
+                                builder.field("source");
+                                builder.map(parser.map());
+                                parser.close();
+                                builder.endObject();
+                            }
+                            builder.endObject();
+
                             builder.endObject();
                         }
                         builder.endObject();
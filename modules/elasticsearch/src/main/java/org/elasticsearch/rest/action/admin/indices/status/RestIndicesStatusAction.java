@@ -138,6 +138,24 @@ public class RestIndicesStatusAction extends BaseRestHandler {
                                     builder.endObject();
                                 }
 
+                                if (shardStatus.refresh() != null) {
+                                    builder.startObject("refresh");
+                                    builder.field("performed", shardStatus.refresh().performed());
+                                    builder.field("skipped", shardStatus.refresh().skipped());
+                                    builder.field("on_demand", shardStatus.refresh().onDemand());
+                                    builder.field("generation", shardStatus.refresh().generation());
+                                    builder.field("open_generations", shardStatus.refresh().openGenerations());
+                                    builder.endObject();
+                                }
+
+                                if (shardStatus.warmer() != null) {
+                                    builder.startObject("warmer");
+                                    builder.field("total", shardStatus.warmer().total());
+                                    builder.field("total_time", shardStatus.warmer().totalTime());
+                                    builder.field("total_time_in_millis", shardStatus.warmer().totalTime().millis());
+                                    builder.endObject();
+                                }
+
                                 if (shardStatus.peerRecoveryStatus() != null) {
                                     PeerRecoveryStatus peerRecoveryStatus = shardStatus.peerRecoveryStatus();
                                     builder.startObject("peer_recovery");
@@ -160,6 +178,15 @@ public class RestIndicesStatusAction extends BaseRestHandler {
 
                                     builder.startObject("translog");
                                     builder.field("recovered", peerRecoveryStatus.recoveredTranslogOperations());
+                                    builder.field("operations_per_sec", peerRecoveryStatus.translogOperationsPerSecond());
+                                    builder.endObject();
+
+                                    builder.startObject("throttle");
+                                    builder.field("time", peerRecoveryStatus.throttledTime());
+                                    builder.field("time_in_millis", peerRecoveryStatus.throttledTime().millis());
+                                    builder.field("max_bytes_per_sec", peerRecoveryStatus.maxBytesPerSec());
+                                    builder.field("max_bytes_per_sec_in_bytes", peerRecoveryStatus.maxBytesPerSec().bytes());
+                                    builder.field("concurrent_streams", peerRecoveryStatus.concurrentStreams());
                                     builder.endObject();
 
                                     builder.endObject();
@@ -187,6 +214,12 @@ public class RestIndicesStatusAction extends BaseRestHandler {
 
                                     builder.startObject("translog");
                                     builder.field("recovered", gatewayRecoveryStatus.recoveredTranslogOperations());
+                                    builder.field("operations_per_sec", gatewayRecoveryStatus.translogOperationsPerSecond());
+                                    builder.endObject();
+
+                                    builder.startObject("throttle");
+                                    builder.field("time", gatewayRecoveryStatus.throttledTime());
+                                    builder.field("time_in_millis", gatewayRecoveryStatus.throttledTime().millis());
                                     builder.endObject();
 
                                     builder.endObject();
@@ -203,12 +236,19 @@ public class RestIndicesStatusAction extends BaseRestHandler {
                                     builder.startObject("index");
                                     builder.field("size", gatewaySnapshotStatus.indexSize());
                                     builder.field("size_in_bytes", gatewaySnapshotStatus.indexSize().bytes());
+                                    builder.field("snapshotted_size", gatewaySnapshotStatus.snapshottedIndexSize());
+                                    builder.field("snapshotted_size_in_bytes", gatewaySnapshotStatus.snapshottedIndexSize().bytes());
                                     builder.endObject();
 
                                     builder.startObject("index");
                                     builder.field("expected_operations", gatewaySnapshotStatus.expectedNumberOfOperations());
                                     builder.endObject();
 
+                                    builder.startObject("throttle");
+                                    builder.field("time", gatewaySnapshotStatus.throttledTime());
+                                    builder.field("time_in_millis", gatewaySnapshotStatus.throttledTime().millis());
+                                    builder.endObject();
+
                                     builder.endObject();
                                 }
 
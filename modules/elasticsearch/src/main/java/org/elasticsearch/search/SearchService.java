@@ -21,6 +21,7 @@ package org.elasticsearch.search;
 
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.collect.ImmutableMap;
@@ -320,13 +321,81 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         return context;
     }
 
+    /**
+     * Executes the query phase of a warmer search source against the provided searcher, without
+     * registering the context as an active one. The searcher is released once done.
+     */
+    public void executeWarmer(ShardId shardId, String[] types, byte[] source, Engine.Searcher engineSearcher) throws ElasticSearchException {
+        IndexService indexService = indicesService.indexServiceSafe(shardId.index().name());
+
+        SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().id(), shardId.index().name(), shardId.id());
+
+        SearchContext context = new SearchContext(idGenerator.incrementAndGet(), shardTarget, 1, null, types, engineSearcher, indexService, scriptService);
+        SearchContext.setCurrent(context);
+        try {
+            parseSource(context, source, 0, source.length);
+
+            if (context.from() == -1) {
+                context.from(0);
+            }
+            if (context.size() == -1) {
+                context.size(10);
+            }
+
+            queryPhase.preProcess(context);
+            queryPhase.execute(context);
+        } finally {
+            context.release();
+            cleanContext(context);
+        }
+    }
+
+    /**
+     * Checks that a warmer source is well formed and only holds known search elements, so a bad warmer
+     * is rejected when it is put instead of failing on every new reader.
+     */
+    public void validateWarmerSource(byte[] source) throws ElasticSearchIllegalArgumentException {
+        if (source == null || source.length == 0) {
+            throw new ElasticSearchIllegalArgumentException("warmer source is empty");
+        }
+        XContentParser parser = null;
+        try {
+            parser = XContentFactory.xContent(source).createParser(source);
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                throw new ElasticSearchIllegalArgumentException("warmer source must be an object");
+            }
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                if (token == null) {
+                    throw new ElasticSearchIllegalArgumentException("warmer source ended unexpectedly");
+                }
+                if (token == XContentParser.Token.FIELD_NAME) {
+                    String fieldName = parser.currentName();
+                    if (!elementParsers.containsKey(fieldName)) {
+                        throw new ElasticSearchIllegalArgumentException("No parser for element [" + fieldName + "] in warmer source");
+                    }
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            }
+        } catch (ElasticSearchIllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ElasticSearchIllegalArgumentException("Failed to parse warmer source", e);
+        } finally {
+            if (parser != null) {
+                parser.close();
+            }
+        }
+    }
+
     private SearchContext createContext(InternalSearchRequest request) throws ElasticSearchException {
         IndexService indexService = indicesService.indexServiceSafe(request.index());
         IndexShard indexShard = indexService.shardSafe(request.shardId());
 
         SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().id(), request.index(), request.shardId());
 
-        Engine.Searcher engineSearcher = indexShard.searcher();
+        Engine.Searcher engineSearcher = indexShard.searcherForSearch();
         SearchContext context = new SearchContext(idGenerator.incrementAndGet(), shardTarget, request.numberOfShards(), request.timeout(), request.types(), engineSearcher, indexService, scriptService);
         SearchContext.setCurrent(context);
         try {
@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A message whose serialized form ends with a payload read from a file. Transports that can write a file
+ * directly to the network (for example, using <tt>FileChannel#transferTo</tt>) write the message using
+ * {@link #writeHeaderTo(org.elasticsearch.common.io.stream.StreamOutput)} followed by the payload, without
+ * copying it through the heap. Otherwise, {@link #writeTo(org.elasticsearch.common.io.stream.StreamOutput)}
+ * is used, and writes the same bytes.
+ *
+ * @author kimchy (shay.banon)
+ */
+public interface FilePayloadStreamable extends Streamable {
+
+    /**
+     * The file the payload is read from, <tt>null</tt> if the payload is not read from a file.
+     */
+    @Nullable File payloadFile();
+
+    /**
+     * The position in the file the payload starts at.
+     */
+    long payloadPosition();
+
+    /**
+     * The length of the payload.
+     */
+    int payloadLength();
+
+    /**
+     * Writes the message, without the payload.
+     */
+    void writeHeaderTo(StreamOutput out) throws IOException;
+}
@@ -53,6 +53,7 @@ import org.elasticsearch.transport.*;
 import org.elasticsearch.transport.support.TransportStreams;
 
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -100,6 +101,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 
     final boolean compress;
 
+    final boolean fileRegion;
+
     final TimeValue connectTimeout;
 
     final Boolean tcpNoDelay;
@@ -150,6 +153,9 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.bindHost = componentSettings.get("bind_host");
         this.publishHost = componentSettings.get("publish_host");
         this.compress = settings.getAsBoolean("transport.tcp.compress", false);
+        // file payloads are only sent when enabled here and the request is not compressed, for example, recovery
+        // file chunks with index.shard.recovery.compress set to false
+        this.fileRegion = componentSettings.getAsBoolean("file_region", false);
         this.connectTimeout = componentSettings.getAsTime("connect_timeout", settings.getAsTime("transport.tcp.connect_timeout", timeValueSeconds(1)));
         this.tcpNoDelay = componentSettings.getAsBoolean("tcp_no_delay", settings.getAsBoolean(TCP_NO_DELAY, true));
         this.tcpKeepAlive = componentSettings.getAsBoolean("tcp_keep_alive", settings.getAsBoolean(TCP_KEEP_ALIVE, null));
@@ -394,10 +400,23 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             options.withCompress(true);
         }
 
+        if (fileRegion && !options.compress() && message instanceof FilePayloadStreamable && ((FilePayloadStreamable) message).payloadFile() != null) {
+            sendFilePayloadRequest(targetChannel, requestId, action, (FilePayloadStreamable) message);
+            return;
+        }
+
         byte[] data = TransportStreams.buildRequest(requestId, action, message, options);
 
         ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(data);
-        ChannelFuture channelFuture = targetChannel.write(buffer);
+        ChannelFuture channelFuture;
+        if (fileRegion) {
+            // not interleaved with the header and payload of a file payload request
+            synchronized (targetChannel) {
+                channelFuture = targetChannel.write(buffer);
+            }
+        } else {
+            channelFuture = targetChannel.write(buffer);
+        }
         // We handle close connection exception in the #exceptionCaught method, which is the main reason we want to add this future
 //        channelFuture.addListener(new ChannelFutureListener() {
 //            @Override public void operationComplete(ChannelFuture future) throws Exception {
@@ -412,6 +431,29 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 //        });
     }
 
+    /**
+     * Writes the request without its payload, and then the payload as a {@link FileRegion}, transferred
+     * from the file to the socket without being copied through the heap.
+     */
+    private void sendFilePayloadRequest(Channel targetChannel, long requestId, String action, FilePayloadStreamable message) throws IOException {
+        byte[] header = TransportStreams.buildFilePayloadRequestHeader(requestId, action, message);
+        RandomAccessFile raf = new RandomAccessFile(message.payloadFile(), "r");
+        final FileRegion region = new DefaultFileRegion(raf.getChannel(), message.payloadPosition(), message.payloadLength());
+        ChannelFuture channelFuture;
+        // the header and the payload must not be interleaved with other messages written to the channel, which
+        // take the same lock when file payloads are enabled
+        synchronized (targetChannel) {
+            targetChannel.write(ChannelBuffers.wrappedBuffer(header));
+            channelFuture = targetChannel.write(region);
+        }
+        channelFuture.addListener(new ChannelFutureListener() {
+            @Override public void operationComplete(ChannelFuture future) throws Exception {
+                // closes the file as well
+                region.releaseExternalResources();
+            }
+        });
+    }
+
     @Override public boolean nodeConnected(DiscoveryNode node) {
         return connectedNodes.containsKey(node);
     }
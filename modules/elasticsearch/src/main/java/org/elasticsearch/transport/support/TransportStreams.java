@@ -20,6 +20,7 @@
 package org.elasticsearch.transport.support;
 
 import org.elasticsearch.common.io.stream.*;
+import org.elasticsearch.transport.FilePayloadStreamable;
 import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportResponseOptions;
 
@@ -125,6 +126,28 @@ public class TransportStreams {
         return data;
     }
 
+    /**
+     * Builds an uncompressed request without its file payload. The length written in the header accounts
+     * for the payload, which must be written right after the returned bytes.
+     */
+    public static byte[] buildFilePayloadRequestHeader(final long requestId, final String action, final FilePayloadStreamable message) throws IOException {
+        byte status = 0;
+        status = TransportStreams.statusSetRequest(status);
+
+        HandlesStreamOutput stream = CachedStreamOutput.cachedHandlesBytes();
+        stream.writeUTF(action);
+        message.writeHeaderTo(stream);
+        stream.flush();
+        BytesStreamOutput wrapped = ((BytesStreamOutput) stream.wrappedOut());
+        stream.cleanHandles();
+
+        byte[] data = new byte[HEADER_SIZE + wrapped.size()];
+        TransportStreams.writeHeader(data, wrapped.size() + message.payloadLength(), requestId, status);
+        System.arraycopy(wrapped.unsafeByteArray(), 0, data, HEADER_SIZE, wrapped.size());
+
+        return data;
+    }
+
     public static byte[] buildResponse(final long requestId, Streamable message, TransportResponseOptions options) throws IOException {
         byte status = 0;
         status = TransportStreams.statusSetResponse(status);
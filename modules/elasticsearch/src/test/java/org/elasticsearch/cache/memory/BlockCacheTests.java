@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cache.memory;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class BlockCacheTests {
+
+    @Test public void testReadPastCachedLengthIsMiss() {
+        BlockCache blockCache = new BlockCache(settingsBuilder().put("cache.memory.block.size", 16).put("cache.memory.block.cache_size", 64).build());
+        BlockCache.Stats stats = blockCache.stats("test");
+        BlockCache.Key key = new BlockCache.Key("file", 0, 0, stats);
+        blockCache.put(key, new byte[]{1, 2, 3, 4}, 4);
+
+        byte[] b = new byte[16];
+        assertThat(blockCache.get(key, 2, b, 0, 16), equalTo(2));
+        assertThat(blockCache.get(key, 4, b, 0, 16), equalTo(-1));
+        assertThat(blockCache.get(key, 10, b, 0, 16), equalTo(-1));
+        assertThat(stats.hits(), equalTo(1l));
+        assertThat(stats.misses(), equalTo(2l));
+    }
+
+    @Test public void testConcurrentGetAndPut() throws Exception {
+        // two blocks, so blocks of different lengths keep evicting each other while being read
+        final BlockCache blockCache = new BlockCache(settingsBuilder().put("cache.memory.block.size", 16).put("cache.memory.block.cache_size", 32).build());
+        final BlockCache.Stats stats = blockCache.stats("test");
+        final int numberOfKeys = 16;
+        final AtomicBoolean stop = new AtomicBoolean();
+        final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(4);
+
+        for (int i = 0; i < 2; i++) {
+            new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        Random random = new Random();
+                        while (!stop.get()) {
+                            int block = random.nextInt(numberOfKeys);
+                            // block n holds n + 1 bytes of value n
+                            byte[] data = new byte[16];
+                            for (int j = 0; j <= block; j++) {
+                                data[j] = (byte) block;
+                            }
+                            blockCache.put(new BlockCache.Key("file", 0, block, stats), data, block + 1);
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        for (int i = 0; i < 2; i++) {
+            new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        Random random = new Random();
+                        byte[] b = new byte[16];
+                        while (!stop.get()) {
+                            int block = random.nextInt(numberOfKeys);
+                            int blockOffset = random.nextInt(16);
+                            int read = blockCache.get(new BlockCache.Key("file", 0, block, stats), blockOffset, b, 0, 16);
+                            if (read == -1) {
+                                continue;
+                            }
+                            assertThat(read, equalTo(block + 1 - blockOffset));
+                            for (int j = 0; j < read; j++) {
+                                assertThat(b[j], equalTo((byte) block));
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        Thread.sleep(2000);
+        stop.set(true);
+        latch.await();
+        assertThat(failures.isEmpty(), equalTo(true));
+        assertThat(stats.hits(), greaterThan(0l));
+    }
+}
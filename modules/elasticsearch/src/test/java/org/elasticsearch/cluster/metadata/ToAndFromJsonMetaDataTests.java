@@ -19,6 +19,7 @@
 
 package org.elasticsearch.cluster.metadata;
 
+import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.testng.annotations.Test;
@@ -56,7 +57,8 @@ public class ToAndFromJsonMetaDataTests {
                         .numberOfShards(1)
                         .numberOfReplicas(2)
                         .putMapping("mapping1", MAPPING_SOURCE1)
-                        .putMapping("mapping2", MAPPING_SOURCE2))
+                        .putMapping("mapping2", MAPPING_SOURCE2)
+                        .putWarmer(new WarmerMetaData("warmer1", new String[]{"mapping1"}, Unicode.fromStringAsBytes(WARMER_SOURCE1))))
                 .build();
 
         String metaDataSource = MetaData.Builder.toXContent(metaData);
@@ -94,8 +96,12 @@ public class ToAndFromJsonMetaDataTests {
         assertThat(indexMetaData.mappings().size(), equalTo(2));
         assertThat(indexMetaData.mappings().get("mapping1").source().string(), equalTo(MAPPING_SOURCE1));
         assertThat(indexMetaData.mappings().get("mapping2").source().string(), equalTo(MAPPING_SOURCE2));
+        assertThat(indexMetaData.warmers().size(), equalTo(1));
+        assertThat(indexMetaData.warmers().get("warmer1").types(), equalTo(new String[]{"mapping1"}));
+        assertThat(Unicode.fromBytes(indexMetaData.warmers().get("warmer1").source()), equalTo(WARMER_SOURCE1));
     }
 
     private static final String MAPPING_SOURCE1 = "{\"mapping1\":{\"text1\":{\"type\":\"string\"}}}";
     private static final String MAPPING_SOURCE2 = "{\"mapping2\":{\"text2\":{\"type\":\"string\"}}}";
+    private static final String WARMER_SOURCE1 = "{\"query\":{\"match_all\":{}}}";
 }
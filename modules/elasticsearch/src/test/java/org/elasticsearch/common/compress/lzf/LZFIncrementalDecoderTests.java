@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lzf;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class LZFIncrementalDecoderTests {
+
+    private static int BUFFER_SIZE = LZFChunk.MAX_CHUNK_LEN * 4 + 123;
+    private byte[] nonEncodableBytesToWrite = new byte[BUFFER_SIZE];
+    private byte[] bytesToWrite = new byte[BUFFER_SIZE];
+
+    @BeforeTest(alwaysRun = true)
+    public void setUp() throws Exception {
+        SecureRandom.getInstance("SHA1PRNG").nextBytes(nonEncodableBytesToWrite);
+        String phrase = "all work and no play make Jack a dull boy";
+        byte[] bytes = phrase.getBytes();
+        int cursor = 0;
+        while (cursor <= bytesToWrite.length) {
+            System.arraycopy(bytes, 0, bytesToWrite, cursor, (bytes.length + cursor < bytesToWrite.length) ? bytes.length : bytesToWrite.length - cursor);
+            cursor += bytes.length;
+        }
+    }
+
+    @Test
+    public void testCompressed() throws Exception {
+        assertDecodes(bytesToWrite);
+    }
+
+    @Test
+    public void testUncompressed() throws Exception {
+        assertDecodes(nonEncodableBytesToWrite);
+    }
+
+    @Test
+    public void testPartialChunk() throws Exception {
+        byte[] encoded = encode(bytesToWrite);
+        LZFIncrementalDecoder decoder = new LZFIncrementalDecoder(new ByteArrayListener());
+        decoder.decode(encoded, 0, encoded.length - 1);
+        Assert.assertTrue(decoder.hasPartialChunk());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testBadSignature() throws Exception {
+        byte[] encoded = encode(bytesToWrite);
+        encoded[0] = 'X';
+        new LZFIncrementalDecoder(new ByteArrayListener()).decode(encoded, 0, encoded.length);
+    }
+
+    private void assertDecodes(byte[] data) throws Exception {
+        byte[] encoded = encode(data);
+        Random random = new Random();
+        for (int i = 0; i < 10; i++) {
+            ByteArrayListener listener = new ByteArrayListener();
+            LZFIncrementalDecoder decoder = new LZFIncrementalDecoder(listener);
+            int offset = 0;
+            while (offset < encoded.length) {
+                // hand over the bytes in random splits, from single bytes to several chunks
+                int length = Math.min(encoded.length - offset, 1 + random.nextInt(i % 2 == 0 ? 16 : LZFChunk.MAX_CHUNK_LEN * 2));
+                decoder.decode(encoded, offset, length);
+                offset += length;
+            }
+            Assert.assertFalse(decoder.hasPartialChunk());
+            Assert.assertTrue(Arrays.equals(listener.bos.toByteArray(), data));
+        }
+    }
+
+    private byte[] encode(byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        OutputStream os = new LZFOutputStream(bos);
+        os.write(data);
+        os.close();
+        return bos.toByteArray();
+    }
+
+    private static class ByteArrayListener implements LZFIncrementalDecoder.Listener {
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+        @Override public void onDecoded(byte[] data, int offset, int length) {
+            bos.write(data, offset, length);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.io;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class RateLimiterTests {
+
+    @Test public void testDisabled() {
+        RateLimiter rateLimiter = new RateLimiter(new ByteSizeValue(0));
+        assertThat(rateLimiter.enabled(), equalTo(false));
+        assertThat(rateLimiter.pause(Integer.MAX_VALUE), equalTo(0l));
+    }
+
+    @Test public void testPause() {
+        RateLimiter rateLimiter = new RateLimiter(new ByteSizeValue(1, ByteSizeUnit.MB));
+        assertThat(rateLimiter.enabled(), equalTo(true));
+        // 1mb per sec, each 20kb adds around 20ms to the pause
+        long now = System.nanoTime();
+        long perChunk = TimeUnit.SECONDS.toNanos(20) / 1024;
+        for (int i = 1; i <= 10; i++) {
+            assertThat(rateLimiter.pauseNanos(20 * 1024, now), equalTo(i * perChunk));
+        }
+
+        rateLimiter.setMaxRate(new ByteSizeValue(0));
+        assertThat(rateLimiter.enabled(), equalTo(false));
+        assertThat(rateLimiter.pauseNanos(20 * 1024, now), equalTo(0l));
+    }
+
+    @Test public void testNoCreditWhileIdle() {
+        RateLimiter rateLimiter = new RateLimiter(new ByteSizeValue(1, ByteSizeUnit.MB));
+        long perChunk = TimeUnit.SECONDS.toNanos(20) / 1024;
+        long now = System.nanoTime();
+        assertThat(rateLimiter.pauseNanos(20 * 1024, now), equalTo(perChunk));
+        // idle for a second, the bytes are not allowed to be written faster than the rate afterwards
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertThat(rateLimiter.pauseNanos(20 * 1024, now), equalTo(perChunk));
+        // but the pause is shortened by the time passed since the bytes were acquired
+        assertThat(rateLimiter.pauseNanos(20 * 1024, now + perChunk / 2), equalTo(perChunk + perChunk / 2));
+    }
+
+    @Test public void testStreamDoesNotAccumulateBytesWhileDisabled() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter(new ByteSizeValue(0));
+        final AtomicLong pausedNanos = new AtomicLong();
+        RateLimitedInputStream in = new RateLimitedInputStream(new ByteArrayInputStream(new byte[10 * 1024 * 1024 + 1]), rateLimiter, new RateLimitedInputStream.Listener() {
+            @Override public void onPause(long nanos) {
+                pausedNanos.addAndGet(nanos);
+            }
+        });
+        byte[] buffer = new byte[1024 * 1024];
+        for (int i = 0; i < 10; i++) {
+            assertThat(in.read(buffer, 0, buffer.length), equalTo(buffer.length));
+        }
+
+        // the 10mb read while disabled are not paused for once enabled
+        rateLimiter.setMaxRate(new ByteSizeValue(1, ByteSizeUnit.MB));
+        assertThat(in.read(), equalTo(0));
+        assertThat(pausedNanos.get(), equalTo(0l));
+    }
+}
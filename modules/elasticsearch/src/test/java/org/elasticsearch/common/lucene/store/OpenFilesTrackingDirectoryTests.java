@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.store;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class OpenFilesTrackingDirectoryTests {
+
+    @Test public void testOpenFiles() throws IOException {
+        OpenFilesTrackingDirectory dir = new OpenFilesTrackingDirectory(new RAMDirectory());
+        IndexOutput output = dir.createOutput("test");
+        output.writeBytes(new byte[]{1, 2, 3}, 3);
+        output.close();
+
+        IndexInput input = dir.openInput("test");
+        assertThat(dir.openFiles(), equalTo(1l));
+        assertThat(dir.openBytes(), equalTo(3l));
+
+        // clones are not tracked
+        IndexInput clone = (IndexInput) input.clone();
+        assertThat(clone.readByte(), equalTo((byte) 1));
+        clone.close();
+        assertThat(dir.openFiles(), equalTo(1l));
+
+        input.close();
+        input.close();
+        assertThat(dir.openFiles(), equalTo(0l));
+        assertThat(dir.openBytes(), equalTo(0l));
+        assertThat(dir.totalOpened(), equalTo(1l));
+    }
+}
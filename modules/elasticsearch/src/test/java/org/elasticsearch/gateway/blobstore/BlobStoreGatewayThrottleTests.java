@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.gateway.blobstore;
+
+import org.elasticsearch.common.io.FastByteArrayInputStream;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class BlobStoreGatewayThrottleTests {
+
+    @Test public void testStreamsWaitForRelease() throws Exception {
+        final BlobStoreGatewayThrottle throttle = new BlobStoreGatewayThrottle(settingsBuilder().put("gateway.blobstore.concurrent_streams", 1).build());
+        throttle.acquireStream();
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread() {
+            @Override public void run() {
+                try {
+                    throttle.acquireStream();
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        thread.start();
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+
+        throttle.releaseStream();
+        assertThat(acquired.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(throttle.getStreams(), equalTo(1));
+        thread.join();
+    }
+
+    @Test public void testThrottledStream() throws Exception {
+        BlobStoreGatewayThrottle throttle = new BlobStoreGatewayThrottle(settingsBuilder().build());
+        InputStream in = new FastByteArrayInputStream(new byte[1024]);
+        // no limit, the stream is used as is
+        assertThat(throttle.throttle(in, null), sameInstance(in));
+
+        throttle.maxBytesPerSec(new ByteSizeValue(100, ByteSizeUnit.KB));
+        InputStream throttled = throttle.throttle(new FastByteArrayInputStream(new byte[50 * 1024]), null);
+        byte[] buffer = new byte[1024];
+        long startNanos = System.nanoTime();
+        while (throttled.read(buffer) != -1) {
+            // consume the stream
+        }
+        // 50kb at 100kb per second takes about half a second
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), greaterThan(300l));
+        assertThat(throttle.throttledTime().millis(), greaterThan(0l));
+    }
+}
@@ -38,6 +38,7 @@ import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.ram.RamStore;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.fs.FsTranslog;
+import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -46,9 +47,12 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.elasticsearch.common.lucene.DocumentBuilder.*;
 import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
@@ -69,10 +73,13 @@ public abstract class AbstractSimpleEngineTests {
 
     private Engine engine;
 
+    private TestWarmer warmer;
+
     @BeforeMethod public void setUp() throws Exception {
         store = createStore();
         store.deleteContent();
-        engine = createEngine(store);
+        warmer = new TestWarmer(shardId);
+        engine = createEngine(store, warmer);
         engine.start();
     }
 
@@ -82,7 +89,7 @@ public abstract class AbstractSimpleEngineTests {
     }
 
     protected Store createStore() throws IOException {
-        return new RamStore(shardId, EMPTY_SETTINGS, null);
+        return new RamStore(shardId, EMPTY_SETTINGS, null, null);
     }
 
     protected Translog createTranslog() {
@@ -105,7 +112,7 @@ public abstract class AbstractSimpleEngineTests {
         return new SerialMergeSchedulerProvider(shardId, EMPTY_SETTINGS);
     }
 
-    protected abstract Engine createEngine(Store store);
+    protected abstract Engine createEngine(Store store, ShardIndexWarmerService warmer);
 
     private static final byte[] B_1 = new byte[]{1};
     private static final byte[] B_2 = new byte[]{2};
@@ -223,6 +230,225 @@ public abstract class AbstractSimpleEngineTests {
         engine.close();
     }
 
+    @Test public void testRefreshNeeded() throws Exception {
+        engine.refresh(new Engine.Refresh(true));
+        assertThat(engine.refreshNeeded(), equalTo(false));
+
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(field("_uid", "1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(doc));
+        assertThat(engine.refreshNeeded(), equalTo(true));
+
+        engine.refresh(new Engine.Refresh(true));
+        assertThat(engine.refreshNeeded(), equalTo(false));
+    }
+
+    @Test public void testSearcherGenerations() throws Exception {
+        long generation = engine.searcherGeneration();
+        assertThat(engine.openSearcherGenerations(), equalTo(1));
+
+        Engine.Searcher heldSearcher = engine.searcher();
+
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(field("_uid", "1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(doc));
+        engine.refresh(new Engine.Refresh(true));
+        assertThat(engine.searcherGeneration(), greaterThan(generation));
+        // the replaced generation is kept open while a searcher still uses it
+        assertThat(engine.openSearcherGenerations(), equalTo(2));
+        assertThat(heldSearcher, engineSearcherTotalHits(0));
+
+        heldSearcher.release();
+        assertThat(engine.openSearcherGenerations(), equalTo(1));
+
+        // a create with refresh is visible once it returns
+        doc = new ParsedDocument("2", "2", "test", null, doc().add(field("_uid", "2")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_2, false);
+        Engine.Create create = new Engine.Create(doc);
+        create.refresh(true);
+        engine.create(create);
+        Engine.Searcher searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(2));
+        searchResult.release();
+    }
+
+    @Test public void testConcurrentCreatesWithRefresh() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = Lists.newArrayList();
+            for (int i = 0; i < 40; i++) {
+                final String id = Integer.toString(i);
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override public Integer call() throws Exception {
+                        ParsedDocument doc = new ParsedDocument(id, id, "test", null, doc().add(field("_uid", id)).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+                        Engine.Create create = new Engine.Create(doc);
+                        create.refresh(true);
+                        engine.create(create);
+                        // visible once it returns, whether it refreshed or waited on another refresh
+                        Engine.Searcher searcher = engine.searcher();
+                        try {
+                            return searcher.searcher().search(new TermQuery(new Term("_uid", id)), 1).totalHits;
+                        } finally {
+                            searcher.release();
+                        }
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertThat(future.get(), equalTo(1));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test public void testCreateWithDuplicates() throws Exception {
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(field("_uid", "1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(doc));
+
+        // a retried create replaces the document instead of appending it again
+        Engine.Create create = new Engine.Create(doc);
+        create.mayHaveDuplicates(true);
+        engine.create(create);
+        engine.refresh(new Engine.Refresh(true));
+
+        Engine.Searcher searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(new TermQuery(new Term("_uid", "1")), 1));
+        searchResult.release();
+    }
+
+    @Test public void testRealtimeGet() throws Exception {
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(field("_uid", "1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(doc));
+
+        // not visible to a non realtime get, but served from the translog on realtime
+        Engine.GetResult getResult = engine.get(new Engine.Get(false, newUid("1")));
+        assertThat(getResult.exists(), equalTo(false));
+        getResult.release();
+
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.source(), equalTo(B_1));
+        assertThat(getResult.searcher(), nullValue());
+        getResult.release();
+
+        // refresh, and it should be read from the reader
+        engine.refresh(new Engine.Refresh(true));
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.searcher(), notNullValue());
+        getResult.release();
+
+        // update, the realtime get should see the new source
+        doc = new ParsedDocument("1", "1", "test", null, doc().add(field("_uid", "1")).add(field("value", "test1")).build(), Lucene.STANDARD_ANALYZER, B_2, false);
+        engine.index(new Engine.Index(newUid("1"), doc));
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.source(), equalTo(B_2));
+        getResult.release();
+
+        // flush rolls the translog, the get should now go to the reader
+        engine.flush(new Engine.Flush());
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.searcher(), notNullValue());
+        getResult.release();
+
+        // delete, realtime get should not find it even though the reader still has it
+        engine.delete(new Engine.Delete(newUid("1")));
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(false));
+        getResult.release();
+        getResult = engine.get(new Engine.Get(false, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        getResult.release();
+    }
+
+    @Test public void testWarmerRunsBeforeSearcherIsPublished() throws Exception {
+        final AtomicInteger warmedDocs = new AtomicInteger(-1);
+        final AtomicInteger visibleDocsWhileWarming = new AtomicInteger(-1);
+        warmer.listener = new WarmListener() {
+            @Override public void warm(Engine.Searcher searcher) throws Exception {
+                warmedDocs.set(searcher.reader().numDocs());
+                // searches still see the previous reader while the new one is warmed
+                Engine.Searcher current = engine.searcher();
+                try {
+                    visibleDocsWhileWarming.set(current.reader().numDocs());
+                } finally {
+                    current.release();
+                }
+            }
+        };
+
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(field("_uid", "1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(doc));
+        engine.refresh(new Engine.Refresh(true));
+
+        assertThat(warmedDocs.get(), equalTo(1));
+        assertThat(visibleDocsWhileWarming.get(), equalTo(0));
+
+        Engine.Searcher searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(1));
+        searchResult.release();
+    }
+
+    @Test public void testOperationsDuringFlushRefresh() throws Exception {
+        ParsedDocument doc1 = new ParsedDocument("1", "1", "test", null, doc().add(field("_uid", "1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(doc1));
+
+        // block the flush while it warms the reader that makes the rolled translog visible
+        final CountDownLatch warming = new CountDownLatch(1);
+        final CountDownLatch releaseWarmer = new CountDownLatch(1);
+        warmer.listener = new WarmListener() {
+            @Override public void warm(Engine.Searcher searcher) throws Exception {
+                warming.countDown();
+                releaseWarmer.await();
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> flush = executor.submit(new Callable<Object>() {
+                @Override public Object call() throws Exception {
+                    engine.flush(new Engine.Flush());
+                    return null;
+                }
+            });
+            assertThat(warming.await(10, TimeUnit.SECONDS), equalTo(true));
+
+            // operations are not blocked by the flush while it refreshes
+            Future<Object> create = executor.submit(new Callable<Object>() {
+                @Override public Object call() throws Exception {
+                    ParsedDocument doc2 = new ParsedDocument("2", "2", "test", null, doc().add(field("_uid", "2")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_2, false);
+                    engine.create(new Engine.Create(doc2));
+                    return null;
+                }
+            });
+            create.get(10, TimeUnit.SECONDS);
+
+            // and realtime get still reads both the rolled and the new translog
+            Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid("1")));
+            assertThat(getResult.exists(), equalTo(true));
+            assertThat(getResult.source(), equalTo(B_1));
+            getResult.release();
+            getResult = engine.get(new Engine.Get(true, newUid("2")));
+            assertThat(getResult.exists(), equalTo(true));
+            assertThat(getResult.source(), equalTo(B_2));
+            getResult.release();
+
+            warmer.listener = null;
+            releaseWarmer.countDown();
+            flush.get(10, TimeUnit.SECONDS);
+        } finally {
+            releaseWarmer.countDown();
+            executor.shutdownNow();
+        }
+
+        Engine.Searcher searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(1));
+        searchResult.release();
+        engine.refresh(new Engine.Refresh(true));
+        searchResult = engine.searcher();
+        assertThat(searchResult, engineSearcherTotalHits(2));
+        searchResult.release();
+    }
+
     @Test public void testBulkOperations() throws Exception {
         Engine.Searcher searchResult = engine.searcher();
         assertThat(searchResult, engineSearcherTotalHits(0));
@@ -452,4 +678,33 @@ public abstract class AbstractSimpleEngineTests {
     private Term newUid(String id) {
         return new Term("_uid", id);
     }
+
+    static interface WarmListener {
+
+        void warm(Engine.Searcher searcher) throws Exception;
+    }
+
+    /**
+     * A warmer that delegates to the listener set by the test, if any.
+     */
+    static class TestWarmer extends ShardIndexWarmerService {
+
+        volatile WarmListener listener;
+
+        TestWarmer(ShardId shardId) {
+            super(shardId, EMPTY_SETTINGS, null, null);
+        }
+
+        @Override public void warm(Engine.Searcher searcher) {
+            WarmListener listener = this.listener;
+            if (listener == null) {
+                return;
+            }
+            try {
+                listener.warm(searcher);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
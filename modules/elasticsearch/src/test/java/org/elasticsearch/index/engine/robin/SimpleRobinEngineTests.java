@@ -24,6 +24,7 @@ import org.elasticsearch.index.engine.AbstractSimpleEngineTests;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 
 import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
 
@@ -32,8 +33,8 @@ import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
  */
 public class SimpleRobinEngineTests extends AbstractSimpleEngineTests {
 
-    protected Engine createEngine(Store store) {
+    protected Engine createEngine(Store store, ShardIndexWarmerService warmer) {
         return new RobinEngine(shardId, EMPTY_SETTINGS, store, createSnapshotDeletionPolicy(), createTranslog(), createMergePolicy(), createMergeScheduler(),
-                new AnalysisService(shardId.index()), new SimilarityService(shardId.index()));
+                new AnalysisService(shardId.index()), new SimilarityService(shardId.index()), warmer);
     }
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.index.gateway;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.index.store.StoreFileMetaData;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
@@ -39,7 +40,7 @@ public class CommitPointsTests {
     @Test public void testCommitPointXContent() throws Exception {
         ArrayList<CommitPoint.FileInfo> indexFiles = Lists.newArrayList();
         indexFiles.add(new CommitPoint.FileInfo("file1", "file1_p", 100, "ck1"));
-        indexFiles.add(new CommitPoint.FileInfo("file2", "file2_p", 200, "ck2"));
+        indexFiles.add(new CommitPoint.FileInfo("file2", "file2_p", 200, "ck2", 120));
 
         ArrayList<CommitPoint.FileInfo> translogFiles = Lists.newArrayList();
         translogFiles.add(new CommitPoint.FileInfo("t_file1", "t_file1_p", 100, null));
@@ -60,6 +61,7 @@ public class CommitPointsTests {
             assertThat(desCp.indexFiles().get(i).physicalName(), equalTo(commitPoint.indexFiles().get(i).physicalName()));
             assertThat(desCp.indexFiles().get(i).length(), equalTo(commitPoint.indexFiles().get(i).length()));
             assertThat(desCp.indexFiles().get(i).checksum(), equalTo(commitPoint.indexFiles().get(i).checksum()));
+            assertThat(desCp.indexFiles().get(i).compressedLength(), equalTo(commitPoint.indexFiles().get(i).compressedLength()));
         }
 
         assertThat(desCp.translogFiles().size(), equalTo(commitPoint.translogFiles().size()));
@@ -70,4 +72,13 @@ public class CommitPointsTests {
             assertThat(desCp.translogFiles().get(i).checksum(), nullValue());
         }
     }
+
+    @Test public void testFileInfoIsSame() {
+        CommitPoint.FileInfo fileInfo = new CommitPoint.FileInfo("__1", "_1.cfs", 100, "abc");
+        assertThat(fileInfo.isSame(new StoreFileMetaData("_1.cfs", 100, 1, "abc")), equalTo(true));
+        assertThat(fileInfo.isSame(new StoreFileMetaData("_1.cfs", 100, 1, "abd")), equalTo(false));
+        assertThat(fileInfo.isSame(new StoreFileMetaData("_1.cfs", 101, 1, "abc")), equalTo(false));
+        // same length is not enough without a checksum, the file might come from a different index
+        assertThat(fileInfo.isSame(new StoreFileMetaData("_1.cfs", 100, 1, null)), equalTo(false));
+    }
 }
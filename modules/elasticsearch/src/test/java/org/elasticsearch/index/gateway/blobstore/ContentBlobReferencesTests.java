@@ -0,0 +1,205 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.gateway.blobstore;
+
+import org.elasticsearch.common.blobstore.BlobMetaData;
+import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.ImmutableBlobContainer;
+import org.elasticsearch.common.blobstore.fs.FsBlobStore;
+import org.elasticsearch.common.collect.ImmutableMap;
+import org.elasticsearch.common.io.FastByteArrayInputStream;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class ContentBlobReferencesTests {
+
+    private static final String CONTENT = "c-4-content";
+
+    private final File path = new File("work/content-blob-references");
+
+    private ExecutorService executor;
+
+    private ImmutableBlobContainer container;
+
+    @BeforeMethod public void createContainer() throws Exception {
+        FileSystemUtils.deleteRecursively(path, true);
+        executor = Executors.newCachedThreadPool();
+        container = new FsBlobStore(EMPTY_SETTINGS, executor, path).immutableBlobContainer(BlobPath.cleanPath().add("blobs"));
+        container.writeBlob(CONTENT, new FastByteArrayInputStream(new byte[]{1, 2, 3, 4}), 4);
+    }
+
+    @AfterMethod public void deleteContainer() {
+        executor.shutdown();
+        FileSystemUtils.deleteRecursively(path, true);
+    }
+
+    @Test public void testDeleteUnreferenced() throws Exception {
+        ContentBlobReferences shard0 = new ContentBlobReferences(container, 0);
+        assertThat(shard0.add(CONTENT, container.listBlobs()), equalTo(true));
+        assertThat(shard0.add(CONTENT, container.listBlobs()), equalTo(false));
+        shard0.remove(CONTENT);
+
+        assertThat(shard0.deleteIfUnreferenced(CONTENT), equalTo(true));
+        assertThat(container.listBlobs().isEmpty(), equalTo(true));
+    }
+
+    @Test public void testKeepReferencedByAnotherShard() throws Exception {
+        ContentBlobReferences shard0 = new ContentBlobReferences(container, 0);
+        ContentBlobReferences shard1 = new ContentBlobReferences(container, 1);
+        shard0.add(CONTENT, container.listBlobs());
+        shard1.add(CONTENT, container.listBlobs());
+        shard0.remove(CONTENT);
+
+        assertThat(shard0.deleteIfUnreferenced(CONTENT), equalTo(false));
+        ImmutableMap<String, BlobMetaData> blobs = container.listBlobs();
+        assertThat(blobs.containsKey(CONTENT), equalTo(true));
+        assertThat(ContentBlobReferences.isDeleting(CONTENT, blobs), equalTo(false));
+    }
+
+    @Test public void testReferenceAddedBeforeDeletingShardChecks() throws Exception {
+        final ContentBlobReferences shard1 = new ContentBlobReferences(container, 1);
+        final AtomicBoolean shard1SawDeleting = new AtomicBoolean();
+        // shard 1 references the content after shard 0 marked it as deleting, but before shard 0 checks the references
+        ContentBlobReferences shard0 = new ContentBlobReferences(new InterleavingBlobContainer(container) {
+            @Override void beforeListBlobsByPrefix() throws IOException {
+                assertThat(shard1.add(CONTENT, container.listBlobs()), equalTo(true));
+                shard1SawDeleting.set(ContentBlobReferences.isDeleting(CONTENT, container.listBlobsByPrefix(CONTENT)));
+            }
+        }, 0);
+
+        assertThat(shard0.deleteIfUnreferenced(CONTENT), equalTo(false));
+        assertThat(shard1SawDeleting.get(), equalTo(true));
+        ImmutableMap<String, BlobMetaData> blobs = container.listBlobs();
+        assertThat(blobs.containsKey(CONTENT), equalTo(true));
+        assertThat(ContentBlobReferences.isDeleting(CONTENT, blobs), equalTo(false));
+    }
+
+    @Test public void testReferenceAddedAfterDeletingShardChecks() throws Exception {
+        final ContentBlobReferences shard1 = new ContentBlobReferences(container, 1);
+        final AtomicBoolean shard1SawDeleting = new AtomicBoolean();
+        // shard 1 references the content after shard 0 checked the references, but before shard 0 deletes it
+        ContentBlobReferences shard0 = new ContentBlobReferences(new InterleavingBlobContainer(container) {
+            @Override void beforeDeleteBlob(String blobName) throws IOException {
+                if (blobName.equals(CONTENT)) {
+                    assertThat(shard1.add(CONTENT, container.listBlobs()), equalTo(true));
+                    shard1SawDeleting.set(ContentBlobReferences.isDeleting(CONTENT, container.listBlobsByPrefix(CONTENT)));
+                }
+            }
+        }, 0);
+
+        assertThat(shard0.deleteIfUnreferenced(CONTENT), equalTo(true));
+        // shard 1 does not use the deleted content
+        assertThat(shard1SawDeleting.get(), equalTo(true));
+        assertThat(container.listBlobs().containsKey(CONTENT), equalTo(false));
+    }
+
+    @Test public void testDeleteStale() throws Exception {
+        String staleMark = CONTENT + ContentBlobReferences.DELETING_SEPARATOR + (System.currentTimeMillis() - ContentBlobReferences.STALE_DELETING_MARK.millis() - 1);
+        container.writeBlob(staleMark, new FastByteArrayInputStream(new byte[0]), 0);
+        String recentMark = "c-4-other" + ContentBlobReferences.DELETING_SEPARATOR + System.currentTimeMillis();
+        container.writeBlob(recentMark, new FastByteArrayInputStream(new byte[0]), 0);
+
+        new ContentBlobReferences(container, 0).deleteStale(container.listBlobs());
+        ImmutableMap<String, BlobMetaData> blobs = container.listBlobs();
+        assertThat(blobs.containsKey(CONTENT), equalTo(false));
+        assertThat(blobs.containsKey(staleMark), equalTo(false));
+        assertThat(blobs.containsKey(recentMark), equalTo(true));
+    }
+
+    /**
+     * Runs the operations of another shard in between the operations of the shard using it.
+     */
+    private static class InterleavingBlobContainer implements ImmutableBlobContainer {
+
+        private final ImmutableBlobContainer delegate;
+
+        InterleavingBlobContainer(ImmutableBlobContainer delegate) {
+            this.delegate = delegate;
+        }
+
+        void beforeListBlobsByPrefix() throws IOException {
+        }
+
+        void beforeDeleteBlob(String blobName) throws IOException {
+        }
+
+        @Override public void writeBlob(String blobName, InputStream is, long sizeInBytes, WriterListener listener) {
+            delegate.writeBlob(blobName, is, sizeInBytes, listener);
+        }
+
+        @Override public void writeBlob(String blobName, InputStream is, long sizeInBytes) throws IOException {
+            delegate.writeBlob(blobName, is, sizeInBytes);
+        }
+
+        @Override public BlobPath path() {
+            return delegate.path();
+        }
+
+        @Override public boolean blobExists(String blobName) {
+            return delegate.blobExists(blobName);
+        }
+
+        @Override public void readBlob(String blobName, ReadBlobListener listener) {
+            delegate.readBlob(blobName, listener);
+        }
+
+        @Override public byte[] readBlobFully(String blobName) throws IOException {
+            return delegate.readBlobFully(blobName);
+        }
+
+        @Override public boolean deleteBlob(String blobName) throws IOException {
+            beforeDeleteBlob(blobName);
+            return delegate.deleteBlob(blobName);
+        }
+
+        @Override public void deleteBlobsByPrefix(String blobNamePrefix) throws IOException {
+            delegate.deleteBlobsByPrefix(blobNamePrefix);
+        }
+
+        @Override public void deleteBlobsByFilter(BlobNameFilter filter) throws IOException {
+            delegate.deleteBlobsByFilter(filter);
+        }
+
+        @Override public ImmutableMap<String, BlobMetaData> listBlobs() throws IOException {
+            return delegate.listBlobs();
+        }
+
+        @Override public ImmutableMap<String, BlobMetaData> listBlobsByPrefix(String blobNamePrefix) throws IOException {
+            beforeListBlobsByPrefix();
+            return delegate.listBlobsByPrefix(blobNamePrefix);
+        }
+    }
+}
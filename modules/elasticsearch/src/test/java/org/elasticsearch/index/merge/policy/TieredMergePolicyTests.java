@@ -0,0 +1,104 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SerialMergeScheduler;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class TieredMergePolicyTests {
+
+    @Test public void testMergesSmallSegments() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        indexWriter.setMergeScheduler(new SerialMergeScheduler());
+        TieredMergePolicy mergePolicy = new TieredMergePolicy(indexWriter);
+        mergePolicy.setMaxMergeAtOnce(4);
+        mergePolicy.setSegmentsPerTier(4);
+        indexWriter.setMergePolicy(mergePolicy);
+        indexWriter.setMaxBufferedDocs(2);
+
+        for (int i = 0; i < 100; i++) {
+            indexWriter.addDocument(doc().add(field("_id", Integer.toString(i))).build());
+        }
+        for (int i = 0; i < 100; i += 2) {
+            indexWriter.deleteDocuments(new Term("_id", Integer.toString(i)));
+        }
+        indexWriter.commit();
+
+        IndexReader reader = IndexReader.open(dir, true);
+        // all segments are under the floor size, so they are all in the first tier
+        assertThat(reader.getSequentialSubReaders().length, lessThanOrEqualTo(4));
+        assertThat(reader.numDocs(), equalTo(50));
+        reader.close();
+        indexWriter.close();
+    }
+
+    @Test public void testPrefersSegmentsWithDeletes() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        // no merges while the segments are created
+        indexWriter.setMergeFactor(1000);
+
+        // three segments of the same size, the last one with most of its documents deleted
+        for (char segment = 'a'; segment <= 'c'; segment++) {
+            for (int i = 0; i < 10; i++) {
+                indexWriter.addDocument(doc().add(field("_id", segment + Integer.toString(i))).build());
+            }
+            indexWriter.commit();
+        }
+        for (int i = 0; i < 8; i++) {
+            indexWriter.deleteDocuments(new Term("_id", "c" + i));
+        }
+        indexWriter.commit();
+
+        SegmentInfos infos = new SegmentInfos();
+        infos.read(dir);
+        assertThat(infos.size(), equalTo(3));
+        assertThat(infos.info(0).docCount, equalTo(infos.info(2).docCount));
+
+        // only adjacent segments are merged, the middle one is merged either with the clean one or the one with deletes
+        TieredMergePolicy mergePolicy = new TieredMergePolicy(indexWriter);
+        mergePolicy.setMaxMergeAtOnce(2);
+        MergePolicy.MergeSpecification spec = mergePolicy.findMerges(infos);
+        assertThat(spec, notNullValue());
+        assertThat(spec.merges.size(), equalTo(1));
+        String merged = spec.merges.get(0).segString(dir);
+        assertThat(merged, containsString(infos.info(1).name + ":"));
+        assertThat(merged, containsString(infos.info(2).name + ":"));
+        assertThat(merged, not(containsString(infos.info(0).name + ":")));
+
+        indexWriter.close();
+    }
+}
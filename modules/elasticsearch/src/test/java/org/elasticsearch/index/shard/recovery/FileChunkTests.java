@@ -0,0 +1,183 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard.recovery;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.HandlesStreamInput;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.support.TransportStreams;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class FileChunkTests {
+
+    private final ShardId shardId = new ShardId("test", 0);
+
+    @Test public void testChunksReceivedOutOfOrderCompleteTheFile() throws Exception {
+        Random random = new Random();
+        byte[] content = new byte[1000];
+        random.nextBytes(content);
+        int chunkSize = 30;
+
+        List<RecoveryFileChunkRequest> chunks = new ArrayList<RecoveryFileChunkRequest>();
+        for (int position = 0; position < content.length; position += chunkSize) {
+            int length = Math.min(chunkSize, content.length - position);
+            byte[] chunk = new byte[length];
+            System.arraycopy(content, position, chunk, 0, length);
+            chunks.add(new RecoveryFileChunkRequest(shardId, "test", position, content.length, null, chunk, length));
+        }
+        // the first chunk is always acknowledged before the rest are sent, the rest might arrive in any order
+        Collections.shuffle(chunks.subList(1, chunks.size()), random);
+
+        RAMDirectory dir = new RAMDirectory();
+        IndexOutput indexOutput = dir.createOutput("test");
+        RecoveryStatus recoveryStatus = new RecoveryStatus();
+        for (int i = 0; i < chunks.size(); i++) {
+            boolean done = RecoveryTarget.writeFileChunk(recoveryStatus, indexOutput, chunks.get(i));
+            assertThat("chunk [" + i + "] completed the file", done, equalTo(i == chunks.size() - 1));
+        }
+        indexOutput.close();
+        assertThat(recoveryStatus.currentFilesSize(), equalTo((long) content.length));
+
+        IndexInput indexInput = dir.openInput("test");
+        assertThat(indexInput.length(), equalTo((long) content.length));
+        byte[] read = new byte[content.length];
+        indexInput.readBytes(read, 0, read.length);
+        indexInput.close();
+        assertThat(read, equalTo(content));
+    }
+
+    @Test public void testChunkFailureStopsTheFileAndIsThrown() throws Exception {
+        final RecoverySource.FileChunkWindow window = new RecoverySource.FileChunkWindow(2);
+        window.acquire();
+        window.acquire();
+        assertThat(window.hasFailed(), equalTo(false));
+
+        final Exception failure = new Exception("chunk failed");
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread sender = new Thread(new Runnable() {
+            @Override public void run() {
+                try {
+                    // blocks until a chunk in flight is acknowledged (or failed)
+                    window.acquire();
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        sender.start();
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+
+        window.failed(failure);
+        assertThat(acquired.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(window.hasFailed(), equalTo(true));
+
+        // the remaining chunks in flight complete, the failure is then thrown
+        final AtomicBoolean awaited = new AtomicBoolean();
+        final CountDownLatch failed = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable() {
+            @Override public void run() {
+                try {
+                    window.awaitAcknowledged();
+                    awaited.set(true);
+                } catch (Exception e) {
+                    if (e == failure) {
+                        failed.countDown();
+                    }
+                }
+            }
+        });
+        waiter.start();
+        assertThat(failed.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+        window.acknowledged();
+        window.acknowledged();
+        assertThat(failed.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(awaited.get(), equalTo(false));
+    }
+
+    @Test public void testAllChunksAcknowledged() throws Exception {
+        RecoverySource.FileChunkWindow window = new RecoverySource.FileChunkWindow(4);
+        for (int i = 0; i < 10; i++) {
+            window.acquire();
+            window.acknowledged();
+        }
+        window.awaitAcknowledged();
+        assertThat(window.hasFailed(), equalTo(false));
+    }
+
+    @Test public void testFilePayloadWrittenAsRegularRequest() throws Exception {
+        byte[] content = new byte[10000];
+        new Random().nextBytes(content);
+        File file = File.createTempFile("file-chunk", ".test");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(content);
+        fos.close();
+
+        int position = 1234;
+        int length = 5000;
+        RecoveryFileChunkRequest request = new RecoveryFileChunkRequest(shardId, "test", position, content.length, "checksum", file, length);
+        assertThat(request.payloadFile(), equalTo(file));
+        assertThat(request.payloadPosition(), equalTo((long) position));
+        assertThat(request.payloadLength(), equalTo(length));
+
+        // the header followed by the payload transferred from the file are the bytes of the regular request
+        byte[] regular = TransportStreams.buildRequest(1, "action", request, TransportRequestOptions.options());
+        byte[] header = TransportStreams.buildFilePayloadRequestHeader(1, "action", request);
+        byte[] filePayload = new byte[header.length + length];
+        System.arraycopy(header, 0, filePayload, 0, header.length);
+        System.arraycopy(content, position, filePayload, header.length, length);
+        assertThat(filePayload, equalTo(regular));
+
+        // and are read back as the chunk
+        HandlesStreamInput in = new HandlesStreamInput(new BytesStreamInput(filePayload, TransportStreams.HEADER_SIZE, filePayload.length));
+        assertThat(in.readUTF(), equalTo("action"));
+        RecoveryFileChunkRequest read = new RecoveryFileChunkRequest();
+        read.readFrom(in);
+        assertThat(read.name(), equalTo("test"));
+        assertThat(read.position(), equalTo((long) position));
+        assertThat(read.length(), equalTo((long) content.length));
+        assertThat(read.checksum(), equalTo("checksum"));
+        assertThat(read.contentLength(), equalTo(length));
+        byte[] expected = new byte[length];
+        System.arraycopy(content, position, expected, 0, length);
+        assertThat(read.content(), equalTo(expected));
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.shard.service;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.analysis.AnalysisService;
+import org.elasticsearch.index.deletionpolicy.KeepOnlyLastDeletionPolicy;
+import org.elasticsearch.index.deletionpolicy.SnapshotDeletionPolicy;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.robin.RobinEngine;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.xcontent.MapperTests;
+import org.elasticsearch.index.merge.policy.LogByteSizeMergePolicyProvider;
+import org.elasticsearch.index.merge.scheduler.SerialMergeSchedulerProvider;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.ram.RamStore;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.fs.FsTranslog;
+import org.elasticsearch.indices.recovery.IndicesRecoveryThrottle;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.cached.CachedThreadPool;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Replays batches of recovered operations concurrently, see {@link InternalIndexShard#performRecoveryOperations(java.util.List)}.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class RecoveryOperationsTests {
+
+    private final ShardId shardId = new ShardId(new Index("test"), 1);
+
+    private ThreadPool threadPool;
+
+    private Store store;
+
+    private Engine engine;
+
+    private IndicesRecoveryThrottle recoveryThrottle;
+
+    private TestIndexShard indexShard;
+
+    @BeforeMethod public void setUp() throws Exception {
+        threadPool = new CachedThreadPool();
+        store = new RamStore(shardId, EMPTY_SETTINGS, null, null);
+        store.deleteContent();
+        Translog translog = new FsTranslog(shardId, EMPTY_SETTINGS, new File("work/fs-translog"), false);
+        engine = new RobinEngine(shardId, EMPTY_SETTINGS, store, new SnapshotDeletionPolicy(new KeepOnlyLastDeletionPolicy(shardId, EMPTY_SETTINGS)), translog,
+                new LogByteSizeMergePolicyProvider(store), new SerialMergeSchedulerProvider(shardId, EMPTY_SETTINGS),
+                new AnalysisService(shardId.index()), new SimilarityService(shardId.index()), null);
+        MapperService mapperService = MapperTests.newMapperService();
+        mapperService.add("type1", "{\"type1\" : {}}");
+
+        Settings settings = settingsBuilder().put("index.shard.recovery.replay_concurrency", 4).build();
+        recoveryThrottle = new IndicesRecoveryThrottle(EMPTY_SETTINGS);
+        indexShard = new TestIndexShard(shardId, settings, store, engine, translog, threadPool, recoveryThrottle, mapperService);
+        indexShard.recovering();
+        indexShard.performRecoveryPrepareForTranslog();
+    }
+
+    @AfterMethod public void tearDown() throws Exception {
+        indexShard.close();
+        engine.close();
+        store.close();
+        threadPool.shutdownNow();
+    }
+
+    @Test public void testOperationsOnTheSameDocKeepTheirOrder() throws Exception {
+        List<Translog.Operation> operations = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            String id = Integer.toString(i);
+            operations.add(new Translog.Create("type1", id, source("created")));
+            operations.add(new Translog.Index("type1", id, source("updated")));
+            if (i % 2 == 0) {
+                operations.add(new Translog.Delete(uid(id)));
+            }
+        }
+        indexShard.performRecoveryOperations(operations);
+
+        engine.refresh(new Engine.Refresh(true));
+        assertThat(count(new TermQuery(new Term("value", "created"))), equalTo(0));
+        assertThat(count(new TermQuery(new Term("value", "updated"))), equalTo(50));
+        for (int i = 0; i < 100; i++) {
+            assertThat(count(new TermQuery(uid(Integer.toString(i)))), equalTo(i % 2 == 0 ? 0 : 1));
+        }
+    }
+
+    @Test public void testAppliedOnTheCallingThreadWithoutReplayThreads() throws Exception {
+        // other recoveries on the node use all the replay threads
+        int acquired = 0;
+        while (recoveryThrottle.tryAcquireReplayThread()) {
+            acquired++;
+        }
+        try {
+            List<Translog.Operation> operations = Lists.newArrayList();
+            for (int i = 0; i < 100; i++) {
+                String id = Integer.toString(i);
+                operations.add(new Translog.Create("type1", id, source("created")));
+                operations.add(new Translog.Index("type1", id, source("updated")));
+            }
+            indexShard.performRecoveryOperations(operations);
+        } finally {
+            for (int i = 0; i < acquired; i++) {
+                recoveryThrottle.releaseReplayThread();
+            }
+        }
+
+        engine.refresh(new Engine.Refresh(true));
+        assertThat(count(new TermQuery(new Term("value", "created"))), equalTo(0));
+        assertThat(count(new TermQuery(new Term("value", "updated"))), equalTo(100));
+    }
+
+    @Test public void testDeleteByQueryAppliedAfterPreviousOperations() throws Exception {
+        List<Translog.Operation> operations = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            operations.add(new Translog.Create("type1", Integer.toString(i), source("value")));
+        }
+        operations.add(new Translog.DeleteByQuery(new byte[0], null, "type1"));
+        for (int i = 50; i < 100; i++) {
+            operations.add(new Translog.Create("type1", Integer.toString(i), source("value")));
+        }
+        indexShard.performRecoveryOperations(operations);
+
+        // all the operations before the delete by query were applied, and none of the ones after it
+        assertThat(indexShard.docsBeforeDeleteByQuery, equalTo(50));
+        engine.refresh(new Engine.Refresh(true));
+        assertThat(count(new TermQuery(new Term("value", "value"))), equalTo(50));
+        assertThat(count(new TermQuery(uid("0"))), equalTo(0));
+        assertThat(count(new TermQuery(uid("99"))), equalTo(1));
+    }
+
+    @Test public void testFailingOperationFailsTheRecovery() throws Exception {
+        List<Translog.Operation> operations = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            operations.add(new Translog.Create("type1", Integer.toString(i), source("value")));
+        }
+        // not a valid source, fails to parse when replayed, on whichever thread its partition is applied on
+        operations.add(50, new Translog.Index("type1", "failed", new byte[]{'{', 'x'}));
+        try {
+            indexShard.performRecoveryOperations(operations);
+            assert false : "recovery should fail on the invalid operation";
+        } catch (ElasticSearchException e) {
+            // expected
+        }
+    }
+
+    private int count(Query query) throws Exception {
+        Engine.Searcher searcher = engine.searcher();
+        try {
+            return searcher.searcher().search(query, 1).totalHits;
+        } finally {
+            searcher.release();
+        }
+    }
+
+    private static Term uid(String id) {
+        return new Term("_uid", Uid.createUid("type1", id));
+    }
+
+    private static byte[] source(String value) {
+        return ("{\"value\" : \"" + value + "\"}").getBytes();
+    }
+
+    /**
+     * Applies a delete by query as a delete of all the docs visible once refreshed, recording how many
+     * there were, so no query parsing is needed.
+     */
+    static class TestIndexShard extends InternalIndexShard {
+
+        volatile int docsBeforeDeleteByQuery = -1;
+
+        TestIndexShard(ShardId shardId, Settings indexSettings, Store store, Engine engine, Translog translog, ThreadPool threadPool,
+                       IndicesRecoveryThrottle recoveryThrottle, MapperService mapperService) {
+            super(shardId, indexSettings, store, engine, translog, threadPool, recoveryThrottle, mapperService, null, null);
+        }
+
+        @Override public void performRecoveryOperation(Translog.Operation operation) throws ElasticSearchException {
+            if (operation.opType() != Translog.Operation.Type.DELETE_BY_QUERY) {
+                super.performRecoveryOperation(operation);
+                return;
+            }
+            engine().refresh(new Engine.Refresh(true));
+            Engine.Searcher searcher = engine().searcher();
+            try {
+                docsBeforeDeleteByQuery = searcher.reader().numDocs();
+            } finally {
+                searcher.release();
+            }
+            Query query = new TermQuery(new Term("value", "value"));
+            engine().delete(new Engine.DeleteByQuery(query, new byte[0], null, "type1"));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.index.merge.Merges;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.ram.RamStore;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class StoreIOStatsTests {
+
+    @Test public void testPurpose() {
+        assertThat(StoreIOStats.Purpose.current(false), equalTo(StoreIOStats.Purpose.SEARCH));
+        assertThat(StoreIOStats.Purpose.current(true), equalTo(StoreIOStats.Purpose.FLUSH));
+
+        Merges.startMerge();
+        try {
+            assertThat(StoreIOStats.Purpose.current(false), equalTo(StoreIOStats.Purpose.MERGE));
+            assertThat(StoreIOStats.Purpose.current(true), equalTo(StoreIOStats.Purpose.MERGE));
+        } finally {
+            Merges.endMerge();
+        }
+
+        StoreIOStats.Purpose.start(StoreIOStats.Purpose.SNAPSHOT);
+        try {
+            assertThat(StoreIOStats.Purpose.current(false), equalTo(StoreIOStats.Purpose.SNAPSHOT));
+        } finally {
+            StoreIOStats.Purpose.end();
+        }
+        assertThat(StoreIOStats.Purpose.current(false), equalTo(StoreIOStats.Purpose.SEARCH));
+    }
+
+    @Test public void testAddAndStream() throws Exception {
+        StoreIOStats stats1 = new StoreIOStats();
+        stats1.read("tis", StoreIOStats.Purpose.SEARCH, 100);
+        stats1.read("tis", StoreIOStats.Purpose.SEARCH, 50);
+        stats1.write(StoreIOStats.extension("segments_2"), StoreIOStats.Purpose.FLUSH, 10);
+
+        StoreIOStats stats2 = new StoreIOStats();
+        stats2.read("tis", StoreIOStats.Purpose.MERGE, 1000);
+        stats2.write("frq", StoreIOStats.Purpose.MERGE, 2000);
+
+        StoreIOStats total = new StoreIOStats();
+        total.add(stats1);
+        total.add(stats2);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        total.writeTo(out);
+        StoreIOStats read = StoreIOStats.readStoreIOStats(new BytesStreamInput(out.copiedByteArray()));
+
+        assertThat(read.extensions().size(), equalTo(3));
+        assertThat(read.readBytes("tis", StoreIOStats.Purpose.SEARCH), equalTo(150l));
+        assertThat(read.readOps("tis", StoreIOStats.Purpose.SEARCH), equalTo(2l));
+        assertThat(read.readBytes(StoreIOStats.Purpose.MERGE), equalTo(1000l));
+        assertThat(read.writtenBytes(StoreIOStats.Purpose.MERGE), equalTo(2000l));
+        assertThat(read.writtenBytes("segments", StoreIOStats.Purpose.FLUSH), equalTo(10l));
+        assertThat(read.writeOps(StoreIOStats.Purpose.FLUSH), equalTo(1l));
+        assertThat(read.readBytes(StoreIOStats.Purpose.RECOVERY), equalTo(0l));
+    }
+
+    @Test public void testInputsCountedUnderThePurposeMarkedWhenOpened() throws Exception {
+        Store store = new RamStore(new ShardId("test", 0), EMPTY_SETTINGS, null, null);
+        IndexOutput output = store.directory().createOutput("_1.tis");
+        output.writeBytes(new byte[100], 100);
+        output.close();
+
+        // recovery and snapshots open the files on their thread, and read them on other ones
+        StoreIOStats.Purpose.start(StoreIOStats.Purpose.RECOVERY);
+        IndexInput recoveryInput;
+        try {
+            recoveryInput = store.directory().openInput("_1.tis");
+        } finally {
+            StoreIOStats.Purpose.end();
+        }
+        readOnAnotherThread(recoveryInput, 100);
+        recoveryInput.close();
+
+        IndexInput searchInput = store.directory().openInput("_1.tis");
+        StoreIOStats.Purpose.start(StoreIOStats.Purpose.SNAPSHOT);
+        IndexInput snapshotInput;
+        try {
+            snapshotInput = (IndexInput) searchInput.clone();
+        } finally {
+            StoreIOStats.Purpose.end();
+        }
+        readOnAnotherThread(snapshotInput, 60);
+        snapshotInput.close();
+
+        searchInput.readBytes(new byte[40], 0, 40);
+        searchInput.close();
+
+        StoreIOStats stats = store.ioStats();
+        assertThat(stats.readBytes("tis", StoreIOStats.Purpose.RECOVERY), equalTo(100l));
+        assertThat(stats.readBytes("tis", StoreIOStats.Purpose.SNAPSHOT), equalTo(60l));
+        assertThat(stats.readBytes("tis", StoreIOStats.Purpose.SEARCH), equalTo(40l));
+        store.close();
+    }
+
+    private void readOnAnotherThread(final IndexInput input, final int length) throws Exception {
+        final Exception[] failure = new Exception[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override public void run() {
+                try {
+                    input.readBytes(new byte[length], 0, length);
+                } catch (Exception e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+}
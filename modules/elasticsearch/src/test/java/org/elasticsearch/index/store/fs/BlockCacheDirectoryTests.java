@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.fs;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.cache.memory.BlockCache;
+import org.elasticsearch.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class BlockCacheDirectoryTests {
+
+    @Test public void testCachedReads() throws IOException {
+        // 4 blocks of 16 bytes
+        BlockCache blockCache = new BlockCache(settingsBuilder().put("cache.memory.block.size", 16).put("cache.memory.block.cache_size", 64).build());
+        BlockCache.Stats stats = blockCache.stats("test");
+        BlockCacheDirectory dir = new BlockCacheDirectory(new RAMDirectory(), "test", blockCache, stats, ImmutableSet.<String>of());
+
+        byte[] hot = write(dir, "hot", 40, (byte) 1);
+        assertThat(read(dir, "hot"), equalTo(hot));
+        assertThat(stats.misses(), equalTo(3l));
+        assertThat(stats.hits(), equalTo(0l));
+
+        assertThat(read(dir, "hot"), equalTo(hot));
+        assertThat(stats.misses(), equalTo(3l));
+        assertThat(stats.hits(), equalTo(3l));
+
+        // reading a file once does not push out the blocks that are read again
+        byte[] scan = write(dir, "scan", 32, (byte) 2);
+        assertThat(read(dir, "scan"), equalTo(scan));
+        assertThat(stats.misses(), equalTo(5l));
+        assertThat(stats.evictions(), equalTo(1l));
+
+        assertThat(read(dir, "hot"), equalTo(hot));
+        assertThat(stats.hits(), equalTo(6l));
+    }
+
+    @Test public void testRewrittenFileIsNotServedFromCache() throws IOException {
+        BlockCache blockCache = new BlockCache(settingsBuilder().put("cache.memory.block.size", 16).put("cache.memory.block.cache_size", 64).build());
+        BlockCache.Stats stats = blockCache.stats("test");
+        BlockCacheDirectory dir = new BlockCacheDirectory(new RAMDirectory(), "test", blockCache, stats, ImmutableSet.<String>of());
+
+        byte[] first = write(dir, "file", 20, (byte) 1);
+        assertThat(read(dir, "file"), equalTo(first));
+
+        dir.deleteFile("file");
+        byte[] second = write(dir, "file", 20, (byte) 2);
+        assertThat(read(dir, "file"), equalTo(second));
+        assertThat(stats.hits(), equalTo(0l));
+    }
+
+    @Test public void testFileRewrittenOutsideTheDirectoryIsNotServedFromCache() throws IOException {
+        BlockCache blockCache = new BlockCache(settingsBuilder().put("cache.memory.block.size", 16).put("cache.memory.block.cache_size", 64).build());
+        BlockCache.Stats stats = blockCache.stats("test");
+        RAMDirectory delegate = new RAMDirectory();
+        BlockCacheDirectory dir = new BlockCacheDirectory(delegate, "test", blockCache, stats, ImmutableSet.<String>of());
+
+        IndexOutput output = delegate.createOutput("file");
+        output.writeBytes(new byte[]{1, 2, 3}, 3);
+        output.close();
+        assertThat(read(dir, "file"), equalTo(new byte[]{1, 2, 3}));
+
+        dir.deleteFile("file");
+        output = delegate.createOutput("file");
+        output.writeBytes(new byte[]{4, 5, 6}, 3);
+        output.close();
+        assertThat(read(dir, "file"), equalTo(new byte[]{4, 5, 6}));
+        assertThat(stats.hits(), equalTo(0l));
+    }
+
+    @Test public void testDeletedFilesAreNotTracked() throws IOException {
+        BlockCache blockCache = new BlockCache(settingsBuilder().put("cache.memory.block.size", 16).put("cache.memory.block.cache_size", 64).build());
+        BlockCacheDirectory dir = new BlockCacheDirectory(new RAMDirectory(), "test", blockCache, blockCache.stats("test"), ImmutableSet.<String>of());
+
+        for (int i = 0; i < 100; i++) {
+            write(dir, "file" + i, 20, (byte) i);
+            read(dir, "file" + i);
+            dir.deleteFile("file" + i);
+        }
+        write(dir, "live", 20, (byte) 1);
+        assertThat(dir.trackedFiles(), equalTo(1));
+    }
+
+    private byte[] write(BlockCacheDirectory dir, String name, int length, byte seed) throws IOException {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed + i);
+        }
+        IndexOutput output = dir.createOutput(name);
+        output.writeBytes(data, length);
+        output.close();
+        return data;
+    }
+
+    private byte[] read(BlockCacheDirectory dir, String name) throws IOException {
+        IndexInput input = dir.openInput(name);
+        byte[] data = new byte[(int) input.length()];
+        input.readBytes(data, 0, data.length);
+        input.close();
+        return data;
+    }
+}
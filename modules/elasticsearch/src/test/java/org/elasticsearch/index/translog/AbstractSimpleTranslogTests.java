@@ -27,6 +27,9 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.elasticsearch.index.translog.TranslogSizeMatcher.*;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -213,6 +216,105 @@ public abstract class AbstractSimpleTranslogTests {
         snapshot.release();
     }
 
+    @Test public void testRetainedSnapshots() {
+        translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        Translog.Snapshot snapshot = translog.snapshot();
+        assertThat(snapshot, translogSize(1));
+        long firstId = snapshot.translogId();
+        long lastPosition = snapshot.position();
+        snapshot.release();
+
+        translog.add(new Translog.Create("test", "2", new byte[]{2}));
+        translog.rollTranslog(firstId + 1);
+        translog.add(new Translog.Create("test", "3", new byte[]{3}));
+        translog.releasePreviousTranslogs();
+
+        assertThat(translog.hasHistory(firstId), equalTo(true));
+        assertThat(translog.hasHistory(firstId + 1), equalTo(true));
+        assertThat(translog.retainedSnapshots(firstId + 1).length, equalTo(0));
+
+        Translog.Snapshot[] snapshots = translog.retainedSnapshots(firstId);
+        assertThat(snapshots.length, equalTo(1));
+        assertThat(snapshots[0].translogId(), equalTo(firstId));
+        snapshots[0].seekForward(lastPosition);
+        assertThat(snapshots[0].hasNext(), equalTo(true));
+        assertThat(((Translog.Create) snapshots[0].next()).id(), equalTo("2"));
+        assertThat(snapshots[0].hasNext(), equalTo(false));
+        snapshots[0].release();
+
+        translog.newTranslog();
+        assertThat(translog.hasHistory(firstId), equalTo(false));
+        assertThat(translog.retainedSnapshots(firstId), nullValue());
+    }
+
+    @Test public void testReadLocation() {
+        Translog.Location location1 = translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        Translog.Location location2 = translog.add(new Translog.Index("test", "2", new byte[]{2}));
+
+        Translog.Create create = (Translog.Create) translog.read(location1);
+        assertThat(create.id(), equalTo("1"));
+        assertThat(create.source(), equalTo(new byte[]{1}));
+
+        Translog.Index index = (Translog.Index) translog.read(location2);
+        assertThat(index.id(), equalTo("2"));
+        assertThat(index.source(), equalTo(new byte[]{2}));
+
+        translog.newTranslog();
+        assertThat(translog.read(location1), nullValue());
+    }
+
+    @Test public void testBatchAdd() {
+        translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        Translog.Location[] locations = translog.add(new Translog.Operation[]{
+                new Translog.Index("test", "2", new byte[]{2}),
+                null,
+                new Translog.Delete(newUid("3"))
+        });
+        assertThat(locations.length, equalTo(3));
+        assertThat(locations[1], nullValue());
+        assertThat(translog.size(), equalTo(3));
+
+        Translog.Index index = (Translog.Index) translog.read(locations[0]);
+        assertThat(index.id(), equalTo("2"));
+        assertThat(index.source(), equalTo(new byte[]{2}));
+        Translog.Delete delete = (Translog.Delete) translog.read(locations[2]);
+        assertThat(delete.uid(), equalTo(newUid("3")));
+
+        Translog.Snapshot snapshot = translog.snapshot();
+        assertThat(snapshot, translogSize(3));
+        snapshot.release();
+    }
+
+    @Test public void testConcurrentAddsWithRequestDurability() throws Exception {
+        translog.durability(Translog.Durability.REQUEST);
+        final int numberOfThreads = 10;
+        final int numberOfOperations = 100;
+        final CountDownLatch latch = new CountDownLatch(numberOfThreads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int threadId = t;
+            new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        for (int i = 0; i < numberOfOperations; i++) {
+                            translog.add(new Translog.Index("test", threadId + "_" + i, new byte[]{(byte) i}));
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        assertThat(failure.get(), nullValue());
+
+        Translog.Snapshot snapshot = translog.snapshot();
+        assertThat(snapshot, translogSize(numberOfThreads * numberOfOperations));
+        snapshot.release();
+    }
+
     private Term newUid(String id) {
         return new Term("_uid", id);
     }
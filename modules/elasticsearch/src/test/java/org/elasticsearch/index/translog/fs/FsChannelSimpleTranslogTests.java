@@ -23,10 +23,14 @@ import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.index.translog.AbstractSimpleTranslogTests;
 import org.elasticsearch.index.translog.Translog;
 import org.testng.annotations.AfterTest;
+import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.RandomAccessFile;
 
 import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
 
 /**
  * @author kimchy (shay.banon)
@@ -37,6 +41,50 @@ public class FsChannelSimpleTranslogTests extends AbstractSimpleTranslogTests {
         return new FsTranslog(shardId, EMPTY_SETTINGS, new File("work/fs-translog"), false);
     }
 
+    @Test public void testStopAtCorruptedOperation() throws Exception {
+        translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        Translog.Location location = translog.add(new Translog.Index("test", "2", new byte[]{2}));
+        translog.add(new Translog.Index("test", "3", new byte[]{3}));
+        translog.sync();
+
+        // flip a byte in the middle of the second operation
+        RandomAccessFile raf = new RandomAccessFile(new File(((FsTranslog) translog).location(), "translog-" + translog.currentId()), "rw");
+        try {
+            long corruptedPosition = location.translogLocation + location.size / 2;
+            raf.seek(corruptedPosition);
+            byte b = raf.readByte();
+            raf.seek(corruptedPosition);
+            raf.writeByte(~b);
+        } finally {
+            raf.close();
+        }
+
+        FsChannelSnapshot snapshot = (FsChannelSnapshot) translog.snapshot();
+        assertThat(snapshot.hasNext(), equalTo(true));
+        assertThat(((Translog.Create) snapshot.next()).id(), equalTo("1"));
+        assertThat(snapshot.hasNext(), equalTo(false));
+        assertThat(snapshot.corrupted(), equalTo(true));
+        snapshot.release();
+    }
+
+    @Test public void testRollKeepsPreviousTranslogs() throws Exception {
+        File location = ((FsTranslog) translog).location();
+        long previousId = translog.currentId();
+        translog.add(new Translog.Create("test", "1", new byte[]{1}));
+
+        translog.rollTranslog(previousId + 1);
+        assertThat(translog.currentId(), equalTo(previousId + 1));
+        assertThat(translog.size(), equalTo(0));
+        assertThat(new File(location, "translog-" + previousId).exists(), equalTo(true));
+
+        translog.clearUnreferenced();
+        assertThat(new File(location, "translog-" + previousId).exists(), equalTo(true));
+
+        translog.releasePreviousTranslogs();
+        assertThat(new File(location, "translog-" + previousId).exists(), equalTo(false));
+        assertThat(new File(location, "translog-" + (previousId + 1)).exists(), equalTo(true));
+    }
+
     @AfterTest public void cleanup() {
         FileSystemUtils.deleteRecursively(new File("work/fs-translog"), true);
     }
@@ -0,0 +1,74 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class IndicesRecoveryThrottleTests {
+
+    @Test public void testIncomingStreams() {
+        IndicesRecoveryThrottle throttle = new IndicesRecoveryThrottle(settingsBuilder().put("indices.recovery.concurrent_incoming_streams", 2).build());
+        assertThat(throttle.tryAcquireIncomingStream(), equalTo(true));
+        assertThat(throttle.tryAcquireIncomingStream(), equalTo(true));
+        assertThat(throttle.tryAcquireIncomingStream(), equalTo(false));
+
+        throttle.releaseIncomingStream();
+        assertThat(throttle.tryAcquireIncomingStream(), equalTo(true));
+
+        throttle.concurrentIncomingStreams(3);
+        assertThat(throttle.tryAcquireIncomingStream(), equalTo(true));
+        assertThat(throttle.getIncomingStreams(), equalTo(3));
+    }
+
+    @Test public void testOutgoingStreamsWaitForRelease() throws Exception {
+        final IndicesRecoveryThrottle throttle = new IndicesRecoveryThrottle(settingsBuilder().put("indices.recovery.concurrent_streams", 1).build());
+        throttle.acquireOutgoingStream();
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread() {
+            @Override public void run() {
+                try {
+                    throttle.acquireOutgoingStream();
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        };
+        thread.start();
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+
+        // raising the limit at runtime lets the waiting stream start
+        throttle.concurrentStreams(2);
+        assertThat(acquired.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(throttle.getOutgoingStreams(), equalTo(2));
+        thread.join();
+    }
+}
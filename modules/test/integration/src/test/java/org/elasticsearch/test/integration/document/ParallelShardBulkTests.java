@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.document;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.elasticsearch.client.Requests.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.elasticsearch.common.xcontent.XContentFactory.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class ParallelShardBulkTests extends AbstractNodesTests {
+
+    @AfterMethod public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test public void testParallelParseKeepsItemOrderAndFailures() throws Exception {
+        Settings settings = settingsBuilder()
+                .put("action.bulk.parallel_parse.enabled", true)
+                .put("action.bulk.parallel_parse.min_items", 2)
+                .put("action.bulk.parallel_parse.threads", 4)
+                .build();
+        startNode("server1", settings);
+        startNode("server2", settings);
+        Client client = client("server1");
+
+        // a single shard, so all the items are parsed in parallel by the same shard bulk, on the primary and the replica
+        client.admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 1))
+                .execute().actionGet();
+        ClusterHealthResponse clusterHealth = client.admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+
+        BulkRequestBuilder bulk = client.prepareBulk();
+        Map<String, Integer> expectedValues = new HashMap<String, Integer>();
+        int numberOfItems = 200;
+        for (int i = 0; i < numberOfItems; i++) {
+            if (i % 10 == 9) {
+                bulk.add(client.prepareIndex("test", "type1", "failed" + i).setSource("{ xxx }"));
+            } else {
+                // the same ids are indexed over and over, the last item of each id wins
+                String id = Integer.toString(i % 7);
+                bulk.add(client.prepareIndex("test", "type1", id).setSource(jsonBuilder().startObject().field("value", i).endObject()));
+                expectedValues.put(id, i);
+            }
+        }
+        // deleted after being indexed by the items before
+        bulk.add(client.prepareDelete("test", "type1", "1"));
+        expectedValues.remove("1");
+
+        BulkResponse bulkResponse = bulk.execute().actionGet();
+        assertThat(bulkResponse.hasFailures(), equalTo(true));
+        assertThat(bulkResponse.items().length, equalTo(numberOfItems + 1));
+        for (int i = 0; i < numberOfItems; i++) {
+            if (i % 10 == 9) {
+                assertThat("item [" + i + "] should fail", bulkResponse.items()[i].isFailed(), equalTo(true));
+                assertThat(bulkResponse.items()[i].id(), equalTo("failed" + i));
+            } else {
+                assertThat("item [" + i + "] should not fail", bulkResponse.items()[i].isFailed(), equalTo(false));
+                assertThat(bulkResponse.items()[i].id(), equalTo(Integer.toString(i % 7)));
+            }
+        }
+        assertThat(bulkResponse.items()[numberOfItems].isFailed(), equalTo(false));
+        assertThat(bulkResponse.items()[numberOfItems].opType(), equalTo("delete"));
+
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        for (String node : new String[]{"server1", "server2"}) {
+            for (int i = 0; i < 7; i++) {
+                String id = Integer.toString(i);
+                GetResponse getResponse = client(node).prepareGet("test", "type1", id).execute().actionGet();
+                if (!expectedValues.containsKey(id)) {
+                    assertThat("id [" + id + "] should be deleted", getResponse.exists(), equalTo(false));
+                    continue;
+                }
+                assertThat(getResponse.exists(), equalTo(true));
+                assertThat(((Number) getResponse.sourceAsMap().get("value")).intValue(), equalTo(expectedValues.get(id)));
+            }
+            for (int i = 9; i < numberOfItems; i += 10) {
+                assertThat(client(node).prepareGet("test", "type1", "failed" + i).execute().actionGet().exists(), equalTo(false));
+            }
+            assertThat(client(node).prepareCount("test").execute().actionGet().count(), equalTo((long) expectedValues.size()));
+        }
+    }
+}
@@ -39,6 +39,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.elasticsearch.client.Requests.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
 import static org.elasticsearch.index.query.xcontent.QueryBuilders.*;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -227,6 +228,61 @@ public abstract class AbstractSimpleIndexGatewayTests extends AbstractNodesTests
         testLoad(false);
     }
 
+    @Test public void testTranslogReplayedConcurrentlyPerChunk() throws Exception {
+        startNode("server1");
+
+        logger.info("Running Cluster Health (waiting for node to startup properly)");
+        ClusterHealthResponse clusterHealth = client("server1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+
+        // get the environment, so we can clear the work dir when needed
+        Environment environment = ((InternalNode) node("server1")).injector().getInstance(Environment.class);
+
+        logger.info("--> creating test index, replaying the translog with 4 threads");
+        client("server1").admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.shard.recovery.replay_concurrency", 4)).execute().actionGet();
+        client("server1").admin().indices().preparePutMapping("test").setType("type1").setSource(mappingSource()).execute().actionGet();
+
+        clusterHealth = client("server1").admin().cluster().health(clusterHealthRequest().waitForYellowStatus().waitForActiveShards(1)).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+
+        logger.info("--> indexing, updating and deleting docs, all only in the translog");
+        for (int i = 0; i < 500; i++) {
+            client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource(source(Integer.toString(i), "first")).execute().actionGet();
+        }
+        for (int i = 0; i < 200; i++) {
+            client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource(source(Integer.toString(i), "second")).execute().actionGet();
+        }
+        for (int i = 400; i < 500; i++) {
+            client("server1").prepareDelete("test", "type1", Integer.toString(i)).execute().actionGet();
+        }
+        client("server1").admin().indices().prepareGatewaySnapshot().execute().actionGet();
+
+        logger.info("--> closing the server, clearing the data dir so the translog is replayed from the gateway");
+        closeNode("server1");
+        FileSystemUtils.deleteRecursively(environment.dataWithClusterFile());
+        startNode("server1");
+
+        clusterHealth = client("server1").admin().cluster().health(clusterHealthRequest().waitForYellowStatus().waitForActiveShards(1)).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.YELLOW));
+
+        logger.info("--> checking the operations on the same docs were replayed in order");
+        client("server1").admin().indices().prepareRefresh().execute().actionGet();
+        assertThat(client("server1").prepareCount().setQuery(matchAllQuery()).execute().actionGet().count(), equalTo(400l));
+        assertThat(client("server1").prepareCount().setQuery(termQuery("name", "second")).execute().actionGet().count(), equalTo(200l));
+        assertThat(client("server1").prepareCount().setQuery(termQuery("name", "first")).execute().actionGet().count(), equalTo(200l));
+
+        IndicesStatusResponse statusResponse = client("server1").admin().indices().prepareStatus().execute().actionGet();
+        for (IndexShardStatus indexShardStatus : statusResponse.index("test")) {
+            for (ShardStatus shardStatus : indexShardStatus) {
+                if (shardStatus.shardRouting().primary()) {
+                    assertThat(shardStatus.gatewayRecoveryStatus().recoveredTranslogOperations(), equalTo(800l));
+                }
+            }
+        }
+    }
+
     protected boolean isPersistentStorage() {
         return true;
     }
@@ -0,0 +1,218 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.gateway.local;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.gateway.Gateway;
+import org.elasticsearch.gateway.local.LocalGatewayMetaState;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.RandomAccessFile;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests the meta data persisted by the local gateway as a global state file referencing a state file per index.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class LocalGatewayMetaStateFilesTests extends AbstractNodesTests {
+
+    @AfterMethod public void cleanAndCloseNodes() throws Exception {
+        if (node("node1") != null) {
+            node("node1").stop();
+            ((InternalNode) node("node1")).injector().getInstance(Gateway.class).reset();
+        }
+        closeAllNodes();
+    }
+
+    @Test public void testRestartLoadsGlobalAndIndexStateFiles() throws Exception {
+        buildNode("node1", settingsBuilder().put("gateway.type", "local"));
+        cleanAndCloseNodes();
+
+        startNode("node1", settingsBuilder().put("gateway.type", "local"));
+        File stateLocation = stateLocation();
+        client("node1").admin().indices().prepareCreate("test1").addMapping("type1", mapping("type1")).execute().actionGet();
+        client("node1").admin().indices().prepareCreate("test2").execute().actionGet();
+        waitForYellow();
+
+        closeNode("node1");
+        assertThat(latestVersion(stateLocation, "global-"), greaterThan(-1l));
+        assertThat(latestVersion(stateLocation, "index-test1-"), greaterThan(-1l));
+        assertThat(latestVersion(stateLocation, "index-test2-"), greaterThan(-1l));
+        assertThat(latestVersion(stateLocation, "metadata-"), equalTo(-1l));
+
+        startNode("node1", settingsBuilder().put("gateway.type", "local"));
+        waitForYellow();
+        ClusterState state = client("node1").admin().cluster().prepareState().execute().actionGet().state();
+        assertThat(state.metaData().index("test1"), notNullValue());
+        assertThat(state.metaData().index("test1").mapping("type1"), notNullValue());
+        assertThat(state.metaData().index("test2"), notNullValue());
+    }
+
+    @Test public void testUnchangedIndexIsNotRewritten() throws Exception {
+        buildNode("node1", settingsBuilder().put("gateway.type", "local"));
+        cleanAndCloseNodes();
+
+        startNode("node1", settingsBuilder().put("gateway.type", "local"));
+        File stateLocation = stateLocation();
+        client("node1").admin().indices().prepareCreate("test1").execute().actionGet();
+        client("node1").admin().indices().prepareCreate("test2").execute().actionGet();
+        waitForYellow();
+        long test1Version = awaitVersionAbove(stateLocation, "index-test1-", -1);
+        long test2Version = awaitVersionAbove(stateLocation, "index-test2-", -1);
+
+        client("node1").admin().indices().preparePutMapping("test2").setType("type1").setSource(mapping("type1")).execute().actionGet();
+        awaitVersionAbove(stateLocation, "index-test2-", test2Version);
+
+        assertThat(latestVersion(stateLocation, "index-test1-"), equalTo(test1Version));
+    }
+
+    @Test public void testLegacyMetaDataFileIsReadAndMigrated() throws Exception {
+        buildNode("node1", settingsBuilder().put("gateway.type", "local"));
+        cleanAndCloseNodes();
+
+        startNode("node1", settingsBuilder().put("gateway.type", "local"));
+        File stateLocation = stateLocation();
+        client("node1").admin().indices().prepareCreate("test1").addMapping("type1", mapping("type1")).execute().actionGet();
+        waitForYellow();
+        ClusterState state = client("node1").admin().cluster().prepareState().execute().actionGet().state();
+        closeNode("node1");
+
+        logger.info("--> replacing the state files with a single meta data file, as written before the state was persisted per index");
+        for (File file : stateFiles(stateLocation, "global-")) {
+            file.delete();
+        }
+        for (File file : stateFiles(stateLocation, "index-")) {
+            file.delete();
+        }
+        LocalGatewayMetaState legacyState = LocalGatewayMetaState.builder().version(state.version()).metaData(state.metaData()).build();
+        XContentBuilder xContentBuilder = XContentFactory.contentBuilder(XContentType.JSON);
+        xContentBuilder.startObject();
+        LocalGatewayMetaState.Builder.toXContent(legacyState, xContentBuilder, ToXContent.EMPTY_PARAMS);
+        xContentBuilder.endObject();
+        FileOutputStream fos = new FileOutputStream(new File(stateLocation, "metadata-" + state.version()));
+        fos.write(xContentBuilder.unsafeBytes(), 0, xContentBuilder.unsafeBytesLength());
+        fos.close();
+
+        startNode("node1", settingsBuilder().put("gateway.type", "local"));
+        waitForYellow();
+        state = client("node1").admin().cluster().prepareState().execute().actionGet().state();
+        assertThat(state.metaData().index("test1"), notNullValue());
+        assertThat(state.metaData().index("test1").mapping("type1"), notNullValue());
+
+        logger.info("--> the next changes are persisted per index, and the meta data file is deleted");
+        client("node1").admin().indices().prepareCreate("test2").execute().actionGet();
+        waitForYellow();
+        awaitVersionAbove(stateLocation, "index-test2-", -1);
+        client("node1").admin().indices().prepareCreate("test3").execute().actionGet();
+        waitForYellow();
+        awaitVersionAbove(stateLocation, "index-test3-", -1);
+        assertThat(latestVersion(stateLocation, "index-test1-"), greaterThan(-1l));
+        assertThat(latestVersion(stateLocation, "metadata-"), equalTo(-1l));
+    }
+
+    @Test public void testChecksumMismatchFallsBackToThePreviousState() throws Exception {
+        buildNode("node1", settingsBuilder().put("gateway.type", "local"));
+        cleanAndCloseNodes();
+
+        startNode("node1", settingsBuilder().put("gateway.type", "local"));
+        File stateLocation = stateLocation();
+        client("node1").admin().indices().prepareCreate("test1").execute().actionGet();
+        waitForYellow();
+        long test1Version = awaitVersionAbove(stateLocation, "index-test1-", -1);
+        client("node1").admin().indices().preparePutMapping("test1").setType("type1").setSource(mapping("type1")).execute().actionGet();
+        test1Version = awaitVersionAbove(stateLocation, "index-test1-", test1Version);
+        closeNode("node1");
+
+        logger.info("--> corrupting the latest state file of [test1]");
+        RandomAccessFile raf = new RandomAccessFile(new File(stateLocation, "index-test1-" + test1Version), "rw");
+        raf.seek(raf.length());
+        raf.write(' ');
+        raf.close();
+
+        startNode("node1", settingsBuilder().put("gateway.type", "local"));
+        waitForYellow();
+        ClusterState state = client("node1").admin().cluster().prepareState().execute().actionGet().state();
+        // the previous state, before the mapping was added, was loaded
+        assertThat(state.metaData().index("test1"), notNullValue());
+        assertThat(state.metaData().index("test1").mapping("type1"), nullValue());
+    }
+
+    private File stateLocation() {
+        return new File(((InternalNode) node("node1")).injector().getInstance(NodeEnvironment.class).nodeDataLocation(), "_state");
+    }
+
+    private void waitForYellow() {
+        ClusterHealthResponse health = client("node1").admin().cluster().prepareHealth().setWaitForYellowStatus().execute().actionGet();
+        assertThat(health.timedOut(), equalTo(false));
+    }
+
+    private String mapping(String type) throws Exception {
+        return XContentFactory.jsonBuilder().startObject().startObject(type).startObject("properties")
+                .startObject("field").field("type", "string").endObject()
+                .endObject().endObject().endObject().string();
+    }
+
+    private File[] stateFiles(File stateLocation, final String prefix) {
+        File[] files = stateLocation.listFiles(new FilenameFilter() {
+            @Override public boolean accept(File dir, String name) {
+                return name.startsWith(prefix) && !name.endsWith(".tmp");
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    private long latestVersion(File stateLocation, String prefix) {
+        long version = -1;
+        for (File file : stateFiles(stateLocation, prefix)) {
+            version = Math.max(version, Long.parseLong(file.getName().substring(prefix.length())));
+        }
+        return version;
+    }
+
+    /**
+     * State files are written asynchronously, waits till one newer than the provided version exists.
+     */
+    private long awaitVersionAbove(File stateLocation, String prefix, long version) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            long latest = latestVersion(stateLocation, prefix);
+            if (latest > version) {
+                return latest;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("no state file [" + prefix + "] newer than [" + version + "] was written");
+    }
+}
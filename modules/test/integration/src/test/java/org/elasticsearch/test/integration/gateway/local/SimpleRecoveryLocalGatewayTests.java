@@ -150,6 +150,46 @@ public class SimpleRecoveryLocalGatewayTests extends AbstractNodesTests {
     }
 
 
+    @Test public void testSingleNodeNoFlushReplayedInBatches() throws Exception {
+        buildNode("node1", settingsBuilder().put("gateway.type", "local").build());
+        cleanAndCloseNodes();
+
+        // more than a batch of 1000 operations, replayed with 4 threads
+        Node node1 = startNode("node1", settingsBuilder().put("gateway.type", "local").put("index.number_of_shards", 1)
+                .put("index.shard.recovery.replay_concurrency", 4).build());
+        for (int i = 0; i < 1500; i++) {
+            node1.client().prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject().field("field", "first").endObject()).execute().actionGet();
+        }
+        for (int i = 0; i < 500; i++) {
+            node1.client().prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject().field("field", "second").endObject()).execute().actionGet();
+        }
+        for (int i = 1000; i < 1500; i++) {
+            node1.client().prepareDelete("test", "type1", Integer.toString(i)).execute().actionGet();
+        }
+        // a delete by query in the middle of a batch, followed by operations on the docs it deleted
+        node1.client().prepareDeleteByQuery("test").setQuery(termQuery("field", "first")).execute().actionGet();
+        for (int i = 500; i < 600; i++) {
+            node1.client().prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject().field("field", "third").endObject()).execute().actionGet();
+        }
+
+        node1.client().admin().indices().prepareRefresh().execute().actionGet();
+        assertThat(node1.client().prepareCount().setQuery(matchAllQuery()).execute().actionGet().count(), equalTo(600l));
+
+        closeNode("node1");
+        node1 = startNode("node1", settingsBuilder().put("gateway.type", "local").build());
+
+        logger.info("Running Cluster Health (wait for the shards to startup)");
+        ClusterHealthResponse clusterHealth = client("node1").admin().cluster().health(clusterHealthRequest().waitForYellowStatus().waitForActiveShards(1)).actionGet();
+        logger.info("Done Cluster Health, status " + clusterHealth.status());
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.YELLOW));
+
+        assertThat(node1.client().prepareCount().setQuery(matchAllQuery()).execute().actionGet().count(), equalTo(600l));
+        assertThat(node1.client().prepareCount().setQuery(termQuery("field", "first")).execute().actionGet().count(), equalTo(0l));
+        assertThat(node1.client().prepareCount().setQuery(termQuery("field", "second")).execute().actionGet().count(), equalTo(500l));
+        assertThat(node1.client().prepareCount().setQuery(termQuery("field", "third")).execute().actionGet().count(), equalTo(100l));
+    }
+
     @Test public void testSingleNodeWithFlush() throws Exception {
         buildNode("node1", settingsBuilder().put("gateway.type", "local").build());
         cleanAndCloseNodes();
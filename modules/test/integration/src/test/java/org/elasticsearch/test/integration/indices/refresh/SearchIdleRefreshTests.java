@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.indices.refresh;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.client.Requests.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.elasticsearch.common.xcontent.XContentFactory.*;
+import static org.elasticsearch.index.query.xcontent.QueryBuilders.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class SearchIdleRefreshTests extends AbstractNodesTests {
+
+    @AfterMethod public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test public void testSearchRefreshesSearchIdleShard() throws Exception {
+        startNode("node1");
+        Client client = client("node1");
+        // scheduled refreshes are far apart, so only searches of the idle shard make changes visible
+        client.admin().indices().prepareCreate("test").setSettings(settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put("index.engine.robin.refresh_interval", "1h")
+                .put("index.shard.refresh.lazy", true)
+                .put("index.shard.refresh.search_idle_after", "200ms"))
+                .execute().actionGet();
+        ClusterHealthResponse clusterHealth = client.admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+
+        InternalIndexShard shard = (InternalIndexShard) ((InternalNode) node("node1")).injector().getInstance(IndicesService.class)
+                .indexServiceSafe("test").shardSafe(0);
+
+        client.prepareIndex("test", "type1", "1").setSource(jsonBuilder().startObject().field("field", "value").endObject()).execute().actionGet();
+        Thread.sleep(500);
+        assertThat(shard.onDemandRefreshes(), equalTo(0l));
+
+        // the shard is search idle with a pending change, the search refreshes it and sees the change
+        assertThat(client.prepareCount("test").setQuery(matchAllQuery()).execute().actionGet().count(), equalTo(1l));
+        assertThat(shard.onDemandRefreshes(), equalTo(1l));
+
+        // searched recently, the search does not refresh
+        client.prepareIndex("test", "type1", "2").setSource(jsonBuilder().startObject().field("field", "value").endObject()).execute().actionGet();
+        assertThat(client.prepareSearch("test").setQuery(matchAllQuery()).execute().actionGet().hits().totalHits(), equalTo(1l));
+        assertThat(shard.onDemandRefreshes(), equalTo(1l));
+
+        // idle again, the search refreshes
+        Thread.sleep(500);
+        assertThat(client.prepareSearch("test").setQuery(matchAllQuery()).execute().actionGet().hits().totalHits(), equalTo(2l));
+        assertThat(shard.onDemandRefreshes(), equalTo(2l));
+
+        // idle with no pending changes, nothing to refresh
+        Thread.sleep(500);
+        assertThat(client.prepareSearch("test").setQuery(matchAllQuery()).execute().actionGet().hits().totalHits(), equalTo(2l));
+        assertThat(shard.onDemandRefreshes(), equalTo(2l));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.recovery;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.action.admin.indices.status.IndicesStatusResponse;
+import org.elasticsearch.action.admin.indices.status.PeerRecoveryStatus;
+import org.elasticsearch.action.admin.indices.status.ShardStatus;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.gateway.Gateway;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.client.Requests.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.elasticsearch.common.xcontent.XContentFactory.*;
+import static org.elasticsearch.index.query.xcontent.QueryBuilders.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Restarts the node holding the replica, which keeps its index on disk with the local gateway, and checks if
+ * it recovers by replaying the operations it misses or by copying the files of the primary.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class OperationsBasedRecoveryTests extends AbstractNodesTests {
+
+    @AfterMethod public void cleanAndCloseNodes() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            if (node("node" + i) != null) {
+                node("node" + i).stop();
+                // since we store (by default) the index snapshot under the gateway, resetting it will reset the index data as well
+                ((InternalNode) node("node" + i)).injector().getInstance(Gateway.class).reset();
+            }
+        }
+        closeAllNodes();
+    }
+
+    @Test public void testReplicaRecoversFromHistory() throws Exception {
+        startNodes(settingsBuilder().put("gateway.type", "local").build());
+        index(0, 10);
+        client("node1").admin().indices().prepareFlush().execute().actionGet();
+
+        logger.info("--> closing the node holding the replica");
+        closeNode("node2");
+        waitForShards(1, 1, ClusterHealthStatus.YELLOW);
+
+        index(10, 20);
+        client("node1").admin().indices().prepareFlush().execute().actionGet();
+        index(20, 30);
+
+        logger.info("--> starting the node holding the replica");
+        startNode("node2", settingsBuilder().put("gateway.type", "local").build());
+        waitForShards(2, 2, ClusterHealthStatus.GREEN);
+
+        PeerRecoveryStatus recoveryStatus = replicaRecoveryStatus();
+        assertThat(recoveryStatus.stage(), equalTo(PeerRecoveryStatus.Stage.DONE));
+        assertThat(recoveryStatus.indexSize().bytes(), equalTo(0l));
+        assertThat(recoveryStatus.recoveredIndexSize().bytes(), equalTo(0l));
+        assertThat(recoveryStatus.recoveredTranslogOperations(), greaterThan(0l));
+
+        assertCount(30);
+    }
+
+    @Test public void testReplicaRecoversFromFilesWithoutRetainedHistory() throws Exception {
+        startNodes(settingsBuilder().put("gateway.type", "local").put("index.translog.fs.retention.generations", 1).build());
+        index(0, 10);
+        client("node1").admin().indices().prepareFlush().execute().actionGet();
+
+        logger.info("--> closing the node holding the replica");
+        closeNode("node2");
+        waitForShards(1, 1, ClusterHealthStatus.YELLOW);
+
+        logger.info("--> flushing until the translog of the replica position is no longer retained");
+        for (int i = 1; i <= 3; i++) {
+            index(i * 10, (i + 1) * 10);
+            client("node1").admin().indices().prepareFlush().execute().actionGet();
+        }
+
+        logger.info("--> starting the node holding the replica");
+        startNode("node2", settingsBuilder().put("gateway.type", "local").put("index.translog.fs.retention.generations", 1).build());
+        waitForShards(2, 2, ClusterHealthStatus.GREEN);
+
+        PeerRecoveryStatus recoveryStatus = replicaRecoveryStatus();
+        assertThat(recoveryStatus.stage(), equalTo(PeerRecoveryStatus.Stage.DONE));
+        assertThat(recoveryStatus.indexSize().bytes(), greaterThan(0l));
+
+        assertCount(40);
+    }
+
+    @Test public void testReplicaRecoversFromFilesWithAnotherHistory() throws Exception {
+        startNodes(settingsBuilder().put("gateway.type", "local").build());
+        index(0, 10);
+        client("node1").admin().indices().prepareFlush().execute().actionGet();
+
+        logger.info("--> closing the node holding the replica");
+        closeNode("node2");
+        waitForShards(1, 1, ClusterHealthStatus.YELLOW);
+
+        logger.info("--> restarting the node holding the primary, starting a new history");
+        closeNode("node1");
+        startNode("node1", settingsBuilder().put("gateway.type", "local").build());
+        waitForShards(1, 1, ClusterHealthStatus.YELLOW);
+
+        index(10, 20);
+
+        logger.info("--> starting the node holding the replica");
+        startNode("node2", settingsBuilder().put("gateway.type", "local").build());
+        waitForShards(2, 2, ClusterHealthStatus.GREEN);
+
+        PeerRecoveryStatus recoveryStatus = replicaRecoveryStatus();
+        assertThat(recoveryStatus.stage(), equalTo(PeerRecoveryStatus.Stage.DONE));
+        assertThat(recoveryStatus.indexSize().bytes(), greaterThan(0l));
+
+        assertCount(20);
+    }
+
+    private void startNodes(Settings settings) throws Exception {
+        logger.info("--> cleaning nodes");
+        buildNode("node1", settingsBuilder().put("gateway.type", "local").build());
+        buildNode("node2", settingsBuilder().put("gateway.type", "local").build());
+        cleanAndCloseNodes();
+
+        logger.info("--> starting 2 nodes");
+        startNode("node1", settingsBuilder().put(settings).put("index.number_of_shards", 1).put("index.number_of_replicas", 1).build());
+        startNode("node2", settingsBuilder().put(settings).put("index.number_of_shards", 1).put("index.number_of_replicas", 1).build());
+
+        client("node1").admin().indices().create(createIndexRequest("test")).actionGet();
+        waitForShards(2, 2, ClusterHealthStatus.GREEN);
+    }
+
+    private void index(int from, int to) throws Exception {
+        for (int i = from; i < to; i++) {
+            client("node1").prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject().field("field", "value" + i).endObject()).execute().actionGet();
+        }
+    }
+
+    private void waitForShards(int nodes, int activeShards, ClusterHealthStatus status) {
+        logger.info("--> running cluster_health (wait for [{}] nodes and [{}] active shards)", nodes, activeShards);
+        ClusterHealthResponse clusterHealth = client("node1").admin().cluster().health(clusterHealthRequest().waitForNodes(Integer.toString(nodes)).waitForActiveShards(activeShards).waitForRelocatingShards(0)).actionGet();
+        logger.info("--> done cluster_health, status " + clusterHealth.status());
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(status));
+    }
+
+    private PeerRecoveryStatus replicaRecoveryStatus() {
+        IndicesStatusResponse statusResponse = client("node1").admin().indices().prepareStatus("test").execute().actionGet();
+        for (ShardStatus shardStatus : statusResponse.shards()) {
+            if (!shardStatus.shardRouting().primary()) {
+                assertThat(shardStatus.peerRecoveryStatus(), notNullValue());
+                return shardStatus.peerRecoveryStatus();
+            }
+        }
+        throw new AssertionError("no replica shard found");
+    }
+
+    private void assertCount(long count) {
+        client("node1").admin().indices().prepareRefresh().execute().actionGet();
+        for (int i = 0; i < 10; i++) {
+            assertThat(client("node1").prepareCount().setQuery(matchAllQuery()).execute().actionGet().count(), equalTo(count));
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.elasticsearch.index.gateway.s3;
 
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.gateway.blobstore.BlobStoreGatewayThrottle;
 import org.elasticsearch.index.gateway.IndexGateway;
 import org.elasticsearch.index.gateway.blobstore.BlobStoreIndexShardGateway;
 import org.elasticsearch.index.settings.IndexSettings;
@@ -35,8 +36,8 @@ import org.elasticsearch.threadpool.ThreadPool;
 public class S3IndexShardGateway extends BlobStoreIndexShardGateway {
 
     @Inject public S3IndexShardGateway(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool, IndexGateway indexGateway,
-                                       IndexShard indexShard, Store store) {
-        super(shardId, indexSettings, threadPool, indexGateway, indexShard, store);
+                                       IndexShard indexShard, Store store, BlobStoreGatewayThrottle throttle) {
+        super(shardId, indexSettings, threadPool, indexGateway, indexShard, store, throttle);
     }
 
     @Override public String type() {